@@ -290,6 +290,8 @@ class DRDAConnThread extends Thread {
 						sessionInitialState();
 						if (session == null)
 							break;
+                        if (parkSession())
+                            break;
                         // else fallthrough
 					case Session.ATTEXC:
 					case Session.SECACC:
@@ -305,6 +307,11 @@ class DRDAConnThread extends Thread {
                                 // DDMReader.fill(), which will happen
                                 // only when timeSlice is set.
                             }
+                            // A non-blocking session with no complete
+                            // request waiting goes back to the selector,
+                            // leaving this thread free for other sessions.
+                            if (parkSession())
+                                break;
 							currentTimeSlice = getTimeSlice();
 						} while ((currentTimeSlice <= 0)  || 
 							(System.currentTimeMillis() - timeStart < currentTimeSlice));
@@ -633,6 +640,11 @@ class DRDAConnThread extends Thread {
 	    rdbcolid = new DRDAString(writer);
 	    pkgid = new DRDAString(writer);
 	    pkgcnstkn = new DRDAString(writer);
+
+	    // a parked non-blocking session may be given to a new thread in the
+	    // middle of its conversation
+	    if (session.channel != null)
+	        initializeForSession();
 	}
 
 	/**
@@ -651,6 +663,9 @@ class DRDAConnThread extends Thread {
 		// initialize local pointers to session info
 		database = session.database;
 		appRequester = session.appRequester;
+		if (session.threadStateSaved)
+			// only stored in the session once ACCRDB completes
+			appRequester = session.connAppRequester;
 
 		// set sqlamLevel
 		if (session.state == Session.ATTEXC)
@@ -659,6 +674,61 @@ class DRDAConnThread extends Thread {
         /* All sessions MUST start as EBCDIC */
         reader.setEbcdicCcsid();
         writer.setEbcdicCcsid();
+
+        // pick up where the last thread left a parked session
+        if (session.threadStateSaved)
+        {
+            session.threadStateSaved = false;
+            if (session.utf8Ccsid)
+                switchToUtf8();
+            sqlamLevel = session.sqlamLevel;
+            diagnosticLevel = session.diagnosticLevel;
+            deferredReset = session.deferredReset;
+            pendingStatementTimeout = session.pendingStatementTimeout;
+            sendWarningsOnCNTQRY = session.sendWarningsOnCNTQRY;
+            prevPkgnamcsn = session.prevPkgnamcsn;
+            myPublicKey = session.publicKey;
+            myTargetSeed = session.targetSeed;
+        }
+	}
+
+	/**
+	 * Hand a non-blocking session back to the selector if it has no complete
+	 * request waiting. The protocol state this thread keeps between requests
+	 * is saved in the session first, so that whichever thread is given the
+	 * session next can restore it in initializeForSession().
+	 * <p>
+	 * XA sessions are never parked since their transaction branch is held by
+	 * this thread's DRDAXAProtocol.
+	 *
+	 * @return true if the session was parked and this thread must look for
+	 *         another one
+	 */
+	private boolean parkSession()
+	{
+		if (session == null || session.channel == null ||
+				(appRequester != null && appRequester.isXARequester()))
+			return false;
+
+		session.connAppRequester = appRequester;
+		session.utf8Ccsid = reader.getCurrentCcsidManager() instanceof Utf8CcsidManager;
+		session.sqlamLevel = sqlamLevel;
+		session.diagnosticLevel = diagnosticLevel;
+		session.deferredReset = deferredReset;
+		session.pendingStatementTimeout = pendingStatementTimeout;
+		session.sendWarningsOnCNTQRY = sendWarningsOnCNTQRY;
+		session.prevPkgnamcsn = prevPkgnamcsn;
+		session.publicKey = myPublicKey;
+		session.targetSeed = myTargetSeed;
+		session.threadStateSaved = true;
+
+		if (!session.parkIfIdle())
+		{
+			session.threadStateSaved = false;
+			return false;
+		}
+		session = null;
+		return true;
 	}
 	/**      
 	 * In initial state for a session, 
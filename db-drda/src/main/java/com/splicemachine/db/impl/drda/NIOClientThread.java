@@ -0,0 +1,185 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+
+package com.splicemachine.db.impl.drda;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking replacement for {@link ClientThread}, used when
+ * <code>derby.drda.nonBlocking</code> is set. One selector accepts clients
+ * and reads from every session that is not being processed; a session is
+ * put on the server's run queue only when its {@link SessionChannel} holds a
+ * complete request, so the number of connection threads follows the number
+ * of requests in flight rather than the number of open connections.
+ */
+final class NIOClientThread extends Thread {
+
+    private final NetworkServerControlImpl parent;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    // channels whose interest set must be changed on the selector thread
+    private final ConcurrentLinkedQueue<SessionChannel> pendingInterest =
+            new ConcurrentLinkedQueue<>();
+
+    NIOClientThread(NetworkServerControlImpl nsi, ServerSocketChannel ssc)
+            throws IOException {
+
+        // Create a more meaningful name for this thread (but preserve its
+        // thread id from the default name).
+        NetworkServerControlImpl.setUniqueThreadName(this, "NetworkServerSelectorThread");
+
+        parent = nsi;
+        serverChannel = ssc;
+        selector = Selector.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public void run() {
+        try {
+            while (!parent.getShutdown()) {
+                applyPendingInterest();
+                selector.select();
+                if (parent.getShutdown())
+                    return;
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid())
+                            continue;
+                        if (key.isAcceptable()) {
+                            acceptClient();
+                        } else {
+                            processChannel((SessionChannel) key.attachment(), key);
+                        }
+                    } catch (CancelledKeyException cke) {
+                        // the session was closed while we looked at it
+                    } catch (Exception e) {
+                        // Log and carry on with the other clients
+                        parent.consoleExceptionPrintTrace(e);
+                    }
+                }
+            }
+        } catch (IOException ioe) {
+            // The selector itself failed, which leaves nobody to accept or
+            // read from clients: shut the server down as ClientThread does
+            // when accept keeps failing.
+            if (!parent.getShutdown()) {
+                parent.consoleExceptionPrintTrace(ioe);
+                parent.directShutdownInternal();
+            }
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException ioe) {
+                parent.consoleExceptionPrintTrace(ioe);
+            }
+        }
+    }
+
+    /**
+     * Ask the selector thread to recompute which operations it watches for
+     * on a channel. May be called from any thread.
+     */
+    void updateInterest(SessionChannel channel) {
+        pendingInterest.add(channel);
+        selector.wakeup();
+    }
+
+    private void applyPendingInterest() {
+        SessionChannel channel;
+        while ((channel = pendingInterest.poll()) != null) {
+            applyInterest(channel);
+        }
+    }
+
+    private void applyInterest(SessionChannel channel) {
+        SelectionKey key = channel.getKey();
+        if (key != null && key.isValid()) {
+            try {
+                key.interestOps(channel.interestOps());
+            } catch (CancelledKeyException cke) {
+                // closed in the meantime
+            }
+        }
+    }
+
+    private void processChannel(SessionChannel channel, SelectionKey key)
+            throws Exception {
+        if (key.isWritable())
+            channel.writeReady();
+        if (key.isReadable() && channel.readFromChannel())
+            parent.scheduleSession(channel.getSession());
+        applyInterest(channel);
+    }
+
+    private void acceptClient() throws Exception {
+        SocketChannel clientChannel;
+        try {
+            clientChannel = AccessController.doPrivileged(
+                    new PrivilegedExceptionAction<SocketChannel>() {
+                        public SocketChannel run() throws IOException {
+                            return serverChannel.accept();
+                        }
+                    });
+        } catch (PrivilegedActionException e) {
+            throw e.getException();
+        }
+        if (clientChannel == null)
+            return;
+
+        SessionChannel channel = null;
+        try {
+            clientChannel.configureBlocking(false);
+            clientChannel.socket().setKeepAlive(parent.getKeepAlive());
+
+            // The client speaks first, so the session starts out parked
+            // until its first request arrives.
+            channel = new SessionChannel(this, clientChannel);
+            parent.addSession(channel);
+            channel.setKey(clientChannel.register(selector, SelectionKey.OP_READ, channel));
+        } catch (Exception e) {
+            if (channel != null && channel.getSession() != null)
+                parent.removeFromSessionTable(channel.getSession().getConnNum());
+            clientChannel.close();
+            throw e;
+        }
+    }
+}
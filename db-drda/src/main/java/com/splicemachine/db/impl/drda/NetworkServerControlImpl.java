@@ -35,6 +35,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import javax.net.SocketFactory;
@@ -44,6 +45,7 @@ import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.SSLServerSocketFactory;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.charset.Charset;
 import java.security.Permission;
 import java.security.AccessController;
@@ -162,6 +164,8 @@ public final class NetworkServerControlImpl {
 	private final static int USE_DEFAULT = -1;
 	private final static int DEFAULT_MAXTHREADS = 0; //for now create whenever needed
 	private final static int DEFAULT_TIMESLICE = 0;	//for now never yield
+	// threads only serve requests in progress when sessions are non-blocking
+	private final static int DEFAULT_NON_BLOCKING_MAX_THREADS = 256;
 
 	private final static String DEFAULT_HOST = "localhost";
 	private final static String DRDA_MSG_PREFIX = "DRDA_";
@@ -277,6 +281,7 @@ public final class NetworkServerControlImpl {
 										// and changing timeSlice
 
 	private boolean keepAlive = true;   // keepAlive value for client socket 
+	private boolean nonBlocking;        // multiplex client sockets on a selector
 	private int minPoolSize;			//minimum pool size for pooled connections
 	private int maxPoolSize;			//maximum pool size for pooled connections
 	private Object poolSync = new Object();	// object to use for syning reading
@@ -673,6 +678,12 @@ public final class NetworkServerControlImpl {
 		switch (getSSLMode()) {
 		case SSL_OFF:
 		default:
+			if (nonBlocking) {
+				// NIOClientThread accepts from the channel behind this socket
+				ServerSocketChannel ssc = ServerSocketChannel.open();
+				ssc.bind(new InetSocketAddress(hostAddress, portNumber), 0);
+				return ssc.socket();
+			}
 			ServerSocketFactory sf =
 				ServerSocketFactory.getDefault();
 			return sf.createServerSocket(portNumber
@@ -793,11 +804,14 @@ public final class NetworkServerControlImpl {
 
 		// We accept clients on a separate thread so we don't run into a problem
 		// blocking on the accept when trying to process a shutdown
-		final ClientThread clientThread =	 
-			(ClientThread) AccessController.doPrivileged(
+		final Thread clientThread =	 
+			(Thread) AccessController.doPrivileged(
 								new PrivilegedExceptionAction() {
 									public Object run() throws Exception
 									{
+										if (serverSocket.getChannel() != null)
+											return new NIOClientThread(thisControl,
+																	   serverSocket.getChannel());
 										return new ClientThread(thisControl, 
 																serverSocket);
 									}
@@ -3084,6 +3098,12 @@ public final class NetworkServerControlImpl {
 			StringUtil.SQLEqualsIgnoreCase(propval,"false"))
 			keepAlive = false;
 		
+		propval = PropertyUtil.getSystemProperty( 
+			Property.DRDA_PROP_NONBLOCKING);
+		if (propval != null && 
+			StringUtil.SQLEqualsIgnoreCase(propval,"true"))
+			nonBlocking = true;
+
 		propval = PropertyUtil.getSystemProperty( 
 			Property.DRDA_PROP_HOSTNAME);
 		if (propval != null){
@@ -3897,6 +3917,7 @@ public final class NetworkServerControlImpl {
 		retval.put(Property.DRDA_PROP_PORTNUMBER, new Integer(portNumber).toString());
 		retval.put(Property.DRDA_PROP_HOSTNAME, hostArg);
 		retval.put(Property.DRDA_PROP_KEEPALIVE, new Boolean(keepAlive).toString());
+		retval.put(Property.DRDA_PROP_NONBLOCKING, new Boolean(nonBlocking).toString());
 
 		String tracedir = getTraceDirectory();
 		if (tracedir != null)
@@ -3955,12 +3976,7 @@ public final class NetworkServerControlImpl {
 	 */
 	void addSession(Socket clientSocket) throws Exception {
 
-		int connectionNumber = ++connNum;
-
-		if (getLogConnections()) {
-			consolePropertyMessage("DRDA_ConnNumber.I",
-								   Integer.toString(connectionNumber));
-		}
+		int connectionNumber = nextConnectionNumber();
 
 		// Note that we always re-fetch the tracing configuration because it
 		// may have changed (there are administrative commands which allow
@@ -3970,6 +3986,56 @@ public final class NetworkServerControlImpl {
 
 		sessionTable.put(new Integer(connectionNumber), session);
 
+		scheduleSession(session);
+	}
+
+	/**
+	 * Add a session - for use by <code>NIOClientThread</code>. Put the
+	 * session into the session table only; the selector thread calls
+	 * {@link #scheduleSession} once the client has sent a request.
+	 *
+	 * <p><code>addSession()</code> should only be called from one thread at a
+	 * time.
+	 *
+	 * @param channel the non-blocking transport of the session
+	 */
+	void addSession(SessionChannel channel) throws Exception {
+
+		int connectionNumber = nextConnectionNumber();
+
+		Session session = new Session(this, connectionNumber, channel,
+									  getTraceDirectory(), getTraceAll());
+		channel.setSession(session);
+
+		sessionTable.put(new Integer(connectionNumber), session);
+	}
+
+	private int nextConnectionNumber() throws Exception {
+
+		int connectionNumber = ++connNum;
+
+		if (getLogConnections()) {
+			consolePropertyMessage("DRDA_ConnNumber.I",
+								   Integer.toString(connectionNumber));
+		}
+		return connectionNumber;
+	}
+
+	/**
+	 * Put a session on the run queue, starting a new
+	 * <code>DRDAConnThread</code> if there are more sessions waiting than
+	 * there are free threads, and the maximum number of threads is not
+	 * exceeded. A server accepting non-blocking sessions only needs a thread
+	 * per request in progress, so it bounds the number of threads by
+	 * DEFAULT_NON_BLOCKING_MAX_THREADS when no maximum has been set.
+	 *
+	 * <p>Like <code>addSession()</code>, this should only be called from one
+	 * thread at a time.
+	 *
+	 * @param session a session with work to do
+	 */
+	void scheduleSession(Session session) throws Exception {
+
 		// Check whether there are enough free threads to service all the
 		// threads in the run queue in addition to the newly added session.
 		boolean enoughThreads;
@@ -3992,7 +4058,10 @@ public final class NetworkServerControlImpl {
 			synchronized (threadsSync) {
 				// only start a new thread if we have no maximum number of
 				// threads or the maximum number of threads is not exceeded
-				if ((maxThreads == 0) || (threadList.size() < maxThreads)) {
+				int threadLimit = maxThreads;
+				if (threadLimit == 0 && session.channel != null)
+					threadLimit = DEFAULT_NON_BLOCKING_MAX_THREADS;
+				if ((threadLimit == 0) || (threadList.size() < threadLimit)) {
 					thread = new DRDAConnThread(session, this, getTimeSlice(),
 												getLogConnections());
 					threadList.add(thread);
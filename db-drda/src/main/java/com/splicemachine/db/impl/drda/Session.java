@@ -72,6 +72,22 @@ class Session
 	protected int qryinsid;				// unique identifier for each query
 	protected LocalizedResource langUtil;		// localization information for command session
 										// client
+	protected SessionChannel channel;	// non-blocking transport, null if the
+										// session owns a blocking socket
+
+	// protocol state a DRDAConnThread keeps between requests, saved here
+	// while a non-blocking session is parked (see DRDAConnThread.parkSession)
+	protected boolean threadStateSaved;
+	protected AppRequester connAppRequester;
+	protected boolean utf8Ccsid;
+	protected int sqlamLevel;
+	protected byte diagnosticLevel;
+	protected boolean deferredReset;
+	protected int pendingStatementTimeout;
+	protected boolean sendWarningsOnCNTQRY;
+	protected Pkgnamcsn prevPkgnamcsn;
+	protected byte[] publicKey;
+	protected byte[] targetSeed;
 
 	private	Hashtable	dbtable;		// Table of databases accessed in this session
 	private NetworkServerControlImpl nsctrl;        // NetworkServerControlImpl needed for logging
@@ -91,10 +107,34 @@ class Session
 	 */
 	Session (NetworkServerControlImpl nsctrl, int connNum, Socket clientSocket, String traceDirectory,
 			boolean traceOn) throws Exception
+	{
+		this(nsctrl, connNum, clientSocket, null, traceDirectory, traceOn);
+	}
+
+	/**
+	 * Session constructor for a session accepted by the non-blocking
+	 * front end
+	 *
+	 * @param connNum		connection number
+	 * @param channel		non-blocking transport for this session
+	 * @param traceDirectory	location for trace files
+	 * @param traceOn		whether to start tracing this connection
+	 *
+	 * @exception throws IOException
+	 */
+	Session (NetworkServerControlImpl nsctrl, int connNum, SessionChannel channel, String traceDirectory,
+			boolean traceOn) throws Exception
+	{
+		this(nsctrl, connNum, channel.socket(), channel, traceDirectory, traceOn);
+	}
+
+	private Session (NetworkServerControlImpl nsctrl, int connNum, Socket clientSocket,
+			SessionChannel channel, String traceDirectory, boolean traceOn) throws Exception
 	{
         this.nsctrl = nsctrl;
 		this.connNum = connNum;
 		this.clientSocket = clientSocket;
+		this.channel = channel;
 		this.traceOn = traceOn;
 		if (traceOn)
 			dssTrace = new DssTrace(); 
@@ -260,6 +300,18 @@ class Session
 		return (getRequiredSecurityCodepoint() != -1);
 	}
 
+	/**
+	 * Hand a non-blocking session back to the selector between requests.
+	 *
+	 * @return true if the session was parked and the calling thread must
+	 *         stop working on it, false if it has more to process or is
+	 *         not a non-blocking session
+	 */
+	protected boolean parkIfIdle()
+	{
+		return channel != null && channel.park();
+	}
+
 	/**
 	 * Set Session state
 	 * 
@@ -277,8 +329,16 @@ class Session
 	private void initialize(String traceDirectory)
 		throws Exception
 	{
-		sessionInput = clientSocket.getInputStream();
-		sessionOutput = clientSocket.getOutputStream();
+		if (channel != null)
+		{
+			sessionInput = channel.getInputStream();
+			sessionOutput = channel.getOutputStream();
+		}
+		else
+		{
+			sessionInput = clientSocket.getInputStream();
+			sessionOutput = clientSocket.getOutputStream();
+		}
 		if (traceOn)
 			initTrace(traceDirectory,false);
 		state = INIT;
@@ -0,0 +1,428 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+
+package com.splicemachine.db.impl.drda;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * The transport of a session accepted by {@link NIOClientThread}.
+ * <p>
+ * The selector thread reads whatever the client sends into a buffer and
+ * follows the DSS headers to find where each request chain ends. The session
+ * is handed to a <code>DRDAConnThread</code> only once a complete chain has
+ * arrived, and the thread gives it back with {@link #park()} when it has
+ * nothing left to process, so an idle session does not hold a thread.
+ * <p>
+ * The streams returned to the session block like socket streams do, which
+ * keeps <code>DDMReader</code> and <code>DDMWriter</code> unaware of the
+ * selector. Reads never cross the end of a request chain, so the reader never
+ * holds bytes of a request it has not been asked to process yet.
+ * <p>
+ * If the first bytes are not a DSS (for instance a NetworkServerControl
+ * command) the session is treated as unframed: it is dispatched as soon as
+ * data arrives and is never parked.
+ */
+final class SessionChannel
+{
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    // a request larger than this (e.g. a streamed LOB) is processed while
+    // it is still arriving, with the selector pausing reads while it is full
+    private static final int MAX_BUFFER_SIZE = 256 * 1024;
+
+    private final NIOClientThread selectorThread;
+    private final SocketChannel channel;
+    private final InputStream input = new ChannelInput();
+    private final OutputStream output = new ChannelOutput();
+    private final Object lock = new Object();
+
+    private SelectionKey key;
+    private Session session;
+
+    // buffered input; all offsets are positions in the client's byte stream
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private long bufferOffset;      // stream position of buffer[0]
+    private long readOffset;        // next byte for the session to read
+    private long writeOffset;       // next byte to come from the client
+    private long scanOffset;        // next byte for the DSS scan to look at
+    private final ArrayDeque<Long> requestEnds = new ArrayDeque<>();
+
+    // DSS scan state
+    private boolean framed = true;
+    private boolean inSegment;
+    private int segmentRemaining;
+    private boolean segmentContinued;
+    private boolean segmentChained;
+
+    private boolean endOfInput;
+    private boolean readSuspended;
+    private boolean writeWaiting;
+    private boolean owned;
+    private boolean closed;
+
+    SessionChannel(NIOClientThread selectorThread, SocketChannel channel)
+    {
+        this.selectorThread = selectorThread;
+        this.channel = channel;
+    }
+
+    Socket socket()
+    {
+        return channel.socket();
+    }
+
+    InputStream getInputStream()
+    {
+        return input;
+    }
+
+    OutputStream getOutputStream()
+    {
+        return output;
+    }
+
+    Session getSession()
+    {
+        return session;
+    }
+
+    void setSession(Session session)
+    {
+        this.session = session;
+    }
+
+    SelectionKey getKey()
+    {
+        return key;
+    }
+
+    void setKey(SelectionKey key)
+    {
+        this.key = key;
+    }
+
+    /**
+     * @return the operations the selector should watch for on this channel
+     */
+    int interestOps()
+    {
+        synchronized (lock) {
+            int ops = 0;
+            if (!endOfInput && !closed && !readSuspended)
+                ops |= SelectionKey.OP_READ;
+            if (writeWaiting)
+                ops |= SelectionKey.OP_WRITE;
+            return ops;
+        }
+    }
+
+    /**
+     * Read what the client has sent. Called by the selector thread when the
+     * channel is readable.
+     *
+     * @return true if the session now needs a connection thread and the
+     *         caller must schedule it
+     */
+    boolean readFromChannel()
+    {
+        synchronized (lock) {
+            if (closed)
+                return false;
+            if (makeRoom()) {
+                int start = (int) (writeOffset - bufferOffset);
+                int read;
+                try {
+                    read = channel.read(ByteBuffer.wrap(buffer, start, buffer.length - start));
+                } catch (IOException ioe) {
+                    // the session will see end of input and close itself
+                    read = -1;
+                }
+                if (read < 0) {
+                    endOfInput = true;
+                } else {
+                    writeOffset += read;
+                    scan();
+                }
+            }
+            if (writeOffset - bufferOffset == buffer.length && !makeRoom())
+                readSuspended = true;
+            lock.notifyAll();
+            if (!owned && (hasRequest() || endOfInput || readSuspended)) {
+                owned = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Called by the selector thread when a blocked write can make progress.
+     */
+    void writeReady()
+    {
+        synchronized (lock) {
+            writeWaiting = false;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Give the session back to the selector if it has no complete request
+     * waiting. Called by the connection thread between requests.
+     *
+     * @return true if the session was parked and the thread must let go of
+     *         it, false if there is more work for the thread
+     */
+    boolean park()
+    {
+        synchronized (lock) {
+            if (!framed || hasRequest() || endOfInput || readSuspended || closed)
+                return false;
+            owned = false;
+            return true;
+        }
+    }
+
+    void close() throws IOException
+    {
+        synchronized (lock) {
+            if (closed)
+                return;
+            closed = true;
+            lock.notifyAll();
+        }
+        // closing the channel also cancels its selection key
+        channel.close();
+    }
+
+    private boolean hasRequest()
+    {
+        return framed ? !requestEnds.isEmpty() : readOffset < writeOffset;
+    }
+
+    /**
+     * Make room at the end of the buffer, first by dropping bytes that
+     * neither the session nor the DSS scan needs any more and then by growing
+     * it up to MAX_BUFFER_SIZE. While a request is still arriving the session
+     * may have read the start of a DSS header the scan is waiting to
+     * complete, so those bytes are kept too.
+     *
+     * @return true if there is room for at least one more byte
+     */
+    private boolean makeRoom()
+    {
+        int used = (int) (writeOffset - bufferOffset);
+        if (used < buffer.length)
+            return true;
+        long keepOffset = framed ? Math.min(readOffset, scanOffset) : readOffset;
+        int consumed = (int) (keepOffset - bufferOffset);
+        int live = used - consumed;
+        if (consumed > 0 && live < buffer.length / 2) {
+            System.arraycopy(buffer, consumed, buffer, 0, live);
+            bufferOffset = keepOffset;
+            return true;
+        }
+        if (buffer.length >= MAX_BUFFER_SIZE) {
+            if (consumed == 0)
+                return false;
+            System.arraycopy(buffer, consumed, buffer, 0, live);
+            bufferOffset = keepOffset;
+            return true;
+        }
+        byte[] newBuffer = new byte[Math.min(buffer.length * 2, MAX_BUFFER_SIZE)];
+        System.arraycopy(buffer, consumed, newBuffer, 0, live);
+        buffer = newBuffer;
+        bufferOffset = keepOffset;
+        return true;
+    }
+
+    /**
+     * Follow the DSS headers through the newly arrived bytes, recording the
+     * end of every request chain that is now complete. A DSS is chained to
+     * the next one while its format byte has the chain bit set, and a DSS
+     * longer than MAX_DSS_LENGTH continues in segments that each start with
+     * a two byte continuation header.
+     */
+    private void scan()
+    {
+        while (framed) {
+            if (inSegment) {
+                int n = (int) Math.min(segmentRemaining, writeOffset - scanOffset);
+                scanOffset += n;
+                segmentRemaining -= n;
+                if (segmentRemaining > 0)
+                    return;
+                inSegment = false;
+                if (!segmentContinued && !segmentChained)
+                    requestEnds.addLast(scanOffset);
+                continue;
+            }
+
+            int headerLength = segmentContinued ? 2 : 6;
+            if (writeOffset - scanOffset < headerLength)
+                return;
+            int pos = (int) (scanOffset - bufferOffset);
+            int length = ((buffer[pos] & 0xff) << 8) + (buffer[pos + 1] & 0xff);
+            if (!segmentContinued) {
+                if ((buffer[pos + 2] & 0xff) != DssConstants.DSS_ID) {
+                    // not DRDA; DDMReader decides what to make of it
+                    framed = false;
+                    return;
+                }
+                segmentChained = (buffer[pos + 3] & DssConstants.DSSCHAIN) == DssConstants.DSSCHAIN;
+            }
+            segmentContinued = (length & DssConstants.CONTINUATION_BIT) == DssConstants.CONTINUATION_BIT;
+            int segmentLength = segmentContinued ? DssConstants.MAX_DSS_LENGTH : length;
+            if (segmentLength < headerLength || (headerLength == 2 && segmentLength == 2)) {
+                // malformed; let DDMReader report the syntax error
+                framed = false;
+                return;
+            }
+            scanOffset += headerLength;
+            segmentRemaining = segmentLength - headerLength;
+            inSegment = true;
+        }
+    }
+
+    private final class ChannelInput extends InputStream
+    {
+        public int read() throws IOException
+        {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : (b[0] & 0xff);
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (len == 0)
+                return 0;
+            boolean resume = false;
+            int n;
+            synchronized (lock) {
+                for (;;) {
+                    if (closed)
+                        return -1;
+                    long limit = readLimit();
+                    if (limit > readOffset) {
+                        n = (int) Math.min(len, limit - readOffset);
+                        System.arraycopy(buffer, (int) (readOffset - bufferOffset), b, off, n);
+                        readOffset += n;
+                        if (framed && !requestEnds.isEmpty() && requestEnds.peekFirst() == readOffset)
+                            requestEnds.pollFirst();
+                        if (readSuspended) {
+                            readSuspended = false;
+                            resume = true;
+                        }
+                        break;
+                    }
+                    if (endOfInput)
+                        return -1;
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ie) {
+                        throw new InterruptedIOException(ie.getMessage());
+                    }
+                }
+            }
+            if (resume)
+                selectorThread.updateInterest(SessionChannel.this);
+            return n;
+        }
+
+        public int available() throws IOException
+        {
+            synchronized (lock) {
+                return (int) (readLimit() - readOffset);
+            }
+        }
+
+        public void close() throws IOException
+        {
+            SessionChannel.this.close();
+        }
+
+        private long readLimit()
+        {
+            if (framed && !requestEnds.isEmpty())
+                return requestEnds.peekFirst();
+            return writeOffset;
+        }
+    }
+
+    private final class ChannelOutput extends OutputStream
+    {
+        public void write(int b) throws IOException
+        {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+            while (buf.hasRemaining()) {
+                if (channel.write(buf) == 0)
+                    awaitWritable();
+            }
+        }
+
+        public void close() throws IOException
+        {
+            SessionChannel.this.close();
+        }
+
+        /**
+         * The socket's send buffer is full; wait for the selector to see it
+         * drain.
+         */
+        private void awaitWritable() throws IOException
+        {
+            synchronized (lock) {
+                writeWaiting = true;
+            }
+            selectorThread.updateInterest(SessionChannel.this);
+            synchronized (lock) {
+                while (writeWaiting && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ie) {
+                        throw new InterruptedIOException(ie.getMessage());
+                    }
+                }
+                if (closed)
+                    throw new IOException("Session channel closed");
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Request framing and buffering in {@link SessionChannel}, with the client
+ * replaced by a channel that hands out scripted reads.
+ */
+public class SessionChannelTest {
+    private final ArrayDeque<byte[]> incoming = new ArrayDeque<>();
+    private boolean clientClosed;
+
+    private ServerSocketChannel serverChannel;
+    private SessionChannel session;
+    private InputStream in;
+
+    @Before
+    public void setUp() throws Exception {
+        SocketChannel channel = mock(SocketChannel.class);
+        when(channel.read(any(ByteBuffer.class))).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                ByteBuffer dst = (ByteBuffer) invocation.getArguments()[0];
+                byte[] next = incoming.pollFirst();
+                if (next == null)
+                    return clientClosed ? -1 : 0;
+                int n = Math.min(next.length, dst.remaining());
+                dst.put(next, 0, n);
+                if (n < next.length)
+                    incoming.addFirst(Arrays.copyOfRange(next, n, next.length));
+                return n;
+            }
+        });
+        serverChannel = ServerSocketChannel.open();
+        session = new SessionChannel(new NIOClientThread(null, serverChannel), channel);
+        in = session.getInputStream();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        serverChannel.close();
+    }
+
+    @Test
+    public void dispatchesOnceARequestIsComplete() throws Exception {
+        byte[] request = dss(10, false, 1);
+        send(Arrays.copyOfRange(request, 0, 7));
+        assertFalse(session.readFromChannel());
+        send(Arrays.copyOfRange(request, 7, 10));
+        assertTrue(session.readFromChannel());
+
+        assertArrayEquals(request, read(10));
+        assertTrue(session.park());
+        assertFalse("parked sessions are not dispatched without data", session.readFromChannel());
+    }
+
+    @Test
+    public void keepsChainedDssTogether() throws Exception {
+        byte[] first = dss(20, true, 1);
+        byte[] second = dss(12, false, 2);
+        byte[] next = dss(8, false, 3);
+        send(concat(first, concat(second, next)));
+        assertTrue(session.readFromChannel());
+
+        assertEquals("reads stop at the end of the chain", 32, in.available());
+        assertArrayEquals(concat(first, second), read(32));
+        assertFalse("the next request is already waiting", session.park());
+        assertArrayEquals(next, read(8));
+        assertTrue(session.park());
+    }
+
+    @Test
+    public void followsContinuationSegments() throws Exception {
+        // a DSS longer than MAX_DSS_LENGTH, split into a full segment and a
+        // two byte continuation header followed by the rest
+        byte[] segment = dss(DssConstants.MAX_DSS_LENGTH, false, 1);
+        segment[0] |= (byte) 0x80;
+        byte[] continuation = new byte[100];
+        continuation[1] = 100;
+        Arrays.fill(continuation, 2, continuation.length, (byte) 7);
+        byte[] request = concat(segment, continuation);
+
+        send(Arrays.copyOfRange(request, 0, request.length - 1));
+        assertFalse(drain());
+        send(Arrays.copyOfRange(request, request.length - 1, request.length));
+        assertTrue(drain());
+
+        assertArrayEquals("the buffer grew to hold the whole request", request, read(request.length));
+        assertTrue(session.park());
+    }
+
+    @Test
+    public void reassemblesHeadersSplitAcrossReads() throws Exception {
+        byte[] first = dss(16, true, 1);
+        byte[] second = dss(9, false, 2);
+        byte[] request = concat(first, second);
+        for (int i = 0; i < request.length; i += 3) {
+            send(Arrays.copyOfRange(request, i, Math.min(i + 3, request.length)));
+            assertEquals(i + 3 >= request.length, session.readFromChannel());
+        }
+        assertArrayEquals(request, read(request.length));
+    }
+
+    @Test
+    public void reusesSpaceTheSessionHasRead() throws Exception {
+        byte[] first = dss(4000, false, 1);
+        send(first);
+        assertTrue(drain());
+        assertArrayEquals(first, read(first.length));
+        assertTrue(session.park());
+
+        byte[] second = dss(1000, false, 2);
+        send(second);
+        assertTrue(drain());
+        assertArrayEquals(second, read(second.length));
+    }
+
+    @Test
+    public void keepsAHeaderTheSessionReadAheadOf() throws Exception {
+        // A chain of 256K, exactly the largest buffer, ending with the first
+        // three bytes of the next header. The session reads all of it while
+        // it arrives, so it is ahead of the scan when the buffer is full.
+        ByteArrayOutputStream chain = new ByteArrayOutputStream();
+        for (int i = 0; i < 7; i++)
+            chain.write(dss(DssConstants.MAX_DSS_LENGTH, true, i));
+        chain.write(dss(16386, true, 7));
+        chain.write(dss(16386, true, 8));
+        byte[] last = dss(10, false, 9);
+        chain.write(last, 0, 3);
+        byte[] large = chain.toByteArray();
+        assertEquals(256 * 1024, large.length);
+
+        send(large);
+        assertTrue("a full buffer is handed to the session", drain());
+        assertArrayEquals(large, read(large.length));
+
+        send(Arrays.copyOfRange(last, 3, last.length));
+        assertFalse("the session still holds the channel", session.readFromChannel());
+        assertEquals(7, in.available());
+        assertArrayEquals(Arrays.copyOfRange(last, 3, last.length), read(7));
+        assertTrue(session.park());
+    }
+
+    @Test
+    public void neverParksUnframedSessions() throws Exception {
+        byte[] command = "CMD:PING".getBytes("US-ASCII");
+        send(command);
+        assertTrue(session.readFromChannel());
+        assertArrayEquals(command, read(command.length));
+        assertFalse(session.park());
+    }
+
+    @Test
+    public void reportsEndOfInput() throws Exception {
+        byte[] partial = Arrays.copyOfRange(dss(10, false, 1), 0, 4);
+        send(partial);
+        clientClosed = true;
+        assertFalse(session.readFromChannel());
+        assertTrue(session.readFromChannel());
+
+        assertArrayEquals(partial, read(partial.length));
+        assertEquals(-1, in.read());
+        assertFalse(session.park());
+    }
+
+    /**
+     * @return a DSS of {@code length} bytes, header included, whose payload
+     *         is filled with {@code fill}
+     */
+    private static byte[] dss(int length, boolean chained, int fill) {
+        byte[] dss = new byte[length];
+        dss[0] = (byte) (length >>> 8);
+        dss[1] = (byte) length;
+        dss[2] = (byte) DssConstants.DSS_ID;
+        dss[3] = (byte) (chained ? 0x41 : 0x01);
+        dss[5] = 1;
+        Arrays.fill(dss, 6, length, (byte) fill);
+        return dss;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] c = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+
+    private void send(byte[] bytes) {
+        incoming.addLast(bytes);
+    }
+
+    /**
+     * Read from the channel as the selector would, until the scripted bytes
+     * run out or the session stops taking them.
+     *
+     * @return true if any read asked for the session to be dispatched
+     */
+    private boolean drain() {
+        boolean dispatch = false;
+        while (!incoming.isEmpty() && (session.interestOps() & SelectionKey.OP_READ) != 0)
+            dispatch |= session.readFromChannel();
+        return dispatch;
+    }
+
+    private byte[] read(int length) throws Exception {
+        byte[] b = new byte[length];
+        int off = 0;
+        while (off < length) {
+            int n = in.read(b, off, length - off);
+            if (n < 0)
+                break;
+            off += n;
+        }
+        return Arrays.copyOf(b, off);
+    }
+}
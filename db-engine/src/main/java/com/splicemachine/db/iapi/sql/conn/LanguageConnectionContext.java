@@ -883,6 +883,22 @@ public interface LanguageConnectionContext extends Context {
         public PreparedStatement prepareInternalStatement(String sqlText) 
 	    throws StandardException;
 
+	/**
+	 * Prepare a statement submitted through JDBC and return a new activation
+	 * for it. Equivalent to calling
+	 * {@link #prepareInternalStatement(SchemaDescriptor, String, boolean, boolean)}
+	 * followed by {@link PreparedStatement#getActivation}, except that when
+	 * literal parameterization is enabled the literals of the statement may be
+	 * replaced by parameters that are bound in the returned activation and not
+	 * visible through its parameter value set. Use
+	 * {@link Activation#getPreparedStatement} to get at the statement.
+	 *
+	 * @param scrollable whether the activation is for a scrollable result set
+	 */
+	public Activation prepareAndActivate(SchemaDescriptor compilationSchema,
+			String sqlText, boolean isForReadOnly, boolean forMetaData, boolean scrollable)
+	    throws StandardException;
+
 	/**
 	 * Control whether or not optimizer trace is on.
 	 *
@@ -998,7 +998,8 @@ public interface DataDictionary{
      * Get a SPSDescriptor given its UUID.
      *
      * @param uuid The UUID
-     * @return The SPSDescriptor for the constraint.
+     * @return The SPSDescriptor for the constraint, null if there is no
+     * statement with this UUID.
      * @throws StandardException Thrown on failure
      */
     SPSDescriptor getSPSDescriptor(UUID uuid) throws StandardException;
@@ -35,11 +35,16 @@ import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
 import com.splicemachine.db.iapi.sql.depend.DependencyManager;
 import com.splicemachine.db.iapi.services.context.ContextManager;
 
+import java.io.Serializable;
+
 /**
  * This class describes a permission require by a statement.
+ * <p>
+ * Permissions are serializable so the list a plan requires can be stored
+ * with the plan, see com.splicemachine.db.impl.sql.PersistentPlanCache.
  */
 
-public abstract class StatementPermission
+public abstract class StatementPermission implements Serializable
 {
 	/**
 	 * Restrict implementations to this package to reduce
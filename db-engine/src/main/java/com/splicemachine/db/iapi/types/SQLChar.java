@@ -1124,6 +1124,38 @@ public class SQLChar
 		isNull = evaluateNull();
 	}
 
+    /**
+     * Return the reusable char[] which holds the value of this SQLChar, grown
+     * to hold at least <code>minLength</code> characters, so that callers
+     * can decode a value directly into it instead of creating a String.
+     * The decoded value becomes visible once {@link #setRawLength(int)}
+     * is called; until then the current value is left untouched.
+     */
+    public char[] getRawBuffer(int minLength)
+    {
+        if (rawData == null || rawData.length < minLength) {
+            char[] data = new char[minLength];
+            if (rawLength > 0)
+                System.arraycopy(rawData, 0, data, 0, rawLength);
+            rawData = data;
+        }
+        return rawData;
+    }
+
+    /**
+     * Set this value to the first <code>length</code> characters of the
+     * array returned by {@link #getRawBuffer(int)}. The String form of
+     * the value is only created if it is asked for.
+     */
+    public void setRawLength(int length)
+    {
+        value = null;
+        stream = null;
+        cKey = null;
+        _clobValue = null;
+        setRaw(rawData, length);
+    }
+
     public void readExternalFromArray(ArrayInputStream in) 
         throws IOException
     {
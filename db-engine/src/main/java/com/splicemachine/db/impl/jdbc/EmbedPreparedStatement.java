@@ -110,15 +110,14 @@ public abstract class EmbedPreparedStatement extends EmbedStatement implements E
             SQLText = sql;
 
             try {
-                preparedStatement = lcc.prepareInternalStatement
+                activation = lcc.prepareAndActivate
                 (lcc.getDefaultSchema(), sql,
                         resultSetConcurrency == java.sql.ResultSet.CONCUR_READ_ONLY,
-                        forMetaData);
-                
-                addWarning(preparedStatement.getCompileTimeWarnings());
-
-                activation = preparedStatement.getActivation(lcc,
+                        forMetaData,
                         resultSetType == java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+                preparedStatement = activation.getPreparedStatement();
+
+                addWarning(preparedStatement.getCompileTimeWarnings());
 
                 checkRequiresCallableStatement(activation);
 
@@ -30,7 +30,9 @@ import	com.splicemachine.db.catalog.DependableFinder;
 import com.splicemachine.db.catalog.UUID;
 import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
 import com.splicemachine.db.iapi.sql.conn.SQLSessionContext;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.DataValueFactory;
+import com.splicemachine.db.iapi.types.StringDataValue;
 import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.sql.execute.ExecutionFactory;
@@ -89,6 +91,11 @@ final public class GenericActivationHolder implements Activation
 	public GeneratedClass			gc;
 	DataTypeDescriptor[]	paramTypes;
 	private final LanguageConnectionContext lcc;
+	/**
+	 * The parameters shown to JDBC when the parameters of the activation
+	 * hold literals lifted out of the statement text; null otherwise.
+	 */
+	private ParameterValueSet visibleParameters;
 	/**
 	 * Constructor for an ActivationHolder
 	 *
@@ -227,6 +234,8 @@ final public class GenericActivationHolder implements Activation
 	 */
 	public ParameterValueSet	getParameterValueSet()
 	{
+		if (visibleParameters != null)
+			return visibleParameters;
 		return ac.getParameterValueSet();
 	}
 
@@ -235,9 +244,57 @@ final public class GenericActivationHolder implements Activation
 	 */
 	public void	setParameters(ParameterValueSet parameterValues, DataTypeDescriptor[] parameterTypes) throws StandardException
 	{
+		// the literals were bound when the activation was created
+		if (visibleParameters != null)
+			return;
 		ac.setParameters(parameterValues, parameterTypes);
 	}
 
+	/**
+	 * Bind the literals that {@link LiteralParameterizer} lifted out of the
+	 * statement text to the parameters of this activation, and hide those
+	 * parameters from JDBC. A literal is only bound if the compiler typed its
+	 * parameter in the same family and the value converts to that type
+	 * without loss, so the plan computes what the original text would have.
+	 *
+	 * @param literals the literal values, in parameter order
+	 * @return false if some literal does not fit its parameter, in which
+	 *         case the caller must fall back to the original text
+	 *
+	 * @exception StandardException		Thrown on failure
+	 */
+	public boolean bindLiterals(DataValueDescriptor[] literals) throws StandardException
+	{
+		ParameterValueSet pvs = ac.getParameterValueSet();
+		if (pvs == null || paramTypes == null || pvs.getParameterCount() != literals.length)
+			return false;
+
+		DataValueDescriptor[] values = new DataValueDescriptor[literals.length];
+		for (int i = 0; i < literals.length; i++)
+		{
+			DataTypeDescriptor type = paramTypes[i];
+			boolean sameFamily = (literals[i] instanceof StringDataValue)
+					? type.getTypeId().isStringTypeId()
+					: type.getTypeId().isNumericTypeId();
+			if (!sameFamily)
+				return false;
+			try {
+				values[i] = type.normalize(literals[i], type.getNull());
+			} catch (StandardException se) {
+				// truncation or overflow: the literal needs its own plan
+				return false;
+			}
+			if (values[i].compare(literals[i]) != 0)
+				return false;
+		}
+
+		for (int i = 0; i < values.length; i++)
+			pvs.getParameterForSet(i).setValue(values[i]);
+		visibleParameters = lcc.getLanguageFactory().newParameterValueSet(
+				lcc.getLanguageConnectionFactory().getClassFactory().getClassInspector(), 0, false);
+		return true;
+	}
+
 	/** 
 	 * @see Activation#execute
 	 *
@@ -45,6 +45,7 @@ import com.splicemachine.db.impl.ast.JsonTreeBuilderVisitor;
 import com.splicemachine.db.impl.sql.compile.ExplainNode;
 import com.splicemachine.db.impl.sql.compile.StatementNode;
 import com.splicemachine.db.impl.sql.conn.GenericLanguageConnectionContext;
+import com.splicemachine.db.impl.sql.conn.GenericLanguageConnectionFactory;
 import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -194,6 +195,12 @@ public class GenericStatement implements Statement{
 
     public String getCompilationSchema(){ return compilationSchema.getDescriptorName(); }
 
+    SchemaDescriptor getCompilationSchemaDescriptor(){ return compilationSchema; }
+
+    boolean isForReadOnly(){ return isForReadOnly; }
+
+    int getPrepareIsolationLevel(){ return prepareIsolationLevel; }
+
     /**
      * Return the {@link PreparedStatement} currently associated with this
      * statement.
@@ -242,6 +249,10 @@ public class GenericStatement implements Statement{
         return s.startsWith("EXPLAIN");
     }
 
+    private static StatementCacheStatistics statistics(LanguageConnectionContext lcc){
+        return ((GenericLanguageConnectionFactory)lcc.getLanguageConnectionFactory()).getStatementCacheStatistics();
+    }
+
     private PreparedStatement prepMinion(LanguageConnectionContext lcc,
                                          boolean cacheMe,
                                          Object[] paramDefaults,
@@ -260,6 +271,8 @@ public class GenericStatement implements Statement{
         long[] timestamps = new long[5];
         Timestamp beginTimestamp=null;
         StatementContext statementContext=null;
+        PersistentPlanCache planCache=null;
+        long compileNanos=-1;
 
         // verify it isn't already prepared...
         // if it is, and is valid, simply return that tree.
@@ -336,6 +349,8 @@ public class GenericStatement implements Statement{
 
                 // did it get updated while we waited for the lock on it?
                 if(preparedStmt.upToDate()){
+                    if(foundInCache)
+                        statistics(lcc).hit();
                     return preparedStmt;
                 }
 
@@ -369,27 +384,44 @@ public class GenericStatement implements Statement{
                 statementContext=lcc.pushStatementContext(true,isForReadOnly,getSource(), null,false,0L);
             }
 
-			/*
-			** RESOLVE: we may ultimately wish to pass in
-			** whether we are a jdbc metadata query or not to
-			** get the CompilerContext to make the createDependency()
-			** call a noop.
-			*/
-            CompilerContext cc=lcc.pushCompilerContext(compilationSchema);
-
-            if(prepareIsolationLevel!=ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL){
-                cc.setScanIsolationLevel(prepareIsolationLevel);
+            // A statement another server, or this one before a restart,
+            // compiled already may have left its plan in SYS.SYSSTATEMENTS.
+            if(cacheMe && !internalSQL){
+                planCache=PersistentPlanCache.get(lcc);
+                if(planCache!=null && !planCache.isEligible(this))
+                    planCache=null;
             }
+            if(planCache!=null && planCache.load(lcc,this,preparedStmt)){
+                statistics(lcc).miss();
+            }else{
+				/*
+				** RESOLVE: we may ultimately wish to pass in
+				** whether we are a jdbc metadata query or not to
+				** get the CompilerContext to make the createDependency()
+				** call a noop.
+				*/
+                CompilerContext cc=lcc.pushCompilerContext(compilationSchema);
+
+                if(prepareIsolationLevel!=ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL){
+                    cc.setScanIsolationLevel(prepareIsolationLevel);
+                }
 
-            // Look for stored statements that are in a system schema
-            // and with a match compilation schema. If so, allow them
-            // to compile using internal SQL constructs.
-            if(internalSQL ||
-                    (spsSchema!=null) && (spsSchema.isSystemSchema()) && (spsSchema.equals(compilationSchema))){
-                cc.setReliability(CompilerContext.INTERNAL_SQL_LEGAL);
-            }
+                // Look for stored statements that are in a system schema
+                // and with a match compilation schema. If so, allow them
+                // to compile using internal SQL constructs.
+                if(internalSQL ||
+                        (spsSchema!=null) && (spsSchema.isSystemSchema()) && (spsSchema.equals(compilationSchema))){
+                    cc.setReliability(CompilerContext.INTERNAL_SQL_LEGAL);
+                }
 
-            fourPhasePrepare(lcc,paramDefaults,timestamps,beginTimestamp,foundInCache,cc);
+                long compileStart=System.nanoTime();
+                fourPhasePrepare(lcc,paramDefaults,timestamps,beginTimestamp,foundInCache,cc);
+                compileNanos=System.nanoTime()-compileStart;
+                StatementCacheStatistics statistics=statistics(lcc);
+                statistics.compiled(compileNanos);
+                if(cacheMe)
+                    statistics.miss();
+            }
         }catch(StandardException se){
             if(foundInCache)
                 ((GenericLanguageConnectionContext)lcc).removeStatement(this);
@@ -402,7 +434,13 @@ public class GenericStatement implements Statement{
             }
         }
 
-        lcc.commitNestedTransaction();
+        // a loaded plan started no nested transaction for binding
+        if(compileNanos>=0){
+            lcc.commitNestedTransaction();
+
+            if(planCache!=null)
+                planCache.store(lcc,this,preparedStmt,compileNanos);
+        }
 
         if(statementContext!=null)
             lcc.popStatementContext(statementContext,null);
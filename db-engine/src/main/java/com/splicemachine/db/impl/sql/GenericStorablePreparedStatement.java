@@ -45,6 +45,7 @@ import com.splicemachine.db.iapi.util.ByteArray;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.List;
 
 /**
  * Prepared statement that can be made persistent.
@@ -135,6 +136,40 @@ public class GenericStorablePreparedStatement extends GenericPreparedStatement
         return clone;
     }
 
+    /**
+     * @return true if the generated class can be loaded again from the byte code kept by this statement
+     */
+    boolean hasByteCode() {
+        return className != null && byteCode != null && byteCode.getArray() != null;
+    }
+
+    /**
+     * Take over the plan of a statement read back from SYS.SYSSTATEMENTS instead of compiling, see
+     * {@link PersistentPlanCache}.
+     *
+     * @param stored              the statement read back
+     * @param savedObjects        its saved objects, without the ones added when it was persisted
+     * @param requiredPermissions the permissions to check before executing the plan
+     */
+    void restorePlan(GenericStorablePreparedStatement stored, Object[] savedObjects, List requiredPermissions)
+            throws StandardException {
+        className = stored.className;
+        // a holder of our own, a later recompilation of this statement saves its byte code into it
+        byteCode = new ByteArray(stored.byteCode.getArray(), stored.byteCode.getOffset(), stored.byteCode.getLength());
+        executionConstants = stored.executionConstants;
+        resultDesc = stored.resultDesc;
+        paramTypeDescriptors = stored.paramTypeDescriptors;
+        setSavedObjects(savedObjects);
+        setRequiredPermissionsList(requiredPermissions);
+        setCursorInfo((CursorInfo) stored.getCursorInfo());
+        setNeedsSavepoint(stored.needsSavepoint());
+        setIsAtomic(stored.isAtomic());
+        setCompileTimeWarnings(null);
+        incrementVersionCounter();
+        loadGeneratedClass();
+        isValid = true;
+    }
+
     /////////////////////////////////////////////////////////////
     //
     // EXTERNALIZABLE INTERFACE
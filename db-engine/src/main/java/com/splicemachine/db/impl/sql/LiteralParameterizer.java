@@ -0,0 +1,434 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Rewrites an ad-hoc statement so that its literal constants become
+ * parameter markers, letting statements that differ only in their
+ * constants share one entry in the statement cache.
+ * <p>
+ * The rewrite is lexical and deliberately conservative. A literal is only
+ * lifted out when the compiler will type its parameter from something else:
+ * the other side of a comparison or assignment, the tested expression of a
+ * BETWEEN or IN list, or the target column of an INSERT ... VALUES row.
+ * Literals whose value shapes the plan or the result are left in place:
+ * LIKE patterns, select list and ORDER BY / GROUP BY entries, FETCH FIRST,
+ * OFFSET and TOP counts, typed literals such as DATE '...' or X'...',
+ * operands of arithmetic and arguments of functions. Statements that
+ * already contain parameter markers or optimizer hints are not rewritten.
+ */
+public final class LiteralParameterizer {
+
+    /** Hint comments change how a statement is planned, so they disable the rewrite. */
+    private static final String HINT = "splice-properties";
+
+    private static final int WORD = 0;
+    private static final int QUOTED_IDENTIFIER = 1;
+    private static final int STRING = 2;
+    private static final int NUMBER = 3;
+    private static final int TYPED_STRING = 4;
+    private static final int OPERATOR = 5;
+
+    private static final int GROUP_OTHER = 0;
+    private static final int GROUP_IN_LIST = 1;
+    private static final int GROUP_VALUES_ROW = 2;
+
+    private LiteralParameterizer(){ }
+
+    /**
+     * The rewritten text of a statement together with the values of the
+     * literals it replaced, in parameter order.
+     */
+    public static final class Result {
+        private final String text;
+        private final DataValueDescriptor[] values;
+
+        Result(String text,DataValueDescriptor[] values){
+            this.text=text;
+            this.values=values;
+        }
+
+        public String getText(){
+            return text;
+        }
+
+        public DataValueDescriptor[] getValues(){
+            return values;
+        }
+    }
+
+    private static final class Token {
+        final int kind;
+        final int start;
+        final int end;
+        final String text;
+
+        Token(int kind,int start,int end,String text){
+            this.kind=kind;
+            this.start=start;
+            this.end=end;
+            this.text=text;
+        }
+
+        boolean is(int kind,String text){
+            return this.kind==kind && this.text.equals(text);
+        }
+    }
+
+    /**
+     * Replace the literals of {@code sqlText} that can safely become
+     * parameters.
+     *
+     * @return the rewritten statement, or {@code null} if the statement is
+     *         not a query or DML statement, cannot be rewritten safely, or
+     *         has no literal worth lifting out
+     */
+    public static Result parameterize(String sqlText){
+        List<Token> tokens=tokenize(sqlText);
+        if(tokens==null || tokens.isEmpty() || tokens.get(0).kind!=WORD)
+            return null;
+        String first=tokens.get(0).text;
+        boolean insert="INSERT".equals(first);
+        if(!insert && !"SELECT".equals(first) && !"UPDATE".equals(first)
+                && !"DELETE".equals(first) && !"WITH".equals(first))
+            return null;
+
+        int size=tokens.size();
+        int[] groupKind=new int[size+1];
+        int[] groupOpen=new int[size+1];
+        int depth=0;
+        int lastClosedKind=GROUP_OTHER;
+        int lastClosedAt=-1;
+        List<Token> literals=new ArrayList<>();
+        for(int t=0;t<size;t++){
+            Token token=tokens.get(t);
+            if(token.is(OPERATOR,"(")){
+                Token prev=token(tokens,t-1);
+                int kind=GROUP_OTHER;
+                if(prev!=null && prev.is(WORD,"IN"))
+                    kind=GROUP_IN_LIST;
+                else if(insert && prev!=null
+                        && (prev.is(WORD,"VALUES")
+                        || (prev.is(OPERATOR,",") && lastClosedKind==GROUP_VALUES_ROW && lastClosedAt==t-2)))
+                    kind=GROUP_VALUES_ROW;
+                depth++;
+                groupKind[depth]=kind;
+                groupOpen[depth]=t;
+            }else if(token.is(OPERATOR,")")){
+                if(depth==0)
+                    return null;
+                lastClosedKind=groupKind[depth];
+                lastClosedAt=t;
+                depth--;
+            }else if((token.kind==STRING || token.kind==NUMBER)
+                    && isParameterizable(tokens,t,groupKind[depth],groupOpen[depth])){
+                literals.add(token);
+            }
+        }
+        if(literals.isEmpty())
+            return null;
+
+        StringBuilder text=new StringBuilder(sqlText.length());
+        DataValueDescriptor[] values=new DataValueDescriptor[literals.size()];
+        int copied=0;
+        for(int i=0;i<values.length;i++){
+            Token literal=literals.get(i);
+            try{
+                values[i]=literal.kind==STRING?new SQLChar(literal.text):numericValue(literal.text);
+            }catch(StandardException|NumberFormatException e){
+                // out of range for its literal type; let the compiler report it
+                return null;
+            }
+            text.append(sqlText,copied,literal.start).append('?');
+            copied=literal.end;
+        }
+        text.append(sqlText,copied,sqlText.length());
+        return new Result(text.toString(),values);
+    }
+
+    private static boolean isParameterizable(List<Token> tokens,int t,int group,int groupOpen){
+        Token prev=token(tokens,t-1);
+        Token next=token(tokens,t+1);
+        if(isArithmetic(prev) || isArithmetic(next))
+            return false;
+
+        // <expression> op literal, including SET column = literal
+        if(isComparison(prev))
+            return !isValue(token(tokens,t-2));
+        // literal op <expression>
+        if(isComparison(next))
+            return startsPredicate(prev) && !isValue(token(tokens,t+2));
+
+        // <expression> [NOT] BETWEEN literal AND literal
+        if(prev!=null && prev.is(WORD,"BETWEEN"))
+            return next!=null && next.is(WORD,"AND") && !isValue(testedExpression(tokens,t-1));
+        if(prev!=null && prev.is(WORD,"AND")){
+            Token between=token(tokens,t-3);
+            return between!=null && between.is(WORD,"BETWEEN") && !isValue(testedExpression(tokens,t-3));
+        }
+
+        // elements of an IN list or of an INSERT ... VALUES row
+        if(group!=GROUP_OTHER && isListSeparator(prev,"(") && isListSeparator(next,")")){
+            return group==GROUP_VALUES_ROW || !isValue(testedExpression(tokens,groupOpen-1));
+        }
+        return false;
+    }
+
+    /**
+     * @return the operand tested by the BETWEEN or IN keyword at {@code keyword},
+     *         skipping a NOT in front of the keyword
+     */
+    private static Token testedExpression(List<Token> tokens,int keyword){
+        Token operand=token(tokens,keyword-1);
+        if(operand!=null && operand.is(WORD,"NOT"))
+            operand=token(tokens,keyword-2);
+        return operand;
+    }
+
+    private static boolean isListSeparator(Token token,String bracket){
+        return token!=null && token.kind==OPERATOR && (token.text.equals(",") || token.text.equals(bracket));
+    }
+
+    private static boolean startsPredicate(Token token){
+        if(token==null)
+            return false;
+        if(token.kind==OPERATOR)
+            return token.text.equals("(");
+        if(token.kind!=WORD)
+            return false;
+        switch(token.text){
+            case "WHERE":
+            case "AND":
+            case "OR":
+            case "NOT":
+            case "ON":
+            case "HAVING":
+            case "WHEN":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isComparison(Token token){
+        if(token==null || token.kind!=OPERATOR)
+            return false;
+        switch(token.text){
+            case "=":
+            case "<>":
+            case "!=":
+            case "<":
+            case ">":
+            case "<=":
+            case ">=":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isArithmetic(Token token){
+        if(token==null || token.kind!=OPERATOR)
+            return false;
+        switch(token.text){
+            case "+":
+            case "-":
+            case "*":
+            case "/":
+            case "||":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * A parameter compared with a value would have no type to take, so a
+     * literal is never lifted out when its other operand is a value too.
+     */
+    private static boolean isValue(Token token){
+        if(token==null)
+            return true;
+        switch(token.kind){
+            case STRING:
+            case NUMBER:
+            case TYPED_STRING:
+                return true;
+            case WORD:
+                return token.text.equals("NULL") || token.text.equals("TRUE") || token.text.equals("FALSE");
+            default:
+                return false;
+        }
+    }
+
+    private static Token token(List<Token> tokens,int t){
+        return t>=0 && t<tokens.size()?tokens.get(t):null;
+    }
+
+    /**
+     * Derby types an exact literal as INTEGER, BIGINT or DECIMAL depending on
+     * its magnitude and an approximate literal as DOUBLE; the hidden
+     * parameter value follows the same rules.
+     */
+    private static DataValueDescriptor numericValue(String text) throws StandardException{
+        if(text.indexOf('e')>=0 || text.indexOf('E')>=0)
+            return new SQLDouble(Double.parseDouble(text));
+        BigDecimal value=new BigDecimal(text);
+        if(text.indexOf('.')>=0)
+            return new SQLDecimal(value);
+        if(value.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE))<=0)
+            return new SQLInteger(value.intValue());
+        if(value.compareTo(BigDecimal.valueOf(Long.MAX_VALUE))<=0)
+            return new SQLLongint(value.longValue());
+        return new SQLDecimal(value);
+    }
+
+    /**
+     * Split a statement into tokens. String literals carry their unescaped
+     * value and words are upper-cased.
+     *
+     * @return the tokens, or {@code null} if the statement contains parameter
+     *         markers, hints, or text this scanner does not understand
+     */
+    private static List<Token> tokenize(String sql){
+        List<Token> tokens=new ArrayList<>();
+        int n=sql.length();
+        int i=0;
+        while(i<n){
+            char c=sql.charAt(i);
+            char next=i+1<n?sql.charAt(i+1):0;
+            if(Character.isWhitespace(c)){
+                i++;
+            }else if(c=='-' && next=='-'){
+                int end=sql.indexOf('\n',i);
+                if(end<0)
+                    end=n;
+                if(isHint(sql,i,end))
+                    return null;
+                i=end;
+            }else if(c=='/' && next=='*'){
+                int end=sql.indexOf("*/",i+2);
+                if(end<0 || isHint(sql,i,end))
+                    return null;
+                i=end+2;
+            }else if(c=='\''){
+                int end=endOfQuoted(sql,i,'\'');
+                if(end<0)
+                    return null;
+                Token prev=token(tokens,tokens.size()-1);
+                // X'...' and similar: the prefix is glued to the string
+                boolean typed=prev!=null && prev.kind==WORD && prev.end==i;
+                tokens.add(new Token(typed?TYPED_STRING:STRING,i,end,sql.substring(i+1,end-1).replace("''","'")));
+                i=end;
+            }else if(c=='"'){
+                int end=endOfQuoted(sql,i,'"');
+                if(end<0)
+                    return null;
+                tokens.add(new Token(QUOTED_IDENTIFIER,i,end,sql.substring(i,end)));
+                i=end;
+            }else if(isDigit(c) || (c=='.' && isDigit(next))){
+                int end=endOfNumber(sql,i);
+                if(end<n && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end)=='_' || sql.charAt(end)=='.'))
+                    return null;
+                tokens.add(new Token(NUMBER,i,end,sql.substring(i,end)));
+                i=end;
+            }else if(Character.isLetter(c) || c=='_'){
+                int end=i+1;
+                while(end<n && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end)=='_' || sql.charAt(end)=='$'))
+                    end++;
+                tokens.add(new Token(WORD,i,end,sql.substring(i,end).toUpperCase(Locale.ENGLISH)));
+                i=end;
+            }else if(c=='?'){
+                return null;
+            }else{
+                int end=i+1;
+                if((c=='<' && (next=='=' || next=='>')) || ((c=='>' || c=='!') && next=='=') || (c=='|' && next=='|'))
+                    end++;
+                tokens.add(new Token(OPERATOR,i,end,sql.substring(i,end)));
+                i=end;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isHint(String sql,int start,int end){
+        return sql.substring(start,end).toLowerCase(Locale.ENGLISH).contains(HINT);
+    }
+
+    private static int endOfQuoted(String sql,int start,char quote){
+        int i=start+1;
+        while(i<sql.length()){
+            if(sql.charAt(i)==quote){
+                if(i+1<sql.length() && sql.charAt(i+1)==quote)
+                    i+=2;
+                else
+                    return i+1;
+            }else
+                i++;
+        }
+        return -1;
+    }
+
+    private static int endOfNumber(String sql,int start){
+        int n=sql.length();
+        int i=start;
+        while(i<n && isDigit(sql.charAt(i)))
+            i++;
+        if(i<n && sql.charAt(i)=='.'){
+            i++;
+            while(i<n && isDigit(sql.charAt(i)))
+                i++;
+        }
+        if(i<n && (sql.charAt(i)=='e' || sql.charAt(i)=='E')){
+            int e=i+1;
+            if(e<n && (sql.charAt(e)=='+' || sql.charAt(e)=='-'))
+                e++;
+            if(e<n && isDigit(sql.charAt(e))){
+                i=e;
+                while(i<n && isDigit(sql.charAt(i)))
+                    i++;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c){
+        return c>='0' && c<='9';
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.catalog.Dependable;
+import com.splicemachine.db.catalog.UUID;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.Property;
+import com.splicemachine.db.iapi.services.monitor.Monitor;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.depend.DependencyManager;
+import com.splicemachine.db.iapi.sql.depend.ProviderInfo;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.SPSDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.StatementPermission;
+import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
+import com.splicemachine.db.iapi.sql.execute.ExecutionContext;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.util.IdUtil;
+import com.splicemachine.db.impl.sql.conn.GenericLanguageConnectionFactory;
+import org.apache.log4j.Logger;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compiled plans shared by all servers of the cluster and kept across
+ * restarts, as stored prepared statements of the SYS schema.
+ * <p>
+ * The id of a stored plan is a digest of everything that makes up the
+ * identity of a {@link GenericStatement} (text, compilation schema, read-only
+ * flag and isolation level) and of the engine version, so a statement finds
+ * its plan with one SYS.SYSSTATEMENTS lookup, and never finds byte code
+ * generated by another build. The persistent providers of the plan are
+ * copied to SYS.SYSDEPENDS, so DDL invalidates the stored plan through the
+ * same DependencyManager paths as any other stored prepared statement; a plan
+ * loaded from it depends on the stored statement in turn.
+ * <p>
+ * The permissions a plan requires are not part of the stored prepared
+ * statement format. They travel as an extra saved object at the end of the
+ * stored plan, and are stripped again when the plan is loaded.
+ *
+ * @see Property#LANG_PERSISTENT_PLANS
+ */
+public final class PersistentPlanCache {
+
+    private static final Logger LOG=Logger.getLogger(PersistentPlanCache.class);
+
+    private static final String NAME_PREFIX="PLAN_";
+
+    private static final String WARM_UP_QUERY=
+            "SELECT S.STMTID, S.TEXT, C.SCHEMANAME, S.COMPILATIONSCHEMAID"+
+            " FROM SYS.SYSSTATEMENTS S, SYS.SYSSCHEMAS C"+
+            " WHERE S.STMTNAME LIKE '"+NAME_PREFIX+"%' AND S.VALID = TRUE"+
+            " AND C.SCHEMAID = S.COMPILATIONSCHEMAID"+
+            " ORDER BY S.LASTCOMPILED DESC";
+
+    /*
+     * Statements whose plans are persisted. Others either have no plan worth
+     * keeping or cannot be reused outside of the connection that compiled them.
+     */
+    private static final Set<String> PERSISTABLE_STATEMENTS=new HashSet<>(Arrays.asList(
+            "SELECT","VALUES","WITH","INSERT","UPDATE","DELETE"));
+
+    /*
+     * Providers a stored prepared statement can depend on without getting in
+     * the way of DDL: every action on them is one SPSDescriptor accepts as an
+     * invalidation. A plan depending on anything else (a sequence, a routine,
+     * a type) is not persisted, since it would make DROP of that object fail.
+     */
+    private static final Set<String> PERSISTABLE_PROVIDERS=new HashSet<>(Arrays.asList(
+            Dependable.TABLE,Dependable.VIEW,Dependable.COLUMNS_IN_TABLE,Dependable.CONGLOMERATE,
+            Dependable.HEAP,Dependable.INDEX,Dependable.CONSTRAINT,Dependable.DEFAULT));
+
+    private final long minCompileNanos;
+    private final int warmUpLimit;
+    private final String version;
+    private final StatementCacheStatistics statistics;
+
+    public PersistentPlanCache(int minCompileMillis,int warmUpLimit,StatementCacheStatistics statistics){
+        this(minCompileMillis,warmUpLimit,
+                Monitor.getMonitor().getEngineVersion().getVersionBuildString(true)+
+                        "/"+System.getProperty(Property.SPLICE_VERSION_HASH),
+                statistics);
+    }
+
+    PersistentPlanCache(int minCompileMillis,int warmUpLimit,String version,StatementCacheStatistics statistics){
+        this.minCompileNanos=minCompileMillis*1000000L;
+        this.warmUpLimit=warmUpLimit;
+        this.version=version;
+        this.statistics=statistics;
+    }
+
+    /**
+     * @return the persistent plan cache of the database of {@code lcc}, or
+     * null if plans are not persisted
+     */
+    public static PersistentPlanCache get(LanguageConnectionContext lcc){
+        return ((GenericLanguageConnectionFactory)lcc.getLanguageConnectionFactory()).getPersistentPlanCache();
+    }
+
+    /**
+     * @return true if the plan of {@code statement} may be loaded from, and
+     * stored in, this cache
+     */
+    boolean isEligible(GenericStatement statement){
+        SchemaDescriptor schema=statement.getCompilationSchemaDescriptor();
+        if(schema==null || schema.getUUID()==null || schema.isSystemSchema())
+            return false;
+        return PERSISTABLE_STATEMENTS.contains(firstKeyword(statement.getSource()));
+    }
+
+    /**
+     * Make {@code target} valid with the persisted plan of {@code statement},
+     * if there is one.
+     *
+     * @return true if the plan was loaded, false if the statement has to be
+     * compiled
+     */
+    boolean load(LanguageConnectionContext lcc,GenericStatement statement,GenericStorablePreparedStatement target){
+        try{
+            DataDictionary dd=lcc.getDataDictionary();
+            SPSDescriptor spsd=dd.getSPSDescriptor(dd.getUUIDFactory().recreateUUID(planId(statement)));
+            if(spsd==null || !spsd.isValid()
+                    || !statement.getCompilationSchemaDescriptor().getUUID().equals(spsd.getCompSchemaId())
+                    || !statement.getSource().equals(spsd.getText()))
+                return false;
+
+            ExecPreparedStatement stored=spsd.getPreparedStatement(false);
+            RequiredPermissions permissions=requiredPermissions(stored);
+            if(permissions==null)
+                return false;
+            Object[] savedObjects=stored.getSavedObjects();
+
+            target.restorePlan((GenericStorablePreparedStatement)stored,
+                    permissions.noSavedObjects?null:Arrays.copyOf(savedObjects,savedObjects.length-1),
+                    permissions.permissions);
+            dd.getDependencyManager().addDependency(target,spsd,lcc.getContextManager());
+            statistics.persistedPlanLoaded();
+            return true;
+        }catch(StandardException se){
+            LOG.warn("Unable to load persisted plan, compiling statement instead",se);
+            return false;
+        }
+    }
+
+    /**
+     * Persist the plan {@code ps} just compiled for {@code statement}, unless
+     * it was cheap to compile or cannot be reused elsewhere. This is best
+     * effort: a plan that cannot be written, for instance because another
+     * server is writing it at the same time, is simply not persisted.
+     * <p>
+     * The plan is written in an independent internal transaction, so the
+     * user transaction is neither elevated nor made to carry the catalog
+     * writes, and rolling it back does not remove the plan. For the same
+     * reason nothing is persisted while DDL is in flight (including DDL of
+     * the user transaction itself), since the plan could depend on objects
+     * other transactions cannot see.
+     */
+    void store(LanguageConnectionContext lcc,GenericStatement statement,GenericStorablePreparedStatement ps,long compileNanos){
+        if(compileNanos<minCompileNanos)
+            return;
+
+        TransactionController tc=null;
+        try{
+            DataDictionary dd=lcc.getDataDictionary();
+            if(dd.isReadOnlyUpgrade() || !dd.canUseCache(lcc.getTransactionCompile()))
+                return;
+            DependencyManager dm=dd.getDependencyManager();
+
+            GenericStorablePreparedStatement plan;
+            synchronized(ps){
+                if(!isPersistable(ps,dm))
+                    return;
+                plan=(GenericStorablePreparedStatement)ps.getClone();
+            }
+            plan.setSavedObjects(withPermissions(ps.getSavedObjects(),ps.getRequiredPermissionsList()));
+
+            tc=lcc.getTransactionCompile().startIndependentInternalTransaction(false);
+            // never wait on, or deadlock with, the locks of the user transaction
+            tc.setNoLockWait(true);
+            boolean stored=writePlan(lcc,dd,dm,tc,statement,ps,plan);
+            tc.commit();
+            if(stored)
+                statistics.persistedPlanStored();
+        }catch(StandardException se){
+            if(LOG.isDebugEnabled())
+                LOG.debug("Unable to persist plan",se);
+            if(tc!=null){
+                try{
+                    tc.abort();
+                }catch(StandardException ignored){
+                    // the internal transaction is destroyed below anyway
+                }
+            }
+        }finally{
+            if(tc!=null)
+                tc.destroy();
+        }
+    }
+
+    /*
+     * Replace the stored plan of statement, unless another server stored a
+     * usable one in the meantime.
+     */
+    private boolean writePlan(LanguageConnectionContext lcc,
+                              DataDictionary dd,
+                              DependencyManager dm,
+                              TransactionController tc,
+                              GenericStatement statement,
+                              GenericStorablePreparedStatement ps,
+                              GenericStorablePreparedStatement plan) throws StandardException{
+        String id=planId(statement);
+        UUID uuid=dd.getUUIDFactory().recreateUUID(id);
+
+        SPSDescriptor old=dd.getSPSDescriptor(uuid);
+        if(old!=null){
+            if(old.isValid() && requiredPermissions(old.getPreparedStatement(false))!=null)
+                return false;
+            dm.clearDependencies(lcc,old,tc);
+            dd.dropSPSDescriptor(old,tc);
+            dd.getDataDictionaryCache().storedPreparedStatementCacheRemove(old);
+        }
+
+        SPSDescriptor spsd=new SPSDescriptor(dd,
+                NAME_PREFIX+id.replace("-",""),
+                uuid,
+                dd.getSystemSchemaDescriptor().getUUID(),
+                statement.getCompilationSchemaDescriptor().getUUID(),
+                SPSDescriptor.SPS_TYPE_REGULAR,
+                true,
+                statement.getSource(),
+                null,
+                new Timestamp(System.currentTimeMillis()),
+                plan,
+                true);
+        // the parameter types are part of the plan, no need for SYS.SYSCOLUMNS rows
+        spsd.setParams(new DataTypeDescriptor[0]);
+        dd.addSPSDescriptor(spsd,tc);
+        dm.copyDependencies(ps,spsd,false,lcc.getContextManager(),tc);
+        return true;
+    }
+
+    /**
+     * Prepare the most recently compiled persisted plans on {@code conn},
+     * which loads them into the statement cache shared by all connections of
+     * this server. Only plans of statements prepared with the defaults of a
+     * JDBC connection can be found this way, the others are loaded on first
+     * use.
+     *
+     * @return the number of plans loaded
+     */
+    public int warm(Connection conn) throws SQLException{
+        List<String[]> plans=new ArrayList<>();
+        try(Statement s=conn.createStatement();ResultSet rs=s.executeQuery(WARM_UP_QUERY)){
+            while(rs.next() && plans.size()<warmUpLimit){
+                String text=rs.getString(2);
+                String defaultId=planId(rs.getString(4),text,true,ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL);
+                if(defaultId.equals(rs.getString(1)))
+                    plans.add(new String[]{rs.getString(3),text});
+            }
+        }
+
+        int loaded=0;
+        String currentSchema=null;
+        for(String[] plan : plans){
+            try{
+                if(!plan[0].equals(currentSchema)){
+                    try(Statement s=conn.createStatement()){
+                        s.execute("SET SCHEMA "+IdUtil.normalToDelimited(plan[0]));
+                    }
+                    currentSchema=plan[0];
+                }
+                conn.prepareStatement(plan[1]).close();
+                loaded++;
+            }catch(SQLException se){
+                if(LOG.isDebugEnabled())
+                    LOG.debug("Unable to warm up persisted plan of schema "+plan[0],se);
+            }
+        }
+        return loaded;
+    }
+
+    private String planId(GenericStatement statement){
+        return planId(statement.getCompilationSchemaDescriptor().getUUID().toString(),
+                statement.getSource(),
+                statement.isForReadOnly(),
+                statement.getPrepareIsolationLevel());
+    }
+
+    /*
+     * The first 16 bytes of the digest of the statement identity, in the
+     * string form of a UUID.
+     */
+    private String planId(String schemaId,String text,boolean isForReadOnly,int isolationLevel){
+        MessageDigest digest;
+        try{
+            digest=MessageDigest.getInstance("SHA-1");
+        }catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+        String identity=version+'\u0000'+schemaId+'\u0000'+isForReadOnly+'\u0000'+isolationLevel+'\u0000'+text;
+        byte[] hash=digest.digest(identity.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder id=new StringBuilder(36);
+        for(int i=0;i<16;i++){
+            if(i==4 || i==6 || i==8 || i==10)
+                id.append('-');
+            id.append(Character.forDigit((hash[i]>>4)&0xf,16)).append(Character.forDigit(hash[i]&0xf,16));
+        }
+        return id.toString();
+    }
+
+    private static boolean isPersistable(GenericStorablePreparedStatement ps,DependencyManager dm) throws StandardException{
+        if(!ps.isValid() || ps.invalidatedWhileCompiling || !ps.hasByteCode()
+                || ps.targetTable!=null || ps.referencesSessionSchema() || ps.getCompileTimeWarnings()!=null)
+            return false;
+        for(ProviderInfo provider : dm.getPersistentProviderInfos(ps)){
+            if(!PERSISTABLE_PROVIDERS.contains(provider.getDependableFinder().getSQLObjectType()))
+                return false;
+        }
+        return true;
+    }
+
+    /*
+     * The permissions kept at the end of a stored plan; null if the plan was
+     * not written by this cache, e.g. because the statement was recompiled as
+     * a stored prepared statement since.
+     */
+    private static RequiredPermissions requiredPermissions(ExecPreparedStatement stored){
+        if(!(stored instanceof GenericStorablePreparedStatement))
+            return null;
+        Object[] savedObjects=stored.getSavedObjects();
+        if(savedObjects==null || savedObjects.length==0
+                || !(savedObjects[savedObjects.length-1] instanceof RequiredPermissions))
+            return null;
+        return (RequiredPermissions)savedObjects[savedObjects.length-1];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object[] withPermissions(Object[] savedObjects,List requiredPermissions){
+        int count=savedObjects==null?0:savedObjects.length;
+        Object[] objects=new Object[count+1];
+        if(count>0)
+            System.arraycopy(savedObjects,0,objects,0,count);
+        objects[count]=new RequiredPermissions(
+                requiredPermissions==null?null:new ArrayList<StatementPermission>(requiredPermissions),
+                savedObjects==null);
+        return objects;
+    }
+
+    /*
+     * The leading keyword of a statement, past white space, comments and
+     * opening parentheses.
+     */
+    private static String firstKeyword(String text){
+        int i=0;
+        int length=text.length();
+        while(i<length){
+            char c=text.charAt(i);
+            if(Character.isWhitespace(c) || c=='('){
+                i++;
+            }else if(text.startsWith("--",i)){
+                int end=text.indexOf('\n',i);
+                i=end<0?length:end+1;
+            }else if(text.startsWith("/*",i)){
+                int end=text.indexOf("*/",i+2);
+                i=end<0?length:end+2;
+            }else
+                break;
+        }
+        int start=i;
+        while(i<length && Character.isLetter(text.charAt(i)))
+            i++;
+        return text.substring(start,i).toUpperCase(Locale.ENGLISH);
+    }
+
+    /**
+     * The permissions a persisted plan requires, kept as its last saved object.
+     */
+    static final class RequiredPermissions implements Serializable{
+        private static final long serialVersionUID=1L;
+
+        final ArrayList<StatementPermission> permissions;
+        final boolean noSavedObjects;
+
+        RequiredPermissions(ArrayList<StatementPermission> permissions,boolean noSavedObjects){
+            this.permissions=permissions;
+            this.noSavedObjects=noSavedObjects;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.mbeans.StatementCacheMBean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters for the statement cache, shared by all connections of a
+ * database and exposed through {@link StatementCacheMBean}.
+ */
+public final class StatementCacheStatistics implements StatementCacheMBean {
+
+    private static final long[] BUCKET_LIMITS_MILLIS={1,2,5,10,20,50,100,200,500,1000,2000,5000};
+
+    private final AtomicLong hits=new AtomicLong();
+    private final AtomicLong misses=new AtomicLong();
+    private final AtomicLong parameterized=new AtomicLong();
+    private final AtomicLong fallbacks=new AtomicLong();
+    private final AtomicLong persistedPlanLoads=new AtomicLong();
+    private final AtomicLong persistedPlanStores=new AtomicLong();
+    private final AtomicLong compileNanos=new AtomicLong();
+    private final AtomicLongArray histogram=new AtomicLongArray(BUCKET_LIMITS_MILLIS.length+1);
+
+    public void hit(){
+        hits.incrementAndGet();
+    }
+
+    public void miss(){
+        misses.incrementAndGet();
+    }
+
+    public void parameterized(){
+        parameterized.incrementAndGet();
+    }
+
+    public void fallback(){
+        fallbacks.incrementAndGet();
+    }
+
+    public void persistedPlanLoaded(){
+        persistedPlanLoads.incrementAndGet();
+    }
+
+    public void persistedPlanStored(){
+        persistedPlanStores.incrementAndGet();
+    }
+
+    public void compiled(long nanos){
+        compileNanos.addAndGet(nanos);
+        long millis=TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket=0;
+        while(bucket<BUCKET_LIMITS_MILLIS.length && millis>=BUCKET_LIMITS_MILLIS[bucket])
+            bucket++;
+        histogram.incrementAndGet(bucket);
+    }
+
+    @Override
+    public long getHits(){
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses(){
+        return misses.get();
+    }
+
+    @Override
+    public long getParameterizedStatements(){
+        return parameterized.get();
+    }
+
+    @Override
+    public long getParameterizationFallbacks(){
+        return fallbacks.get();
+    }
+
+    @Override
+    public long getPersistedPlanLoads(){
+        return persistedPlanLoads.get();
+    }
+
+    @Override
+    public long getPersistedPlanStores(){
+        return persistedPlanStores.get();
+    }
+
+    @Override
+    public long getTotalCompileTimeMillis(){
+        return TimeUnit.NANOSECONDS.toMillis(compileNanos.get());
+    }
+
+    @Override
+    public long[] getCompileTimeBucketLimitsMillis(){
+        return BUCKET_LIMITS_MILLIS.clone();
+    }
+
+    @Override
+    public long[] getCompileTimeHistogram(){
+        long[] counts=new long[histogram.length()];
+        for(int i=0;i<counts.length;i++)
+            counts[i]=histogram.get(i);
+        return counts;
+    }
+
+    @Override
+    public void reset(){
+        hits.set(0);
+        misses.set(0);
+        parameterized.set(0);
+        fallbacks.set(0);
+        persistedPlanLoads.set(0);
+        persistedPlanStores.set(0);
+        compileNanos.set(0);
+        for(int i=0;i<histogram.length();i++)
+            histogram.set(i,0);
+    }
+}
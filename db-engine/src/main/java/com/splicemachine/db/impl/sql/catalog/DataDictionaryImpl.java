@@ -2879,7 +2879,8 @@ public abstract class DataDictionaryImpl extends BaseDataDictionary{
      * Get a SPSDescriptor given its UUID.
      *
      * @param uuid The UUID
-     * @return The SPSDescriptor for the constraint.
+     * @return The SPSDescriptor for the constraint, null if there is no
+     * statement with this UUID.
      * @throws StandardException Thrown on failure
      */
     @Override
@@ -2891,8 +2892,8 @@ public abstract class DataDictionaryImpl extends BaseDataDictionary{
         if(sps!=null)
                 return sps;
         sps=getSPSDescriptorIndex2Scan(uuid.toString());
-        TableKey stmtKey=new TableKey(sps.getSchemaDescriptor().getUUID(),sps.getName());
-        dataDictionaryCache.storedPreparedStatementCacheAdd(sps);
+        if(sps!=null)
+            dataDictionaryCache.storedPreparedStatementCacheAdd(sps);
         return sps;
     }
 
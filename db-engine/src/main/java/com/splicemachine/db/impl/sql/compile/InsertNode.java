@@ -84,6 +84,7 @@ public final class InsertNode extends DMLModStatementNode {
     public static final String INSERT_MODE = "insertMode";
     public static final String STATUS_DIRECTORY = "statusDirectory";
     public static final String BAD_RECORDS_ALLOWED = "badRecordsAllowed";
+    public static final String BULK_IMPORT_DIRECTORY = "bulkImportDirectory";
     public static final String INSERT = "INSERT";
 
 
@@ -98,6 +99,7 @@ public final class InsertNode extends DMLModStatementNode {
     private     boolean           hasJDBClimitClause; // true if using JDBC limit/offset escape syntax
     private     String              statusDirectory;
     private     int              badRecordsAllowed = 0;
+    private     String              bulkImportDirectory;
 
 
 	protected   RowLocation[] 		autoincRowLocation;
@@ -706,6 +708,7 @@ public final class InsertNode extends DMLModStatementNode {
 		String insertModeString = targetProperties.getProperty(INSERT_MODE);
         String statusDirectoryString = targetProperties.getProperty(STATUS_DIRECTORY);
         String failBadRecordCountString = targetProperties.getProperty(BAD_RECORDS_ALLOWED);
+        String bulkImportDirectoryString = targetProperties.getProperty(BULK_IMPORT_DIRECTORY);
 
 		if (insertMode != null) {
             String upperValue = StringUtil.SQLToUpperCase(insertModeString);
@@ -726,6 +729,11 @@ public final class InsertNode extends DMLModStatementNode {
             statusDirectory = statusDirectoryString;
         }
 
+        if (bulkImportDirectoryString != null) {
+            // staging directory for the storage files written by a bulk import
+            bulkImportDirectory = bulkImportDirectoryString;
+        }
+
 
     }
 
@@ -945,12 +953,16 @@ public final class InsertNode extends DMLModStatementNode {
             else
                 mb.push(statusDirectory);
             mb.push(badRecordsAllowed);
+            if (bulkImportDirectory==null)
+                mb.pushNull("java.lang.String");
+            else
+                mb.push(bulkImportDirectory);
             mb.push((double) this.resultSet.getFinalCostEstimate().getEstimatedRowCount());
             mb.push(this.resultSet.getFinalCostEstimate().getEstimatedCost());
             mb.push(targetTableDescriptor.getVersion());
             mb.push(this.printExplainInformationForActivation());
 
-			mb.callMethod(VMOpcode.INVOKEINTERFACE, (String) null, "getInsertResultSet", ClassName.ResultSet, 10);
+			mb.callMethod(VMOpcode.INVOKEINTERFACE, (String) null, "getInsertResultSet", ClassName.ResultSet, 11);
 		}
 		else
 		{
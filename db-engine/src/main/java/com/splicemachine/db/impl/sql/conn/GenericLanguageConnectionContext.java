@@ -59,8 +59,11 @@ import com.splicemachine.db.iapi.store.access.XATransactionController;
 import com.splicemachine.db.iapi.types.DataValueFactory;
 import com.splicemachine.db.iapi.util.IdUtil;
 import com.splicemachine.db.iapi.util.InterruptStatus;
+import com.splicemachine.db.impl.sql.GenericActivationHolder;
 import com.splicemachine.db.impl.sql.GenericStatement;
 import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import com.splicemachine.db.impl.sql.LiteralParameterizer;
+import com.splicemachine.db.impl.sql.StatementCacheStatistics;
 import com.splicemachine.db.impl.sql.compile.CompilerContextImpl;
 import com.splicemachine.db.impl.sql.execute.*;
 import java.util.*;
@@ -1090,6 +1093,68 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         return connFactory.getStatement(getDefaultSchema(),sqlText,true).prepare(this);
     }
 
+    @Override
+    public Activation prepareAndActivate(SchemaDescriptor compilationSchema,
+                                         String sqlText,
+                                         boolean isForReadOnly,
+                                         boolean forMetaData,
+                                         boolean scrollable) throws StandardException{
+        if(!forMetaData && connFactory instanceof GenericLanguageConnectionFactory){
+            GenericLanguageConnectionFactory lcf=(GenericLanguageConnectionFactory)connFactory;
+            if(lcf.parameterizeLiterals()){
+                LiteralParameterizer.Result literals=LiteralParameterizer.parameterize(sqlText);
+                if(literals!=null && !lcf.isUnparameterizable(literals.getText())){
+                    Activation activation=activateParameterized(lcf,compilationSchema,sqlText,literals,isForReadOnly,scrollable);
+                    if(activation!=null)
+                        return activation;
+                }
+            }
+        }
+        return prepareInternalStatement(compilationSchema,sqlText,isForReadOnly,forMetaData).getActivation(this,scrollable);
+    }
+
+    /**
+     * Prepare the parameterized form of a statement and bind its literals.
+     *
+     * @return the activation, or null if the caller must prepare the original
+     *         text instead
+     */
+    private Activation activateParameterized(GenericLanguageConnectionFactory lcf,
+                                             SchemaDescriptor compilationSchema,
+                                             String sqlText,
+                                             LiteralParameterizer.Result literals,
+                                             boolean isForReadOnly,
+                                             boolean scrollable) throws StandardException{
+        StatementCacheStatistics statistics=lcf.getStatementCacheStatistics();
+        int depth=statementDepth;
+        PreparedStatement ps;
+        try{
+            ps=prepareInternalStatement(compilationSchema,literals.getText(),isForReadOnly,false);
+        }catch(StandardException se){
+            if(se.getSeverity()>ExceptionSeverity.STATEMENT_SEVERITY)
+                throw se;
+            // the compile left its statement context behind; unwind it before
+            // compiling the original text, which reports any genuine error.
+            // GenericStatement has already ended its nested compile transaction.
+            while(statementDepth>depth)
+                popStatementContext((StatementContext)getContextManager().getContext(ContextId.LANG_STATEMENT),se);
+            prepareInternalStatement(compilationSchema,sqlText,isForReadOnly,false);
+            lcf.markUnparameterizable(literals.getText());
+            statistics.fallback();
+            return null;
+        }
+
+        Activation activation=ps.getActivation(this,scrollable);
+        if(activation instanceof GenericActivationHolder
+                && ((GenericActivationHolder)activation).bindLiterals(literals.getValues())){
+            statistics.parameterized();
+            return activation;
+        }
+        activation.close();
+        statistics.fallback();
+        return null;
+    }
+
     /**
      * Remove the activation to those known about by this connection.
      */
@@ -33,6 +33,10 @@ import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
 import com.splicemachine.db.iapi.sql.compile.CompilerContext;
 import com.splicemachine.db.iapi.sql.LanguageFactory;
 import com.splicemachine.db.impl.sql.GenericStatement;
+import com.splicemachine.db.impl.sql.PersistentPlanCache;
+import com.splicemachine.db.impl.sql.StatementCacheStatistics;
+import com.splicemachine.db.iapi.services.jmx.ManagementService;
+import com.splicemachine.db.mbeans.StatementCacheMBean;
 import com.splicemachine.db.iapi.services.uuid.UUIDFactory;
 import com.splicemachine.db.iapi.services.compiler.JavaFactory;
 import com.splicemachine.db.iapi.services.loader.ClassFactory;
@@ -60,6 +64,8 @@ import com.splicemachine.db.iapi.services.property.PropertyUtil;
 import com.splicemachine.db.iapi.services.property.PropertySetCallback;
 import com.splicemachine.db.iapi.reference.SQLState;
 import com.splicemachine.db.iapi.reference.EngineType;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.Properties;
 import java.util.Dictionary;
 import java.io.Serializable;
@@ -96,6 +102,21 @@ public class GenericLanguageConnectionFactory
 	*/
 	private int cacheSize = Property.STATEMENT_CACHE_SIZE_DEFAULT;
 
+	/*
+	  literal parameterization of ad-hoc statements, and the parameterized
+	  texts that failed to compile and are no longer tried
+	*/
+	private boolean parameterizeLiterals = Property.LANG_PARAMETERIZE_LITERALS_DEFAULT;
+	private final Cache<String,Boolean> unparameterizable = CacheBuilder.newBuilder().maximumSize(1024).build();
+
+	private final StatementCacheStatistics statementCacheStatistics = new StatementCacheStatistics();
+	private Object statementCacheMBean;
+
+	/*
+	  plans shared through SYS.SYSSTATEMENTS, null unless enabled
+	*/
+	private PersistentPlanCache persistentPlanCache;
+
 	/*
 	   constructor
 	*/
@@ -303,12 +324,71 @@ public class GenericLanguageConnectionFactory
 		   (TypeCompilerFactory) Monitor.startSystemModule(TypeCompilerFactory.MODULE);
 		nodeFactory = (NodeFactory) Monitor.bootServiceModule(create, this, NodeFactory.MODULE, startParams);
 
+		String wantParameterize = PropertyUtil.getPropertyFromSet(startParams, Property.LANG_PARAMETERIZE_LITERALS);
+		if (wantParameterize != null)
+			parameterizeLiterals = Boolean.valueOf(wantParameterize.trim());
+
+		boolean persistentPlans = Property.LANG_PERSISTENT_PLANS_DEFAULT;
+		String wantPersistentPlans = PropertyUtil.getPropertyFromSet(startParams, Property.LANG_PERSISTENT_PLANS);
+		if (wantPersistentPlans != null)
+			persistentPlans = Boolean.valueOf(wantPersistentPlans.trim());
+		if (persistentPlans) {
+			persistentPlanCache = new PersistentPlanCache(
+				PropertyUtil.handleInt(
+					PropertyUtil.getPropertyFromSet(startParams, Property.LANG_PERSISTENT_PLANS_MIN_COMPILE_TIME),
+					0, Integer.MAX_VALUE, Property.LANG_PERSISTENT_PLANS_MIN_COMPILE_TIME_DEFAULT),
+				PropertyUtil.handleInt(
+					PropertyUtil.getPropertyFromSet(startParams, Property.LANG_PERSISTENT_PLANS_WARM_UP_LIMIT),
+					0, Integer.MAX_VALUE, Property.LANG_PERSISTENT_PLANS_WARM_UP_LIMIT_DEFAULT),
+				statementCacheStatistics);
+		}
+
+		statementCacheMBean = ((ManagementService)
+			Monitor.getSystemModule(Module.JMX)).registerMBean(
+				statementCacheStatistics,
+				StatementCacheMBean.class,
+				"type=StatementCache");
 	}
 
 	/**
-	 * Stop this module.  In this case, nothing needs to be done.
+	 * Stop this module.
 	 */
 	public void stop() {
+		((ManagementService)
+			Monitor.getSystemModule(Module.JMX)).unregisterMBean(
+				statementCacheMBean);
+	}
+
+	/**
+	 * @return true if ad-hoc statements should have their literals replaced
+	 * by parameters before the statement cache lookup
+	 */
+	public boolean parameterizeLiterals() {
+		return parameterizeLiterals;
+	}
+
+	/**
+	 * @return true if {@code parameterizedText} failed to compile before and
+	 * should not be tried again
+	 */
+	public boolean isUnparameterizable(String parameterizedText) {
+		return unparameterizable.getIfPresent(parameterizedText) != null;
+	}
+
+	public void markUnparameterizable(String parameterizedText) {
+		unparameterizable.put(parameterizedText, Boolean.TRUE);
+	}
+
+	public StatementCacheStatistics getStatementCacheStatistics() {
+		return statementCacheStatistics;
+	}
+
+	/**
+	 * @return the cache of plans shared through SYS.SYSSTATEMENTS, or null
+	 * if plans are not persisted
+	 */
+	public PersistentPlanCache getPersistentPlanCache() {
+		return persistentPlanCache;
 	}
 
 	/*
@@ -0,0 +1,97 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.mbeans;
+
+/**
+ * Statistics of the statement cache and of the compilations it saves.
+ * <P>
+ * Key properties for registered MBean:
+ * <UL>
+ * <LI> <code>type=StatementCache</code>
+ * <LI> <code>system=</code><em>runtime system identifier</em> (see overview)
+ * </UL>
+ */
+public interface StatementCacheMBean {
+
+    /**
+     * @return number of prepares satisfied by an up to date plan in the cache
+     */
+    public long getHits();
+
+    /**
+     * @return number of prepares that found no up to date plan in the cache
+     */
+    public long getMisses();
+
+    /**
+     * @return number of ad-hoc statements whose literals were replaced by
+     * parameters before the cache lookup
+     * @see com.splicemachine.db.iapi.reference.Property#LANG_PARAMETERIZE_LITERALS
+     */
+    public long getParameterizedStatements();
+
+    /**
+     * @return number of parameterized statements that had to be compiled
+     * with their literals after all, because the parameterized text did not
+     * compile or a literal did not fit the type of its parameter
+     */
+    public long getParameterizationFallbacks();
+
+    /**
+     * @return number of prepares that loaded the plan another server, or this
+     * one before a restart, persisted instead of compiling; these are counted
+     * as misses too
+     * @see com.splicemachine.db.iapi.reference.Property#LANG_PERSISTENT_PLANS
+     */
+    public long getPersistedPlanLoads();
+
+    /**
+     * @return number of compiled plans this server persisted
+     */
+    public long getPersistedPlanStores();
+
+    /**
+     * @return total time spent compiling statements, in milliseconds
+     */
+    public long getTotalCompileTimeMillis();
+
+    /**
+     * @return the upper bounds, in milliseconds, of the compile time
+     * histogram buckets; the last bucket has no upper bound
+     */
+    public long[] getCompileTimeBucketLimitsMillis();
+
+    /**
+     * @return the number of compilations that fell in each compile time
+     * histogram bucket
+     */
+    public long[] getCompileTimeHistogram();
+
+    /**
+     * Set all counters back to zero.
+     */
+    public void reset();
+}
@@ -0,0 +1,123 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.services.loader.ClassInspector;
+import com.splicemachine.db.iapi.services.loader.GeneratedClass;
+import com.splicemachine.db.iapi.sql.LanguageFactory;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.BaseActivation;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GenericActivationHolderTest {
+
+    @Test
+    public void bindsLiteralsThatFitTheirParameters() throws Exception {
+        GenericActivationHolder holder = holder(
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT),
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.CHAR, 5));
+        ParameterValueSet pvs = holder.getParameterValueSet();
+
+        assertTrue(holder.bindLiterals(new DataValueDescriptor[]{new SQLInteger(7), new SQLChar("ab")}));
+        assertEquals(7L, pvs.getParameter(0).getLong());
+        assertEquals("ab   ", pvs.getParameter(1).getString());
+        assertEquals("the literals are hidden from JDBC", 0, holder.getParameterValueSet().getParameterCount());
+    }
+
+    @Test
+    public void rejectsLiteralsOfAnotherFamily() throws Exception {
+        GenericActivationHolder holder = holder(DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER));
+        ParameterValueSet pvs = holder.getParameterValueSet();
+
+        assertFalse(holder.bindLiterals(new DataValueDescriptor[]{new SQLChar("5")}));
+        assertSame(pvs, holder.getParameterValueSet());
+    }
+
+    @Test
+    public void rejectsLiteralsThatLoseInformation() throws Exception {
+        assertFalse("truncated string",
+                holder(DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.CHAR, 3))
+                        .bindLiterals(new DataValueDescriptor[]{new SQLChar("abcd")}));
+        assertFalse("overflow",
+                holder(DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.SMALLINT))
+                        .bindLiterals(new DataValueDescriptor[]{new SQLInteger(100000)}));
+        assertFalse("fraction dropped",
+                holder(DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER))
+                        .bindLiterals(new DataValueDescriptor[]{new SQLDecimal(new BigDecimal("2.5"))}));
+    }
+
+    @Test
+    public void rejectsParameterCountMismatch() throws Exception {
+        GenericActivationHolder holder = holder(
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER),
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER));
+        ParameterValueSet pvs = holder.getParameterValueSet();
+
+        assertFalse(holder.bindLiterals(new DataValueDescriptor[]{new SQLInteger(1)}));
+        assertSame(pvs, holder.getParameterValueSet());
+    }
+
+    private static GenericActivationHolder holder(DataTypeDescriptor... types) throws Exception {
+        GenericParameterValueSet pvs = new GenericParameterValueSet(null, types.length, false);
+        pvs.initialize(types);
+
+        LanguageFactory languageFactory = mock(LanguageFactory.class);
+        when(languageFactory.newParameterValueSet(any(ClassInspector.class), anyInt(), anyBoolean()))
+                .thenReturn(new GenericParameterValueSet(null, 0, false));
+        LanguageConnectionContext lcc = mock(LanguageConnectionContext.class, RETURNS_DEEP_STUBS);
+        when(lcc.getLanguageFactory()).thenReturn(languageFactory);
+
+        BaseActivation ac = mock(BaseActivation.class);
+        when(ac.getParameterValueSet()).thenReturn(pvs);
+        GeneratedClass gc = mock(GeneratedClass.class);
+        when(gc.newInstance(lcc)).thenReturn(ac);
+        ExecPreparedStatement ps = mock(ExecPreparedStatement.class);
+        when(ps.getParameterTypes()).thenReturn(types);
+
+        return new GenericActivationHolder(lcc, gc, ps, false);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LiteralParameterizerTest {
+
+    @Test
+    public void replacesComparedLiterals() throws Exception {
+        LiteralParameterizer.Result result =
+                LiteralParameterizer.parameterize("SELECT * FROM t WHERE a = 5 AND 'x''y' <> b");
+        assertEquals("SELECT * FROM t WHERE a = ? AND ? <> b", result.getText());
+        DataValueDescriptor[] values = result.getValues();
+        assertEquals(2, values.length);
+        assertTrue(values[0] instanceof SQLInteger);
+        assertEquals(5, values[0].getInt());
+        assertTrue(values[1] instanceof SQLChar);
+        assertEquals("x'y", values[1].getString());
+    }
+
+    @Test
+    public void replacesBetweenAndInListLiterals() throws Exception {
+        LiteralParameterizer.Result result = LiteralParameterizer.parameterize(
+                "select a from t where c between 1 and 10 and d not in (1, 2.5, 3e2, 12345678901)");
+        assertEquals("select a from t where c between ? and ? and d not in (?, ?, ?, ?)", result.getText());
+        DataValueDescriptor[] values = result.getValues();
+        assertTrue(values[3] instanceof SQLDecimal);
+        assertTrue(values[4] instanceof SQLDouble);
+        assertTrue(values[5] instanceof SQLLongint);
+    }
+
+    @Test
+    public void replacesInsertValuesAndAssignments() throws Exception {
+        assertEquals("insert into t values (?, ?), (?, ?)",
+                LiteralParameterizer.parameterize("insert into t values (1, 'a'), (2, 'b')").getText());
+        assertEquals("update t set a = ? where id = ?",
+                LiteralParameterizer.parameterize("update t set a = 10 where id = 7").getText());
+    }
+
+    @Test
+    public void keepsLiteralsThatShapeThePlan() throws Exception {
+        assertNull(LiteralParameterizer.parameterize(
+                "SELECT 'k', 1 FROM t WHERE name LIKE 'ab%' ORDER BY 1 FETCH FIRST 10 ROWS ONLY"));
+        assertNull(LiteralParameterizer.parameterize(
+                "SELECT * FROM t WHERE a = -5 OR b = 1 + c OR d = DATE '2010-01-01' OR e = X'AB' OR 1 = 1"));
+        assertEquals("delete from t where substr(a, 1, 2) = ?",
+                LiteralParameterizer.parameterize("delete from t where substr(a, 1, 2) = 'ab'").getText());
+    }
+
+    @Test
+    public void skipsStatementsThatCannotBeRewritten() throws Exception {
+        assertNull(LiteralParameterizer.parameterize("SELECT * FROM t WHERE a = ? AND b = 1"));
+        assertNull(LiteralParameterizer.parameterize("SELECT * FROM t --splice-properties index=null\n WHERE a = 1"));
+        assertNull(LiteralParameterizer.parameterize("CREATE TABLE t (a int default 5)"));
+        assertNull(LiteralParameterizer.parameterize("SELECT * FROM t WHERE a = 'unterminated"));
+        assertNull(LiteralParameterizer.parameterize("SELECT * FROM t WHERE a = 1e400"));
+    }
+}
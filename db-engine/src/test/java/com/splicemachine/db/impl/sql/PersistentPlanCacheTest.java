@@ -0,0 +1,333 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.catalog.UUID;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.context.ContextManager;
+import com.splicemachine.db.iapi.services.uuid.UUIDFactory;
+import com.splicemachine.db.iapi.sql.conn.Authorizer;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.depend.Dependent;
+import com.splicemachine.db.iapi.sql.depend.DependencyManager;
+import com.splicemachine.db.iapi.sql.depend.Provider;
+import com.splicemachine.db.iapi.sql.depend.ProviderInfo;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.SPSDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.StatementPermission;
+import com.splicemachine.db.iapi.sql.dictionary.StatementTablePermission;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.db.impl.services.uuid.BasicUUID;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.aryEq;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PersistentPlanCacheTest {
+
+    private static final String TEXT = "select * from t where a = 1";
+    private static final long SLOW_COMPILE = 20000000L;
+
+    private final UUID schemaId = new BasicUUID(1L, 2L, 3);
+    private final List<StatementPermission> permissions = Collections.<StatementPermission>singletonList(
+            new StatementTablePermission(new BasicUUID(1L, 2L, 4), Authorizer.SELECT_PRIV));
+
+    private StatementCacheStatistics statistics;
+    private PersistentPlanCache cache;
+    private LanguageConnectionContext lcc;
+    private DataDictionary dd;
+    private DependencyManager dm;
+    private ContextManager cm;
+    private TransactionController userTc;
+    private TransactionController internalTc;
+    private GenericStatement statement;
+    private GenericStorablePreparedStatement ps;
+    private GenericStorablePreparedStatement plan;
+
+    @Before
+    public void setUp() throws Exception {
+        statistics = new StatementCacheStatistics();
+        cache = new PersistentPlanCache(10, 100, "test", statistics);
+
+        lcc = mock(LanguageConnectionContext.class);
+        dd = mock(DataDictionary.class);
+        dm = mock(DependencyManager.class);
+        cm = mock(ContextManager.class);
+        userTc = mock(TransactionController.class);
+        internalTc = mock(TransactionController.class);
+        when(lcc.getDataDictionary()).thenReturn(dd);
+        when(lcc.getContextManager()).thenReturn(cm);
+        when(lcc.getTransactionCompile()).thenReturn(userTc);
+        when(userTc.startIndependentInternalTransaction(false)).thenReturn(internalTc);
+        when(dd.canUseCache(userTc)).thenReturn(true);
+        when(dd.getDependencyManager()).thenReturn(dm);
+        when(dd.getDataDictionaryCache()).thenReturn(mock(DataDictionaryCache.class));
+        UUIDFactory uuids = mock(UUIDFactory.class);
+        when(uuids.recreateUUID(anyString())).thenAnswer(new Answer<UUID>() {
+            @Override
+            public UUID answer(InvocationOnMock invocation) throws Throwable {
+                return new BasicUUID((String) invocation.getArguments()[0]);
+            }
+        });
+        when(dd.getUUIDFactory()).thenReturn(uuids);
+        SchemaDescriptor sys = mock(SchemaDescriptor.class);
+        when(sys.getUUID()).thenReturn(new BasicUUID(1L, 2L, 5));
+        when(dd.getSystemSchemaDescriptor()).thenReturn(sys);
+        when(dm.getPersistentProviderInfos(any(Dependent.class))).thenReturn(new ProviderInfo[0]);
+
+        SchemaDescriptor schema = mock(SchemaDescriptor.class);
+        when(schema.getUUID()).thenReturn(schemaId);
+        statement = new GenericStatement(schema, TEXT, true);
+
+        plan = new GenericStorablePreparedStatement();
+        ps = mock(GenericStorablePreparedStatement.class);
+        when(ps.isValid()).thenReturn(true);
+        when(ps.hasByteCode()).thenReturn(true);
+        when(ps.getClone()).thenReturn(plan);
+        when(ps.getRequiredPermissionsList()).thenReturn(permissions);
+        ps.setSavedObjects(new Object[]{"saved"});
+    }
+
+    @Test
+    public void storesPlansWithoutTouchingTheUserTransaction() throws Exception {
+        SPSDescriptor stored = store();
+
+        assertEquals(TEXT, stored.getText());
+        assertEquals(schemaId, stored.getCompSchemaId());
+        verify(dm).copyDependencies(same(ps), same(stored), eq(false), same(cm), same(internalTc));
+        verify(internalTc).commit();
+        verify(internalTc).destroy();
+        verify(dd, never()).startWriting(lcc);
+        verify(userTc, never()).startNestedUserTransaction(anyBoolean(), anyBoolean());
+        verify(userTc, never()).commit();
+        assertEquals(1, statistics.getPersistedPlanStores());
+    }
+
+    @Test
+    public void doesNotStoreCheapPlans() throws Exception {
+        cache.store(lcc, statement, ps, SLOW_COMPILE / 4);
+        verify(userTc, never()).startIndependentInternalTransaction(anyBoolean());
+    }
+
+    @Test
+    public void doesNotStoreWhileDDLIsInFlight() throws Exception {
+        when(dd.canUseCache(userTc)).thenReturn(false);
+        cache.store(lcc, statement, ps, SLOW_COMPILE);
+        verify(userTc, never()).startIndependentInternalTransaction(anyBoolean());
+        verify(dd, never()).addSPSDescriptor(any(SPSDescriptor.class), any(TransactionController.class));
+    }
+
+    @Test
+    public void abortsThePlanTransactionWhenTheWriteFails() throws Exception {
+        when(dd.getSPSDescriptor(any(UUID.class))).thenReturn(null);
+        doThrow(StandardException.plainWrapException(new RuntimeException()))
+                .when(dd).addSPSDescriptor(any(SPSDescriptor.class), same(internalTc));
+        cache.store(lcc, statement, ps, SLOW_COMPILE);
+        verify(internalTc).abort();
+        verify(internalTc).destroy();
+        verify(userTc, never()).abort();
+        assertEquals(0, statistics.getPersistedPlanStores());
+    }
+
+    @Test
+    public void loadsTheStoredPlan() throws Exception {
+        SPSDescriptor stored = store();
+        when(dd.getSPSDescriptor(stored.getUUID())).thenReturn(stored);
+
+        GenericStorablePreparedStatement target = mock(GenericStorablePreparedStatement.class);
+        assertTrue(cache.load(lcc, statement, target));
+        verify(target).restorePlan(same(plan), aryEq(new Object[]{"saved"}), eq(permissions));
+        verify(dm).addDependency(target, stored, cm);
+        assertEquals(1, statistics.getPersistedPlanLoads());
+    }
+
+    @Test
+    public void loadedPlanKeepsThePermissionsItRequires() throws Exception {
+        SPSDescriptor stored = store();
+        when(dd.getSPSDescriptor(stored.getUUID())).thenReturn(stored);
+
+        GenericStorablePreparedStatement target = mock(GenericStorablePreparedStatement.class);
+        assertTrue(cache.load(lcc, statement, target));
+        ArgumentCaptor<List> required = ArgumentCaptor.forClass(List.class);
+        verify(target).restorePlan(same(plan), any(Object[].class), required.capture());
+        // the permissions travel with the plan, so the loading user is checked on every execution
+        assertEquals(permissions, required.getValue());
+    }
+
+    @Test
+    public void doesNotLoadAPlanWithoutItsPermissions() throws Exception {
+        // e.g. a statement recompiled as a regular stored prepared statement since
+        GenericStorablePreparedStatement recompiled = new GenericStorablePreparedStatement();
+        recompiled.setSavedObjects(new Object[]{"saved"});
+        when(dd.getSPSDescriptor(any(UUID.class))).thenReturn(sps(true, recompiled));
+
+        GenericStorablePreparedStatement target = mock(GenericStorablePreparedStatement.class);
+        assertFalse(cache.load(lcc, statement, target));
+        verify(target, never()).restorePlan(any(GenericStorablePreparedStatement.class), any(Object[].class), any(List.class));
+    }
+
+    @Test
+    public void doesNotLoadAPlanOfAnotherStatement() throws Exception {
+        SPSDescriptor stored = store();
+        when(dd.getSPSDescriptor(any(UUID.class))).thenReturn(stored);
+
+        SchemaDescriptor schema = mock(SchemaDescriptor.class);
+        when(schema.getUUID()).thenReturn(new BasicUUID(1L, 2L, 6));
+        assertFalse(cache.load(lcc, new GenericStatement(schema, TEXT, true), mock(GenericStorablePreparedStatement.class)));
+    }
+
+    @Test
+    public void doesNotLoadAPlanInvalidatedByDDL() throws Exception {
+        store();
+        when(dd.getSPSDescriptor(any(UUID.class))).thenReturn(sps(false, plan));
+
+        assertFalse(cache.load(lcc, statement, mock(GenericStorablePreparedStatement.class)));
+        assertEquals(0, statistics.getPersistedPlanLoads());
+    }
+
+    @Test
+    public void persistedPlanDoesNotBlockDDL() throws Exception {
+        SPSDescriptor stored = store();
+        Provider table = mock(Provider.class);
+        stored.prepareToInvalidate(table, DependencyManager.DROP_TABLE, lcc);
+        stored.prepareToInvalidate(table, DependencyManager.ALTER_TABLE, lcc);
+        stored.prepareToInvalidate(table, DependencyManager.CREATE_INDEX, lcc);
+    }
+
+    @Test
+    public void replacesAPlanInvalidatedByDDL() throws Exception {
+        SPSDescriptor old = sps(false, null);
+        when(dd.getSPSDescriptor(any(UUID.class))).thenReturn(old);
+
+        SPSDescriptor stored = store();
+        verify(dm).clearDependencies(lcc, old, internalTc);
+        verify(dd).dropSPSDescriptor(old, internalTc);
+        assertTrue(stored.isValid());
+    }
+
+    @Test
+    public void keepsAValidPlanStoredByAnotherServer() throws Exception {
+        SPSDescriptor stored = store();
+        when(dd.getSPSDescriptor(any(UUID.class))).thenReturn(stored);
+
+        cache.store(lcc, statement, ps, SLOW_COMPILE);
+        verify(dd, never()).dropSPSDescriptor(any(SPSDescriptor.class), any(TransactionController.class));
+        verify(dd, times(1)).addSPSDescriptor(any(SPSDescriptor.class), any(TransactionController.class));
+        verify(internalTc, times(2)).commit();
+        assertEquals(1, statistics.getPersistedPlanStores());
+    }
+
+    @Test
+    public void warmsPlansOfDefaultStatements() throws Exception {
+        String id = store().getUUID().toString();
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getString(1)).thenReturn(id, "00000000-0000-0000-0000-000000000000");
+        when(rs.getString(2)).thenReturn(TEXT, "select * from t where a = 2");
+        when(rs.getString(3)).thenReturn("APP", "APP");
+        when(rs.getString(4)).thenReturn(schemaId.toString(), schemaId.toString());
+        Statement query = mock(Statement.class);
+        when(query.executeQuery(anyString())).thenReturn(rs);
+        Statement setSchema = mock(Statement.class);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement()).thenReturn(query, setSchema);
+        when(conn.prepareStatement(TEXT)).thenReturn(prepared);
+
+        assertEquals(1, cache.warm(conn));
+        verify(setSchema).execute("SET SCHEMA \"APP\"");
+        verify(prepared).close();
+        // the other row was stored for a statement prepared with other than the default settings
+        verify(conn, never()).prepareStatement("select * from t where a = 2");
+    }
+
+    @Test
+    public void warmsAtMostTheWarmUpLimit() throws Exception {
+        cache = new PersistentPlanCache(10, 1, "test", statistics);
+        String id = store().getUUID().toString();
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getString(1)).thenReturn(id);
+        when(rs.getString(2)).thenReturn(TEXT);
+        when(rs.getString(3)).thenReturn("APP");
+        when(rs.getString(4)).thenReturn(schemaId.toString());
+        Statement query = mock(Statement.class);
+        when(query.executeQuery(anyString())).thenReturn(rs);
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement()).thenReturn(query, mock(Statement.class));
+        when(conn.prepareStatement(TEXT)).thenReturn(mock(PreparedStatement.class));
+
+        assertEquals(1, cache.warm(conn));
+        verify(conn).prepareStatement(TEXT);
+    }
+
+    /*
+     * Store the plan of the test statement, and return what was written to
+     * SYS.SYSSTATEMENTS.
+     */
+    private SPSDescriptor store() throws Exception {
+        cache.store(lcc, statement, ps, SLOW_COMPILE);
+        ArgumentCaptor<SPSDescriptor> stored = ArgumentCaptor.forClass(SPSDescriptor.class);
+        verify(dd).addSPSDescriptor(stored.capture(), same(internalTc));
+        assertSame(plan, stored.getValue().getPreparedStatement(false));
+        return stored.getValue();
+    }
+
+    private SPSDescriptor sps(boolean valid, GenericStorablePreparedStatement stored) throws Exception {
+        return new SPSDescriptor(dd, "PLAN_OLD", new BasicUUID(1L, 2L, 7), new BasicUUID(1L, 2L, 5), schemaId,
+                SPSDescriptor.SPS_TYPE_REGULAR, valid, TEXT, null, new Timestamp(0L), stored, true);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql.conn;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.PreparedStatement;
+import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
+import com.splicemachine.db.impl.sql.StatementCacheStatistics;
+import com.splicemachine.db.shared.common.reference.SQLState;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Literal parameterization in {@link GenericLanguageConnectionContext#prepareAndActivate},
+ * with the statement compiles stubbed out.
+ */
+public class GenericLanguageConnectionContextTest {
+    private static final String SQL = "select * from t where a = 5";
+    private static final String PARAMETERIZED_SQL = "select * from t where a = ?";
+
+    private GenericLanguageConnectionContext lcc;
+    private GenericLanguageConnectionFactory lcf;
+    private StatementCacheStatistics statistics;
+    private SchemaDescriptor schema;
+
+    @Before
+    public void setUp() throws Exception {
+        statistics = new StatementCacheStatistics();
+        lcf = mock(GenericLanguageConnectionFactory.class);
+        when(lcf.parameterizeLiterals()).thenReturn(true);
+        when(lcf.getStatementCacheStatistics()).thenReturn(statistics);
+        schema = mock(SchemaDescriptor.class);
+
+        lcc = mock(GenericLanguageConnectionContext.class, CALLS_REAL_METHODS);
+        lcc.connFactory = lcf;
+    }
+
+    @Test
+    public void fallsBackWhenTheParameterizedTextDoesNotCompile() throws Exception {
+        Activation original = mock(Activation.class);
+        doThrow(StandardException.newException(SQLState.LANG_SYNTAX_ERROR, "?"))
+                .when(lcc).prepareInternalStatement(schema, PARAMETERIZED_SQL, true, false);
+        doReturn(prepared(original)).when(lcc).prepareInternalStatement(schema, SQL, true, false);
+
+        assertSame(original, lcc.prepareAndActivate(schema, SQL, true, false, false));
+        // GenericStatement ended its nested compile transaction when the compile failed
+        verify(lcc, never()).commitNestedTransaction();
+        verify(lcf).markUnparameterizable(PARAMETERIZED_SQL);
+        assertEquals(1, statistics.getParameterizationFallbacks());
+    }
+
+    @Test
+    public void fallsBackWhenTheLiteralsCannotBeBound() throws Exception {
+        Activation parameterized = mock(Activation.class);
+        Activation original = mock(Activation.class);
+        doReturn(prepared(parameterized)).when(lcc).prepareInternalStatement(schema, PARAMETERIZED_SQL, true, false);
+        doReturn(prepared(original)).when(lcc).prepareInternalStatement(schema, SQL, true, false);
+
+        assertSame(original, lcc.prepareAndActivate(schema, SQL, true, false, false));
+        verify(parameterized).close();
+        verify(lcf, never()).markUnparameterizable(PARAMETERIZED_SQL);
+        assertEquals(1, statistics.getParameterizationFallbacks());
+    }
+
+    @Test
+    public void doesNotFallBackOnTransactionErrors() throws Exception {
+        StandardException timeout = StandardException.newException(SQLState.LOCK_TIMEOUT);
+        doThrow(timeout).when(lcc).prepareInternalStatement(schema, PARAMETERIZED_SQL, true, false);
+
+        try {
+            lcc.prepareAndActivate(schema, SQL, true, false, false);
+            fail("expected the lock timeout to propagate");
+        } catch (StandardException se) {
+            assertSame(timeout, se);
+        }
+        verify(lcc, never()).prepareInternalStatement(schema, SQL, true, false);
+        verify(lcf, never()).markUnparameterizable(PARAMETERIZED_SQL);
+    }
+
+    private PreparedStatement prepared(Activation activation) throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(ps.getActivation(lcc, false)).thenReturn(activation);
+        return ps;
+    }
+}
@@ -667,6 +667,33 @@ public interface Property {
 	String STATEMENT_CACHE_SIZE = "derby.language.statementCacheSize";
 	int STATEMENT_CACHE_SIZE_DEFAULT = 100;
 
+	/*
+		Replace the literals of ad-hoc SELECT, INSERT, UPDATE and DELETE
+		statements with hidden parameters before looking them up in the
+		statement cache, so statements that differ only in their constants
+		share one plan. The optimizer then estimates those predicates without
+		knowing the values, so this is off by default.
+	 */
+	String LANG_PARAMETERIZE_LITERALS = "derby.language.parameterizeLiterals";
+	boolean LANG_PARAMETERIZE_LITERALS_DEFAULT = false;
+
+	/*
+		Persist the plans of cached statements in SYS.SYSSTATEMENTS, so
+		other servers of the cluster, and this one after a restart, can load
+		them instead of compiling. Only plans that took at least
+		LANG_PERSISTENT_PLANS_MIN_COMPILE_TIME milliseconds to compile are
+		persisted, and up to LANG_PERSISTENT_PLANS_WARM_UP_LIMIT of them are
+		loaded into the statement cache in the background at startup.
+	 */
+	String LANG_PERSISTENT_PLANS = "derby.language.persistentPlans";
+	boolean LANG_PERSISTENT_PLANS_DEFAULT = false;
+
+	String LANG_PERSISTENT_PLANS_MIN_COMPILE_TIME = "derby.language.persistentPlansMinCompileTime";
+	int LANG_PERSISTENT_PLANS_MIN_COMPILE_TIME_DEFAULT = 10;
+
+	String LANG_PERSISTENT_PLANS_WARM_UP_LIMIT = "derby.language.persistentPlansWarmUpLimit";
+	int LANG_PERSISTENT_PLANS_WARM_UP_LIMIT_DEFAULT = 1000;
+
 	/**
 	 * Tells if the system stored procedures should be updated during database boot up.
 	 * Default is false.  System property.  Loaded once (static initializer).
@@ -1081,6 +1108,19 @@ public interface Property {
 	 * client socket setKeepAlive value
 	 */
 	public final static String DRDA_PROP_KEEPALIVE = "derby.drda.keepAlive";
+
+	/**
+	 * db.drda.nonBlocking
+	 *
+	 *<BR>
+	 * If true, client sockets are multiplexed on a selector and a
+	 * connection thread is only assigned to a session while it has a
+	 * request to process, so idle sessions do not hold a thread.
+	 * Ignored when db.drda.sslMode is not off.
+	 *<BR>
+	 * Default: false
+	 */
+	public final static String DRDA_PROP_NONBLOCKING = "derby.drda.nonBlocking";
 	
 
     /**
@@ -26,11 +26,14 @@ import com.splicemachine.concurrent.Clock;
 import com.splicemachine.hbase.ZkUtils;
 import com.splicemachine.pipeline.PipelineDriver;
 import com.splicemachine.pipeline.PipelineEnvironment;
+import com.splicemachine.pipeline.SnappyPipelineCodec;
 import com.splicemachine.pipeline.api.BulkWriterFactory;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
 import com.splicemachine.pipeline.api.PipelineMeter;
 import com.splicemachine.pipeline.client.RpcChannelFactory;
+import com.splicemachine.pipeline.compression.PipelineCodecs;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
+import com.splicemachine.pipeline.utils.CodecPipelineCompressor;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
 import com.splicemachine.pipeline.utils.SimplePipelineCompressor;
 import com.splicemachine.si.api.data.ExceptionFactory;
@@ -90,8 +93,12 @@ public class HBasePipelineEnvironment implements PipelineEnvironment{
 
         KryoPool kryoPool=new KryoPool(pipelineConfiguration.getPipelineKryoPoolSize());
         kryoPool.setKryoRegistry(new PipelineKryoRegistry());
-        //TODO -sf- enable snappy compression here
-        this.compressor = new SimplePipelineCompressor(kryoPool,env.getSIDriver().getOperationFactory());
+        TxnOperationFactory txnOperationFactory = env.getSIDriver().getOperationFactory();
+        PipelineCodecs.register(new SnappyPipelineCodec());
+        this.compressor = new CodecPipelineCompressor(new SimplePipelineCompressor(kryoPool,txnOperationFactory),
+                txnOperationFactory,
+                pipelineConfiguration.getPipelineCompressionCodec(),
+                pipelineConfiguration.isPipelineCompressionDictionary());
 
         RpcChannelFactory channelFactory = ChannelFactoryService.loadChannelFactory(this.pipelineConfiguration);
         this.writerFactory = new CoprocessorWriterFactory(compressor,partitionInfoCache(),pipelineExceptionFactory,channelFactory,
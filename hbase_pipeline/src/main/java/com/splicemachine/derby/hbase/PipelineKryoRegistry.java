@@ -37,15 +37,23 @@ public class PipelineKryoRegistry implements KryoPool.KryoRegistry{
     public void register(Kryo instance){
         instance.register(BulkWriteResult.class,BulkWriteResult.kryoSerializer(),10);
         instance.register(BulkWritesResult.class,new Serializer<BulkWritesResult>(){
+            /*
+             * The retry hint is written after the results, so that mixed versions of the cluster can talk to each
+             * other during a rolling upgrade: a client which predates the hint stops reading after the results,
+             * and a response from a server which predates it ends (or is zero-padded, since responses are
+             * decoded from the whole Kryo buffer) after the results, which reads as "no hint".
+             */
             @Override
             public void write(Kryo kryo,Output output,BulkWritesResult object){
                 kryo.writeClassAndObject(output,object.getBulkWriteResults());
+                output.writeLong(object.getRetryAfterMillis(),true);
             }
 
             @Override
             public BulkWritesResult read(Kryo kryo,Input input,Class type){
                 Collection<BulkWriteResult> results=(Collection<BulkWriteResult>)kryo.readClassAndObject(input);
-                return new BulkWritesResult(results);
+                long retryAfterMillis=input.position()<input.limit()?input.readLong(true):0l;
+                return new BulkWritesResult(results,retryAfterMillis);
             }
         },11);
 
@@ -16,6 +16,7 @@
 package com.splicemachine.derby.hbase;
 
 import com.google.common.base.Function;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.RpcCallback;
 import com.google.protobuf.RpcController;
 import com.google.protobuf.Service;
@@ -136,7 +137,7 @@ public class SpliceIndexEndpoint extends SpliceMessage.SpliceIndexService implem
                           SpliceMessage.BulkWriteRequest request,
                           RpcCallback<SpliceMessage.BulkWriteResponse> done){
         try{
-            byte[] bytes=bulkWrites(request.getBytes().toByteArray());
+            byte[] bytes=bulkWrites(requestBytes(request.getBytes()));
             if(bytes==null||bytes.length<=0)
                 LOG.error("No bytes constructed for the result!");
 
@@ -149,6 +150,26 @@ public class SpliceIndexEndpoint extends SpliceMessage.SpliceIndexService implem
         }
     }
 
+    /**
+     * The KVPairs decoded from a request are slices over the request buffer and are only referenced until the
+     * write completes, so there's no need to copy the buffer out of the protobuf message when the message
+     * owns the whole of its backing array.
+     */
+    static byte[] requestBytes(ByteString bytes){
+        byte[] array;
+        try{
+            array=ZeroCopyLiteralByteString.zeroCopyGetBytes(bytes);
+        }catch(UnsupportedOperationException uoe){
+            //not backed by a single array, fall back to copying
+            return bytes.toByteArray();
+        }
+        /*
+         * A slice of a larger ByteString hands out the whole backing array, without the offset of the
+         * slice, so it has to be copied
+         */
+        return array.length==bytes.size()?array:bytes.toByteArray();
+    }
+
     @Override
     public Service getService(){
         return this;
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.SnappyCodec;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.pipeline.compression.PipelineCodec;
+import com.splicemachine.utils.ByteSlice;
+
+/**
+ * PipelineCodec backed by Hadoop's native Snappy bindings. Only available when the native library is installed,
+ * so it is registered by the HBase environment rather than being one of the built-in codecs.
+ */
+public class SnappyPipelineCodec implements PipelineCodec{
+    public static final byte ID = 3;
+
+    private final SnappyCodec snappy;
+    private final boolean available;
+
+    public SnappyPipelineCodec(){
+        this.snappy = new SnappyCodec();
+        this.snappy.setConf(HConfiguration.unwrapDelegate());
+        this.available = SnappyPipelineCompressor.supportsNative();
+    }
+
+    @Override public byte id(){ return ID; }
+    @Override public String name(){ return "snappy"; }
+    @Override public boolean isAvailable(){ return available; }
+    @Override public boolean supportsDictionary(){ return false; }
+
+    @Override
+    public byte[] compress(byte[] data,int offset,int length,byte[] dictionary) throws IOException{
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(length/2+16);
+        try(OutputStream os = snappy.createOutputStream(baos)){
+            os.write(data,offset,length);
+        }
+        return baos.toByteArray();
+    }
+
+    @Override
+    public ByteSlice decompress(byte[] data,int offset,int length,int uncompressedLength,byte[] dictionary) throws IOException{
+        byte[] out = new byte[uncompressedLength];
+        try(InputStream is = snappy.createInputStream(new ByteArrayInputStream(data,offset,length))){
+            IOUtils.readFully(is,out,0,uncompressedLength);
+        }
+        return ByteSlice.wrap(out);
+    }
+}
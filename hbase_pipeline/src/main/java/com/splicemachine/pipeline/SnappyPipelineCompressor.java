@@ -66,6 +66,10 @@ public class SnappyPipelineCompressor implements PipelineCompressor{
 
     private final PipelineCompressor delegate;
 
+    public static boolean supportsNative(){
+        return supportsNative;
+    }
+
     public SnappyPipelineCompressor(PipelineCompressor delegate){
         this.delegate=delegate;
     }
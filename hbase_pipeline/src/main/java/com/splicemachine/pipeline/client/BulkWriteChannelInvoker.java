@@ -22,7 +22,10 @@ import com.splicemachine.access.hbase.HBaseTableInfoFactory;
 import com.splicemachine.coprocessor.SpliceMessage;
 import com.splicemachine.hbase.SpliceRpcController;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
+import com.splicemachine.pipeline.compression.CodecNegotiationException;
+import com.splicemachine.pipeline.utils.CodecPipelineCompressor;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.storage.PartitionInfoCache;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.hadoop.hbase.NotServingRegionException;
@@ -63,6 +66,10 @@ public class BulkWriteChannelInvoker {
     }
 
     public BulkWritesResult invoke(BulkWrites write) throws IOException {
+        return invoke(write,false);
+    }
+
+    private BulkWritesResult invoke(BulkWrites write,boolean renegotiate) throws IOException {
         TableName tableName=tableInfoFactory.getTableInfo(this.tableName);
         CoprocessorRpcChannel channel = channelFactory.newChannel(tableName,write.getRegionKey());
 
@@ -70,7 +77,11 @@ public class BulkWriteChannelInvoker {
         try {
             SpliceMessage.SpliceIndexService service = ProtobufUtil.newServiceStub(SpliceMessage.SpliceIndexService.class, channel);
             SpliceMessage.BulkWriteRequest.Builder builder = SpliceMessage.BulkWriteRequest.newBuilder();
-            byte[] requestBytes = compressor.compress(write);
+            byte[] requestBytes;
+            if(compressor instanceof CodecPipelineCompressor)
+                requestBytes = ((CodecPipelineCompressor)compressor).compressRequest(write,Bytes.toString(this.tableName),renegotiate);
+            else
+                requestBytes = compressor.compress(write);
             builder.setBytes(ZeroCopyLiteralByteString.wrap(requestBytes));
             SpliceMessage.BulkWriteRequest bwr = builder.build();
 
@@ -80,6 +91,13 @@ public class BulkWriteChannelInvoker {
             service.bulkWrite(controller, bwr, doneCallback);
             if (controller.failed()){
                 Throwable error=controller.getThrowable();
+                if(!renegotiate && isCodecNegotiationFailure(error,controller.errorText())){
+                    /*
+                     * The server doesn't know our codec or dictionary (e.g. it was just restarted),
+                     * so resend in a form it is guaranteed to understand
+                     */
+                    return invoke(write,true);
+                }
                 clearCacheIfNeeded(error);
                 cacheCheck=true;
                 if(error!=null)
@@ -94,7 +112,13 @@ public class BulkWriteChannelInvoker {
                 logger.error("zero-length bytes returned with a null error for encodedString: "+write.getBulkWrites().iterator().next().getEncodedStringName());
             }
 
-            return compressor.decompress(bytes,BulkWritesResult.class);
+            BulkWritesResult result = compressor.decompress(bytes,BulkWritesResult.class);
+            if(compressor instanceof CodecPipelineCompressor){
+                result.setCompression(CodecPipelineCompressor.codecName(requestBytes),
+                        CodecPipelineCompressor.uncompressedLength(requestBytes),
+                        requestBytes.length);
+            }
+            return result;
         } catch (Exception e) {
         	if (!cacheCheck) clearCacheIfNeeded(e);
             throw pef.processRemoteException(e);
@@ -118,6 +142,16 @@ public class BulkWriteChannelInvoker {
         return false;
     }
     
+    private static boolean isCodecNegotiationFailure(Throwable t,String errorText){
+        while(t!=null){
+            if(t instanceof CodecNegotiationException) return true;
+            String message = t.getMessage();
+            if(message!=null && message.contains(CodecNegotiationException.class.getSimpleName())) return true;
+            t = t.getCause();
+        }
+        return errorText!=null && errorText.contains(CodecNegotiationException.class.getSimpleName());
+    }
+
     private static boolean isFailedServerException(Throwable t) {
     	// Unfortunately we can not call ExceptionTranslator.isFailedServerException()
     	// which is explicitly for this purpose. Other places in the code call it,
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.hbase;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.ZeroCopyLiteralByteString;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class SpliceIndexEndpointTest{
+
+    @Test
+    public void wholeRequestIsNotCopied() throws Exception{
+        byte[] data=data(16);
+        Assert.assertSame(data,SpliceIndexEndpoint.requestBytes(ZeroCopyLiteralByteString.wrap(data)));
+    }
+
+    @Test
+    public void slicedRequestRoundTrips() throws Exception{
+        byte[] data=data(16);
+        ByteString slice=ZeroCopyLiteralByteString.wrap(data).substring(4,12);
+        Assert.assertArrayEquals(Arrays.copyOfRange(data,4,12),SpliceIndexEndpoint.requestBytes(slice));
+    }
+
+    @Test
+    public void sliceAtTheStartOfTheBufferRoundTrips() throws Exception{
+        byte[] data=data(16);
+        ByteString slice=ZeroCopyLiteralByteString.wrap(data).substring(0,8);
+        Assert.assertArrayEquals(Arrays.copyOfRange(data,0,8),SpliceIndexEndpoint.requestBytes(slice));
+    }
+
+    @Test
+    public void requestSpreadOverSeveralArraysRoundTrips() throws Exception{
+        //small pieces would simply be concatenated into a single array
+        byte[] data=data(512);
+        ByteString rope=ByteString.copyFrom(data,0,256).concat(ByteString.copyFrom(data,256,256));
+        Assert.assertArrayEquals(data,SpliceIndexEndpoint.requestBytes(rope));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static byte[] data(int length){
+        byte[] data=new byte[length];
+        for(int i=0;i<length;i++){
+            data[i]=(byte)(i+1);
+        }
+        return data;
+    }
+}
@@ -28,6 +28,7 @@ import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.data.hbase.coprocessor.TableType;
 import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.si.impl.server.PurgeWatermark;
 import com.splicemachine.si.impl.server.SICompactionState;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.SpliceLogUtils;
@@ -58,6 +59,7 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
     private static final boolean allowSpark = true;
     private static final Logger LOG = Logger.getLogger(SpliceDefaultCompactor.class);
     private long smallestReadPoint;
+    private long purgeWatermark = PurgeWatermark.NONE;
     private String conglomId = null;
     private String tableDisplayName = null;
     private String indexDisplayName = null;
@@ -82,6 +84,11 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
         this.smallestReadPoint = smallestReadPoint;
     }
 
+    public SpliceDefaultCompactor(final Configuration conf, final Store store, long smallestReadPoint, long purgeWatermark) {
+        this(conf, store, smallestReadPoint);
+        this.purgeWatermark = purgeWatermark;
+    }
+
     @Override
     public List<Path> compact(CompactionRequest request) throws IOException {
         if(!allowSpark)
@@ -92,6 +99,7 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
         assert request instanceof SpliceCompactionRequest;
 
         smallestReadPoint = store.getSmallestReadPoint();
+        purgeWatermark = getPurgeWatermark(request);
         FileDetails fd = getFileDetails(request.getFiles(), request.isAllFiles());
         this.progress = new CompactionProgress(fd.maxKeyCount);
         List<String> files = new ArrayList<>();
@@ -178,12 +186,23 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
     private SparkCompactionFunction getCompactionFunction() {
         return new SparkCompactionFunction(
             smallestReadPoint,
+            purgeWatermark,
             store.getTableName().getNamespace(),
             store.getTableName().getQualifier(),
             store.getRegionInfo(),
             store.getFamily().getName());
     }
 
+    /**
+     * Only a major compaction sees every version of a row, so it is the only one which may purge versions
+     */
+    private long getPurgeWatermark(CompactionRequest request) throws IOException {
+        SIDriver driver = SIDriver.driver();
+        if (!request.isMajor() || !needsSI(store.getTableName()) || !driver.getConfiguration().isCompactionPurgeEnabled())
+            return PurgeWatermark.NONE;
+        return driver.getPurgeWatermark().current();
+    }
+
     private String getScope(CompactionRequest request) {
         return String.format("%s Compaction: %s",
             getMajorMinorLabel(request),
@@ -265,6 +284,7 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
         IOException e = null;
         try {
             InternalScanner scanner = null;
+            SICompactionState state = null;
             try {
                 /* Include deletes, unless we are doing a compaction of all files */
                 ScanType scanType = request.isRetainDeleteMarkers() ? ScanType.COMPACT_RETAIN_DELETES
@@ -275,9 +295,10 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
                 }
                 if (needsSI(store.getTableName())) {
                     SIDriver driver=SIDriver.driver();
-                    SICompactionState state = new SICompactionState(driver.getTxnSupplier(),
+                    state = new SICompactionState(driver.getTxnSupplier(),
                             driver.getRollForward(),
-                            driver.getConfiguration().getActiveTransactionCacheSize());
+                            driver.getConfiguration().getActiveTransactionCacheSize(),
+                            purgeWatermark);
                     scanner = new SICompactionScanner(state,scanner);
                 }
                 if (scanner == null) {
@@ -302,6 +323,11 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
                             " in region " + store.getRegionInfo().getRegionNameAsString() +
                             " because it was interrupted.");
                 }
+                if (state != null && state.getPurgedCellCount() > 0) {
+                    SpliceLogUtils.info(LOG, "Purged %d dead versions (%d bytes) below watermark %d from region %s",
+                            state.getPurgedCellCount(), state.getPurgedBytes(), purgeWatermark,
+                            store.getRegionInfo().getRegionNameAsString());
+                }
             } finally {
                 if (scanner != null) {
                     scanner.close();
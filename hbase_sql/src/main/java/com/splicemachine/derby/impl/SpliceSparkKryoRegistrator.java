@@ -45,6 +45,8 @@ import com.splicemachine.derby.impl.store.access.hbase.HBaseConglomerate;
 import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
 import com.splicemachine.derby.stream.ActivationHolder;
 import com.splicemachine.derby.stream.function.*;
+import com.splicemachine.derby.stream.output.bulk.BulkImportTarget;
+import com.splicemachine.derby.stream.spark.BulkImportPartitioner;
 import com.splicemachine.derby.stream.spark.HBasePartitioner;
 import com.splicemachine.derby.stream.spark.RowPartition;
 import com.splicemachine.derby.stream.spark.SparkOperationContext;
@@ -568,6 +570,10 @@ public class SpliceSparkKryoRegistrator implements KryoRegistrator {
         instance.register(InnerJoinRestrictionFlatMapFunction.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(InnerJoinRestrictionFunction.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(InsertPairFunction.class,EXTERNALIZABLE_SERIALIZER);
+        instance.register(BulkImportEncodeFunction.class,EXTERNALIZABLE_SERIALIZER);
+        instance.register(BulkImportWriteFunction.class,EXTERNALIZABLE_SERIALIZER);
+        instance.register(KVPairFunction.class,EXTERNALIZABLE_SERIALIZER);
+        instance.register(BulkImportTarget.class,EXTERNALIZABLE_SERIALIZER);
 
         instance.register(JoinRestrictionPredicateFunction.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(KeyerFunction.class,EXTERNALIZABLE_SERIALIZER);
@@ -659,6 +665,7 @@ public class SpliceSparkKryoRegistrator implements KryoRegistrator {
 
         instance.register(ActivationHolder.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(HBasePartitioner.class,EXTERNALIZABLE_SERIALIZER);
+        instance.register(BulkImportPartitioner.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(RowPartition.class, EXTERNALIZABLE_SERIALIZER);
         instance.register(HalfMergeSortJoinOperation.class,EXTERNALIZABLE_SERIALIZER);
         instance.register(HalfMergeSortLeftOuterJoinOperation.class,EXTERNALIZABLE_SERIALIZER);
@@ -53,6 +53,7 @@ import scala.Tuple2;
 public class SparkCompactionFunction extends SpliceFlatMapFunction<SpliceOperation,Iterator<Tuple2<Integer,Iterator>>,String> implements Externalizable {
     private static final Logger LOG = Logger.getLogger(SparkCompactionFunction.class);
     private long smallestReadPoint;
+    private long purgeWatermark;
     private byte[] namespace;
     private byte[] tableName;
     private byte[] storeColumn;
@@ -62,9 +63,10 @@ public class SparkCompactionFunction extends SpliceFlatMapFunction<SpliceOperati
 
     }
 
-    public SparkCompactionFunction(long smallestReadPoint, byte[] namespace,
+    public SparkCompactionFunction(long smallestReadPoint, long purgeWatermark, byte[] namespace,
                                    byte[] tableName, HRegionInfo hri, byte[] storeColumn) {
         this.smallestReadPoint = smallestReadPoint;
+        this.purgeWatermark = purgeWatermark;
         this.namespace = namespace;
         this.tableName = tableName;
         this.hri = hri;
@@ -76,6 +78,7 @@ public class SparkCompactionFunction extends SpliceFlatMapFunction<SpliceOperati
         byte[] hriBytes = hri.toByteArray();
         super.writeExternal(out);
         out.writeLong(smallestReadPoint);
+        out.writeLong(purgeWatermark);
         out.writeInt(namespace.length);
         out.write(namespace);
         out.writeInt(tableName.length);
@@ -90,6 +93,7 @@ public class SparkCompactionFunction extends SpliceFlatMapFunction<SpliceOperati
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         super.readExternal(in);
         smallestReadPoint = in.readLong();
+        purgeWatermark = in.readLong();
         namespace = new byte[in.readInt()];
         in.readFully(namespace);
         tableName = new byte[in.readInt()];
@@ -145,7 +149,7 @@ public class SparkCompactionFunction extends SpliceFlatMapFunction<SpliceOperati
             );
         }
 
-        SpliceDefaultCompactor sdc = new SpliceDefaultCompactor(conf, store, smallestReadPoint);
+        SpliceDefaultCompactor sdc = new SpliceDefaultCompactor(conf, store, smallestReadPoint, purgeWatermark);
         List<Path> paths = sdc.sparkCompact(new CompactionRequest(readersToClose));
 
         if (LOG.isTraceEnabled()) {
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import com.splicemachine.derby.stream.function.Partitioner;
+import com.splicemachine.primitives.Bytes;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+
+/**
+ * Partitions the target-prefixed row keys of a bulk import so that every Spark partition holds the rows of
+ * exactly one region of one target conglomerate, which lets each task write region-aligned files.
+ */
+public class BulkImportPartitioner extends org.apache.spark.Partitioner implements Partitioner<Object>, Externalizable {
+    private byte[][] splitKeys;
+
+    public BulkImportPartitioner() {
+    }
+
+    public BulkImportPartitioner(List<byte[]> splitKeys) {
+        assert splitKeys!=null && !splitKeys.isEmpty(): "No split keys given";
+        this.splitKeys = splitKeys.toArray(new byte[splitKeys.size()][]);
+    }
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public int numPartitions() {
+        return splitKeys.length;
+    }
+
+    @Override
+    public int getPartition(Object o) {
+        byte[] key = (byte[]) o;
+        int low = 0;
+        int high = splitKeys.length-1;
+        // find the last split key <= key
+        while (low < high) {
+            int mid = (low+high+1)>>>1;
+            if (Bytes.basicByteComparator().compare(splitKeys[mid],key) <= 0)
+                low = mid;
+            else
+                high = mid-1;
+        }
+        return low;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(splitKeys.length);
+        for (byte[] splitKey : splitKeys) {
+            out.writeInt(splitKey.length);
+            out.write(splitKey);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        splitKeys = new byte[in.readInt()][];
+        for (int i = 0; i < splitKeys.length; i++) {
+            splitKeys[i] = new byte[in.readInt()];
+            in.readFully(splitKeys[i]);
+        }
+    }
+}
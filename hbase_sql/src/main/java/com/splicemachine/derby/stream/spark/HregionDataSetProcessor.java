@@ -59,6 +59,10 @@ public class HregionDataSetProcessor extends ControlDataSetProcessor {
         return new TableScannerBuilder<V>(){
             @Override
             public DataSet<V> buildDataSet() throws StandardException{
+                if(probeScans!=null){
+                    //probes are short reads, so they go through the client instead of the region files
+                    return probeDataSet(this,spliceOperation,tableName,template,metricFactory,false);
+                }
                 try{
                     SIDriver driver = SIDriver.driver();
                     PartitionFactory tableFactory = driver.getTableFactory();
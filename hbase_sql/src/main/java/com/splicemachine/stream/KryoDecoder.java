@@ -23,11 +23,13 @@ import org.sparkproject.io.netty.channel.ChannelHandlerContext;
 import org.sparkproject.io.netty.handler.codec.ByteToMessageDecoder;
 
 import java.util.List;
+import java.util.zip.Inflater;
 
 public class KryoDecoder extends ByteToMessageDecoder {
     private static final Logger LOG = Logger.getLogger(KryoDecoder.class);
     
     private final Kryo kryo;
+    private Inflater inflater;
 
     public KryoDecoder(Kryo kryo) {
         this.kryo = kryo;
@@ -44,6 +46,10 @@ public class KryoDecoder extends ByteToMessageDecoder {
         in.markReaderIndex();
 
         int len = in.readUnsignedShort();
+        if (len == RowBatch.MARKER) {
+            decodeBatch(in, out);
+            return;
+        }
 //        LOG.warn("Read lenght " + len);
 
         if (in.readableBytes() < len) {
@@ -63,4 +69,25 @@ public class KryoDecoder extends ByteToMessageDecoder {
 
 //        LOG.warn("Decoded " + object);
     }
+
+    private void decodeBatch(ByteBuf in, List<Object> out) throws Exception {
+        if (in.readableBytes() < 4) {
+            in.resetReaderIndex();
+            return;
+        }
+        int len = in.readInt();
+        if (in.readableBytes() < len) {
+            in.resetReaderIndex();
+            return;
+        }
+        if (inflater == null)
+            inflater = new Inflater();
+        out.add(RowBatch.decode(kryo, inflater, in, len));
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        if (inflater != null)
+            inflater.end();
+    }
 }
@@ -35,6 +35,12 @@ public class KryoEncoder extends MessageToByteEncoder<Object> {
         output = new Output(outStream, 4096);
     }
 
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        // frames already encoded by the RowBatchEncoder go out untouched
+        return !(msg instanceof ByteBuf);
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, Object in, ByteBuf out) throws Exception {
         outStream.reset();
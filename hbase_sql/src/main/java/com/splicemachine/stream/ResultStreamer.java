@@ -19,6 +19,7 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.util.DefaultClassResolver;
 import com.esotericsoftware.kryo.util.MapReferenceResolver;
 import com.splicemachine.derby.impl.SpliceSparkKryoRegistrator;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.ActivationHolder;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.spark.SparkOperationContext;
@@ -61,12 +62,21 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
     private NioEventLoopGroup workerGroup;
     private transient CountDownLatch active;
     private int batches;
+    private boolean binary;
 
     // Serialization
     public ResultStreamer() {
     }
 
     public ResultStreamer(OperationContext<?> context, UUID uuid, String host, int port, int numPartitions, int batches, int batchSize) {
+        this(context, uuid, host, port, numPartitions, batches, batchSize, false);
+    }
+
+    /**
+     * @param binary if true rows are sent as compressed {@link RowBatch}es, otherwise each row is sent as a Kryo
+     *               message. Binary streaming requires the rows to be {@link LocatedRow}s.
+     */
+    public ResultStreamer(OperationContext<?> context, UUID uuid, String host, int port, int numPartitions, int batches, int batchSize, boolean binary) {
         this.context = context;
         this.uuid = uuid;
         this.host = host;
@@ -74,6 +84,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         this.numPartitions = numPartitions;
         this.batches = batches;
         this.batchSize = batchSize;
+        this.binary = binary;
         this.permits = new Semaphore(batches - 1); // we start with one permit taken
 
     }
@@ -89,6 +100,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
             private long consumed;
             private long sent;
             private int currentBatch;
+            private RowBatch batch = binary ? new RowBatch(batchSize) : null;
 
             @Override
             public Long call() throws InterruptedException {
@@ -105,8 +117,12 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumed++;
 
 
-                        ctx.write(lr, ctx.voidPromise());
-                        currentBatch++;
+                        if (batch != null) {
+                            batch.add((LocatedRow) lr);
+                        } else {
+                            ctx.write(lr, ctx.voidPromise());
+                            currentBatch++;
+                        }
                         sent++;
 
                         flushAndGetPermit();
@@ -118,6 +134,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumeOffset();
                     }
                     // Data has been written, request close
+                    writeBatch();
                     ctx.writeAndFlush(new StreamProtocol.RequestClose());
 
                     return consumed;
@@ -132,19 +149,41 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              * hasn't had time yet to process previous messages
              */
             private void flushAndGetPermit() throws InterruptedException {
-                if (currentBatch >= batchSize) {
+                if (batch != null) {
+                    if (batch.size() >= batchSize) {
+                        writeBatch();
+                        permits.acquire();
+                    }
+                } else if (currentBatch >= batchSize) {
                     ctx.flush();
                     currentBatch = 0;
                     permits.acquire();
                 }
             }
 
+            /**
+             * Send the pending row batch, if any, and start a new one. The batch is encoded on the event loop, so it
+             * can't be reused once written.
+             *
+             * @return true if a batch was sent
+             */
+            private boolean writeBatch() {
+                if (batch == null || batch.isEmpty())
+                    return false;
+                ctx.writeAndFlush(batch, ctx.voidPromise());
+                batch = new RowBatch(batchSize);
+                return true;
+            }
+
             /**
              * If the client hast told us to ignore up to 'offset' messages, consume them here. The client request can
              * arrive after we've already sent some messages.
              */
-            private void consumeOffset() {
+            private void consumeOffset() throws InterruptedException {
                 if (consumed < offset) {
+                    // Rows already consumed go out before the skip count, as they would without batching
+                    if (writeBatch())
+                        permits.acquire();
                     long count = 0;
                     while (locatedRowIterator.hasNext() && consumed < offset) {
                         locatedRowIterator.next();
@@ -161,6 +200,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              */
             private boolean checkLimit() {
                 if (consumed > limit) {
+                    writeBatch();
                     ctx.flush();
                     if (LOG.isTraceEnabled())
                         LOG.trace("Reached limit, stopping. consumed " + consumed + " sent " + sent + " limit " + limit);
@@ -175,7 +215,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof StreamProtocol.Continue) {
-            permits.release();
+            permits.release(((StreamProtocol.Continue) msg).credits);
         } else if (msg instanceof StreamProtocol.ConfirmClose) {
             ctx.close().sync();
         } else if (msg instanceof StreamProtocol.RequestClose) {
@@ -218,6 +258,8 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                     Kryo kryo = new Kryo(new DefaultClassResolver(),new MapReferenceResolver());
                     registry.registerClasses(kryo);
                     p.addLast(new KryoEncoder(kryo));
+                    if (binary)
+                        p.addLast(new RowBatchEncoder(kryo));
                     kryo = new Kryo(new DefaultClassResolver(),new MapReferenceResolver());
                     registry.registerClasses(kryo);
                     p.addLast(new KryoDecoder(kryo));
@@ -258,6 +300,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                 ", limit=" + limit +
                 ", partition=" + partition +
                 ", batches=" + batches +
+                ", binary=" + binary +
                 '}';
     }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.stream;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.RowLocation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import org.sparkproject.io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A batch of rows streamed from a Spark task to the query client when binary result streaming is enabled.
+ *
+ * On the wire the batch is laid out column by column: the values of one column for every row in the batch are packed
+ * together with the column's {@link DescriptorSerializer}, followed by the row locations. Only a null template row is
+ * serialized with Kryo, once per batch, and the whole batch is deflated as a unit.
+ *
+ * The frame starts with a zero short so it can share the connection with {@link KryoEncoder} frames, which always
+ * carry at least the Kryo class id and so are never empty.
+ */
+public class RowBatch {
+    static final int MARKER = 0;
+
+    private final List<LocatedRow> rows;
+
+    public RowBatch(int capacity) {
+        this.rows = new ArrayList<>(capacity);
+    }
+
+    private RowBatch(List<LocatedRow> rows) {
+        this.rows = rows;
+    }
+
+    public void add(LocatedRow row) {
+        rows.add(row);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    public List<LocatedRow> getRows() {
+        return rows;
+    }
+
+    /**
+     * Write this batch as a single frame: marker, frame length, uncompressed length and the deflated payload.
+     */
+    void encode(Kryo kryo, Deflater deflater, ByteBuf out) throws StandardException, IOException {
+        ExecRow template = rows.get(0).getRow();
+        int numRows = rows.size();
+        int numColumns = template.nColumns();
+        DescriptorSerializer[] serializers = VersionedSerializers.latestVersion(false).getSerializers(template);
+        Output output = new Output(4096, -1);
+        try {
+            output.writeInt(numRows, true);
+            output.writeInt(numColumns, true);
+            kryo.writeClassAndObject(output, template.getNewNullRow());
+
+            MultiFieldEncoder encoder = MultiFieldEncoder.create(numRows);
+            for (int i = 0; i < numColumns; i++) {
+                encoder.reset();
+                for (LocatedRow row : rows) {
+                    serializers[i].encode(encoder, row.getRow().getColumn(i + 1), false);
+                }
+                byte[] column = encoder.build();
+                output.writeInt(column.length, true);
+                output.writeBytes(column);
+            }
+
+            for (LocatedRow row : rows) {
+                RowLocation location = row.getRowLocation();
+                if (location == null || location.isNull()) {
+                    output.writeInt(0, true);
+                } else {
+                    byte[] bytes = location.getBytes();
+                    output.writeInt(bytes.length + 1, true);
+                    output.writeBytes(bytes);
+                }
+            }
+        } finally {
+            close(serializers);
+        }
+
+        out.writeShort(MARKER);
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        out.writeInt(output.position());
+
+        deflater.reset();
+        deflater.setInput(output.getBuffer(), 0, output.position());
+        deflater.finish();
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.writeBytes(chunk, 0, length);
+        }
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+    }
+
+    /**
+     * Rebuild a batch from a frame body, that is, everything after the frame length written by
+     * {@link #encode(Kryo, Deflater, ByteBuf)}.
+     */
+    static RowBatch decode(Kryo kryo, Inflater inflater, ByteBuf in, int length) throws StandardException, IOException {
+        int uncompressedLength = in.readInt();
+        byte[] compressed = new byte[length - 4];
+        in.readBytes(compressed);
+
+        byte[] data = new byte[uncompressedLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int read = 0;
+            while (read < uncompressedLength && !inflater.finished()) {
+                int inflated = inflater.inflate(data, read, uncompressedLength - read);
+                if (inflated == 0 && inflater.needsInput())
+                    break;
+                read += inflated;
+            }
+            if (read != uncompressedLength)
+                throw new IOException("Truncated row batch, expected " + uncompressedLength + " bytes but got " + read);
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+
+        Input input = new Input(data);
+        int numRows = input.readInt(true);
+        int numColumns = input.readInt(true);
+        ExecRow template = (ExecRow) kryo.readClassAndObject(input);
+        ExecRow[] execRows = new ExecRow[numRows];
+        for (int j = 0; j < numRows; j++) {
+            execRows[j] = template.getNewNullRow();
+        }
+
+        DescriptorSerializer[] serializers = VersionedSerializers.latestVersion(false).getSerializers(template);
+        try {
+            for (int i = 0; i < numColumns; i++) {
+                int columnLength = input.readInt(true);
+                MultiFieldDecoder decoder = MultiFieldDecoder.wrap(data, input.position(), columnLength);
+                for (int j = 0; j < numRows; j++) {
+                    serializers[i].decode(decoder, execRows[j].getColumn(i + 1), false);
+                }
+                input.skip(columnLength);
+            }
+        } finally {
+            close(serializers);
+        }
+
+        List<LocatedRow> rows = new ArrayList<>(numRows);
+        for (int j = 0; j < numRows; j++) {
+            int locationLength = input.readInt(true);
+            RowLocation location = null;
+            if (locationLength > 0) {
+                location = new HBaseRowLocation(input.readBytes(locationLength - 1));
+            }
+            rows.add(new LocatedRow(location, execRows[j]));
+        }
+        return new RowBatch(rows);
+    }
+
+    private static void close(DescriptorSerializer[] serializers) {
+        for (DescriptorSerializer serializer : serializers) {
+            try {
+                serializer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RowBatch{" +
+                "rows=" + rows.size() +
+                '}';
+    }
+}
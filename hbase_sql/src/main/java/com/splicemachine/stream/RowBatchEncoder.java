@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.stream;
+
+import com.esotericsoftware.kryo.Kryo;
+import org.sparkproject.io.netty.buffer.ByteBuf;
+import org.sparkproject.io.netty.channel.ChannelHandlerContext;
+import org.sparkproject.io.netty.handler.codec.MessageToByteEncoder;
+
+import java.util.zip.Deflater;
+
+/**
+ * Encodes {@link RowBatch} messages; every other message falls through to the {@link KryoEncoder}, so this
+ * handler has to sit after it in the pipeline.
+ */
+public class RowBatchEncoder extends MessageToByteEncoder<RowBatch> {
+
+    private final Kryo kryo;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    public RowBatchEncoder(Kryo kryo) {
+        this.kryo = kryo;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, RowBatch in, ByteBuf out) throws Exception {
+        in.encode(kryo, deflater, out);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        deflater.end();
+        super.handlerRemoved(ctx);
+    }
+}
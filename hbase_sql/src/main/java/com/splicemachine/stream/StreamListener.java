@@ -45,8 +45,11 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     private static final Object SENTINEL = new Object();
     private static final Object FAILURE = new Object();
     private static final Object RETRY = new Object();
+    // Never shrink below one batch being drained plus one in flight
+    private static final int MIN_WINDOW = 2;
     private final int queueSize;
     private final int batchSize;
+    private final int batches;
     private final UUID uuid;
     private long limit;
     private long offset;
@@ -76,9 +79,10 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         this.offset = offset;
         this.limit = limit;
         this.batchSize = batchSize;
+        this.batches = batches;
         this.queueSize = batches*batchSize;
         // start with this to force a channel advancement
-        PartitionState first = new PartitionState(0, 0);
+        PartitionState first = new PartitionState(0, 0, batches);
         first.messages.add(SENTINEL);
         first.initialized = true;
         this.partitionStateMap.put(-1, first);
@@ -87,7 +91,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
 
     public Iterator<T> getIterator() {
         // Initialize first partition
-        PartitionState ps = partitionStateMap.putIfAbsent(0, new PartitionState(1, queueSize));
+        PartitionState ps = partitionStateMap.putIfAbsent(0, new PartitionState(1, queueSize, batches));
         if (failure != null) {
             ps.messages.add(FAILURE);
         }
@@ -155,8 +159,10 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         try {
             while (next == null) {
                 PartitionState state = partitionStateMap.get(currentQueue);
+                // Rows of a binary batch are handed out one by one before we go back to the queue
+                boolean batched = state.batch != null && state.batch.hasNext();
                 // We take a message first to make sure we have a connection
-                Object msg = canBlock ? state.messages.take() : state.messages.remove();
+                Object msg = batched ? state.batch.next() : canBlock ? state.messages.take() : state.messages.remove();
                 if (!state.initialized && (offset > 0 || limit > 0)) {
                     if (LOG.isTraceEnabled())
                         LOG.trace("Sending skip " + limit + ", " + offset);
@@ -204,10 +210,14 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                     }
 
                     // Set the partitionState so we can block on the queue in case the connection hasn't opened yet
-                    PartitionState ps = partitionStateMap.putIfAbsent(currentQueue, new PartitionState(currentQueue, queueSize));
+                    PartitionState ps = partitionStateMap.putIfAbsent(currentQueue, new PartitionState(currentQueue, queueSize, batches));
                     if (failure != null) {
                         ps.messages.add(FAILURE);
                     }
+                } else if (msg instanceof RowBatch) {
+                    state.binary = true;
+                    state.batch = ((RowBatch) msg).getRows().iterator();
+                    grantCredits(state);
                 } else {
                     if (msg instanceof StreamProtocol.Skipped) {
                         StreamProtocol.Skipped skipped = (StreamProtocol.Skipped) msg;
@@ -232,10 +242,8 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                         }
                     }
 
-                    if (state.consumed > batchSize) {
-                        if (LOG.isTraceEnabled())
-                            LOG.trace("Writing CONT");
-                        state.channel.writeAndFlush(new StreamProtocol.Continue());
+                    if (!batched && state.consumed > batchSize) {
+                        grantCredits(state);
                         state.consumed -= batchSize;
                     }
                 }
@@ -246,6 +254,32 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         }
     }
 
+    /**
+     * Called every time the consumer takes a batch worth of rows from a partition, returns credits to the server
+     * so it can send more batches.
+     *
+     * The number of batches in flight (sent or buffered) adapts to how fast the consumer drains them: if the queue
+     * is empty the consumer is waiting on the server, so we grant an extra credit (up to the configured number of
+     * batches); if more than half the window is sitting in the queue the consumer is the bottleneck, so we withhold
+     * the credit and buffer less.
+     */
+    private void grantCredits(PartitionState state) {
+        int buffered = state.binary ? state.messages.size() : state.messages.size() / batchSize;
+        int credits = 1;
+        if (buffered == 0 && state.window < batches) {
+            state.window++;
+            credits = 2;
+        } else if (buffered > state.window / 2 && state.window > MIN_WINDOW) {
+            state.window--;
+            credits = 0;
+        }
+        if (credits > 0) {
+            if (LOG.isTraceEnabled())
+                LOG.trace("Writing CONT " + credits + ", window " + state.window);
+            state.channel.writeAndFlush(new StreamProtocol.Continue(credits));
+        }
+    }
+
     private void clearCurrentQueue() {
         PartitionState ps = partitionStateMap.remove(currentQueue);
         if (ps != null && ps.channel != null)
@@ -273,7 +307,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         }
         // create fake queue with finish message so the next call to next() returns null
         currentQueue = (int) numPartitions + 1;
-        PartitionState ps = new PartitionState(currentQueue, 0);
+        PartitionState ps = new PartitionState(currentQueue, 0, batches);
         ps.messages.add(SENTINEL);
         partitionStateMap.putIfAbsent(currentQueue, ps);
         close();
@@ -291,7 +325,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         Channel channel = ctx.channel();
         this.numPartitions = numPartitions;
 
-        PartitionState ps = new PartitionState(partition, queueSize);
+        PartitionState ps = new PartitionState(partition, queueSize, batches);
         PartitionState old = partitionStateMap.putIfAbsent(partition, ps);
         ps = old != null ? old : ps;
 
@@ -301,7 +335,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         Channel previousChannel = ps.channel;
         if (previousChannel != null) {
             LOG.info("Received connection from retried task, current state " + ps);
-            PartitionState nextState = new PartitionState(partition, queueSize);
+            PartitionState nextState = new PartitionState(partition, queueSize, batches);
             nextState.channel = channel;
             ps.next = nextState;
             partitionMap.put(channel, ps.next);
@@ -393,10 +427,14 @@ class PartitionState {
     long consumed;
     long readTotal;
     boolean initialized;
+    boolean binary;
+    int window; // batches the server may have in flight
+    Iterator<?> batch;
     volatile PartitionState next = null; // used when a task is retried after a failure
 
-    PartitionState(int partition, int queueSize) {
+    PartitionState(int partition, int queueSize, int window) {
         this.partition = partition;
+        this.window = window;
         this.messages = new ArrayBlockingQueue<>(queueSize + 4);  // Extra to account for out of band messages
     }
 
@@ -408,6 +446,7 @@ class PartitionState {
                 ", messages=" + messages.size() +
                 ", consumed=" + consumed +
                 ", initialized=" + initialized +
+                ", window=" + window +
                 ", next=" + next +
                 '}';
     }
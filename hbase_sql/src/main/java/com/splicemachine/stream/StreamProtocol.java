@@ -101,6 +101,21 @@ public class StreamProtocol implements Serializable {
     }
 
     public static class Continue implements Serializable {
+        // number of batches the client is ready to receive
+        public int credits = 1;
+
+        public Continue() {}
+
+        public Continue(int credits) {
+            this.credits = credits;
+        }
+
+        @Override
+        public String toString() {
+            return "Continue{" +
+                    "credits=" + credits +
+                    '}';
+        }
     }
 
     public static class RequestClose implements Serializable {
@@ -19,6 +19,7 @@ import com.google.common.net.HostAndPort;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.SpliceSpark;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.BaseStreamTest;
 import org.apache.commons.collections.IteratorUtils;
 import org.apache.log4j.Logger;
@@ -290,6 +291,57 @@ public class StreamableRDDTest extends BaseStreamTest implements Serializable {
     }
 
 
+    @Test
+    public void testBinaryStream() throws StandardException {
+        int limit = 2500;
+        int offset = 700;
+        int total = 4000;
+        int batches = 3;
+        int batchSize = 256;
+        StreamListener<LocatedRow> sl = new StreamListener<>(limit, offset, batches, batchSize);
+        HostAndPort hostAndPort = server.getHostAndPort();
+        server.register(sl);
+
+        List<Tuple2<ExecRow,ExecRow>> manyRows = new ArrayList<>();
+        for(int i = 0; i < total; ++i) {
+            manyRows.add(new Tuple2<ExecRow, ExecRow>(getExecRow(i, 1), getExecRow(i, 2)));
+        }
+
+        JavaPairRDD<ExecRow, ExecRow> rdd = SpliceSpark.getContext().parallelizePairs(manyRows, 4);
+        JavaRDD<LocatedRow> located = rdd.values().map(new Function<ExecRow, LocatedRow>() {
+            @Override
+            public LocatedRow call(ExecRow execRow) throws Exception {
+                // exercise null handling in the column encoding
+                if (execRow.getColumn(1).getInt() % 10 == 0)
+                    execRow.getColumn(2).setToNull();
+                return new LocatedRow(execRow);
+            }
+        });
+        final StreamableRDD srdd = new StreamableRDD<>(located, null, sl.getUuid(), hostAndPort.getHostText(), hostAndPort.getPort(), batches, batchSize, true);
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    srdd.submit();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+
+            }
+        }.start();
+        Iterator<LocatedRow> it = sl.getIterator();
+        int count = 0;
+        while (it.hasNext()) {
+            LocatedRow locatedRow = it.next();
+            assertNotNull(locatedRow);
+            int expected = count + offset;
+            assertEquals(expected, locatedRow.getRow().getColumn(1).getInt());
+            assertEquals(expected % 10 == 0, locatedRow.getRow().getColumn(2).isNull());
+            count++;
+        }
+        assertEquals(limit, count);
+    }
+
     @Test
     public void testOffsetLimit() throws StandardException {
         StreamListener<ExecRow> sl = new StreamListener<>(400, 30000);
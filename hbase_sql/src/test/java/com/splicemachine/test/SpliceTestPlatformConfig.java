@@ -193,6 +193,7 @@ class SpliceTestPlatformConfig {
 
         config.setLong("splice.ddl.drainingWait.maximum", SECONDS.toMillis(15)); // wait 15 seconds before bailing on bad ddl statements
         config.setLong("splice.ddl.maxWaitSeconds",120000);
+        config.setInt(SQLConfiguration.CONTROL_SCAN_PARALLELISM, 4); // off by default, on here so that the ITs read regions concurrently
         //
         // Snapshots
         //
@@ -22,16 +22,22 @@ import java.util.Collection;
 import java.util.List;
 
 import com.google.common.base.Function;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
 import org.sparkproject.guava.collect.Collections2;
 
+import com.splicemachine.access.api.BulkLoadWriter;
 import com.splicemachine.access.api.PartitionAdmin;
 import com.splicemachine.access.api.PartitionCreator;
 import com.splicemachine.access.api.TableDescriptor;
 import com.splicemachine.concurrent.Clock;
+import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.storage.LazyPartitionServer;
 import com.splicemachine.storage.Partition;
@@ -166,4 +172,35 @@ public class H10PartitionAdmin implements PartitionAdmin{
     public void move(String partition, String server) throws IOException {
         admin.move(partition.getBytes(), server!=null && server.length()>0?server.getBytes():null);
     }
+
+    @Override
+    public BulkLoadWriter newBulkLoadWriter(String tableName,String directory) throws IOException{
+        /*
+         * The table adopts the files as they are written, so they have to match its own family settings
+         * (compression, block encoding, bloom filter) rather than the ones a new table would get
+         */
+        HTableDescriptor descriptor=admin.getTableDescriptor(tableInfoFactory.getTableInfo(tableName));
+        HColumnDescriptor dataFamily=descriptor.getFamily(SIConstants.DEFAULT_FAMILY_BYTES);
+        if(dataFamily==null)
+            throw new IOException("Table "+tableName+" has no data family");
+        return new HBulkLoadWriter(admin.getConfiguration(),dataFamily,directory);
+    }
+
+    @Override
+    public void bulkLoad(String tableName,String directory) throws IOException{
+        /*
+         * LoadIncrementalHFiles groups the files by region (splitting any file which now spans a region
+         * boundary) and has each region server load its group atomically, retrying on splits
+         */
+        Configuration conf=admin.getConfiguration();
+        TableName name=tableInfoFactory.getTableInfo(tableName);
+        Connection connection=admin.getConnection();
+        try(Table table=connection.getTable(name);RegionLocator locator=connection.getRegionLocator(name)){
+            new LoadIncrementalHFiles(conf).doBulkLoad(new Path(directory),admin,table,locator);
+        }catch(IOException e){
+            throw e;
+        }catch(Exception e){
+            throw new IOException(e);
+        }
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.access.hbase;
+
+import com.splicemachine.access.api.BulkLoadWriter;
+import com.splicemachine.si.constants.SIConstants;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+
+/**
+ * Writes a single HFile for the data family of a table, laid out the way {@code LoadIncrementalHFiles}
+ * expects it ({@code <directory>/V/<file>}). The file settings (compression, block size, bloom type)
+ * are taken from the data family descriptor so that loaded files look like flushed ones.
+ */
+class HBulkLoadWriter implements BulkLoadWriter{
+    private final StoreFile.Writer writer;
+    private long cellCount;
+
+    HBulkLoadWriter(Configuration conf,HColumnDescriptor dataFamily,String directory) throws IOException{
+        Path familyDir = new Path(directory,SIConstants.DEFAULT_FAMILY_NAME);
+        FileSystem fs = familyDir.getFileSystem(conf);
+        HFileContext context = new HFileContextBuilder()
+                .withCompression(dataFamily.getCompressionType())
+                .withBlockSize(dataFamily.getBlocksize())
+                .withDataBlockEncoding(dataFamily.getDataBlockEncoding())
+                .build();
+        /*
+         * The file is not read through this process, so there's no point in warming the block cache
+         * with it (and the region server will open it with its own cache configuration on load).
+         */
+        Configuration writerConf = new Configuration(conf);
+        writerConf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY,0.0f);
+        this.writer = new StoreFile.WriterBuilder(writerConf,new CacheConfig(writerConf),fs)
+                .withOutputDir(familyDir)
+                .withBloomType(dataFamily.getBloomFilterType())
+                .withComparator(KeyValue.COMPARATOR)
+                .withFileContext(context)
+                .build();
+    }
+
+    @Override
+    public void append(byte[] rowKey,long version,byte[] value) throws IOException{
+        writer.append(new KeyValue(rowKey,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,version,value));
+        cellCount++;
+    }
+
+    @Override
+    public long getCellCount(){
+        return cellCount;
+    }
+
+    @Override
+    public void close() throws IOException{
+        writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY,Bytes.toBytes(System.currentTimeMillis()));
+        writer.appendFileInfo(StoreFile.MAJOR_COMPACTION_KEY,Bytes.toBytes(false));
+        writer.appendFileInfo(StoreFile.EXCLUDE_FROM_MINOR_COMPACTION_KEY,Bytes.toBytes(false));
+        writer.appendTrackedTimestampsToMetadata();
+        writer.close();
+    }
+}
@@ -65,6 +65,7 @@ import com.splicemachine.si.impl.SimpleTxnOperationFactory;
 import com.splicemachine.si.impl.Tracer;
 import com.splicemachine.si.impl.TxnRegion;
 import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.si.impl.server.PurgeWatermark;
 import com.splicemachine.si.impl.server.SICompactionState;
 import com.splicemachine.storage.EntryPredicateFilter;
 import com.splicemachine.storage.HMutationStatus;
@@ -166,9 +167,13 @@ public class SIObserver extends BaseRegionObserver{
                                       InternalScanner scanner,ScanType scanType,CompactionRequest compactionRequest) throws IOException{
         if(tableEnvMatch){
             SIDriver driver=SIDriver.driver();
+            long purgeWatermark=PurgeWatermark.NONE;
+            if(compactionRequest!=null && compactionRequest.isMajor() && driver.getConfiguration().isCompactionPurgeEnabled())
+                purgeWatermark=driver.getPurgeWatermark().current();
             SICompactionState state = new SICompactionState(driver.getTxnSupplier(),
                     driver.getRollForward(),
-                    driver.getConfiguration().getActiveTransactionCacheSize());
+                    driver.getConfiguration().getActiveTransactionCacheSize(),
+                    purgeWatermark);
             return new SICompactionScanner(state,scanner);
         }else{
             return super.preCompact(e,store,scanner,scanType,compactionRequest);
@@ -21,6 +21,7 @@ import com.splicemachine.storage.*;
 import com.splicemachine.utils.ByteSlice;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.protobuf.ProtobufUtil;
@@ -110,8 +111,24 @@ public class HOperationFactory implements OperationFactory{
 
     @Override
     public DataPut toDataPut(KVPair kvPair,byte[] family,byte[] column,long timestamp){
-        HPut hp = new HPut(kvPair.getRowKey());
-        hp.addCell(family,column,timestamp,kvPair.getValue());
-        return hp;
+        /*
+         * Build the cell straight from the KVPair slices, which usually point into the BulkWrites buffer,
+         * rather than copying the row key and value out first. The KeyValue still serializes the row key and
+         * value into its own buffer (and the Put keeps a copy of the row key), since HBase has no cell which
+         * can point at them in place, so this saves one copy of each, not all of them.
+         */
+        ByteSlice rowKey = kvPair.rowKeySlice();
+        ByteSlice value = kvPair.valueSlice();
+        Put put = new Put(rowKey.array(),rowKey.offset(),rowKey.length());
+        try{
+            put.add(new KeyValue(rowKey.array(),rowKey.offset(),rowKey.length(),
+                    family,0,family.length,
+                    column,0,column.length,
+                    timestamp,KeyValue.Type.Put,
+                    value.array(),value.offset(),value.length()));
+        }catch(IOException e){
+            throw new RuntimeException(e); //should never happen
+        }
+        return new HPut(put);
     }
 }
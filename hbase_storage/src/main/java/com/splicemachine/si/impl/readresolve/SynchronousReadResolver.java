@@ -27,15 +27,23 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.RegionPartition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.regionserver.HBasePlatformUtils;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
+import org.apache.hadoop.hbase.regionserver.Store;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Collection;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -106,6 +114,8 @@ public class SynchronousReadResolver implements KeyedReadResolver{
                 }
             }
             status.rowResolved();
+            if(resolved)
+                status.rowsRolledForward(1);
             return resolved;
         }catch(IOException e){
             LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
@@ -119,6 +129,75 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    @Override
+    public int resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        int numRows=rowKeys.size();
+        try{
+            TxnView transaction=supplier.getTransaction(txnId);
+            Mutation[] mutations=null;
+            if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK){
+                mutations=new Mutation[numRows];
+                int i=0;
+                for(ByteSlice rowKey:rowKeys){
+                    mutations[i++]=rolledbackDelete(rowKey,txnId);
+                }
+            }else{
+                TxnView t=transaction;
+                while(t.getState()==Txn.State.COMMITTED){
+                    t=t.getParentTxnView();
+                }
+                if(t==Txn.ROOT_TRANSACTION){
+                    long commitTimestamp=transaction.getEffectiveCommitTimestamp();
+                    mutations=new Mutation[numRows];
+                    int i=0;
+                    for(ByteSlice rowKey:rowKeys){
+                        mutations[i++]=committedPut(rowKey,txnId,commitTimestamp);
+                    }
+                }
+            }
+            int resolved=0;
+            if(mutations!=null){
+                trafficControl.acquire(numRows);
+                try{
+                    resolved=writeBatch(region,mutations,failOnError);
+                }finally{
+                    trafficControl.release(numRows);
+                }
+            }
+            status.rowsResolved(numRows);
+            status.rowsRolledForward(resolved);
+            return resolved;
+        }catch(IOException e){
+            LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
+            if(failOnError)
+                throw new RuntimeException(e);
+            return 0;
+        }catch(InterruptedException e){
+            LOG.debug("Interrupted which performing read resolution, will not resolve");
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    /**
+     * A region is under pressure when its memstore has grown past the flush size (so a flush is pending), or when
+     * one of its stores has so many files that compactions are falling behind and writes are close to being
+     * blocked. Resolution writes only make that worse, so they are better left for later.
+     */
+    @Override
+    public boolean isUnderPressure(Partition region){
+        if(!(region instanceof RegionPartition)) return false;
+        HRegion hRegion=((RegionPartition)region).unwrapDelegate();
+        long flushSize=hRegion.getTableDesc().getMemStoreFlushSize();
+        if(flushSize<=0)
+            flushSize=HTableDescriptor.DEFAULT_MEMSTORE_FLUSH_SIZE;
+        if(HBasePlatformUtils.getMemstoreSize(hRegion)>=flushSize) return true;
+        for(Store store:HBasePlatformUtils.getStores(hRegion).values()){
+            if(store.getCompactPriority()<=Store.PRIORITY_USER) return true;
+        }
+        return false;
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
@@ -131,13 +210,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing or rollforward is disabled
 
-        Put put=new Put(rowKey.getByteCopy());
-        put.add(SIConstants.DEFAULT_FAMILY_BYTES,
-                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
-                Bytes.toBytes(commitTimestamp));
-        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
-        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
-        put.setDurability(Durability.SKIP_WAL);
+        Put put=committedPut(rowKey,txnId,commitTimestamp);
         try{
             ((RegionPartition)region).unwrapDelegate().put(put);
         }catch(IOException e){
@@ -159,12 +232,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing
 
-        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
-        delete.setDurability(Durability.SKIP_WAL);
-        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        Delete delete=rolledbackDelete(rowKey,txnId);
         try{
             ((RegionPartition)region).unwrapDelegate().delete(delete);
         }catch(IOException ioe){
@@ -173,4 +241,50 @@ public class SynchronousReadResolver implements KeyedReadResolver{
                 throw new RuntimeException(ioe);
         }
     }
+
+    private int writeBatch(Partition region,Mutation[] mutations,boolean failOnError){
+        assert region instanceof RegionPartition: "Not on a region!";
+        /*
+         * Write the whole group in one batch, bypassing SI and the WAL as the single-row resolutions do
+         */
+        if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+            return 0; //do nothing if we are closing or rollforward is disabled
+        try{
+            OperationStatus[] statuses=((RegionPartition)region).unwrapDelegate().batchMutate(mutations);
+            int written=0;
+            for(OperationStatus status:statuses){
+                if(status.getOperationStatusCode()==HConstants.OperationStatusCode.SUCCESS)
+                    written++;
+            }
+            return written;
+        }catch(IOException e){
+            if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)){
+                LOG.info("Exception encountered when attempting to resolve a batch of rows",e);
+                if(failOnError)
+                    throw new RuntimeException(e);
+            }
+            return 0;
+        }
+    }
+
+    private static Put committedPut(ByteSlice rowKey,long txnId,long commitTimestamp){
+        Put put=new Put(rowKey.getByteCopy());
+        put.add(SIConstants.DEFAULT_FAMILY_BYTES,
+                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
+                Bytes.toBytes(commitTimestamp));
+        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
+        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        put.setDurability(Durability.SKIP_WAL);
+        return put;
+    }
+
+    private static Delete rolledbackDelete(ByteSlice rowKey,long txnId){
+        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
+        delete.setDurability(Durability.SKIP_WAL);
+        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        return delete;
+    }
 }
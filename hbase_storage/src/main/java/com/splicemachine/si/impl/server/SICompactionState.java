@@ -29,10 +29,13 @@ import com.splicemachine.storage.CellType;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -49,25 +52,80 @@ public class SICompactionState {
     private SortedSet<Cell> dataToReturn;
     private final RollForward rollForward;
     private ByteSlice rowSlice = new ByteSlice();
+    private final long purgeWatermark;
+    /*the first cell of the row currently held in dataToReturn, when purging*/
+    private Cell currentRow;
+    private long purgedCellCount;
+    private long purgedBytes;
 
     public SICompactionState(TxnSupplier transactionStore,RollForward rollForward,int activeTransactionCacheSize) {
+        this(transactionStore,rollForward,activeTransactionCacheSize,PurgeWatermark.NONE);
+    }
+
+    /**
+     * @param purgeWatermark a timestamp older than the begin timestamp of any transaction which may still read
+     *                       (see {@link PurgeWatermark}). Versions which are hidden from every such transaction are
+     *                       removed. Only valid when compacting all the files of a store. {@link PurgeWatermark#NONE}
+     *                       disables purging.
+     */
+    public SICompactionState(TxnSupplier transactionStore,RollForward rollForward,int activeTransactionCacheSize,long purgeWatermark) {
         this.rollForward = rollForward;
         this.transactionStore = new ActiveTxnCacheSupplier(transactionStore,activeTransactionCacheSize);
         this.dataToReturn  =new TreeSet<>(KeyValue.COMPARATOR);
+        this.purgeWatermark = purgeWatermark;
     }
 
     /**
      * Given a list of key-values, populate the results list with possibly mutated values.
+     * <p/>
+     * When purging, the versions of a row can only be decided upon once the whole row has been seen, which may take
+     * several calls; in that case a row is only added to {@code results} when the next row begins, or when
+     * {@link #flush(List)} is called.
      *
      * @param rawList - the input of key values to process
      * @param results - the output key values
      */
     public void mutate(List<Cell> rawList, List<Cell> results) throws IOException {
-        dataToReturn.clear();
+        if(purgeWatermark==PurgeWatermark.NONE){
+            dataToReturn.clear();
+            for (Cell aRawList : rawList) {
+                mutate(aRawList);
+            }
+            results.addAll(dataToReturn);
+            return;
+        }
         for (Cell aRawList : rawList) {
+            if(currentRow!=null && !CellUtil.matchingRow(currentRow,aRawList))
+                flush(results);
+            if(currentRow==null)
+                currentRow=aRawList;
             mutate(aRawList);
         }
+    }
+
+    /**
+     * Add any row which is still being held back to {@code results}. Must be called once the input is exhausted.
+     */
+    public void flush(List<Cell> results) throws IOException {
+        if(currentRow==null) return;
+        purge();
         results.addAll(dataToReturn);
+        dataToReturn.clear();
+        currentRow=null;
+    }
+
+    /**
+     * @return the number of cells removed because no transaction could see them any longer
+     */
+    public long getPurgedCellCount(){
+        return purgedCellCount;
+    }
+
+    /**
+     * @return the (serialized) size of the cells removed because no transaction could see them any longer
+     */
+    public long getPurgedBytes(){
+        return purgedBytes;
     }
 
     /**
@@ -104,6 +162,55 @@ public class SICompactionState {
         }
     }
 
+    /**
+     * Remove the versions of the current row which are hidden from every transaction at or above the watermark.
+     * <p/>
+     * A committed tombstone hides every version at or below its own timestamp, and a committed anti-tombstone
+     * (written when a deleted row is inserted again) hides every version below its own timestamp. Once such a
+     * marker committed before the watermark, it is visible to every transaction which can still read, so the
+     * versions it hides (and, for a tombstone, the tombstone itself) can be discarded. Versions which are only
+     * shadowed by newer user data are kept, because updates only write the columns that they change.
+     */
+    private void purge() throws IOException {
+        Cell marker=null;
+        for(Cell cell : dataToReturn){
+            CellType type=getKeyValueType(cell);
+            if(type!=CellType.TOMBSTONE && type!=CellType.ANTI_TOMBSTONE) continue;
+            TxnView txn=transactionStore.getTransaction(cell.getTimestamp());
+            if(txn.getEffectiveState()==Txn.State.COMMITTED){
+                long commitTs=txn.getEffectiveCommitTimestamp();
+                if(commitTs>0 && commitTs<purgeWatermark){
+                    //versions are sorted newest first, so this is the newest marker which everyone can see
+                    marker=cell;
+                    break;
+                }
+            }
+        }
+        if(marker==null) return;
+
+        long markerTs=marker.getTimestamp();
+        boolean inclusive=getKeyValueType(marker)==CellType.TOMBSTONE;
+        Iterator<Cell> it=dataToReturn.iterator();
+        while(it.hasNext()){
+            Cell cell=it.next();
+            switch(getKeyValueType(cell)){
+                case COMMIT_TIMESTAMP:
+                case TOMBSTONE:
+                case ANTI_TOMBSTONE:
+                case USER_DATA:
+                    long ts=cell.getTimestamp();
+                    if(ts<markerTs || (inclusive && ts==markerTs)){
+                        it.remove();
+                        purgedCellCount++;
+                        purgedBytes+=KeyValueUtil.length(cell);
+                    }
+                    break;
+                default:
+                    //not versioned by SI, so leave it alone
+            }
+        }
+    }
+
     private void ensureTransactionCached(long timestamp,Cell element) {
         if(!transactionStore.transactionCached(timestamp)){
             if(isFailedCommitTimestamp(element)){
@@ -160,6 +160,16 @@ public class HScan implements DataScan{
         return this;
     }
 
+    @Override
+    public DataScan copy(){
+        try{
+            return new HScan(new Scan(scan));
+        }catch(IOException e){
+            //the copy constructor only throws when copying the time range, which is always valid here
+            throw new RuntimeException(e);
+        }
+    }
+
     public Scan unwrapDelegate(){
         return scan;
     }
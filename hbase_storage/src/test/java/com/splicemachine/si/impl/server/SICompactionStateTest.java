@@ -0,0 +1,192 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.si.api.readresolve.RollForward;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the purging of dead versions by SICompactionState.
+ */
+public class SICompactionStateTest{
+    private static final long WATERMARK=10L;
+
+    private final Map<Long,TxnView> txns=new HashMap<>();
+    private SICompactionState state;
+
+    @Before
+    public void setUp() throws Exception{
+        TxnSupplier supplier=mock(TxnSupplier.class);
+        Answer<TxnView> lookup=new Answer<TxnView>(){
+            @Override
+            public TxnView answer(InvocationOnMock invocation) throws Throwable{
+                return txns.get((Long)invocation.getArguments()[0]);
+            }
+        };
+        when(supplier.getTransaction(anyLong())).thenAnswer(lookup);
+        when(supplier.getTransaction(anyLong(),anyBoolean())).thenAnswer(lookup);
+        state=new SICompactionState(supplier,mock(RollForward.class),16,WATERMARK);
+    }
+
+    @Test
+    public void committedTombstoneBelowWatermarkPurgesTheRow() throws Exception{
+        committed(1L,2L);
+        committed(3L,4L);
+
+        List<Cell> results=compact(Arrays.asList(tombstone("a",3L),data("a",1L),data("b",1L)));
+        Assert.assertEquals(Arrays.asList("b:commit@1","b:data@1"),describe(results));
+        Assert.assertEquals("tombstone, data and both commit timestamps",4L,state.getPurgedCellCount());
+        Assert.assertTrue(state.getPurgedBytes()>0L);
+    }
+
+    @Test
+    public void tombstoneCommittedAfterWatermarkKeepsTheRow() throws Exception{
+        committed(1L,2L);
+        committed(3L,WATERMARK+2L);
+
+        List<Cell> results=compact(Arrays.asList(tombstone("a",3L),data("a",1L)));
+        Assert.assertEquals(Arrays.asList("a:commit@3","a:commit@1","a:tombstone@3","a:data@1"),describe(results));
+        Assert.assertEquals(0L,state.getPurgedCellCount());
+    }
+
+    @Test
+    public void antiTombstoneKeepsItselfAndTheNewVersion() throws Exception{
+        committed(1L,2L); //insert
+        committed(3L,4L); //delete
+        committed(5L,6L); //insert again
+
+        List<Cell> results=compact(Arrays.asList(antiTombstone("a",5L),tombstone("a",3L),data("a",5L),data("a",1L)));
+        Assert.assertEquals(Arrays.asList("a:commit@5","a:antiTombstone@5","a:data@5"),describe(results));
+        Assert.assertEquals(4L,state.getPurgedCellCount());
+    }
+
+    @Test
+    public void uncommittedTombstoneKeepsOlderVersions() throws Exception{
+        committed(1L,2L);
+        active(3L);
+
+        List<Cell> results=compact(Arrays.asList(tombstone("a",3L),data("a",1L)));
+        Assert.assertEquals(Arrays.asList("a:commit@1","a:tombstone@3","a:data@1"),describe(results));
+        Assert.assertEquals(0L,state.getPurgedCellCount());
+    }
+
+    @Test
+    public void rolledBackTombstoneDoesNotPurge() throws Exception{
+        committed(1L,2L);
+        txns.put(3L,new RolledBackTxn(3L));
+        txns.put(5L,new RolledBackTxn(5L));
+
+        List<Cell> results=compact(Arrays.asList(tombstone("a",3L),data("a",5L),data("a",1L)));
+        //rolled back versions are dropped as they always were, but hide nothing
+        Assert.assertEquals(Arrays.asList("a:commit@1","a:data@1"),describe(results));
+        Assert.assertEquals(0L,state.getPurgedCellCount());
+    }
+
+    @Test
+    public void rowSpanningSeveralCallsIsPurgedAsAWhole() throws Exception{
+        committed(1L,2L);
+        committed(3L,4L);
+
+        List<Cell> results=new ArrayList<>();
+        state.mutate(Arrays.asList(tombstone("a",3L)),results);
+        Assert.assertTrue("the row must be held back until it is complete",results.isEmpty());
+        state.mutate(Arrays.asList(data("a",1L)),results);
+        Assert.assertTrue("the row must be held back until it is complete",results.isEmpty());
+        state.mutate(Arrays.asList(data("b",1L)),results);
+        Assert.assertTrue(results.isEmpty());
+        state.flush(results);
+
+        Assert.assertEquals(Arrays.asList("b:commit@1","b:data@1"),describe(results));
+        Assert.assertEquals(4L,state.getPurgedCellCount());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private List<Cell> compact(List<Cell> cells) throws Exception{
+        List<Cell> results=new ArrayList<>();
+        state.mutate(cells,results);
+        state.flush(results);
+        return results;
+    }
+
+    private List<String> describe(List<Cell> cells){
+        List<String> described=new ArrayList<>(cells.size());
+        for(Cell cell:cells){
+            String type;
+            switch(state.getKeyValueType(cell)){
+                case COMMIT_TIMESTAMP: type="commit"; break;
+                case TOMBSTONE: type="tombstone"; break;
+                case ANTI_TOMBSTONE: type="antiTombstone"; break;
+                case USER_DATA: type="data"; break;
+                default: type="other";
+            }
+            described.add(Bytes.toString(CellUtil.cloneRow(cell))+":"+type+"@"+cell.getTimestamp());
+        }
+        return described;
+    }
+
+    private void committed(long txnId,long commitTs){
+        txns.put(txnId,new CommittedTxn(txnId,commitTs));
+    }
+
+    private void active(long txnId){
+        txns.put(txnId,new InheritingTxnView(Txn.ROOT_TRANSACTION,txnId,txnId,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                false,false,true,true,-1L,-1L,Txn.State.ACTIVE));
+    }
+
+    private static Cell data(String row,long txnId){
+        return cell(row,SIConstants.PACKED_COLUMN_BYTES,txnId,Bytes.toBytes("row "+row));
+    }
+
+    private static Cell tombstone(String row,long txnId){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId,SIConstants.EMPTY_BYTE_ARRAY);
+    }
+
+    private static Cell antiTombstone(String row,long txnId){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId,
+                SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES);
+    }
+
+    private static Cell cell(String row,byte[] qualifier,long timestamp,byte[] value){
+        return new KeyValue(Bytes.toBytes(row),SIConstants.DEFAULT_FAMILY_BYTES,qualifier,timestamp,value);
+    }
+}
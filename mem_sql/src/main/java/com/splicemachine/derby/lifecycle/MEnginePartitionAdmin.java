@@ -15,6 +15,7 @@
 
 package com.splicemachine.derby.lifecycle;
 
+import com.splicemachine.access.api.BulkLoadWriter;
 import com.splicemachine.access.api.PartitionAdmin;
 import com.splicemachine.access.api.PartitionCreator;
 import com.splicemachine.access.api.TableDescriptor;
@@ -85,4 +86,14 @@ public class MEnginePartitionAdmin implements PartitionAdmin{
     public void move(String partition, String server) throws IOException {
         admin.move(partition, server);
     }
+
+    @Override
+    public BulkLoadWriter newBulkLoadWriter(String tableName,String directory) throws IOException{
+        return admin.newBulkLoadWriter(tableName,directory);
+    }
+
+    @Override
+    public void bulkLoad(String tableName,String directory) throws IOException{
+        admin.bulkLoad(tableName,directory);
+    }
 }
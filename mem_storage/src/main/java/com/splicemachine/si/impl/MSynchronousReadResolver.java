@@ -30,6 +30,7 @@ import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Collection;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -100,6 +101,8 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
                 }
             }
             status.rowResolved();
+            if(resolved)
+                status.rowsRolledForward(1);
             return resolved;
         }catch(IOException e){
             LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
@@ -113,6 +116,21 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    @Override
+    public int resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        int resolved=0;
+        for(ByteSlice rowKey:rowKeys){
+            if(resolve(region,rowKey,txnId,supplier,status,failOnError,trafficControl))
+                resolved++;
+        }
+        return resolved;
+    }
+
+    @Override
+    public boolean isUnderPressure(Partition region){
+        return false; //in-memory partitions neither flush nor compact
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.splicemachine.access.api.BulkLoadWriter;
+import com.splicemachine.si.constants.SIConstants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-memory counterpart of a bulk load file: cells are written to a local file as
+ * length-prefixed (key, version, value) records, and read back as puts when loaded.
+ */
+class MBulkLoadWriter implements BulkLoadWriter{
+    private final DataOutputStream out;
+    private long cellCount;
+
+    MBulkLoadWriter(String directory) throws IOException{
+        File dir = new File(directory);
+        if(!dir.exists() && !dir.mkdirs() && !dir.exists())
+            throw new IOException("Unable to create bulk load directory "+directory);
+        File file = new File(dir,UUID.randomUUID().toString());
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    @Override
+    public void append(byte[] rowKey,long version,byte[] value) throws IOException{
+        out.writeInt(rowKey.length);
+        out.write(rowKey);
+        out.writeLong(version);
+        out.writeInt(value.length);
+        out.write(value);
+        cellCount++;
+    }
+
+    @Override
+    public long getCellCount(){
+        return cellCount;
+    }
+
+    @Override
+    public void close() throws IOException{
+        out.close();
+    }
+
+    static void load(Partition partition,String directory) throws IOException{
+        File[] files = new File(directory).listFiles();
+        if(files==null) return;
+        List<DataPut> puts = new ArrayList<>();
+        for(File file:files){
+            if(!file.isFile()) continue;
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+                while(true){
+                    int keyLength;
+                    try{
+                        keyLength=in.readInt();
+                    }catch(EOFException eof){
+                        break;
+                    }
+                    byte[] key = new byte[keyLength];
+                    in.readFully(key);
+                    long version = in.readLong();
+                    byte[] value = new byte[in.readInt()];
+                    in.readFully(value);
+                    MPut put = new MPut(key);
+                    put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,version,value);
+                    puts.add(put);
+                }
+            }
+        }
+        partition.writeBatch(puts.toArray(new DataPut[puts.size()]));
+        for(File file:files){
+            if(file.isFile() && !file.delete())
+                throw new IOException("Unable to remove loaded file "+file);
+        }
+    }
+}
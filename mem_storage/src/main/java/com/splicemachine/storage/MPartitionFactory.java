@@ -153,5 +153,15 @@ public class MPartitionFactory implements PartitionFactory<Object>{
         public void move(String partition, String server) throws IOException {
             throw new UnsupportedOperationException("Cannot move partitions in an in-memory storage engine!");
         }
+
+        @Override
+        public BulkLoadWriter newBulkLoadWriter(String tableName,String directory) throws IOException{
+            return new MBulkLoadWriter(directory);
+        }
+
+        @Override
+        public void bulkLoad(String tableName,String directory) throws IOException{
+            MBulkLoadWriter.load(getTable(tableName),directory);
+        }
     }
 }
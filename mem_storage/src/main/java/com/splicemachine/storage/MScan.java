@@ -134,4 +134,17 @@ public class MScan implements DataScan{
     public void setAllAttributes(Map<String, byte[]> attrMap){
         attrs.putAll(attrMap);
     }
+
+    @Override
+    public DataScan copy(){
+        MScan copy = new MScan();
+        copy.startKey = startKey;
+        copy.stopKey = stopKey;
+        copy.filter = filter;
+        copy.attrs.putAll(attrs);
+        copy.highTs = highTs;
+        copy.lowTs = lowTs;
+        copy.descending = descending;
+        return copy;
+    }
 }
@@ -98,6 +98,7 @@ public class PartitionWritePipeline{
             return NOT_SERVING_REGION;
         }
 
+        PipelineDriver.conglomerateWritten(region.getTableName(),txn);
         WriteContext context;
         try{
             context=ctxFactory.create(writeBufferFactory,txn,txnRegion,toWrite.getSize(),toWrite.skipIndexWrite(),rce);
@@ -23,6 +23,8 @@ import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 import java.io.IOException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.splicemachine.access.api.PartitionFactory;
@@ -32,12 +34,15 @@ import com.splicemachine.concurrent.Clock;
 import com.splicemachine.pipeline.api.BulkWriterFactory;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
 import com.splicemachine.pipeline.api.PipelineMeter;
+import com.splicemachine.pipeline.api.WriteListener;
 import com.splicemachine.pipeline.client.WriteCoordinator;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
+import com.splicemachine.pipeline.traffic.AdaptiveSpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SynchronousWriteControl;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
+import com.splicemachine.si.api.txn.TxnView;
 
 /**
  * @author Scott Fines
@@ -46,6 +51,11 @@ import com.splicemachine.pipeline.utils.PipelineCompressor;
 public class PipelineDriver{
     private static final int ipcReserved=10;
     private static PipelineDriver INSTANCE;
+    /*
+     * Listeners are held statically so that they can be registered before the driver is loaded, and
+     * therefore do not miss any writes
+     */
+    private static final CopyOnWriteArrayList<WriteListener> writeListeners = new CopyOnWriteArrayList<>();
 
     private final SpliceWriteControl writeControl;
     private final MappedPipelineFactory writePipelineFactory=new MappedPipelineFactory();
@@ -90,7 +100,11 @@ public class PipelineDriver{
         int maxIndependentWrites = config.getMaxIndependentWrites();
         int maxDependentWrites = config.getMaxDependentWrites();
 
-        this.writeControl= new SynchronousWriteControl(ipcThreads/2,ipcThreads/2,maxDependentWrites,maxIndependentWrites);
+        SpliceWriteControl fixedControl = new SynchronousWriteControl(ipcThreads/2,ipcThreads/2,maxDependentWrites,maxIndependentWrites);
+        if(config.isAdaptiveWriteControlEnabled())
+            this.writeControl = new AdaptiveSpliceWriteControl(fixedControl,config.getAdaptiveWriteControlTargetLatency(),TimeUnit.MILLISECONDS);
+        else
+            this.writeControl = fixedControl;
         this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,writeControl,pipelineMeter);
         channelFactory.setWriter(pipelineWriter);
         channelFactory.setPipeline(writePipelineFactory);
@@ -141,6 +155,25 @@ public class PipelineDriver{
         writePipelineFactory.deregisterPipeline(partitionName);
     }
 
+    public static void registerWriteListener(WriteListener listener){
+        writeListeners.addIfAbsent(listener);
+    }
+
+    public static void deregisterWriteListener(WriteListener listener){
+        writeListeners.remove(listener);
+    }
+
+    /**
+     * Inform the registered {@link WriteListener}s that {@code conglomerate} is being written by {@code txn}.
+     *
+     * @throws IOException if a listener refuses the write
+     */
+    public static void conglomerateWritten(String conglomerate,TxnView txn) throws IOException{
+        for(WriteListener listener:writeListeners){
+            listener.conglomerateWritten(conglomerate,txn);
+        }
+    }
+
     @MXBean
     @SuppressWarnings("UnusedDeclaration")
     public interface ActiveWriteHandlersIface{
@@ -109,8 +109,9 @@ public class PipelineWriter{
                 LOG.trace("Rejecting "+numBulkWrites+" rows in "+ bws.size()+"writes because the pipeline is too busy");
             rejectAll(bws,result, Code.PIPELINE_TOO_BUSY,null);
             rejectedCount.addAndGet(numBulkWrites);
-            return new BulkWritesResult(result);
+            return new BulkWritesResult(result,writeControl.retryAfterMillis(dependent));
         }
+        long start = System.nanoTime();
         try {
             return performWrite(bulkWrites,bws,result,indexWriteBufferFactory);
         } finally {
@@ -124,6 +125,7 @@ public class PipelineWriter{
                     writeControl.finishIndependentWrite(numKVPairs);
                     break;
             }
+            writeControl.recordWriteLatency(status,numKVPairs,System.nanoTime()-start);
         }
     }
 
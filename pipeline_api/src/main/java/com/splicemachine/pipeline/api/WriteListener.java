@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.pipeline.api;
+
+import com.splicemachine.si.api.txn.TxnView;
+
+import java.io.IOException;
+
+/**
+ * Notified whenever data is about to be written to a conglomerate hosted in this JVM, before the write is
+ * applied. Every bulk write which arrives at a partition is reported, so a single logical write may be
+ * reported more than once.
+ *
+ * Implementations are called on the write path, and should be cheap for the common case.
+ */
+public interface WriteListener{
+
+    /**
+     * @param conglomerate the name of the conglomerate being written
+     * @param txn the transaction performing the write
+     * @throws IOException if the write must not be applied
+     */
+    void conglomerateWritten(String conglomerate,TxnView txn) throws IOException;
+}
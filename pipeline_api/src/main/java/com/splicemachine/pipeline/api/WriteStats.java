@@ -90,6 +90,21 @@ public interface WriteStats {
 			public long getRegionTooBusy() {
 				return 0;
 			}
+
+			@Override
+			public long getUncompressedBytes() {
+				return 0;
+			}
+
+			@Override
+			public long getCompressedBytes() {
+				return 0;
+			}
+
+			@Override
+			public String getCodec() {
+				return null;
+			}
 		};
 
 	long getWrittenCounter();
@@ -105,4 +120,19 @@ public interface WriteStats {
 	long getCatchThrownRows();
 	long getCatchRetriedRows();
 	long getRegionTooBusy();
+
+	/**
+	 * @return the number of bytes sent over the wire before compression
+	 */
+	long getUncompressedBytes();
+
+	/**
+	 * @return the number of bytes actually sent over the wire
+	 */
+	long getCompressedBytes();
+
+	/**
+	 * @return the compression codec last used to send writes, or {@code null} if unknown
+	 */
+	String getCodec();
 }
@@ -79,6 +79,9 @@ public class BulkWriteAction implements Callable<WriteStats>{
     private final Counter rejectedCounter;
     private final Counter partialFailureCounter;
     private final Counter regionTooBusy;
+    private final Counter uncompressedBytes;
+    private final Counter compressedBytes;
+    private volatile String codec;
     private final PartitionFactory partitionFactory;
     private PipingCallBuffer retryPipingCallBuffer=null; // retryCallBuffer
 
@@ -120,6 +123,8 @@ public class BulkWriteAction implements Callable<WriteStats>{
         catchThrownRows=metricFactory.newCounter();
         catchRetriedRows=metricFactory.newCounter();
         regionTooBusy=metricFactory.newCounter();
+        uncompressedBytes=metricFactory.newCounter();
+        compressedBytes=metricFactory.newCounter();
     }
 
     @Override
@@ -147,7 +152,10 @@ public class BulkWriteAction implements Callable<WriteStats>{
             ignoredRows.getTotal(),
             catchThrownRows.getTotal(),
             catchRetriedRows.getTotal(),
-            regionTooBusy.getTotal()
+            regionTooBusy.getTotal(),
+            uncompressedBytes.getTotal(),
+            compressedBytes.getTotal(),
+            codec
                         );
             else
                 return WriteStats.NOOP_WRITE_STATS;
@@ -230,7 +238,12 @@ public class BulkWriteAction implements Callable<WriteStats>{
              * simply because we were told to wait a bit by the write pipeline (i.e. we were rejected).
              */
             if(ctx.shouldSleep()){
-                clock.sleep(PipelineUtils.getPauseTime(ctx.attemptCount,10),TimeUnit.MILLISECONDS);
+                /*
+                 * If the server told us how long to wait, then wait at least that long, since it knows how
+                 * loaded it actually is.
+                 */
+                long pause=PipelineUtils.getPauseTime(ctx.attemptCount,10,ctx.retryAfterMillis);
+                clock.sleep(pause,TimeUnit.MILLISECONDS);
             }if(ctx.directRetry)
                 writesToPerform.add(nextWrite);
             else if(ctx.nextWriteSet!=null &&ctx.nextWriteSet.size()>0){
@@ -259,6 +272,12 @@ public class BulkWriteAction implements Callable<WriteStats>{
             writeTimer.startTiming();
             BulkWritesResult bulkWritesResult=writer.write(nextWrite,ctx.refreshCache);
             writeTimer.stopTiming();
+            ctx.retryAfterMillis=bulkWritesResult.getRetryAfterMillis();
+            if(bulkWritesResult.getCodec()!=null){
+                codec=bulkWritesResult.getCodec();
+                uncompressedBytes.add(bulkWritesResult.getUncompressedBytes());
+                compressedBytes.add(bulkWritesResult.getCompressedBytes());
+            }
             Iterator<BulkWrite> bws=nextWrite.getBulkWrites().iterator();
             Collection<BulkWriteResult> results=bulkWritesResult.getBulkWriteResults();
             for(BulkWriteResult bulkWriteResult : results){
@@ -491,6 +510,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
         Collection<KVPair> nextWriteSet;
         boolean directRetry;
         int attemptCount = 0;
+        long retryAfterMillis;
 
         int rejectedCount;
         int failedCount;
@@ -506,6 +526,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
             nextWriteSet = null;
             directRetry = false;
             rejected=false;
+            retryAfterMillis = 0l;
         }
 
         void addBulkWrites(Collection<KVPair> writes){
@@ -23,15 +23,56 @@ import java.util.Collection;
  */
 public class BulkWritesResult {
 		private Collection<BulkWriteResult> bulkWriteResults;
+		private long retryAfterMillis;
+		/*
+		 * Client-side statistics about the request this is the result of; never serialized
+		 */
+		private transient String codec;
+		private transient long uncompressedBytes;
+		private transient long compressedBytes;
 
 		public BulkWritesResult(Collection<BulkWriteResult> bulkWriteResults){
+				this(bulkWriteResults,0l);
+		}
+
+		public BulkWritesResult(Collection<BulkWriteResult> bulkWriteResults,long retryAfterMillis){
 				this.bulkWriteResults = bulkWriteResults;
+				this.retryAfterMillis = retryAfterMillis;
 		}
 
 		public Collection<BulkWriteResult> getBulkWriteResults() {
 				return bulkWriteResults;
 		}
 
+		/**
+		 * @return how long (in milliseconds) the server would like writes which it rejected as too busy to
+		 * wait before being retried, or 0 if the server expressed no preference.
+		 */
+		public long getRetryAfterMillis() {
+				return retryAfterMillis;
+		}
+
+		public void setCompression(String codec,long uncompressedBytes,long compressedBytes){
+				this.codec = codec;
+				this.uncompressedBytes = uncompressedBytes;
+				this.compressedBytes = compressedBytes;
+		}
+
+		/**
+		 * @return the codec the request was compressed with, or {@code null} if unknown
+		 */
+		public String getCodec(){
+				return codec;
+		}
+
+		public long getUncompressedBytes(){
+				return uncompressedBytes;
+		}
+
+		public long getCompressedBytes(){
+				return compressedBytes;
+		}
+
 		@Override
 		public String toString() {
 				StringBuilder sb = new StringBuilder("BulkWritesResult{");
@@ -41,6 +82,8 @@ public class BulkWritesResult {
 						else sb.append(",");
 						sb.append(result);
 				}
+				if(retryAfterMillis>0)
+						sb.append(",retryAfterMillis=").append(retryAfterMillis);
 				return sb.toString();
 		}
 }
@@ -37,6 +37,9 @@ public class MergingWriteStats implements WriteStats {
     private final Counter catchThrownRows;
     private final Counter catchRetriedRows;
     private final Counter regionTooBusy;
+    private final Counter uncompressedBytes;
+    private final Counter compressedBytes;
+    private volatile String codec;
 
     public MergingWriteStats(MetricFactory metricFactory) {
         this.writtenCounter = metricFactory.newCounter();
@@ -52,6 +55,8 @@ public class MergingWriteStats implements WriteStats {
         this.catchThrownRows = metricFactory.newCounter();
         this.catchRetriedRows = metricFactory.newCounter();
         this.regionTooBusy = metricFactory.newCounter();
+        this.uncompressedBytes = metricFactory.newCounter();
+        this.compressedBytes = metricFactory.newCounter();
     }
 
     public void merge(WriteStats newStats) {
@@ -68,6 +73,10 @@ public class MergingWriteStats implements WriteStats {
         catchThrownRows.add(newStats.getCatchThrownRows());
         catchRetriedRows.add(newStats.getCatchRetriedRows());
         regionTooBusy.add(newStats.getRegionTooBusy());
+        uncompressedBytes.add(newStats.getUncompressedBytes());
+        compressedBytes.add(newStats.getCompressedBytes());
+        if(newStats.getCodec()!=null)
+            codec = newStats.getCodec();
     }
 
     @Override
@@ -134,4 +143,19 @@ public class MergingWriteStats implements WriteStats {
     public long getRegionTooBusy() {
         return regionTooBusy.getTotal();
     }
+
+    @Override
+    public long getUncompressedBytes() {
+        return uncompressedBytes.getTotal();
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return compressedBytes.getTotal();
+    }
+
+    @Override
+    public String getCodec() {
+        return codec;
+    }
 }
@@ -83,8 +83,20 @@ public class PipelineEncoding {
     }
 
 
+    /**
+     * Decode a BulkWrites without copying any row data: the KVPairs of the returned BulkWrites are slices over
+     * {@code data}, so the buffer must not be modified or reused until the write has been fully processed.
+     */
     public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data){
-        ExpandedDecoder decoder = new ExpandedDecoder(data);
+        return decode(operationFactory,data,0);
+    }
+
+    /**
+     * As {@link #decode(TxnOperationFactory, byte[])}, for an encoding which starts at {@code offset} (e.g. behind
+     * a compression frame header).
+     */
+    public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data,int offset){
+        ExpandedDecoder decoder = new ExpandedDecoder(data,offset);
         byte[] txnBytes = decoder.rawBytes();
         TxnView txn = operationFactory.decode(txnBytes,0,txnBytes.length);
         int bwSize = decoder.decodeInt();
@@ -37,8 +37,15 @@ public class SimpleWriteStats implements WriteStats {
     private final long catchThrownRows;
     private final long catchRetriedRows;
     private final long regionTooBusy;
+    private final long uncompressedBytes;
+    private final long compressedBytes;
+    private final String codec;
 
     public SimpleWriteStats(long writtenCounter, long retryCounter, long thrownErrorsRows, long retriedRows, long partialRows, long partialThrownErrorRows, long partialRetriedRows, long partialIgnoredRows, long partialWrite, long ignoredRows, long catchThrownRows, long catchRetriedRows, long regionTooBusy) {
+        this(writtenCounter,retryCounter,thrownErrorsRows,retriedRows,partialRows,partialThrownErrorRows,partialRetriedRows,partialIgnoredRows,partialWrite,ignoredRows,catchThrownRows,catchRetriedRows,regionTooBusy,0l,0l,null);
+    }
+
+    public SimpleWriteStats(long writtenCounter, long retryCounter, long thrownErrorsRows, long retriedRows, long partialRows, long partialThrownErrorRows, long partialRetriedRows, long partialIgnoredRows, long partialWrite, long ignoredRows, long catchThrownRows, long catchRetriedRows, long regionTooBusy, long uncompressedBytes, long compressedBytes, String codec) {
         this.writtenCounter = writtenCounter;
         this.retryCounter = retryCounter;
         this.thrownErrorsRows = thrownErrorsRows;
@@ -52,6 +59,9 @@ public class SimpleWriteStats implements WriteStats {
         this.catchThrownRows = catchThrownRows;
         this.catchRetriedRows = catchRetriedRows;
         this.regionTooBusy = regionTooBusy;
+        this.uncompressedBytes = uncompressedBytes;
+        this.compressedBytes = compressedBytes;
+        this.codec = codec;
     }
 
     @Override
@@ -119,4 +129,19 @@ public class SimpleWriteStats implements WriteStats {
         return regionTooBusy;
     }
 
+    @Override
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    @Override
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    @Override
+    public String getCodec() {
+        return codec;
+    }
+
 }
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.compression;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the receiver of a compressed frame when it does not know the codec or dictionary the frame was
+ * compressed with. The sender is expected to retry with a frame the receiver is guaranteed to understand.
+ */
+public class CodecNegotiationException extends IOException{
+
+    public CodecNegotiationException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.compression;
+
+import com.splicemachine.utils.ByteSlice;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Pure Java implementation of the LZ4 block format.
+ *
+ * This is the single-pass, hash-table based LZ4 compressor: it favours speed over ratio, which is the right
+ * trade-off for the write pipeline, where the cost of compression sits on the write path of every batch.
+ * A dictionary is used as a prefix of the data: matches may refer back into it, but it is never emitted.
+ */
+public class Lz4PipelineCodec implements PipelineCodec{
+    public static final byte ID = 1;
+    public static final String NAME = "lz4";
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12; //no match can start within the last MF_LIMIT bytes
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+    private static final int ML_MASK = 0x0F;
+    private static final int RUN_MASK = 0x0F;
+
+    @Override public byte id(){ return ID; }
+    @Override public String name(){ return NAME; }
+    @Override public boolean isAvailable(){ return true; }
+    @Override public boolean supportsDictionary(){ return true; }
+
+    @Override
+    public byte[] compress(byte[] data,int offset,int length,byte[] dictionary) throws IOException{
+        byte[] buffer;
+        int start;
+        if(dictionary!=null && dictionary.length>0){
+            int dictLength = Math.min(dictionary.length,MAX_DISTANCE);
+            buffer = new byte[dictLength+length];
+            System.arraycopy(dictionary,dictionary.length-dictLength,buffer,0,dictLength);
+            System.arraycopy(data,offset,buffer,dictLength,length);
+            start = dictLength;
+        }else{
+            buffer = data;
+            start = offset;
+        }
+        byte[] out = new byte[maxCompressedLength(length)];
+        int written = compress(buffer,buffer==data?offset:0,start,start+length,out);
+        return Arrays.copyOf(out,written);
+    }
+
+    @Override
+    public ByteSlice decompress(byte[] data,int offset,int length,int uncompressedLength,byte[] dictionary) throws IOException{
+        int dictLength = dictionary==null?0:Math.min(dictionary.length,MAX_DISTANCE);
+        byte[] dest = new byte[dictLength+uncompressedLength];
+        if(dictLength>0)
+            System.arraycopy(dictionary,dictionary.length-dictLength,dest,0,dictLength);
+        try{
+            int end = decompress(data,offset,offset+length,dest,dictLength);
+            if(end!=dest.length)
+                throw new IOException("Corrupt LZ4 block: expected "+uncompressedLength+" bytes, got "+(end-dictLength));
+        }catch(IndexOutOfBoundsException e){
+            throw new IOException("Corrupt LZ4 block",e);
+        }
+        //the dictionary stays in front of the data as history; hand out a slice rather than copying past it
+        return ByteSlice.wrap(dest,dictLength,uncompressedLength);
+    }
+
+    static int maxCompressedLength(int length){
+        return length+length/255+16;
+    }
+
+    /*
+     * Compresses src[start,end) into dest, using src[historyStart,start) as history. Returns the number of
+     * bytes written.
+     */
+    static int compress(byte[] src,int historyStart,int start,int end,byte[] dest){
+        int[] hashTable = new int[1<<HASH_LOG];
+        Arrays.fill(hashTable,-1);
+        for(int i=Math.max(historyStart,start-MAX_DISTANCE);i+MIN_MATCH<=start;i++){
+            hashTable[hash(readInt(src,i))] = i;
+        }
+
+        int anchor = start;
+        int ip = start;
+        int op = 0;
+        int matchLimit = end-LAST_LITERALS;
+        int mfLimit = end-MF_LIMIT;
+        while(ip<mfLimit){
+            int sequence = readInt(src,ip);
+            int h = hash(sequence);
+            int ref = hashTable[h];
+            hashTable[h] = ip;
+            if(ref<0 || ip-ref>MAX_DISTANCE || readInt(src,ref)!=sequence){
+                ip++;
+                continue;
+            }
+            //extend the match backwards over pending literals
+            while(ip>anchor && ref>historyStart && src[ip-1]==src[ref-1]){
+                ip--;
+                ref--;
+            }
+            int matchLength = MIN_MATCH;
+            while(ip+matchLength<matchLimit && src[ref+matchLength]==src[ip+matchLength]){
+                matchLength++;
+            }
+            op = writeSequence(src,anchor,ip-anchor,ip-ref,matchLength,dest,op);
+            ip+=matchLength;
+            anchor = ip;
+        }
+        return writeLastLiterals(src,anchor,end-anchor,dest,op);
+    }
+
+    /*
+     * Decompresses src[srcOff,srcEnd) into dest starting at destOff; dest[0,destOff) is the history.
+     * Returns the end position in dest.
+     */
+    static int decompress(byte[] src,int srcOff,int srcEnd,byte[] dest,int destOff) throws IOException{
+        int ip = srcOff;
+        int op = destOff;
+        while(true){
+            int token = src[ip++] & 0xFF;
+            int literalLength = token>>>4;
+            if(literalLength==RUN_MASK){
+                int b;
+                do{
+                    b = src[ip++] & 0xFF;
+                    literalLength+=b;
+                }while(b==255);
+            }
+            System.arraycopy(src,ip,dest,op,literalLength);
+            ip+=literalLength;
+            op+=literalLength;
+            if(ip>=srcEnd) break; //the last sequence has only literals
+
+            int distance = (src[ip++] & 0xFF) | ((src[ip++] & 0xFF)<<8);
+            int matchLength = token & ML_MASK;
+            if(matchLength==ML_MASK){
+                int b;
+                do{
+                    b = src[ip++] & 0xFF;
+                    matchLength+=b;
+                }while(b==255);
+            }
+            matchLength+=MIN_MATCH;
+            int ref = op-distance;
+            if(distance==0 || ref<0)
+                throw new IOException("Corrupt LZ4 block: invalid match distance "+distance);
+            if(distance>=matchLength)
+                System.arraycopy(dest,ref,dest,op,matchLength);
+            else{
+                //overlapping copy, e.g. runs of the same byte
+                for(int i=0;i<matchLength;i++){
+                    dest[op+i] = dest[ref+i];
+                }
+            }
+            op+=matchLength;
+        }
+        return op;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int writeSequence(byte[] src,int literalStart,int literalLength,int distance,int matchLength,byte[] dest,int op){
+        int tokenPos = op++;
+        int token;
+        if(literalLength>=RUN_MASK){
+            token = RUN_MASK<<4;
+            op = writeLength(literalLength-RUN_MASK,dest,op);
+        }else
+            token = literalLength<<4;
+        System.arraycopy(src,literalStart,dest,op,literalLength);
+        op+=literalLength;
+
+        dest[op++] = (byte)distance;
+        dest[op++] = (byte)(distance>>>8);
+
+        int ml = matchLength-MIN_MATCH;
+        if(ml>=ML_MASK){
+            token|=ML_MASK;
+            op = writeLength(ml-ML_MASK,dest,op);
+        }else
+            token|=ml;
+        dest[tokenPos] = (byte)token;
+        return op;
+    }
+
+    private static int writeLastLiterals(byte[] src,int literalStart,int literalLength,byte[] dest,int op){
+        if(literalLength>=RUN_MASK){
+            dest[op++] = (byte)(RUN_MASK<<4);
+            op = writeLength(literalLength-RUN_MASK,dest,op);
+        }else
+            dest[op++] = (byte)(literalLength<<4);
+        System.arraycopy(src,literalStart,dest,op,literalLength);
+        return op+literalLength;
+    }
+
+    private static int writeLength(int length,byte[] dest,int op){
+        while(length>=255){
+            dest[op++] = (byte)255;
+            length-=255;
+        }
+        dest[op++] = (byte)length;
+        return op;
+    }
+
+    private static int readInt(byte[] buffer,int pos){
+        return (buffer[pos] & 0xFF)
+                | ((buffer[pos+1] & 0xFF)<<8)
+                | ((buffer[pos+2] & 0xFF)<<16)
+                | ((buffer[pos+3] & 0xFF)<<24);
+    }
+
+    private static int hash(int sequence){
+        return (sequence*-1640531535)>>>(32-HASH_LOG);
+    }
+}
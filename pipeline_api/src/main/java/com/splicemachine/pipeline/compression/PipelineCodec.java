@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.compression;
+
+import com.splicemachine.utils.ByteSlice;
+
+import java.io.IOException;
+
+/**
+ * A block compression codec for data sent over the write pipeline.
+ *
+ * Implementations are looked up by {@link #id()} when a frame is decoded, so ids must be stable and unique.
+ * Ids must lie in [0,127]: a negative first byte marks a message which was sent without a frame. Ids below 16
+ * are reserved for the codecs shipped with Splice Machine; additional codecs can be made
+ * available through {@link java.util.ServiceLoader} (see {@link PipelineCodecs}).
+ *
+ * Implementations must be thread safe.
+ *
+ * @see com.splicemachine.pipeline.utils.CodecPipelineCompressor
+ */
+public interface PipelineCodec{
+
+    /**
+     * @return the id written into each frame compressed with this codec
+     */
+    byte id();
+
+    /**
+     * @return the name used to select this codec in the configuration
+     */
+    String name();
+
+    /**
+     * @return true if this codec can be used in this JVM (e.g. its native library was loaded)
+     */
+    boolean isAvailable();
+
+    /**
+     * @return true if this codec makes use of the dictionaries passed to it
+     */
+    boolean supportsDictionary();
+
+    /**
+     * @param dictionary a preset dictionary, or {@code null}. Ignored if the codec doesn't support dictionaries
+     * @return the compressed bytes
+     */
+    byte[] compress(byte[] data,int offset,int length,byte[] dictionary) throws IOException;
+
+    /**
+     * @param uncompressedLength the exact length of the original data
+     * @param dictionary the dictionary the data was compressed with, or {@code null}
+     * @return the original data. This may be a slice over a larger buffer (or over {@code data} itself), so that
+     *         callers can decode it where it lies rather than copying it out
+     * @throws IOException if the data is corrupt
+     */
+    ByteSlice decompress(byte[] data,int offset,int length,int uncompressedLength,byte[] dictionary) throws IOException;
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.compression;
+
+import com.splicemachine.utils.ByteSlice;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the codecs known to this JVM. The built-in codecs are always present; additional codecs
+ * (e.g. Zstd bindings) are discovered through {@link ServiceLoader}, or registered explicitly by the
+ * environment which owns the native library.
+ */
+public class PipelineCodecs{
+    private static final Logger LOG = Logger.getLogger(PipelineCodecs.class);
+
+    /**
+     * Identity codec, used when compressing would not pay for itself.
+     */
+    public static final PipelineCodec NONE = new PipelineCodec(){
+        @Override public byte id(){ return 0; }
+        @Override public String name(){ return "none"; }
+        @Override public boolean isAvailable(){ return true; }
+        @Override public boolean supportsDictionary(){ return false; }
+
+        @Override
+        public byte[] compress(byte[] data,int offset,int length,byte[] dictionary) throws IOException{
+            byte[] copy = new byte[length];
+            System.arraycopy(data,offset,copy,0,length);
+            return copy;
+        }
+
+        @Override
+        public ByteSlice decompress(byte[] data,int offset,int length,int uncompressedLength,byte[] dictionary) throws IOException{
+            return ByteSlice.wrap(data,offset,length);
+        }
+    };
+
+    private static final ConcurrentMap<Byte,PipelineCodec> BY_ID = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String,PipelineCodec> BY_NAME = new ConcurrentHashMap<>();
+
+    static{
+        register(NONE);
+        register(new Lz4PipelineCodec());
+        register(new DeflatePipelineCodec());
+        try{
+            Iterator<PipelineCodec> plugins = ServiceLoader.load(PipelineCodec.class).iterator();
+            while(plugins.hasNext()){
+                register(plugins.next());
+            }
+        }catch(ServiceConfigurationError e){
+            LOG.error("Unable to load pipeline compression codecs",e);
+        }
+    }
+
+    private PipelineCodecs(){}
+
+    public static void register(PipelineCodec codec){
+        if(codec.id()<0){
+            LOG.warn("Codec id "+codec.id()+" is negative and cannot be told apart from an unframed message, ignoring codec "+codec.name());
+            return;
+        }
+        PipelineCodec existing = BY_ID.putIfAbsent(codec.id(),codec);
+        if(existing!=null && !existing.name().equals(codec.name())){
+            LOG.warn("Codec id "+codec.id()+" is already taken by "+existing.name()+", ignoring codec "+codec.name());
+            return;
+        }
+        BY_NAME.putIfAbsent(codec.name().toLowerCase(Locale.ENGLISH),codec);
+        if(LOG.isDebugEnabled())
+            LOG.debug("Registered pipeline codec "+codec.name()+"(available="+codec.isAvailable()+")");
+    }
+
+    /**
+     * @return the codec registered under {@code id}, or {@code null} if it is unknown to this JVM
+     */
+    public static PipelineCodec forId(byte id){
+        return BY_ID.get(id);
+    }
+
+    /**
+     * @return the codec registered under {@code name}, or {@code null} if it is unknown to this JVM
+     */
+    public static PipelineCodec forName(String name){
+        if(name==null) return null;
+        return BY_NAME.get(name.trim().toLowerCase(Locale.ENGLISH));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.compression;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.utils.ByteSlice;
+import org.sparkproject.guava.cache.Cache;
+import org.sparkproject.guava.cache.CacheBuilder;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compression dictionaries for the write pipeline.
+ *
+ * On the client, a dictionary is trained per table from the first rows written to it: rows of the same
+ * table share column encodings, key prefixes and repeated values, so a small sample of them makes a good
+ * preset dictionary for the small writes which otherwise barely compress at all. Only a few tables are
+ * sampled at a time, since each sample holds a buffer of several times the dictionary size until it is done.
+ *
+ * On the server, dictionaries are remembered by their id once a client has sent them inline, so that subsequent
+ * requests only need to carry the id. The id is the first 8 bytes of the SHA-256 of the dictionary: decoding with
+ * the wrong dictionary silently produces the wrong rows, so two dictionaries must never share an id.
+ */
+public class PipelineDictionaries{
+    public static final int MAX_SIZE = 32*1024;
+    private static final int SAMPLE_ROWS = 1024;
+    /*
+     * Each trainer buffers up to 4*MAX_SIZE bytes, so we only sample this many tables at once. A table which
+     * stops being written before its dictionary is built gives up its place after TRAINER_IDLE_MINUTES.
+     */
+    static final int MAX_TRAINERS = 16;
+    private static final int TRAINER_IDLE_MINUTES = 10;
+    private static final int MAX_DICTIONARIES = 1024;
+
+    private final Cache<String,Trainer> trainers = CacheBuilder.newBuilder()
+            .concurrencyLevel(1) //so that the size limit applies to the whole cache, rather than to each segment
+            .maximumSize(MAX_TRAINERS)
+            .expireAfterAccess(TRAINER_IDLE_MINUTES,TimeUnit.MINUTES)
+            .build();
+    private final Cache<String,Dictionary> trained = CacheBuilder.newBuilder().maximumSize(MAX_DICTIONARIES).build();
+    private final Cache<Long,Dictionary> known = CacheBuilder.newBuilder().maximumSize(MAX_DICTIONARIES).build();
+
+    /**
+     * @return the trained dictionary for {@code table}, or {@code null} if not enough data has been seen yet
+     */
+    public Dictionary dictionary(String table){
+        return trained.getIfPresent(table);
+    }
+
+    /**
+     * Feed the rows of {@code writes} to the dictionary trainer for {@code table}; this is a no-op once
+     * the dictionary has been built, and while {@code MAX_TRAINERS} other tables are being sampled.
+     */
+    public void sample(String table,BulkWrites writes){
+        if(trained.getIfPresent(table)!=null) return;
+        Trainer trainer = trainers.getIfPresent(table);
+        if(trainer==null){
+            /*
+             * Rather than evicting a trainer which is part way through its sample (and could be evicted again
+             * before it finishes), we wait for one of the others to finish.
+             */
+            if(trainers.size()>=MAX_TRAINERS) return;
+            trainer = new Trainer();
+            Trainer old = trainers.asMap().putIfAbsent(table,trainer);
+            if(old!=null) trainer = old;
+        }
+        Dictionary dictionary;
+        synchronized(trainer){
+            sample:
+            for(BulkWrite bw:writes.getBulkWrites()){
+                for(KVPair kvPair:bw.getMutations()){
+                    if(!trainer.add(kvPair)) break sample;
+                }
+            }
+            dictionary = trainer.dictionary;
+        }
+        if(dictionary!=null){
+            trained.put(table,dictionary);
+            trainers.invalidate(table);
+        }
+    }
+
+    /**
+     * Remember a dictionary which was sent inline.
+     *
+     * @throws IOException if {@code id} is not the id of {@code dictionary}, so that a corrupt (or
+     *                     mislabelled) dictionary is never used to decode a request
+     */
+    public Dictionary register(long id,byte[] dictionary) throws IOException{
+        Dictionary d = new Dictionary(dictionary);
+        if(d.id!=id)
+            throw new IOException("Pipeline compression dictionary does not match its id "+id);
+        known.put(id,d);
+        return d;
+    }
+
+    /**
+     * @return the dictionary with id {@code id}, or {@code null} if no client has sent it (or it has been
+     * forgotten)
+     */
+    public Dictionary lookup(long id){
+        return known.getIfPresent(id);
+    }
+
+    public static long id(byte[] dictionary){
+        MessageDigest digest;
+        try{
+            digest = MessageDigest.getInstance("SHA-256");
+        }catch(NoSuchAlgorithmException e){
+            //every JVM is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+        return Bytes.toLong(digest.digest(dictionary));
+    }
+
+    /**
+     * A trained dictionary, along with its id.
+     */
+    public static final class Dictionary{
+        private final long id;
+        private final byte[] bytes;
+
+        public Dictionary(byte[] bytes){
+            this.bytes = bytes;
+            this.id = id(bytes);
+        }
+
+        public long id(){
+            return id;
+        }
+
+        public byte[] bytes(){
+            return bytes;
+        }
+    }
+
+    /*****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private static class Trainer{
+        private byte[] buffer = new byte[4*MAX_SIZE];
+        private int size;
+        private int rows;
+        private Dictionary dictionary;
+
+        /**
+         * @return false once the dictionary has been built and no more samples are required
+         */
+        boolean add(KVPair kvPair){
+            if(dictionary!=null) return false;
+            append(kvPair.rowKeySlice());
+            append(kvPair.valueSlice());
+            rows++;
+            if(rows>=SAMPLE_ROWS || size>=buffer.length){
+                /*
+                 * LZ4 and Deflate both favour the end of a dictionary (it is the closest history to the data),
+                 * so the most recent samples are the ones we keep.
+                 */
+                int len = Math.min(size,MAX_SIZE);
+                byte[] dict = new byte[len];
+                System.arraycopy(buffer,size-len,dict,0,len);
+                buffer = null;
+                dictionary = new Dictionary(dict);
+                return false;
+            }
+            return true;
+        }
+
+        private void append(ByteSlice slice){
+            int len = Math.min(slice.length(),buffer.length-size);
+            if(len<=0) return;
+            System.arraycopy(slice.array(),slice.offset(),buffer,size,len);
+            size+=len;
+        }
+    }
+}
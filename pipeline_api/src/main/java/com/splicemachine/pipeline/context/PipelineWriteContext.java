@@ -33,7 +33,6 @@ import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
 import org.sparkproject.guava.collect.Maps;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -112,8 +111,7 @@ public class PipelineWriteContext implements WriteContext, Comparable<PipelineWr
     @Override
     public void result(byte[] resultRowKey, WriteResult result) {
         for (KVPair kvPair : resultsMap.keySet()) {
-            byte[] currentRowKey = kvPair.getRowKey();
-            if (Arrays.equals(currentRowKey, resultRowKey)) {
+            if (kvPair.rowKeySlice().equals(resultRowKey, 0, resultRowKey.length)) {
                 resultsMap.put(kvPair, result);
                 return;
             }
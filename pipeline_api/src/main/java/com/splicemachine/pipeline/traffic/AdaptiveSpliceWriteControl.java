@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.pipeline.traffic;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SpliceWriteControl which adapts the number of writes it admits to the latency it observes.
+ * <p/>
+ * The fixed thread and count limits of the wrapped control remain in force as hard ceilings. On top of those,
+ * dependent and independent writes each have their own {@link AimdLimit}, driven by the latency which the
+ * write pipeline reports back through {@link #recordWriteLatency(Status, int, long)}. When the server starts
+ * taking too long to service writes (for example because a bulk import is saturating it), the number of admitted
+ * rows shrinks quickly, so that other writers on the same server keep reasonable latency; it grows back slowly
+ * once latency recovers.
+ * <p/>
+ * The adaptive check and the permit acquisition are not atomic with respect to each other, so under heavy
+ * contention slightly more than the adaptive limit may be admitted. The wrapped control's limits are still
+ * enforced exactly.
+ */
+public class AdaptiveSpliceWriteControl implements SpliceWriteControl{
+    private static final double BACKOFF_RATIO=0.9d;
+
+    private final SpliceWriteControl delegate;
+    private final AimdLimit dependentLimit;
+    private final AimdLimit independentLimit;
+
+    public AdaptiveSpliceWriteControl(SpliceWriteControl delegate,long targetLatency,TimeUnit unit){
+        this.delegate=delegate;
+        long targetLatencyNanos=unit.toNanos(targetLatency);
+        this.dependentLimit=new AimdLimit(delegate.maxDependentWriteCount(),targetLatencyNanos,BACKOFF_RATIO);
+        this.independentLimit=new AimdLimit(delegate.maxIndependentWriteCount(),targetLatencyNanos,BACKOFF_RATIO);
+    }
+
+    @Override
+    public Status performDependentWrite(int writes){
+        if(!dependentLimit.admits(delegate.getWriteStatus().getDependentWriteCount(),writes))
+            return Status.REJECTED;
+        return delegate.performDependentWrite(writes);
+    }
+
+    @Override
+    public boolean finishDependentWrite(int writes){
+        return delegate.finishDependentWrite(writes);
+    }
+
+    @Override
+    public Status performIndependentWrite(int writes){
+        if(!independentLimit.admits(delegate.getWriteStatus().getIndependentWriteCount(),writes))
+            return performDependentWrite(writes); // Attempt to steal, as the fixed controls do
+        return delegate.performIndependentWrite(writes);
+    }
+
+    @Override
+    public boolean finishIndependentWrite(int writes){
+        return delegate.finishIndependentWrite(writes);
+    }
+
+    @Override
+    public void recordWriteLatency(Status status,int writes,long latencyNanos){
+        WriteStatus ws=delegate.getWriteStatus();
+        switch(status){
+            case DEPENDENT:
+                dependentLimit.sample(ws.getDependentWriteCount(),writes,latencyNanos,System.nanoTime());
+                break;
+            case INDEPENDENT:
+                independentLimit.sample(ws.getIndependentWriteCount(),writes,latencyNanos,System.nanoTime());
+                break;
+            default:
+                //rejected writes never held a permit, so they tell us nothing about latency
+        }
+    }
+
+    @Override
+    public long retryAfterMillis(boolean dependent){
+        WriteStatus ws=delegate.getWriteStatus();
+        if(dependent)
+            return dependentLimit.retryAfterMillis(ws.getDependentWriteCount());
+        else
+            return independentLimit.retryAfterMillis(ws.getIndependentWriteCount());
+    }
+
+    @Override
+    public WriteStatus getWriteStatus(){
+        return delegate.getWriteStatus();
+    }
+
+    @Override
+    public int maxDependendentWriteThreads(){
+        return delegate.maxDependendentWriteThreads();
+    }
+
+    @Override
+    public int maxIndependentWriteThreads(){
+        return delegate.maxIndependentWriteThreads();
+    }
+
+    /**
+     * @return the number of dependent writes currently admitted, which is at most the configured maximum.
+     */
+    @Override
+    public int maxDependentWriteCount(){
+        return dependentLimit.getLimit();
+    }
+
+    /**
+     * @return the number of independent writes currently admitted, which is at most the configured maximum.
+     */
+    @Override
+    public int maxIndependentWriteCount(){
+        return independentLimit.getLimit();
+    }
+
+    @Override
+    public void setMaxIndependentWriteThreads(int newMaxIndependentWriteThreads){
+        delegate.setMaxIndependentWriteThreads(newMaxIndependentWriteThreads);
+    }
+
+    @Override
+    public void setMaxDependentWriteThreads(int newMaxDependentWriteThreads){
+        delegate.setMaxDependentWriteThreads(newMaxDependentWriteThreads);
+    }
+
+    @Override
+    public void setMaxIndependentWriteCount(int newMaxIndependentWriteCount){
+        delegate.setMaxIndependentWriteCount(newMaxIndependentWriteCount);
+        independentLimit.setCeiling(newMaxIndependentWriteCount);
+    }
+
+    @Override
+    public void setMaxDependentWriteCount(int newMaxDependentWriteCount){
+        delegate.setMaxDependentWriteCount(newMaxDependentWriteCount);
+        dependentLimit.setCeiling(newMaxDependentWriteCount);
+    }
+}
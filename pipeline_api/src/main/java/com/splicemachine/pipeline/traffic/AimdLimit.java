@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.pipeline.traffic;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An additive-increase/multiplicative-decrease limit on the number of writes (rows) which may be in flight
+ * at the same time.
+ * <p/>
+ * Every completed write reports how long it took. If that is longer than the target latency, the limit is
+ * cut by {@code backoffRatio} (at most once per observed round trip, so that a burst of slow writes which were
+ * all admitted under the old limit only counts once). Otherwise, if the limit is actually being used, it grows
+ * by roughly one write's worth of rows per round trip. The limit never leaves {@code [floor,ceiling]}.
+ */
+@ThreadSafe
+class AimdLimit{
+    private static final long MAX_RETRY_AFTER_MILLIS=2000l;
+
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private volatile int ceiling;
+    private volatile int floor;
+
+    private volatile double limit;
+    private volatile long smoothedLatencyNanos;
+    private long lastDecreaseNanos;
+    private boolean decreased;
+
+    AimdLimit(int ceiling,long targetLatencyNanos,double backoffRatio){
+        assert backoffRatio>0 && backoffRatio<1: "Backoff ratio must be in (0,1)";
+        this.targetLatencyNanos=targetLatencyNanos;
+        this.backoffRatio=backoffRatio;
+        setCeiling(ceiling);
+        this.limit=this.ceiling;
+    }
+
+    boolean admits(int inFlight,int writes){
+        /*
+         * Always admit a write when nothing else is in flight, otherwise a single request which is larger
+         * than the current limit could never get through.
+         */
+        return inFlight<=0 || ((double)inFlight+writes)<=limit;
+    }
+
+    synchronized void sample(int inFlight,int writes,long latencyNanos,long nowNanos){
+        long smoothed=smoothedLatencyNanos;
+        smoothed=smoothed==0?latencyNanos:smoothed+(latencyNanos-smoothed)/8;
+        smoothedLatencyNanos=smoothed;
+
+        double l=limit;
+        if(latencyNanos>targetLatencyNanos){
+            if(!decreased || nowNanos-lastDecreaseNanos>=smoothed){
+                l=Math.max(floor,l*backoffRatio);
+                lastDecreaseNanos=nowNanos;
+                decreased=true;
+            }
+        }else if(((double)inFlight+writes)*2>=l){
+            l=Math.min(ceiling,l+((double)writes*writes)/Math.max(l,1d));
+        }
+        limit=l;
+    }
+
+    long retryAfterMillis(int inFlight){
+        long latency=smoothedLatencyNanos;
+        if(latency<=0) latency=targetLatencyNanos;
+        double l=limit;
+        double overload=l<=0?1d:Math.max(1d,inFlight/l);
+        long millis=(long)Math.ceil(latency*overload/1000000d);
+        return Math.max(1l,Math.min(MAX_RETRY_AFTER_MILLIS,millis));
+    }
+
+    int getLimit(){
+        return (int)limit;
+    }
+
+    int getCeiling(){
+        return ceiling;
+    }
+
+    synchronized void setCeiling(int ceiling){
+        this.ceiling=Math.max(1,ceiling);
+        this.floor=Math.max(1,this.ceiling/100);
+        if(limit>this.ceiling)
+            limit=this.ceiling;
+    }
+}
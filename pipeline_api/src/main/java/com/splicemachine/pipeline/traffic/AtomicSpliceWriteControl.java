@@ -104,6 +104,16 @@ public class AtomicSpliceWriteControl implements SpliceWriteControl{
         }
     }
 
+    @Override
+    public void recordWriteLatency(Status status,int writes,long latencyNanos){
+        //fixed limits do not adapt to latency
+    }
+
+    @Override
+    public long retryAfterMillis(boolean dependent){
+        return 0l;
+    }
+
     @Override
     public WriteStatus getWriteStatus() {
         return writeStatus.get();
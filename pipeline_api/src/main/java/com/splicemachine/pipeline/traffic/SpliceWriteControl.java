@@ -32,6 +32,23 @@ public interface SpliceWriteControl{
 
     boolean finishIndependentWrite(int writes);
 
+    /**
+     * Record how long a write which was admitted with the specified status took to complete. Controls
+     * which adapt to load use this to adjust how many writes they admit; others may ignore it.
+     *
+     * @param status the status the write was admitted with
+     * @param writes the number of writes (rows) in the request
+     * @param latencyNanos the time (in nanoseconds) the write held its permit
+     */
+    void recordWriteLatency(Status status,int writes,long latencyNanos);
+
+    /**
+     * @param dependent whether the rejected write was dependent or independent
+     * @return how long (in milliseconds) a rejected write should wait before trying again, or 0
+     * if this control has no opinion.
+     */
+    long retryAfterMillis(boolean dependent);
+
     WriteStatus getWriteStatus();
 
     int maxDependendentWriteThreads();
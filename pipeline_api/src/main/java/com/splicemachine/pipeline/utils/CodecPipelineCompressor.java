@@ -0,0 +1,254 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.utils;
+
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.PipelineEncoding;
+import com.splicemachine.pipeline.compression.CodecNegotiationException;
+import com.splicemachine.pipeline.compression.DeflatePipelineCodec;
+import com.splicemachine.pipeline.compression.Lz4PipelineCodec;
+import com.splicemachine.pipeline.compression.PipelineCodec;
+import com.splicemachine.pipeline.compression.PipelineCodecs;
+import com.splicemachine.pipeline.compression.PipelineDictionaries;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.utils.ByteSlice;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * PipelineCompressor which frames the BulkWrites of another compressor with a pluggable {@link PipelineCodec}.
+ *
+ * Every framed message carries its own codec id, so the two ends of a call do not need to agree on a codec ahead
+ * of time; they only need to both know it. The frame is laid out as
+ * <pre>
+ *     [codec id (1)][flags (1)][uncompressed length (4)]
+ *     [dictionary id (8)]                      (if FLAG_DICTIONARY)
+ *     [dictionary length (4)][dictionary bytes] (if FLAG_INLINE_DICTIONARY)
+ *     [payload]
+ * </pre>
+ * A receiver which does not know the codec, or does not yet have the referenced dictionary, fails with a
+ * {@link CodecNegotiationException}; the sender then retries with {@code renegotiate} set, which inlines the
+ * dictionary and restricts itself to the built-in codecs. A receiver never decodes with a dictionary whose id
+ * does not match the one in the frame.
+ *
+ * Framing is opt-in, so that servers which predate it can still be written to during a rolling upgrade: with the
+ * "none" codec (the default), and whenever compressing would not pay for itself, the request is sent exactly as the
+ * delegate encoded it. The receiver tells the two apart by the first byte, which is never negative in a frame
+ * (codec ids lie in [0,127]) and always negative in an unframed BulkWrites (it starts with an encoded,
+ * non-negative length). Responses are never framed.
+ */
+public class CodecPipelineCompressor implements PipelineCompressor{
+    private static final Logger LOG = Logger.getLogger(CodecPipelineCompressor.class);
+    public static final byte FLAG_DICTIONARY = 0x01;
+    public static final byte FLAG_INLINE_DICTIONARY = 0x02;
+    private static final int HEADER_SIZE = 6;
+    /*
+     * Below this size the frame overhead and the call setup dominate, so we don't bother compressing
+     * unless we have a dictionary to make it worthwhile
+     */
+    private static final int MIN_COMPRESS_SIZE = 256;
+    /*
+     * Dictionaries only help when the message itself is too small to have much history of its own
+     */
+    private static final int MAX_DICTIONARY_MESSAGE_SIZE = 64*1024;
+
+    private final PipelineCompressor delegate;
+    private final TxnOperationFactory operationFactory;
+    private final PipelineCodec codec;
+    private final boolean useDictionaries;
+    /*
+     * the receiving side always needs to be able to remember dictionaries, even if it does not use them
+     * when sending
+     */
+    private final PipelineDictionaries dictionaries = new PipelineDictionaries();
+
+    public CodecPipelineCompressor(PipelineCompressor delegate,
+                                   TxnOperationFactory operationFactory,
+                                   String codecName,
+                                   boolean useDictionaries){
+        this.delegate = delegate;
+        this.operationFactory = operationFactory;
+        PipelineCodec c = PipelineCodecs.forName(codecName);
+        if(c==null || !c.isAvailable()){
+            LOG.warn("Pipeline compression codec "+codecName+" is not available, sending writes uncompressed");
+            c = PipelineCodecs.NONE;
+        }
+        this.codec = c;
+        this.useDictionaries = useDictionaries && codec.supportsDictionary();
+    }
+
+    public PipelineCodec codec(){
+        return codec;
+    }
+
+    @Override
+    public InputStream compressedInput(InputStream input) throws IOException{
+        return delegate.compressedInput(input);
+    }
+
+    @Override
+    public OutputStream compress(OutputStream output) throws IOException{
+        return delegate.compress(output);
+    }
+
+    @Override
+    public byte[] compress(Object o) throws IOException{
+        byte[] data = delegate.compress(o);
+        if(!(o instanceof BulkWrites))
+            return data;
+        return frame(codec,data,null,false);
+    }
+
+    /**
+     * Compress a write destined for {@code table}.
+     *
+     * @param renegotiate true if the previous attempt failed with a {@link CodecNegotiationException}; the
+     *                    dictionary (if any) is sent inline, and only built-in codecs are used.
+     */
+    public byte[] compressRequest(BulkWrites write,String table,boolean renegotiate) throws IOException{
+        byte[] data = delegate.compress(write);
+        PipelineCodec c = codec;
+        if(c.id()==PipelineCodecs.NONE.id())
+            return data;
+        if(renegotiate && c.id()!=Lz4PipelineCodec.ID && c.id()!=DeflatePipelineCodec.ID){
+            //the receiver may not have the native library (or plugin) for our codec, but it always has these
+            c = PipelineCodecs.forName(Lz4PipelineCodec.NAME);
+        }
+        PipelineDictionaries.Dictionary dictionary = null;
+        if(useDictionaries && c.supportsDictionary() && data.length<=MAX_DICTIONARY_MESSAGE_SIZE){
+            dictionary = dictionaries.dictionary(table);
+            if(dictionary==null)
+                dictionaries.sample(table,write);
+        }
+        return frame(c,data,dictionary,renegotiate);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decompress(byte[] bytes,Class<T> clazz) throws IOException{
+        if(!clazz.isAssignableFrom(BulkWrites.class) || !isFramed(bytes))
+            return delegate.decompress(bytes,clazz);
+        PipelineCodec c = PipelineCodecs.forId(bytes[0]);
+        if(c==null || !c.isAvailable())
+            throw new CodecNegotiationException("Unknown pipeline compression codec "+bytes[0]);
+        byte flags = bytes[1];
+        int rawLength = Bytes.toInt(bytes,2);
+        int offset = HEADER_SIZE;
+        byte[] dictionary = null;
+        if((flags & FLAG_DICTIONARY)!=0){
+            long dictId = Bytes.toLong(bytes,offset);
+            offset+=8;
+            PipelineDictionaries.Dictionary d;
+            if((flags & FLAG_INLINE_DICTIONARY)!=0){
+                int dictLength = Bytes.toInt(bytes,offset);
+                offset+=4;
+                byte[] inline = new byte[dictLength];
+                System.arraycopy(bytes,offset,inline,0,dictLength);
+                offset+=dictLength;
+                d = dictionaries.register(dictId,inline);
+            }else{
+                d = dictionaries.lookup(dictId);
+                if(d==null)
+                    throw new CodecNegotiationException("Unknown pipeline compression dictionary "+dictId);
+            }
+            if(d.id()!=dictId)
+                throw new IOException("Pipeline compression dictionary "+d.id()+" was found for id "+dictId);
+            dictionary = d.bytes();
+        }
+        /*
+         * Decode where the data lies, so that the KVPairs are slices over the request buffer (for "none") or
+         * over the codec's output buffer, rather than over yet another copy. The encoding is self-delimiting, so
+         * trailing bytes after the slice do not matter.
+         */
+        ByteSlice raw = c.decompress(bytes,offset,bytes.length-offset,rawLength,dictionary);
+        return (T)PipelineEncoding.decode(operationFactory,raw.array(),raw.offset());
+    }
+
+    /**
+     * @return true if {@code message} was framed by a CodecPipelineCompressor, false if it was sent as-is
+     */
+    public static boolean isFramed(byte[] message){
+        return message.length>0 && message[0]>=0;
+    }
+
+    /**
+     * @return the name of the codec used to build {@code frame}
+     */
+    public static String codecName(byte[] frame){
+        if(!isFramed(frame))
+            return PipelineCodecs.NONE.name();
+        PipelineCodec c = PipelineCodecs.forId(frame[0]);
+        return c==null?null:c.name();
+    }
+
+    /**
+     * @return the number of bytes {@code frame} holds once decompressed
+     */
+    public static int uncompressedLength(byte[] frame){
+        if(!isFramed(frame))
+            return frame.length;
+        return Bytes.toInt(frame,2);
+    }
+
+    /*****************************************************************************************************************/
+    /*private helper methods*/
+    private static byte[] frame(PipelineCodec c,byte[] data,PipelineDictionaries.Dictionary dictionary,boolean inline) throws IOException{
+        byte[] payload = null;
+        if(data.length>=MIN_COMPRESS_SIZE || dictionary!=null){
+            payload = c.compress(data,0,data.length,dictionary==null?null:dictionary.bytes());
+            if(payload.length>=data.length){
+                //incompressible, send it as-is
+                payload = null;
+            }
+        }
+        if(payload==null){
+            //not worth a frame either; the receiver reads unframed messages as-is
+            return data;
+        }
+        int headerSize = HEADER_SIZE;
+        byte flags = 0;
+        if(dictionary!=null){
+            flags|=FLAG_DICTIONARY;
+            headerSize+=8;
+            if(inline){
+                flags|=FLAG_INLINE_DICTIONARY;
+                headerSize+=4+dictionary.bytes().length;
+            }
+        }
+        byte[] frame = new byte[headerSize+payload.length];
+        frame[0] = c.id();
+        frame[1] = flags;
+        Bytes.toBytes(data.length,frame,2);
+        int offset = HEADER_SIZE;
+        if(dictionary!=null){
+            Bytes.toBytes(dictionary.id(),frame,offset);
+            offset+=8;
+            if(inline){
+                byte[] dict = dictionary.bytes();
+                Bytes.toBytes(dict.length,frame,offset);
+                offset+=4;
+                System.arraycopy(dict,0,frame,offset,dict.length);
+                offset+=dict.length;
+            }
+        }
+        System.arraycopy(payload,0,frame,offset,payload.length);
+        return frame;
+    }
+}
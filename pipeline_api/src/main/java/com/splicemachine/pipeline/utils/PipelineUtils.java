@@ -38,6 +38,7 @@ public class PipelineUtils{
     private static final Logger LOG=Logger.getLogger(PipelineUtils.class);
     public static final int RETRY_BACKOFF[] = {1, 2, 3, 5, 10, 20, 40, 100, 100, 100, 100, 200, 200};
     private static final Random RANDOM = new Random();
+    static final float HINT_JITTER = 0.5f;
     public static final PreFlushHook noOpFlushHook = new PreFlushHook() {
         @Override
         public Collection<KVPair> transform(Collection<KVPair> buffer) throws Exception {
@@ -96,4 +97,23 @@ public class PipelineUtils{
         return normalPause + jitter;
     }
 
+    /**
+     * Get the pause time in millis before retrying a write which the server asked us to hold off on.
+     *
+     * The server's hint is a lower bound, never a replacement for our own backoff: if it were, a client which
+     * keeps being rejected would never back off any further than the hint. Every client throttled by the same
+     * server gets the same hint, so it is spread by up to {@link #HINT_JITTER} to keep them from retrying
+     * in lockstep.
+     *
+     * @param tries the number of attempts made so far
+     * @param pause the base pause, as in {@link #getPauseTime(int, long)}
+     * @param retryAfterMillis the server's hint, or 0 if it gave none
+     */
+    public static long getPauseTime(final int tries,final long pause,final long retryAfterMillis){
+        long backoff = getPauseTime(tries,pause);
+        if(retryAfterMillis<=backoff)
+            return backoff;
+        return retryAfterMillis + (long)(retryAfterMillis * RANDOM.nextFloat() * HINT_JITTER);
+    }
+
 }
\ No newline at end of file
@@ -74,7 +74,7 @@ public class PartitionWriteHandler implements WriteHandler {
             ctx.failed(kvPair, WriteResult.wrongRegion());
         else {
             if (kvPair.getType() == KVPair.Type.CANCEL){
-                mutations.add(new KVPair(kvPair.getRowKey(), kvPair.getValue(), KVPair.Type.DELETE));
+                mutations.add(new KVPair(kvPair.rowKeySlice(), kvPair.valueSlice(), KVPair.Type.DELETE));
             }
             else
                 mutations.add(kvPair);
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.pipeline.compression;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.utils.ByteSlice;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@Category(ArchitectureIndependent.class)
+public class PipelineCodecTest{
+
+    @Test
+    public void lz4RoundTrips() throws Exception{
+        assertRoundTrips(new Lz4PipelineCodec());
+    }
+
+    @Test
+    public void deflateRoundTrips() throws Exception{
+        assertRoundTrips(new DeflatePipelineCodec());
+    }
+
+    @Test
+    public void dictionaryImprovesSmallMessages() throws Exception{
+        byte[] dictionary = rowLike(new Random(1l),PipelineDictionaries.MAX_SIZE);
+        byte[] message = rowLike(new Random(1l),200);
+        for(PipelineCodec codec:new PipelineCodec[]{new Lz4PipelineCodec(),new DeflatePipelineCodec()}){
+            byte[] plain = codec.compress(message,0,message.length,null);
+            byte[] withDict = codec.compress(message,0,message.length,dictionary);
+            assertTrue(codec.name()+" did not benefit from the dictionary",withDict.length<plain.length);
+            assertArrayEquals(message,codec.decompress(withDict,0,withDict.length,message.length,dictionary).getByteCopy());
+        }
+    }
+
+    @Test
+    public void registryResolvesBuiltInCodecs() throws Exception{
+        assertEquals(Lz4PipelineCodec.ID,PipelineCodecs.forName("LZ4").id());
+        assertEquals(DeflatePipelineCodec.NAME,PipelineCodecs.forId(DeflatePipelineCodec.ID).name());
+        assertEquals("none",PipelineCodecs.forId((byte)0).name());
+        assertNull(PipelineCodecs.forName("doesNotExist"));
+    }
+
+    @Test
+    public void lz4DecodesBehindTheDictionaryWithoutCopying() throws Exception{
+        byte[] dictionary = rowLike(new Random(1l),PipelineDictionaries.MAX_SIZE);
+        byte[] message = rowLike(new Random(2l),500);
+        Lz4PipelineCodec codec = new Lz4PipelineCodec();
+        byte[] compressed = codec.compress(message,0,message.length,dictionary);
+        ByteSlice decompressed = codec.decompress(compressed,0,compressed.length,message.length,dictionary);
+        assertEquals("the data should be sliced out of the history buffer",dictionary.length,decompressed.offset());
+        assertEquals(dictionary.length+message.length,decompressed.array().length);
+        assertArrayEquals(message,decompressed.getByteCopy());
+    }
+
+    @Test
+    public void noneSlicesTheInput() throws Exception{
+        byte[] data = rowLike(new Random(0l),100);
+        ByteSlice slice = PipelineCodecs.NONE.decompress(data,10,80,80,null);
+        assertSame(data,slice.array());
+        assertEquals(10,slice.offset());
+        assertEquals(80,slice.length());
+    }
+
+    @Test
+    public void negativeCodecIdsAreRejected() throws Exception{
+        PipelineCodecs.register(new Lz4PipelineCodec(){
+            @Override public byte id(){ return -3; }
+            @Override public String name(){ return "negative"; }
+        });
+        assertNull(PipelineCodecs.forId((byte)-3));
+        assertNull(PipelineCodecs.forName("negative"));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void assertRoundTrips(PipelineCodec codec) throws Exception{
+        Random random = new Random(0l);
+        for(int size:new int[]{0,1,15,64,1000,70000}){
+            byte[][] inputs = new byte[][]{rowLike(random,size),noise(random,size),new byte[size]};
+            for(byte[] input:inputs){
+                //compress from the middle of a larger buffer, to make sure offsets are respected
+                byte[] buffer = new byte[input.length+20];
+                System.arraycopy(input,0,buffer,10,input.length);
+                byte[] compressed = codec.compress(buffer,10,input.length,null);
+                byte[] decompressed = codec.decompress(compressed,0,compressed.length,input.length,null).getByteCopy();
+                assertArrayEquals(codec.name()+" failed to round trip "+size+" bytes",input,decompressed);
+            }
+        }
+    }
+
+    private static byte[] noise(Random random,int size){
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        return data;
+    }
+
+    /*
+     * Data which looks vaguely like encoded rows: a repeating set of fields with a few varying bytes
+     */
+    private static byte[] rowLike(Random random,int size){
+        byte[] data = new byte[size];
+        byte[] template = "\u0000\u0001ACCT-00\u0000 status=ACTIVE\u0000 region=NORTHWEST\u0000".getBytes();
+        for(int i=0;i<size;i++){
+            data[i] = template[i%template.length];
+            if(i%template.length==7)
+                data[i] = (byte)('0'+random.nextInt(10));
+        }
+        return data;
+    }
+}
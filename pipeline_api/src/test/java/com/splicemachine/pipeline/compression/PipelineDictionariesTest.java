@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.compression;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+@Category(ArchitectureIndependent.class)
+public class PipelineDictionariesTest{
+
+    @Test
+    public void dictionaryIsBuiltOnceEnoughRowsAreSeen() throws Exception{
+        PipelineDictionaries dictionaries = new PipelineDictionaries();
+        dictionaries.sample("1184",write("1184",500));
+        assertNull(dictionaries.dictionary("1184"));
+        dictionaries.sample("1184",write("1184",600));
+        PipelineDictionaries.Dictionary dictionary = dictionaries.dictionary("1184");
+        assertNotNull(dictionary);
+        assertEquals(PipelineDictionaries.id(dictionary.bytes()),dictionary.id());
+    }
+
+    @Test
+    public void onlyAFewTablesAreSampledAtOnce() throws Exception{
+        PipelineDictionaries dictionaries = new PipelineDictionaries();
+        for(int i=0;i<PipelineDictionaries.MAX_TRAINERS;i++){
+            dictionaries.sample(Integer.toString(i),write(Integer.toString(i),10));
+        }
+        dictionaries.sample("late",write("late",2000));
+        assertNull("every trainer is busy",dictionaries.dictionary("late"));
+
+        //once a table is done, its trainer makes room for another
+        dictionaries.sample("0",write("0",2000));
+        assertNotNull(dictionaries.dictionary("0"));
+        dictionaries.sample("late",write("late",2000));
+        assertNotNull(dictionaries.dictionary("late"));
+    }
+
+    @Test
+    public void dictionariesAreLookedUpByTheirId() throws Exception{
+        PipelineDictionaries dictionaries = new PipelineDictionaries();
+        byte[] bytes = Bytes.toBytes("status=ACTIVE region=NORTHWEST");
+        long id = PipelineDictionaries.id(bytes);
+        PipelineDictionaries.Dictionary registered = dictionaries.register(id,bytes);
+        assertSame(registered,dictionaries.lookup(id));
+        assertArrayEquals(bytes,dictionaries.lookup(id).bytes());
+        assertNull(dictionaries.lookup(id+1));
+    }
+
+    @Test
+    public void dictionaryWhichDoesNotMatchItsIdIsRejected() throws Exception{
+        PipelineDictionaries dictionaries = new PipelineDictionaries();
+        byte[] bytes = Bytes.toBytes("status=ACTIVE region=NORTHWEST");
+        long id = PipelineDictionaries.id(bytes);
+        byte[] other = Bytes.toBytes("status=ACTIVE region=NORTHEAST");
+        assertNotEquals(id,PipelineDictionaries.id(other));
+        try{
+            dictionaries.register(id,other);
+            fail("a dictionary should only be registered under its own id");
+        }catch(IOException expected){ }
+        assertNull(dictionaries.lookup(id));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static BulkWrites write(String table,int rows){
+        List<KVPair> kvPairs = new ArrayList<>(rows);
+        for(int i=0;i<rows;i++){
+            kvPairs.add(new KVPair(Bytes.toBytes(i),Bytes.toBytes("status=ACTIVE region=NORTHWEST"),KVPair.Type.INSERT));
+        }
+        return new BulkWrites(Collections.singletonList(new BulkWrite(kvPairs,table)),mock(TxnView.class));
+    }
+}
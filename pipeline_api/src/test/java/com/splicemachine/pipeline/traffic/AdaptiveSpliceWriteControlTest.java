@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(ArchitectureIndependent.class)
+public class AdaptiveSpliceWriteControlTest {
+    private static final long TARGET=TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void slowWritesShrinkTheLimitOncePerRoundTrip() {
+        AimdLimit limit = new AimdLimit(1000, TARGET, 0.5d);
+        long now = 0l;
+        limit.sample(500, 100, TimeUnit.MILLISECONDS.toNanos(50), now);
+        assertEquals(500, limit.getLimit());
+
+        //still within the same round trip, so this slow write was admitted under the old limit
+        limit.sample(500, 100, TimeUnit.MILLISECONDS.toNanos(50), now + TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(500, limit.getLimit());
+
+        limit.sample(500, 100, TimeUnit.MILLISECONDS.toNanos(50), now + TimeUnit.SECONDS.toNanos(1));
+        assertEquals(250, limit.getLimit());
+    }
+
+    @Test
+    public void limitStaysWithinBounds() {
+        AimdLimit limit = new AimdLimit(1000, TARGET, 0.5d);
+        long now = 0l;
+        for (int i = 0; i < 100; i++) {
+            now += TimeUnit.SECONDS.toNanos(1);
+            limit.sample(1000, 100, TimeUnit.MILLISECONDS.toNanos(50), now);
+        }
+        assertEquals("Limit should not drop below the floor", 10, limit.getLimit());
+
+        for (int i = 0; i < 10000; i++) {
+            now += TimeUnit.MILLISECONDS.toNanos(1);
+            limit.sample(limit.getLimit(), 100, TimeUnit.MILLISECONDS.toNanos(1), now);
+        }
+        assertEquals("Limit should recover to the ceiling", 1000, limit.getLimit());
+    }
+
+    @Test
+    public void idleLimitAlwaysAdmits() {
+        AimdLimit limit = new AimdLimit(10, TARGET, 0.5d);
+        assertTrue(limit.admits(0, 1000));
+        assertTrue(!limit.admits(5, 10));
+    }
+
+    @Test
+    public void retryHintIsBounded() {
+        AimdLimit limit = new AimdLimit(1000, TARGET, 0.5d);
+        assertEquals(10, limit.retryAfterMillis(0));
+        limit.sample(1000, 100, TimeUnit.SECONDS.toNanos(60), 0l);
+        assertEquals(2000, limit.retryAfterMillis(100000));
+    }
+
+    @Test
+    public void independentWritesAreStolenWhenOverTheAdaptiveLimit() {
+        SpliceWriteControl writeControl = new AdaptiveSpliceWriteControl(new AtomicSpliceWriteControl(10, 10, 1000, 1000), 1, TimeUnit.NANOSECONDS);
+
+        assertEquals(SpliceWriteControl.Status.INDEPENDENT, writeControl.performIndependentWrite(500));
+        writeControl.recordWriteLatency(SpliceWriteControl.Status.INDEPENDENT, 500, TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(900, writeControl.maxIndependentWriteCount());
+        assertEquals(1000, writeControl.maxDependentWriteCount());
+
+        assertEquals(SpliceWriteControl.Status.DEPENDENT, writeControl.performIndependentWrite(450));
+        assertTrue(writeControl.retryAfterMillis(false) > 0);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.utils;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.PipelineEncoding;
+import com.splicemachine.pipeline.compression.CodecNegotiationException;
+import com.splicemachine.pipeline.compression.Lz4PipelineCodec;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class CodecPipelineCompressorTest{
+    private static final String TABLE = "1184";
+
+    private TxnOperationFactory operationFactory;
+    private PipelineCompressor legacy;
+
+    @Before
+    public void setUp() throws Exception{
+        operationFactory = mock(TxnOperationFactory.class);
+        when(operationFactory.encode(any(TxnView.class))).thenReturn(new byte[]{1,2,3});
+        when(operationFactory.decode(any(byte[].class),anyInt(),anyInt())).thenReturn(mock(TxnView.class));
+        legacy = new TestCompressor(operationFactory);
+    }
+
+    @Test
+    public void noneSendsTheLegacyEncoding() throws Exception{
+        CodecPipelineCompressor compressor = compressor("none",false);
+        BulkWrites write = write(500);
+        byte[] request = compressor.compressRequest(write,TABLE,false);
+        assertArrayEquals(legacy.compress(write),request);
+        assertFalse(CodecPipelineCompressor.isFramed(request));
+        assertEquals("none",CodecPipelineCompressor.codecName(request));
+        assertEquals(request.length,CodecPipelineCompressor.uncompressedLength(request));
+
+        //a server which predates the frame decodes it with the plain compressor
+        assertWrite(500,legacy.decompress(request,BulkWrites.class));
+    }
+
+    @Test
+    public void unknownCodecFallsBackToNone() throws Exception{
+        CodecPipelineCompressor compressor = compressor("doesNotExist",false);
+        assertEquals("none",compressor.codec().name());
+        assertFalse(CodecPipelineCompressor.isFramed(compressor.compressRequest(write(500),TABLE,false)));
+    }
+
+    @Test
+    public void unframedRequestsAreReadInPlace() throws Exception{
+        byte[] request = legacy.compress(write(10));
+        BulkWrites decoded = compressor("lz4",false).decompress(request,BulkWrites.class);
+        assertWrite(10,decoded);
+        for(KVPair kvPair:decoded.getBulkWrites().iterator().next().getMutations()){
+            assertSame("rows should be slices over the request",request,kvPair.rowKeySlice().array());
+        }
+    }
+
+    @Test
+    public void lz4FramesLargeRequests() throws Exception{
+        CodecPipelineCompressor compressor = compressor("lz4",false);
+        BulkWrites write = write(500);
+        byte[] request = compressor.compressRequest(write,TABLE,false);
+        assertTrue(CodecPipelineCompressor.isFramed(request));
+        assertEquals(Lz4PipelineCodec.NAME,CodecPipelineCompressor.codecName(request));
+        assertEquals(legacy.compress(write).length,CodecPipelineCompressor.uncompressedLength(request));
+        assertTrue(request.length<legacy.compress(write).length);
+        assertWrite(500,compressor("none",false).decompress(request,BulkWrites.class));
+    }
+
+    @Test
+    public void smallRequestsAreNotFramed() throws Exception{
+        byte[] request = compressor("lz4",false).compressRequest(write(1),TABLE,false);
+        assertFalse("compressing would not pay for itself",CodecPipelineCompressor.isFramed(request));
+        assertWrite(1,legacy.decompress(request,BulkWrites.class));
+    }
+
+    @Test
+    public void responsesAreNeverFramed() throws Exception{
+        CodecPipelineCompressor compressor = compressor("lz4",false);
+        byte[] response = compressor.compress("a response which is long enough to be worth compressing, but isn't");
+        assertArrayEquals(legacy.compress("a response which is long enough to be worth compressing, but isn't"),response);
+        assertEquals("ok",compressor.decompress(legacy.compress("ok"),String.class));
+    }
+
+    @Test
+    public void dictionaryIsRenegotiatedAndDecodedBehindItsHistory() throws Exception{
+        CodecPipelineCompressor client = compressor("lz4",true);
+        CodecPipelineCompressor server = compressor("lz4",true);
+        //the first write trains the dictionary
+        server.decompress(client.compressRequest(write(1100),TABLE,false),BulkWrites.class);
+
+        BulkWrites write = write(20);
+        try{
+            server.decompress(client.compressRequest(write,TABLE,false),BulkWrites.class);
+            fail("the server has not seen the dictionary yet");
+        }catch(CodecNegotiationException expected){ }
+
+        byte[] request = client.compressRequest(write,TABLE,true);
+        int rawLength = CodecPipelineCompressor.uncompressedLength(request);
+        BulkWrites decoded = server.decompress(request,BulkWrites.class);
+        assertWrite(20,decoded);
+        KVPair first = decoded.getBulkWrites().iterator().next().getMutations().iterator().next();
+        assertTrue("rows should be slices over the decompression buffer, not a copy of it",
+                first.rowKeySlice().array().length>rawLength);
+
+        //now the server knows the dictionary, so it only needs to be referenced
+        assertWrite(20,server.decompress(client.compressRequest(write,TABLE,false),BulkWrites.class));
+    }
+
+    @Test
+    public void inlineDictionaryWhichDoesNotMatchItsIdIsRejected() throws Exception{
+        CodecPipelineCompressor client = compressor("lz4",true);
+        client.compressRequest(write(1100),TABLE,false);
+        byte[] request = client.compressRequest(write(20),TABLE,true);
+        assertEquals(CodecPipelineCompressor.FLAG_DICTIONARY|CodecPipelineCompressor.FLAG_INLINE_DICTIONARY,request[1]);
+
+        //the id follows the header, and the dictionary follows its length
+        byte[] wrongId = request.clone();
+        wrongId[6]^=1;
+        assertRejected(compressor("lz4",true),wrongId);
+        byte[] wrongDictionary = request.clone();
+        wrongDictionary[6+8+4]^=1;
+        assertRejected(compressor("lz4",true),wrongDictionary);
+    }
+
+    @Test
+    public void unknownDictionaryIdIsNeverDecodedWithAnotherDictionary() throws Exception{
+        CodecPipelineCompressor client = compressor("lz4",true);
+        CodecPipelineCompressor server = compressor("lz4",true);
+        client.compressRequest(write(1100),TABLE,false);
+        server.decompress(client.compressRequest(write(20),TABLE,true),BulkWrites.class);
+
+        byte[] request = client.compressRequest(write(20),TABLE,false);
+        request[6+7]^=1;
+        try{
+            server.decompress(request,BulkWrites.class);
+            fail("the server only knows the dictionary under its own id");
+        }catch(CodecNegotiationException expected){ }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void assertRejected(CodecPipelineCompressor server,byte[] request){
+        try{
+            server.decompress(request,BulkWrites.class);
+            fail("the dictionary does not match its id");
+        }catch(CodecNegotiationException e){
+            fail("the dictionary was sent, it is just wrong: "+e.getMessage());
+        }catch(IOException expected){ }
+    }
+
+    private CodecPipelineCompressor compressor(String codec,boolean useDictionaries){
+        return new CodecPipelineCompressor(legacy,operationFactory,codec,useDictionaries);
+    }
+
+    private static BulkWrites write(int rows){
+        List<KVPair> kvPairs = new ArrayList<>(rows);
+        for(int i=0;i<rows;i++){
+            kvPairs.add(new KVPair(Bytes.toBytes(i),Bytes.toBytes("status=ACTIVE region=NORTHWEST"),KVPair.Type.INSERT));
+        }
+        return new BulkWrites(Collections.singletonList(new BulkWrite(kvPairs,TABLE)),mock(TxnView.class));
+    }
+
+    private static void assertWrite(int rows,BulkWrites decoded){
+        BulkWrite bw = decoded.getBulkWrites().iterator().next();
+        assertEquals(TABLE,bw.getEncodedStringName());
+        int i=0;
+        for(KVPair kvPair:bw.getMutations()){
+            assertArrayEquals(Bytes.toBytes(i),kvPair.getRowKey());
+            assertEquals(KVPair.Type.INSERT,kvPair.getType());
+            i++;
+        }
+        assertEquals(rows,i);
+    }
+
+    /*
+     * Stands in for SimplePipelineCompressor, with Strings in place of Kryo
+     */
+    private static class TestCompressor implements PipelineCompressor{
+        private final TxnOperationFactory operationFactory;
+
+        TestCompressor(TxnOperationFactory operationFactory){
+            this.operationFactory = operationFactory;
+        }
+
+        @Override public InputStream compressedInput(InputStream input) throws IOException{ return input; }
+        @Override public OutputStream compress(OutputStream output) throws IOException{ return output; }
+
+        @Override
+        public byte[] compress(Object o) throws IOException{
+            if(o instanceof BulkWrites)
+                return PipelineEncoding.encode(operationFactory,(BulkWrites)o);
+            return o.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T decompress(byte[] bytes,Class<T> clazz) throws IOException{
+            if(clazz.isAssignableFrom(BulkWrites.class))
+                return (T)PipelineEncoding.decode(operationFactory,bytes);
+            return (T)new String(bytes,StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.utils;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertTrue;
+
+@Category(ArchitectureIndependent.class)
+public class PipelineUtilsTest{
+
+    @Test
+    public void withoutAHintTheBackoffIsUsed() throws Exception{
+        long pause = PipelineUtils.getPauseTime(3,10,0l);
+        assertTrue("pause "+pause+" is not the backoff for the 4th attempt",pause>=50l && pause<=50l*101/100);
+    }
+
+    @Test
+    public void aHintShorterThanTheBackoffIsIgnored() throws Exception{
+        long pause = PipelineUtils.getPauseTime(12,10,100l);
+        assertTrue("the client should keep backing off: "+pause,pause>=2000l);
+    }
+
+    @Test
+    public void hintsAreSpreadOut() throws Exception{
+        Set<Long> pauses = new HashSet<>();
+        for(int i=0;i<100;i++){
+            long pause = PipelineUtils.getPauseTime(1,10,1000l);
+            assertTrue("the server's hint is a lower bound: "+pause,pause>=1000l);
+            assertTrue("too much jitter: "+pause,pause<=1000l*(1+PipelineUtils.HINT_JITTER));
+            pauses.add(pause);
+        }
+        assertTrue("clients given the same hint would retry in lockstep",pauses.size()>10);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.access.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes storage-native files which can later be attached to a table through
+ * {@link PartitionAdmin#bulkLoad(String, String)}, bypassing the write pipeline.
+ *
+ * Cells must be appended in ascending (unsigned) row key order, and each writer
+ * is owned by a single thread.
+ */
+public interface BulkLoadWriter extends Closeable{
+
+    /**
+     * Append a single packed user data cell.
+     *
+     * @param rowKey the row key of the cell. Must sort strictly after the previously appended key
+     * @param version the version (transaction id) to write the cell at
+     * @param value the packed row
+     * @throws IOException if the underlying file cannot be written
+     */
+    void append(byte[] rowKey,long version,byte[] value) throws IOException;
+
+    /**
+     * @return the number of cells appended so far
+     */
+    long getCellCount();
+}
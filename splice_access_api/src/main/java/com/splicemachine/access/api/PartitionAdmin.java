@@ -47,4 +47,26 @@ public interface PartitionAdmin extends AutoCloseable{
     TableDescriptor[] getTableDescriptors(List<String> tables) throws IOException;
 
     void move(String partition,String server) throws IOException;
+
+    /**
+     * Open a writer for a new bulk load file of the specified table. The file is placed
+     * in (or under) {@code directory}, which should be private to a single bulk load.
+     *
+     * @param tableName the table the file will be loaded into
+     * @param directory the staging directory for the table's files
+     * @return a writer for a new file
+     * @throws IOException if the file cannot be created
+     */
+    BulkLoadWriter newBulkLoadWriter(String tableName,String directory) throws IOException;
+
+    /**
+     * Attach every file written by {@link #newBulkLoadWriter(String, String)} into {@code directory}
+     * to the specified table. Each partition of the table loads its files atomically; files which
+     * span more than one partition are split by the implementation before loading.
+     *
+     * @param tableName the table to load into
+     * @param directory the staging directory the files were written to
+     * @throws IOException if the files could not be loaded
+     */
+    void bulkLoad(String tableName,String directory) throws IOException;
 }
@@ -108,6 +108,10 @@ public interface SConfiguration {
 
     int getMaxDependentWrites();
 
+    long getAdaptiveWriteControlTargetLatency();
+
+    boolean isAdaptiveWriteControlEnabled();
+
     int getMaxIndependentWrites();
 
     int getMaxRetries();
@@ -131,6 +135,12 @@ public interface SConfiguration {
     int getSparkResultStreamingBatches();
     int getSparkResultStreamingBatchSize();
 
+    boolean isSparkResultStreamingBinary();
+
+    String getPipelineCompressionCodec();
+
+    boolean isPipelineCompressionDictionary();
+
     // SIConfigurations
     int getActiveTransactionCacheSize();
 
@@ -177,6 +187,8 @@ public interface SConfiguration {
 
     int getBatchOnceBatchSize();
 
+    int getControlSideSpillPartitions();
+
     int getImportMaxQuotedColumnLines();
 
     int getIndexBatchSize();
@@ -195,6 +207,28 @@ public interface SConfiguration {
 
     long getBroadcastRegionRowThreshold();
 
+    long getBroadcastCacheMaxBytes();
+
+    int getControlScanParallelism();
+
+    long getControlScanParallelRowsPerThread();
+
+    int getControlScanQueueSize();
+
+    boolean isResultCacheEnabled();
+
+    long getResultCacheMaxBytes();
+
+    boolean isCompactionPurgeEnabled();
+
+    long getCompactionPurgeRetention();
+
+    boolean isVectorizedAggregationEnabled();
+
+    boolean isRuntimeJoinFiltersEnabled();
+
+    long getControlSideSpillThreshold();
+
     long getOptimizerPlanMaximumTimeout();
 
     long getOptimizerPlanMinimumTimeout();
@@ -203,6 +237,8 @@ public interface SConfiguration {
 
     String getUpgradeForcedFrom();
 
+    String getControlSideSpillDirectory();
+
     String getStorageFactoryHome();
 
     // StatsConfiguration
@@ -96,6 +96,7 @@ public class ConfigurationBuilder {
     public boolean ignoreSavePoints;
     public boolean upgradeForced;
     public int batchOnceBatchSize;
+    public int controlSideSpillPartitions;
     public int importMaxQuotedColumnLines;
     public int indexBatchSize;
     public int indexLookupBlocks;
@@ -109,17 +110,31 @@ public class ConfigurationBuilder {
     public int partitionserverPort;
     public long broadcastRegionMbThreshold;
     public long broadcastRegionRowThreshold;
+    public long broadcastCacheMaxBytes;
+    public int controlScanParallelism;
+    public long controlScanParallelRowsPerThread;
+    public int controlScanQueueSize;
+    public boolean resultCacheEnabled;
+    public long resultCacheMaxBytes;
+    public boolean compactionPurgeEnabled;
+    public long compactionPurgeRetention;
+    public boolean vectorizedAggregationEnabled;
+    public boolean runtimeJoinFiltersEnabled;
+    public long controlSideSpillThreshold;
     public long optimizerPlanMaximumTimeout;
     public long optimizerPlanMinimumTimeout;
     public String networkBindAddress;
     public String upgradeForcedFrom;
     public String storageFactoryHome;
+    public String controlSideSpillDirectory;
 
     // PipelineConfiguration
     public int coreWriterThreads;
     public int ipcThreads;
     public int maxBufferEntries;
     public int maxDependentWrites;
+    public long adaptiveWriteControlTargetLatency;
+    public boolean adaptiveWriteControlEnabled;
     public int maxIndependentWrites;
     public int maxRetries;
     public int maxWriterThreads;
@@ -131,6 +146,9 @@ public class ConfigurationBuilder {
     public long threadKeepaliveTime;
     public String sparkIoCompressionCodec;
     public int sparkResultStreamingBatchSize;
+    public boolean sparkResultStreamingBinary;
+    public String pipelineCompressionCodec;
+    public boolean pipelineCompressionDictionary;
     public int sparkResultStreamingBatches;
     public int compactionReservedSlots;
     public int reservedSlotsTimeout;
@@ -30,6 +30,26 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String MAX_BUFFER_HEAP_SIZE = "splice.client.write.buffer";
     public static final long DEFAULT_WRITE_BUFFER_SIZE = 3*1024*1024;
 
+    /**
+     * The codec used to compress BulkWrites on the wire. "lz4" and "deflate" are pure Java and always available,
+     * "snappy" requires the native Hadoop library and "none" disables compression. Other codecs can be plugged in
+     * through the PipelineCodec service loader. Defaults to none.
+     *
+     * Compressed writes carry a frame header which older servers cannot read, whereas uncompressed writes are sent
+     * in the original format and are accepted by every version. When upgrading, only set a codec once every server
+     * in the cluster is running a version which understands the frame.
+     */
+    public static final String PIPELINE_COMPRESSION_CODEC = "splice.client.write.compression.codec";
+    public static final String DEFAULT_PIPELINE_COMPRESSION_CODEC = "none";
+
+    /**
+     * When enabled, small BulkWrites are compressed against a dictionary trained from the first rows written
+     * to each conglomerate, which helps OLTP batches that are too small to compress well on their own.
+     * Defaults to false.
+     */
+    public static final String PIPELINE_COMPRESSION_DICTIONARY = "splice.client.write.compression.dictionary";
+    public static final boolean DEFAULT_PIPELINE_COMPRESSION_DICTIONARY = false;
+
     public static final String SPARK_IO_COMPRESSION_CODEC = "spark.io.compression.codec";
     public static final String DEFAULT_SPARK_IO_COMPRESSION_CODEC = "lz4";
 
@@ -39,6 +59,14 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String SPARK_RESULT_STREAMING_BATCH_SIZE = "spark.result.streaming.batch.size";
     public static final int DEFAULT_SPARK_RESULT_STREAMING_BATCH_SIZE = 1024;
 
+    /**
+     * When enabled, Spark tasks stream query results to the client as compressed, column-encoded batches
+     * instead of one Kryo-serialized row per message. Disable to fall back to the Kryo row protocol.
+     * Defaults to true.
+     */
+    public static final String SPARK_RESULT_STREAMING_BINARY = "spark.result.streaming.binary";
+    public static final boolean DEFAULT_SPARK_RESULT_STREAMING_BINARY = true;
+
     public static final String SPARK_COMPACTION_RESERVED_SLOTS = "spark.compaction.reserved.slots";
     public static final int DEFAULT_SPARK_COMPACTION_RESERVED_SLOTS = 1;
 
@@ -147,6 +175,27 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String MAX_DEPENDENT_WRITES = "splice.client.write.maxDependentWrites";
     public static final int DEFAULT_MAX_DEPENDENT_WRITES = 40000;
 
+    /**
+     * Whether or not the write pipeline should adapt the number of writes it admits to the latency it is
+     * currently observing. When enabled, {@link #MAX_DEPENDENT_WRITES} and {@link #MAX_INDEPENDENT_WRITES}
+     * become upper bounds, and the number of writes actually admitted is decreased multiplicatively whenever
+     * writes take longer than {@link #ADAPTIVE_WRITE_CONTROL_TARGET_LATENCY}, and increased additively otherwise.
+     * Rejected writes are told how long to wait before retrying.
+     *
+     * Defaults to true
+     */
+    public static final String ADAPTIVE_WRITE_CONTROL_ENABLED = "splice.client.write.adaptiveControl.enabled";
+    public static final boolean DEFAULT_ADAPTIVE_WRITE_CONTROL_ENABLED = true;
+
+    /**
+     * The write latency (in milliseconds) which the adaptive write control aims to keep writes under. Writes
+     * which take longer than this cause the number of admitted writes to be cut back.
+     *
+     * Defaults to 200 ms
+     */
+    public static final String ADAPTIVE_WRITE_CONTROL_TARGET_LATENCY = "splice.client.write.adaptiveControl.targetLatency";
+    public static final long DEFAULT_ADAPTIVE_WRITE_CONTROL_TARGET_LATENCY = 200;
+
     public static final String IPC_THREADS="hbase.regionserver.handler.count";
     public static final int DEFAULT_IPC_THREADS = 200;
 
@@ -158,11 +207,15 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.ipcThreads = configurationSource.getInt(IPC_THREADS, DEFAULT_IPC_THREADS);
         builder.maxIndependentWrites = configurationSource.getInt(MAX_INDEPENDENT_WRITES, DEFAULT_MAX_INDEPENDENT_WRITES);
         builder.maxDependentWrites = configurationSource.getInt(MAX_DEPENDENT_WRITES, DEFAULT_MAX_DEPENDENT_WRITES);
+        builder.adaptiveWriteControlEnabled = configurationSource.getBoolean(ADAPTIVE_WRITE_CONTROL_ENABLED, DEFAULT_ADAPTIVE_WRITE_CONTROL_ENABLED);
+        builder.adaptiveWriteControlTargetLatency = configurationSource.getLong(ADAPTIVE_WRITE_CONTROL_TARGET_LATENCY, DEFAULT_ADAPTIVE_WRITE_CONTROL_TARGET_LATENCY);
         builder.coreWriterThreads = configurationSource.getInt(CORE_WRITER_THREADS, DEFAULT_WRITE_THREADS_CORE);
         builder.maxWriterThreads = configurationSource.getInt(MAX_WRITER_THREADS, DEFAULT_MAX_WRITER_THREADS);
         builder.writeMaxFlushesPerRegion = configurationSource.getInt(WRITE_MAX_FLUSHES_PER_REGION, WRITE_DEFAULT_MAX_FLUSHES_PER_REGION);
         builder.maxRetries = configurationSource.getInt(MAX_RETRIES, DEFAULT_HBASE_CLIENT_RETRIES_NUMBER);
         builder.maxBufferEntries = configurationSource.getInt(MAX_BUFFER_ENTRIES, DEFAULT_MAX_BUFFER_ENTRIES);
+        builder.pipelineCompressionCodec = configurationSource.getString(PIPELINE_COMPRESSION_CODEC, DEFAULT_PIPELINE_COMPRESSION_CODEC);
+        builder.pipelineCompressionDictionary = configurationSource.getBoolean(PIPELINE_COMPRESSION_DICTIONARY, DEFAULT_PIPELINE_COMPRESSION_DICTIONARY);
         builder.pipelineKryoPoolSize = configurationSource.getInt(PIPELINE_KRYO_POOL_SIZE, DEFAULT_PIPELINE_KRYO_POOL_SIZE);
 
         builder.threadKeepaliveTime = configurationSource.getLong(THREAD_KEEPALIVE_TIME, DEFAULT_THREAD_KEEPALIVE_TIME);
@@ -173,6 +226,7 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.sparkIoCompressionCodec = configurationSource.getString(SPARK_IO_COMPRESSION_CODEC, DEFAULT_SPARK_IO_COMPRESSION_CODEC);
         builder.sparkResultStreamingBatches = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCHES, DEFAULT_SPARK_RESULT_STREAMING_BATCHES);
         builder.sparkResultStreamingBatchSize = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCH_SIZE, DEFAULT_SPARK_RESULT_STREAMING_BATCH_SIZE);
+        builder.sparkResultStreamingBinary = configurationSource.getBoolean(SPARK_RESULT_STREAMING_BINARY, DEFAULT_SPARK_RESULT_STREAMING_BINARY);
         builder.compactionReservedSlots = configurationSource.getInt(SPARK_COMPACTION_RESERVED_SLOTS, DEFAULT_SPARK_COMPACTION_RESERVED_SLOTS);
         builder.reservedSlotsTimeout = configurationSource.getInt(SPARK_RESERVED_SLOTS_TIMEOUT, DEFAULT_SPARK_RESERVED_SLOTS_TIMEOUT);
     }
@@ -83,6 +83,8 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int ipcThreads;
     private final  int maxBufferEntries;
     private final  int maxDependentWrites;
+    private final  long adaptiveWriteControlTargetLatency;
+    private final  boolean adaptiveWriteControlEnabled;
     private final  int maxIndependentWrites;
     private final  int maxRetries;
     private final  int maxWriterThreads;
@@ -95,6 +97,9 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  String sparkIoCompressionCodec;
     private final int sparkResultStreamingBatches;
     private final int sparkResultStreamingBatchSize;
+    private final  boolean sparkResultStreamingBinary;
+    private final  String pipelineCompressionCodec;
+    private final  boolean pipelineCompressionDictionary;
     private final int compactionReservedSlots;
     private final int reservedSlotsTimeout;
 
@@ -123,6 +128,7 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  boolean ignoreSavePoints;
     private final  boolean upgradeForced;
     private final  int batchOnceBatchSize;
+    private final  int controlSideSpillPartitions;
     private final  int importMaxQuotedColumnLines;
     private final  int indexBatchSize;
     private final  int indexLookupBlocks;
@@ -132,10 +138,22 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int partitionserverPort;
     private final  long broadcastRegionMbThreshold;
     private final  long broadcastRegionRowThreshold;
+    private final  long broadcastCacheMaxBytes;
+    private final  int controlScanParallelism;
+    private final  long controlScanParallelRowsPerThread;
+    private final  int controlScanQueueSize;
+    private final  boolean resultCacheEnabled;
+    private final  long resultCacheMaxBytes;
+    private final  boolean compactionPurgeEnabled;
+    private final  long compactionPurgeRetention;
+    private final  boolean vectorizedAggregationEnabled;
+    private final  boolean runtimeJoinFiltersEnabled;
+    private final  long controlSideSpillThreshold;
     private final  long optimizerPlanMaximumTimeout;
     private final  long optimizerPlanMinimumTimeout;
     private final  String networkBindAddress;
     private final  String upgradeForcedFrom;
+    private final  String controlSideSpillDirectory;
     private final String storageFactoryHome;
 
     // StatsConfiguration
@@ -294,6 +312,14 @@ public final class SConfigurationImpl implements SConfiguration {
         return maxDependentWrites;
     }
     @Override
+    public long getAdaptiveWriteControlTargetLatency() {
+        return adaptiveWriteControlTargetLatency;
+    }
+    @Override
+    public boolean isAdaptiveWriteControlEnabled() {
+        return adaptiveWriteControlEnabled;
+    }
+    @Override
     public int getMaxIndependentWrites() {
         return maxIndependentWrites;
     }
@@ -343,6 +369,18 @@ public final class SConfigurationImpl implements SConfiguration {
     public int getSparkResultStreamingBatchSize() {
         return sparkResultStreamingBatchSize;
     }
+    @Override
+    public boolean isSparkResultStreamingBinary() {
+        return sparkResultStreamingBinary;
+    }
+    @Override
+    public String getPipelineCompressionCodec() {
+        return pipelineCompressionCodec;
+    }
+    @Override
+    public boolean isPipelineCompressionDictionary() {
+        return pipelineCompressionDictionary;
+    }
 
     // SIConfigurations
     @Override
@@ -436,6 +474,10 @@ public final class SConfigurationImpl implements SConfiguration {
         return batchOnceBatchSize;
     }
     @Override
+    public int getControlSideSpillPartitions() {
+        return controlSideSpillPartitions;
+    }
+    @Override
     public int getImportMaxQuotedColumnLines() {
         return importMaxQuotedColumnLines;
     }
@@ -472,6 +514,50 @@ public final class SConfigurationImpl implements SConfiguration {
         return broadcastRegionRowThreshold;
     }
     @Override
+    public long getBroadcastCacheMaxBytes() {
+        return broadcastCacheMaxBytes;
+    }
+    @Override
+    public int getControlScanParallelism() {
+        return controlScanParallelism;
+    }
+    @Override
+    public long getControlScanParallelRowsPerThread() {
+        return controlScanParallelRowsPerThread;
+    }
+    @Override
+    public int getControlScanQueueSize() {
+        return controlScanQueueSize;
+    }
+    @Override
+    public boolean isResultCacheEnabled() {
+        return resultCacheEnabled;
+    }
+    @Override
+    public long getResultCacheMaxBytes() {
+        return resultCacheMaxBytes;
+    }
+    @Override
+    public boolean isCompactionPurgeEnabled() {
+        return compactionPurgeEnabled;
+    }
+    @Override
+    public long getCompactionPurgeRetention() {
+        return compactionPurgeRetention;
+    }
+    @Override
+    public boolean isVectorizedAggregationEnabled() {
+        return vectorizedAggregationEnabled;
+    }
+    @Override
+    public boolean isRuntimeJoinFiltersEnabled() {
+        return runtimeJoinFiltersEnabled;
+    }
+    @Override
+    public long getControlSideSpillThreshold() {
+        return controlSideSpillThreshold;
+    }
+    @Override
     public long getOptimizerPlanMaximumTimeout() {
         return optimizerPlanMaximumTimeout;
     }
@@ -487,6 +573,10 @@ public final class SConfigurationImpl implements SConfiguration {
     public String getUpgradeForcedFrom() {
         return upgradeForcedFrom;
     }
+    @Override
+    public String getControlSideSpillDirectory() {
+        return controlSideSpillDirectory;
+    }
 
     // StatsConfiguration
     @Override
@@ -662,6 +752,24 @@ public final class SConfigurationImpl implements SConfiguration {
         compactionReservedSlots = builder.compactionReservedSlots;
         reservedSlotsTimeout = builder.reservedSlotsTimeout;
         storageFactoryHome = builder.storageFactoryHome;
+        pipelineCompressionDictionary = builder.pipelineCompressionDictionary;
+        pipelineCompressionCodec = builder.pipelineCompressionCodec;
+        sparkResultStreamingBinary = builder.sparkResultStreamingBinary;
+        compactionPurgeRetention = builder.compactionPurgeRetention;
+        compactionPurgeEnabled = builder.compactionPurgeEnabled;
+        resultCacheMaxBytes = builder.resultCacheMaxBytes;
+        resultCacheEnabled = builder.resultCacheEnabled;
+        controlScanQueueSize = builder.controlScanQueueSize;
+        controlScanParallelRowsPerThread = builder.controlScanParallelRowsPerThread;
+        controlScanParallelism = builder.controlScanParallelism;
+        vectorizedAggregationEnabled = builder.vectorizedAggregationEnabled;
+        adaptiveWriteControlTargetLatency = builder.adaptiveWriteControlTargetLatency;
+        adaptiveWriteControlEnabled = builder.adaptiveWriteControlEnabled;
+        runtimeJoinFiltersEnabled = builder.runtimeJoinFiltersEnabled;
+        broadcastCacheMaxBytes = builder.broadcastCacheMaxBytes;
+        controlSideSpillDirectory = builder.controlSideSpillDirectory;
+        controlSideSpillPartitions = builder.controlSideSpillPartitions;
+        controlSideSpillThreshold = builder.controlSideSpillThreshold;
     }
 
     private static final Logger LOG = Logger.getLogger("splice.config");
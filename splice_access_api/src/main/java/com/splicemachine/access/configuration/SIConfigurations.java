@@ -17,6 +17,8 @@ package com.splicemachine.access.configuration;
 
 import com.splicemachine.primitives.Bytes;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Repository for holding configuration keys for SI.
  * <p/>
@@ -146,6 +148,28 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String ACTIVE_TRANSACTION_CACHE_SIZE="splice.txn.activeCacheSize";
     private static final int DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE = 1<<12;
 
+    /**
+     * When enabled, major compactions of SI-managed tables physically remove row versions which no transaction
+     * can see any longer: everything at or below a committed delete, or below a committed re-insert, whose commit
+     * timestamp is older than the oldest active transaction.
+     *
+     * Read-only transactions are not recorded in the transaction table, so they are only protected by
+     * {@link #COMPACTION_PURGE_RETENTION}.
+     *
+     * Defaults to false
+     */
+    public static final String COMPACTION_PURGE_ENABLED = "splice.txn.compaction.purge.enabled";
+    private static final boolean DEFAULT_COMPACTION_PURGE_ENABLED = false;
+
+    /**
+     * The minimum age (in milliseconds) of a version before it may be removed by a purging compaction. Read-only
+     * transactions which run for longer than this may fail to see rows which were deleted after they began.
+     *
+     * Defaults to 1 hour
+     */
+    public static final String COMPACTION_PURGE_RETENTION = "splice.txn.compaction.purge.retention";
+    private static final long DEFAULT_COMPACTION_PURGE_RETENTION = TimeUnit.HOURS.toMillis(1);
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.completedTxnConcurrency  = configurationSource.getInt(completedTxnConcurrency, DEFAULT_COMPLETED_TRANSACTION_CONCURRENCY);
@@ -164,6 +188,8 @@ public class SIConfigurations implements ConfigurationDefault {
 
         builder.transactionTimeout = configurationSource.getLong(TRANSACTION_TIMEOUT, DEFAULT_TRANSACTION_TIMEOUT);
         builder.transactionKeepAliveInterval = configurationSource.getLong(TRANSACTION_KEEP_ALIVE_INTERVAL, DEFAULT_TRANSACTION_KEEP_ALIVE_INTERVAL);
+        builder.compactionPurgeEnabled = configurationSource.getBoolean(COMPACTION_PURGE_ENABLED, DEFAULT_COMPACTION_PURGE_ENABLED);
+        builder.compactionPurgeRetention = configurationSource.getLong(COMPACTION_PURGE_RETENTION, DEFAULT_COMPACTION_PURGE_RETENTION);
 
     }
 }
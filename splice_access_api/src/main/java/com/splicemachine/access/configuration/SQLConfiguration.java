@@ -72,6 +72,31 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String CONTROL_SIDE_ROWCOUNT_THRESHOLD = "splice.dataset.control.rowCountThreshold";
     private static final double DEFAULT_CONTROL_SIDE_ROWCOUNT_THRESHOLD = 100000D;
 
+    /**
+     * The estimated number of bytes that a single control-side (local) aggregation or sort
+     * may hold on heap before it begins to spill its contents to local disk.
+     *
+     * Defaults to 5% of the maximum heap size
+     */
+    public static final String CONTROL_SIDE_SPILL_THRESHOLD = "splice.dataset.control.spillThreshold";
+    private static final long DEFAULT_CONTROL_SIDE_SPILL_THRESHOLD = Runtime.getRuntime().maxMemory()/20;
+
+    /**
+     * The number of hash partitions a control-side aggregation is split into once it spills
+     * to disk. Each partition must fit within the spill threshold when it is merged back.
+     *
+     * Defaults to 32
+     */
+    public static final String CONTROL_SIDE_SPILL_PARTITIONS = "splice.dataset.control.spillPartitions";
+    private static final int DEFAULT_CONTROL_SIDE_SPILL_PARTITIONS = 32;
+
+    /**
+     * The local directory in which control-side spill files are created.
+     *
+     * Defaults to the value of the java.io.tmpdir system property
+     */
+    public static final String CONTROL_SIDE_SPILL_DIRECTORY = "splice.dataset.control.spillDirectory";
+
     //debug options
     /**
      * For debugging an operation, this will force the query parser to dump any generated
@@ -110,6 +135,89 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String BROADCAST_REGION_ROW_THRESHOLD = "splice.optimizer.broadcastRegionRowThreshold";
     private static final int DEFAULT_BROADCAST_REGION_ROW_THRESHOLD = 1000000;
 
+    /**
+     * The maximum number of bytes that the inner tables of concurrently executing broadcast joins
+     * may hold in a single JVM. Inner tables are held off-heap, so this bounds direct memory rather
+     * than heap. Tables beyond this limit are evicted and reloaded on demand.
+     *
+     * Defaults to 25% of the maximum heap size
+     */
+    public static final String BROADCAST_CACHE_MAX_BYTES = "splice.execution.broadcastCacheMaxBytes";
+    private static final long DEFAULT_BROADCAST_CACHE_MAX_BYTES = Runtime.getRuntime().maxMemory()/4;
+
+    /**
+     * When enabled, inner joins which broadcast their right hand side build a Bloom filter over the
+     * join keys of the right side and push it into the table scan on the left side, so that rows
+     * which cannot match the join are discarded before they are decoded.
+     *
+     * Defaults to true
+     */
+    public static final String RUNTIME_JOIN_FILTERS_ENABLED = "splice.execution.runtimeJoinFilters.enabled";
+    private static final boolean DEFAULT_RUNTIME_JOIN_FILTERS_ENABLED = true;
+
+    /**
+     * When enabled, the first phase of a scalar aggregate buffers the input columns of SUM, COUNT, MIN and MAX
+     * into primitive column vectors, and aggregates each vector in a single loop rather than row by row.
+     * Aggregates over other functions or types are always evaluated row by row.
+     *
+     * Defaults to true
+     */
+    public static final String VECTORIZED_AGGREGATION_ENABLED = "splice.execution.vectorizedAggregation.enabled";
+    private static final boolean DEFAULT_VECTORIZED_AGGREGATION_ENABLED = true;
+
+    /**
+     * The maximum number of region partitions which a single control-side table scan will read concurrently.
+     * The actual number of concurrent partition scans is further limited by the optimizer's row count
+     * estimate (see {@link #CONTROL_SCAN_PARALLEL_ROWS_PER_THREAD}). Set to 1 to always scan serially.
+     *
+     * Defaults to 1 (parallel control-side scans are disabled)
+     */
+    public static final String CONTROL_SCAN_PARALLELISM = "splice.execution.controlScan.parallelism";
+    private static final int DEFAULT_CONTROL_SCAN_PARALLELISM = 1;
+
+    /**
+     * The estimated number of rows which justifies one additional concurrent partition scan in the control
+     * side. Scans which are estimated to return fewer rows than this are always performed serially.
+     *
+     * Defaults to 50000
+     */
+    public static final String CONTROL_SCAN_PARALLEL_ROWS_PER_THREAD = "splice.execution.controlScan.rowsPerThread";
+    private static final long DEFAULT_CONTROL_SCAN_PARALLEL_ROWS_PER_THREAD = 50000L;
+
+    /**
+     * The number of rows which may be buffered for each concurrently scanned partition before the
+     * scanning thread blocks waiting for the consumer.
+     *
+     * Defaults to 1024
+     */
+    public static final String CONTROL_SCAN_QUEUE_SIZE = "splice.execution.controlScan.queueSize";
+    private static final int DEFAULT_CONTROL_SCAN_QUEUE_SIZE = 1024;
+
+    /**
+     * When enabled, the complete results of read-only SELECT statements executed on the control side are
+     * kept in memory, keyed by the statement text, the parameter values and the conglomerates which the
+     * plan reads. A cached result is discarded as soon as one of its conglomerates is written, or when any DDL
+     * is executed, and it is only returned to transactions which are guaranteed to see exactly the same data.
+     *
+     * Writes are applied by the server which hosts the written region, so once a server caches results which read
+     * a conglomerate, every server announces its writes to that conglomerate to the cluster (through the DDL
+     * coordination) before applying them. This adds a cluster-wide round trip to the first write of each
+     * transaction to such a conglomerate. Functions used by cached statements are assumed to be deterministic.
+     *
+     * Defaults to false
+     */
+    public static final String RESULT_CACHE_ENABLED = "splice.execution.resultCache.enabled";
+    private static final boolean DEFAULT_RESULT_CACHE_ENABLED = false;
+
+    /**
+     * The maximum (estimated) number of bytes held by the query result cache. A single result
+     * may occupy at most 1/16th of this space; larger results are never cached.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String RESULT_CACHE_MAX_BYTES = "splice.execution.resultCache.maxBytes";
+    private static final long DEFAULT_RESULT_CACHE_MAX_BYTES = 64L*1024*1024;
+
     /**
      * Minimum fixed duration (in millisecomds) that should be allowed to lapse
      * before the optimizer can determine that it should stop trying to find
@@ -210,6 +318,9 @@ public class SQLConfiguration implements ConfigurationDefault {
         builder.indexLookupBlocks = configurationSource.getInt(INDEX_LOOKUP_BLOCKS, DEFAULT_INDEX_LOOKUP_BLOCKS);
         builder.importMaxQuotedColumnLines = configurationSource.getInt(IMPORT_MAX_QUOTED_COLUMN_LINES, DEFAULT_IMPORT_MAX_QUOTED_COLUMN_LINES);
         builder.batchOnceBatchSize = configurationSource.getInt(BATCH_ONCE_BATCH_SIZE, DEFAULT_BATCH_ONCE_BATCH_SIZE);
+        builder.controlSideSpillThreshold = configurationSource.getLong(CONTROL_SIDE_SPILL_THRESHOLD, DEFAULT_CONTROL_SIDE_SPILL_THRESHOLD);
+        builder.controlSideSpillPartitions = configurationSource.getInt(CONTROL_SIDE_SPILL_PARTITIONS, DEFAULT_CONTROL_SIDE_SPILL_PARTITIONS);
+        builder.controlSideSpillDirectory = configurationSource.getString(CONTROL_SIDE_SPILL_DIRECTORY, System.getProperty("java.io.tmpdir"));
         builder.partitionserverJmxPort = configurationSource.getInt(PARTITIONSERVER_JMX_PORT, DEFAULT_PARTITIONSERVER_JMX_PORT);
         builder.partitionserverPort = configurationSource.getInt(PARTITIONSERVER_PORT, DEFAULT_PARTITIONSERVER_PORT);
         // Where to place jar files...
@@ -223,6 +334,14 @@ public class SQLConfiguration implements ConfigurationDefault {
         builder.optimizerPlanMinimumTimeout = configurationSource.getLong(OPTIMIZER_PLAN_MINIMUM_TIMEOUT, DEFAULT_OPTIMIZER_PLAN_MINIMUM_TIMEOUT);
         builder.broadcastRegionMbThreshold = configurationSource.getLong(BROADCAST_REGION_MB_THRESHOLD, DEFAULT_BROADCAST_REGION_MB_THRESHOLD);
         builder.broadcastRegionRowThreshold = configurationSource.getLong(BROADCAST_REGION_ROW_THRESHOLD, DEFAULT_BROADCAST_REGION_ROW_THRESHOLD);
+        builder.broadcastCacheMaxBytes = configurationSource.getLong(BROADCAST_CACHE_MAX_BYTES, DEFAULT_BROADCAST_CACHE_MAX_BYTES);
+        builder.runtimeJoinFiltersEnabled = configurationSource.getBoolean(RUNTIME_JOIN_FILTERS_ENABLED, DEFAULT_RUNTIME_JOIN_FILTERS_ENABLED);
+        builder.vectorizedAggregationEnabled = configurationSource.getBoolean(VECTORIZED_AGGREGATION_ENABLED, DEFAULT_VECTORIZED_AGGREGATION_ENABLED);
+        builder.controlScanParallelism = configurationSource.getInt(CONTROL_SCAN_PARALLELISM, DEFAULT_CONTROL_SCAN_PARALLELISM);
+        builder.controlScanParallelRowsPerThread = configurationSource.getLong(CONTROL_SCAN_PARALLEL_ROWS_PER_THREAD, DEFAULT_CONTROL_SCAN_PARALLEL_ROWS_PER_THREAD);
+        builder.controlScanQueueSize = configurationSource.getInt(CONTROL_SCAN_QUEUE_SIZE, DEFAULT_CONTROL_SCAN_QUEUE_SIZE);
+        builder.resultCacheEnabled = configurationSource.getBoolean(RESULT_CACHE_ENABLED, DEFAULT_RESULT_CACHE_ENABLED);
+        builder.resultCacheMaxBytes = configurationSource.getLong(RESULT_CACHE_MAX_BYTES, DEFAULT_RESULT_CACHE_MAX_BYTES);
 
         //always disable debug statements by default
         builder.debugLogStatementContext = configurationSource.getBoolean(DEBUG_LOG_STATEMENT_CONTEXT, DEFAULT_LOG_STATEMENT_CONTEXT);
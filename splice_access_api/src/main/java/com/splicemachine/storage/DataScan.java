@@ -54,5 +54,14 @@ public interface DataScan extends Attributable{
 
     void returnAllVersions();
 
+    /**
+     * Create an independent copy of this scan. Changes to the bounds or attributes of the copy
+     * are not reflected in this scan (and vice versa), which allows a single logical scan to be
+     * split into several ranged scans.
+     *
+     * @return a copy of this scan
+     */
+    DataScan copy();
+
 
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.benchmark;
+
+import com.splicemachine.encoding.BatchEncoding;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.primitives.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding a batch of index keys a column at a time with {@link BatchEncoding}, against encoding
+ * each field of each row with the scalar encoders (the path the old {@code IntegerEncodingMicroBenchmark}
+ * measured for single integers). Scores are per batch of {@link #NUM_ROWS} rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BatchEncodingBenchmark{
+    private static final int NUM_ROWS = 1024;
+
+    private long[] longs;
+    private double[] doubles;
+    private String[] strings;
+    private byte[] utf8;
+    private int[] utf8Offsets;
+    private int[] utf8Lengths;
+
+    private byte[] longData;
+    private int[] longOffsets;
+    private byte[] doubleData;
+    private int[] doubleOffsets;
+    private byte[] stringData;
+    private int[] stringOffsets;
+    private byte[] keyData;
+    private int[] keyOffsets;
+    private MultiFieldEncoder encoder;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(0l);
+        longs = new long[NUM_ROWS];
+        doubles = new double[NUM_ROWS];
+        strings = new String[NUM_ROWS];
+        utf8Offsets = new int[NUM_ROWS];
+        utf8Lengths = new int[NUM_ROWS];
+        byte[][] stringBytes = new byte[NUM_ROWS][];
+        int utf8Size = 0;
+        for(int i=0;i<NUM_ROWS;i++){
+            longs[i] = random.nextLong()>>random.nextInt(Long.SIZE);
+            doubles[i] = random.nextDouble();
+            strings[i] = "customer-"+random.nextInt(100000);
+            stringBytes[i] = Bytes.toBytes(strings[i]);
+            utf8Size += stringBytes[i].length;
+        }
+        utf8 = new byte[utf8Size];
+        int pos = 0;
+        for(int i=0;i<NUM_ROWS;i++){
+            System.arraycopy(stringBytes[i],0,utf8,pos,stringBytes[i].length);
+            utf8Offsets[i] = pos;
+            utf8Lengths[i] = stringBytes[i].length;
+            pos += stringBytes[i].length;
+        }
+
+        longData = new byte[BatchEncoding.encodedLength(longs,NUM_ROWS)];
+        longOffsets = new int[NUM_ROWS+1];
+        doubleData = new byte[8*NUM_ROWS];
+        doubleOffsets = new int[NUM_ROWS+1];
+        stringData = new byte[BatchEncoding.encodedLength(utf8Lengths,NUM_ROWS)];
+        stringOffsets = new int[NUM_ROWS+1];
+        encodeColumns();
+        keyData = new byte[BatchEncoding.keysLength(NUM_ROWS,new int[][]{longOffsets,stringOffsets,doubleOffsets})];
+        keyOffsets = new int[NUM_ROWS+1];
+        encoder = MultiFieldEncoder.create(3);
+    }
+
+    @Benchmark
+    public void scalarLongs(Blackhole bh){
+        for(int i=0;i<NUM_ROWS;i++){
+            bh.consume(Encoding.encode(longs[i],false));
+        }
+    }
+
+    @Benchmark
+    public int batchLongs(){
+        return BatchEncoding.encode(longs,NUM_ROWS,false,longData,0,longOffsets);
+    }
+
+    @Benchmark
+    public void scalarDoubles(Blackhole bh){
+        for(int i=0;i<NUM_ROWS;i++){
+            bh.consume(Encoding.encode(doubles[i],false));
+        }
+    }
+
+    @Benchmark
+    public int batchDoubles(){
+        return BatchEncoding.encode(doubles,NUM_ROWS,false,doubleData,0,doubleOffsets);
+    }
+
+    @Benchmark
+    public void scalarStrings(Blackhole bh){
+        for(int i=0;i<NUM_ROWS;i++){
+            bh.consume(Encoding.encode(strings[i],false));
+        }
+    }
+
+    @Benchmark
+    public int batchStrings(){
+        return BatchEncoding.encode(utf8,utf8Offsets,utf8Lengths,NUM_ROWS,false,stringData,0,stringOffsets);
+    }
+
+    @Benchmark
+    public void scalarKeys(Blackhole bh){
+        for(int i=0;i<NUM_ROWS;i++){
+            encoder.reset();
+            bh.consume(encoder.encodeNext(longs[i]).encodeNext(strings[i]).encodeNext(doubles[i]).build());
+        }
+    }
+
+    @Benchmark
+    public int batchKeys(){
+        encodeColumns();
+        return BatchEncoding.buildKeys(NUM_ROWS,
+                new byte[][]{longData,stringData,doubleData},
+                new int[][]{longOffsets,stringOffsets,doubleOffsets},
+                keyData,0,keyOffsets);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void encodeColumns(){
+        BatchEncoding.encode(longs,NUM_ROWS,false,longData,0,longOffsets);
+        BatchEncoding.encode(utf8,utf8Offsets,utf8Lengths,NUM_ROWS,false,stringData,0,stringOffsets);
+        BatchEncoding.encode(doubles,NUM_ROWS,false,doubleData,0,doubleOffsets);
+    }
+}
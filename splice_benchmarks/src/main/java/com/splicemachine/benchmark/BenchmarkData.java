@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.impl.MOperationFactory;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.data.MExceptionFactory;
+import com.splicemachine.si.impl.txn.ActiveWriteTxn;
+import com.splicemachine.storage.EntryEncoder;
+import com.splicemachine.utils.kryo.KryoPool;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic data shared by the benchmarks of this module.
+ */
+class BenchmarkData{
+    private static final String[] STATUSES = {"ACTIVE","SUSPENDED","CLOSED","PENDING"};
+    private static final String[] REGIONS = {"NORTHEAST","NORTHWEST","SOUTHEAST","SOUTHWEST","CENTRAL"};
+    private static final KryoPool KRYO_POOL = new KryoPool(1);
+
+    private BenchmarkData(){}
+
+    static TxnOperationFactory operationFactory(){
+        return new SimpleTxnOperationFactory(MExceptionFactory.INSTANCE,new MOperationFactory(new IncrementingClock()));
+    }
+
+    /**
+     * @return a write of {@code numRows} rows of a 6-column table, split over {@code numRegions} regions
+     */
+    static BulkWrites bulkWrites(Random random,int numRows,int numRegions) throws IOException{
+        Collection<BulkWrite> writes = new ArrayList<>(numRegions);
+        int rowsPerRegion = Math.max(1,numRows/numRegions);
+        long id = random.nextInt(1000000);
+        for(int r=0;r<numRegions;r++){
+            List<KVPair> mutations = new ArrayList<>(rowsPerRegion);
+            for(int i=0;i<rowsPerRegion;i++){
+                mutations.add(row(random,id++));
+            }
+            writes.add(new BulkWrite(mutations,"region-"+r));
+        }
+        Txn txn = new ActiveWriteTxn(1l,1l,Txn.ROOT_TRANSACTION,false,Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+        return new BulkWrites(writes,txn);
+    }
+
+    /**
+     * @return an insert of an account row: (id bigint, name varchar, status varchar, region varchar,
+     * balance decimal, opened bigint)
+     */
+    static KVPair row(Random random,long id) throws IOException{
+        BitSet setCols = new BitSet(6);
+        for(int c=0;c<6;c++){
+            setCols.set(c);
+        }
+        BitSet scalarCols = new BitSet(6);
+        scalarCols.set(0);
+        scalarCols.set(5);
+        BitSet empty = new BitSet();
+        EntryEncoder entryEncoder = EntryEncoder.create(KRYO_POOL,6,setCols,scalarCols,empty,empty);
+        MultiFieldEncoder fields = entryEncoder.getEntryEncoder();
+        fields.encodeNext(id)
+                .encodeNext("customer "+random.nextInt(100000))
+                .encodeNext(STATUSES[random.nextInt(STATUSES.length)])
+                .encodeNext(REGIONS[random.nextInt(REGIONS.length)])
+                .encodeNext(BigDecimal.valueOf(random.nextInt(10000000),2))
+                .encodeNext(1451606400000l+random.nextInt(1000000000));
+        return new KVPair(Encoding.encode(id),entryEncoder.encode());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for running the benchmarks of this module. Results are written as JSON, so that the output of
+ * different releases can be compared mechanically (e.g. with the JMH visualizer, or a simple diff script).
+ *
+ * Usage: BenchmarkRunner [includeRegex] [resultFile]
+ */
+public class BenchmarkRunner{
+
+    public static void main(String...args) throws RunnerException{
+        String include = args.length>0?args[0]:".*Benchmark.*";
+        String resultFile = args.length>1?args[1]:"jmh-result.json";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .shouldFailOnError(true)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.storage.EntryDecoder;
+import com.splicemachine.storage.EntryEncoder;
+import com.splicemachine.storage.index.BitIndex;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of packed rows (a {@link BitIndex} header followed by the encoded fields) with {@link EntryDecoder},
+ * as done by every scan which has to pick columns out of the packed column.
+ *
+ * {@code distinctIndexes} controls how many distinct null patterns the rows have: the decoder only rebuilds the
+ * BitIndex when it changes between rows, so 1 measures field access alone and larger values include index decoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EntryDecoderBenchmark{
+    private static final int NUM_ROWS = 1024;
+    private static final int NUM_COLS = 16;
+
+    @Param({"1","64"})
+    public int distinctIndexes;
+
+    private byte[][] rows;
+    private int position;
+    private EntryDecoder decoder;
+
+    @Setup
+    public void setup() throws IOException{
+        Random random = new Random(0l);
+        KryoPool kryoPool = new KryoPool(1);
+        BitSet[] patterns = new BitSet[distinctIndexes];
+        for(int p=0;p<distinctIndexes;p++){
+            BitSet setCols = new BitSet(NUM_COLS);
+            for(int c=0;c<NUM_COLS;c++){
+                //the first pattern is fully populated, the others are missing some columns
+                if(p==0 || random.nextInt(4)!=0)
+                    setCols.set(c);
+            }
+            patterns[p] = setCols;
+        }
+        BitSet scalarCols = new BitSet(NUM_COLS);
+        BitSet doubleCols = new BitSet(NUM_COLS);
+        BitSet floatCols = new BitSet(NUM_COLS);
+        for(int c=0;c<NUM_COLS;c++){
+            switch(c%4){
+                case 0:
+                case 1: scalarCols.set(c); break;
+                case 2: doubleCols.set(c); break;
+                default: //length-delimited
+            }
+        }
+
+        rows = new byte[NUM_ROWS][];
+        for(int i=0;i<NUM_ROWS;i++){
+            BitSet setCols = patterns[i%distinctIndexes];
+            EntryEncoder entryEncoder = EntryEncoder.create(kryoPool,NUM_COLS,setCols,scalarCols,floatCols,doubleCols);
+            MultiFieldEncoder fields = entryEncoder.getEntryEncoder();
+            for(int c=setCols.nextSetBit(0);c>=0;c=setCols.nextSetBit(c+1)){
+                switch(c%4){
+                    case 0: fields.encodeNext(random.nextInt()); break;
+                    case 1: fields.encodeNext(random.nextLong()); break;
+                    case 2: fields.encodeNext(random.nextDouble()); break;
+                    default: fields.encodeNext("value-"+random.nextInt(1000));
+                }
+            }
+            rows[i] = entryEncoder.encode();
+        }
+        decoder = new EntryDecoder();
+    }
+
+    @Benchmark
+    public void decodeAllColumns(Blackhole bh) throws IOException{
+        decoder.set(rows[nextPosition()]);
+        BitIndex index = decoder.getCurrentIndex();
+        MultiFieldDecoder fields = decoder.getEntryDecoder();
+        for(int c=index.nextSetBit(0);c>=0;c=index.nextSetBit(c+1)){
+            bh.consume(decoder.seekForward(fields,c));
+        }
+    }
+
+    @Benchmark
+    public void decodeOneColumn(Blackhole bh) throws IOException{
+        //pick out the last (string) column, skipping all the others
+        decoder.set(rows[nextPosition()]);
+        BitIndex index = decoder.getCurrentIndex();
+        MultiFieldDecoder fields = decoder.getEntryDecoder();
+        for(int c=index.nextSetBit(0);c>=0;c=index.nextSetBit(c+1)){
+            if(c==NUM_COLS-1)
+                bh.consume(fields.decodeNextString());
+            else
+                decoder.seekForward(fields,c);
+        }
+    }
+
+    private int nextPosition(){
+        int p = position;
+        position = (p+1)&(NUM_ROWS-1);
+        return p;
+    }
+}
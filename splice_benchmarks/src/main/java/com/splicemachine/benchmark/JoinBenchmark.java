@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCache;
+import com.splicemachine.derby.stream.control.ControlPairDataSet;
+import com.splicemachine.derby.stream.iapi.PairDataSet;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hot paths of the control-side joins: probing a broadcast join table held in the {@link BroadcastJoinCache},
+ * and an in-memory hash join of two {@link ControlPairDataSet}s.
+ *
+ * Each invocation joins {@link #OUTER_ROWS} outer rows against an inner table of {@code innerRows} rows, with
+ * roughly half of the outer rows finding a match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JoinBenchmark{
+    private static final int OUTER_ROWS = 1024;
+    private static final int[] HASH_KEYS = {0};
+
+    @Param({"1000","100000"})
+    public int innerRows;
+
+    private List<ExecRow> innerTable;
+    private List<ExecRow> outerTable;
+    private List<Tuple2<Integer,ExecRow>> innerPairs;
+    private List<Tuple2<Integer,ExecRow>> outerPairs;
+    private JoinTable broadcastTable;
+
+    @Setup
+    public void setup() throws IOException, StandardException{
+        Random random = new Random(0l);
+        innerTable = new ArrayList<>(innerRows);
+        innerPairs = new ArrayList<>(innerRows);
+        for(int i=0;i<innerRows;i++){
+            ExecRow row = row(i,"inner-"+i);
+            innerTable.add(row);
+            innerPairs.add(new Tuple2<>(i,row));
+        }
+        outerTable = new ArrayList<>(OUTER_ROWS);
+        outerPairs = new ArrayList<>(OUTER_ROWS);
+        for(int i=0;i<OUTER_ROWS;i++){
+            int key = random.nextInt(2*innerRows);
+            ExecRow row = row(key,"outer-"+i);
+            outerTable.add(row);
+            outerPairs.add(new Tuple2<>(key,row));
+        }
+
+        Callable<Stream<ExecRow>> loader = new Callable<Stream<ExecRow>>(){
+            @Override
+            public Stream<ExecRow> call() throws Exception{
+                return Streams.wrap(innerTable);
+            }
+        };
+        BroadcastJoinCache cache = new BroadcastJoinCache();
+        broadcastTable = cache.get(1l,loader,HASH_KEYS,HASH_KEYS,outerTable.get(0).getNewNullRow()).newTable();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception{
+        broadcastTable.close();
+    }
+
+    @Benchmark
+    public void broadcastProbe(Blackhole bh) throws IOException, StandardException{
+        for(ExecRow outer:outerTable){
+            Iterator<ExecRow> inner = broadcastTable.fetchInner(outer);
+            while(inner.hasNext()){
+                bh.consume(inner.next());
+            }
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void controlHashJoin(Blackhole bh){
+        ControlPairDataSet<Integer,ExecRow> outer = new ControlPairDataSet<>(outerPairs);
+        ControlPairDataSet<Integer,ExecRow> inner = new ControlPairDataSet<>(innerPairs);
+        PairDataSet<Integer,Tuple2<ExecRow,ExecRow>> joined = outer.hashJoin(inner);
+        for(Tuple2<Integer,Tuple2<ExecRow,ExecRow>> t:((ControlPairDataSet<Integer,Tuple2<ExecRow,ExecRow>>)joined).source){
+            bh.consume(t);
+        }
+    }
+
+    private static ExecRow row(int key,String value){
+        ValueRow row = new ValueRow(2);
+        row.setColumn(1,new SQLInteger(key));
+        row.setColumn(2,new SQLVarchar(value));
+        return row;
+    }
+}
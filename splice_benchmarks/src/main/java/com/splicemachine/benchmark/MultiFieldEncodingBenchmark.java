@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a typical mixed-type row with {@link MultiFieldEncoder} and {@link MultiFieldDecoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MultiFieldEncodingBenchmark{
+    private static final int NUM_ROWS = 1024;
+
+    private int[] ints;
+    private long[] longs;
+    private String[] strings;
+    private double[] doubles;
+    private BigDecimal[] decimals;
+    private byte[][] encoded;
+    private int position;
+    private MultiFieldEncoder encoder;
+    private MultiFieldDecoder decoder;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(0l);
+        ints = new int[NUM_ROWS];
+        longs = new long[NUM_ROWS];
+        strings = new String[NUM_ROWS];
+        doubles = new double[NUM_ROWS];
+        decimals = new BigDecimal[NUM_ROWS];
+        encoded = new byte[NUM_ROWS][];
+        encoder = MultiFieldEncoder.create(5);
+        for(int i=0;i<NUM_ROWS;i++){
+            ints[i] = random.nextInt();
+            longs[i] = random.nextLong();
+            strings[i] = "customer-"+random.nextInt(100000);
+            doubles[i] = random.nextDouble();
+            decimals[i] = BigDecimal.valueOf(random.nextInt(1000000),2);
+            encoded[i] = encode(i);
+        }
+        decoder = MultiFieldDecoder.create();
+    }
+
+    @Benchmark
+    public byte[] encodeRow(){
+        return encode(nextPosition());
+    }
+
+    @Benchmark
+    public void decodeRow(Blackhole bh){
+        decoder.set(encoded[nextPosition()]);
+        bh.consume(decoder.decodeNextInt());
+        bh.consume(decoder.decodeNextLong());
+        bh.consume(decoder.decodeNextString());
+        bh.consume(decoder.decodeNextDouble());
+        bh.consume(decoder.decodeNextBigDecimal());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private byte[] encode(int i){
+        encoder.reset();
+        return encoder.encodeNext(ints[i])
+                .encodeNext(longs[i])
+                .encodeNext(strings[i])
+                .encodeNext(doubles[i])
+                .encodeNext(decimals[i])
+                .build();
+    }
+
+    private int nextPosition(){
+        int p = position;
+        position = (p+1)&(NUM_ROWS-1);
+        return p;
+    }
+}
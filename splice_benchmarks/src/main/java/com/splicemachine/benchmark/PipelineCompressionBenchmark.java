@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.PipelineEncoding;
+import com.splicemachine.pipeline.compression.PipelineCodec;
+import com.splicemachine.pipeline.compression.PipelineCodecs;
+import com.splicemachine.pipeline.compression.PipelineDictionaries;
+import com.splicemachine.utils.ByteSlice;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compression of encoded BulkWrites with the pipeline codecs, against Snappy as the baseline.
+ *
+ * With {@code dictionary} set, the codec is primed with a dictionary trained on other writes to the same table,
+ * as the write pipeline does for small writes. The compression ratio of each configuration is reported alongside
+ * the timings as the {@code compressionRatio} counter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PipelineCompressionBenchmark{
+    private static final String TABLE = "1184";
+
+    @Param({"lz4","deflate","snappy"})
+    public String codec;
+
+    @Param({"16","1024"})
+    public int rows;
+
+    @Param({"false","true"})
+    public boolean dictionary;
+
+    private PipelineCodec pipelineCodec;
+    private byte[] data;
+    private byte[] compressed;
+    private byte[] dict;
+    private double compressionRatio;
+
+    @Setup
+    public void setup() throws IOException{
+        pipelineCodec = "snappy".equals(codec)?new SnappyJavaCodec():PipelineCodecs.forName(codec);
+        Random random = new Random(0l);
+        data = PipelineEncoding.encode(BenchmarkData.operationFactory(),BenchmarkData.bulkWrites(random,rows,4));
+        if(dictionary && pipelineCodec.supportsDictionary()){
+            PipelineDictionaries dictionaries = new PipelineDictionaries();
+            PipelineDictionaries.Dictionary trained;
+            while((trained=dictionaries.dictionary(TABLE))==null){
+                BulkWrites sample = BenchmarkData.bulkWrites(random,64,1);
+                dictionaries.sample(TABLE,sample);
+            }
+            dict = trained.bytes();
+        }
+        compressed = pipelineCodec.compress(data,0,data.length,dict);
+        compressionRatio = (double)compressed.length/data.length;
+    }
+
+    @Benchmark
+    public byte[] compress(Ratio ratio) throws IOException{
+        return pipelineCodec.compress(data,0,data.length,dict);
+    }
+
+    @Benchmark
+    public ByteSlice decompress(Ratio ratio) throws IOException{
+        return pipelineCodec.decompress(compressed,0,compressed.length,data.length,dict);
+    }
+
+    /**
+     * Reports the compressed size as a fraction of the encoded size. The benchmark runs on a single thread, so
+     * the sum over threads which JMH reports is the ratio itself.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Ratio{
+        public double compressionRatio;
+
+        @Setup(Level.Iteration)
+        public void setup(PipelineCompressionBenchmark benchmark){
+            compressionRatio = benchmark.compressionRatio;
+        }
+    }
+
+    /**
+     * Snappy through snappy-java, which bundles its native library; the write pipeline itself only uses
+     * Snappy through Hadoop's bindings on HBase.
+     */
+    private static class SnappyJavaCodec implements PipelineCodec{
+        @Override public byte id(){ return 3; }
+        @Override public String name(){ return "snappy"; }
+        @Override public boolean isAvailable(){ return true; }
+        @Override public boolean supportsDictionary(){ return false; }
+
+        @Override
+        public byte[] compress(byte[] data,int offset,int length,byte[] dictionary) throws IOException{
+            byte[] out = new byte[Snappy.maxCompressedLength(length)];
+            int size = Snappy.compress(data,offset,length,out,0);
+            return Arrays.copyOf(out,size);
+        }
+
+        @Override
+        public ByteSlice decompress(byte[] data,int offset,int length,int uncompressedLength,byte[] dictionary) throws IOException{
+            byte[] out = new byte[uncompressedLength];
+            Snappy.uncompress(data,offset,length,out,0);
+            return ByteSlice.wrap(out);
+        }
+    }
+}
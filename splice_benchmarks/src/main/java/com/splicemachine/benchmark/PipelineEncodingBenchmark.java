@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.PipelineEncoding;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wire encoding of BulkWrites with {@link PipelineEncoding}: encoding on the client, and decoding (including
+ * visiting every KVPair) on the region server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PipelineEncodingBenchmark{
+
+    @Param({"16","1024"})
+    public int rows;
+
+    private TxnOperationFactory operationFactory;
+    private BulkWrites bulkWrites;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException{
+        operationFactory = BenchmarkData.operationFactory();
+        bulkWrites = BenchmarkData.bulkWrites(new Random(0l),rows,4);
+        encoded = PipelineEncoding.encode(operationFactory,bulkWrites);
+    }
+
+    @Benchmark
+    public byte[] encode(){
+        return PipelineEncoding.encode(operationFactory,bulkWrites);
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh){
+        BulkWrites decoded = PipelineEncoding.decode(operationFactory,encoded);
+        for(BulkWrite bw:decoded.getBulkWrites()){
+            for(KVPair kvPair:bw.getMutations()){
+                bh.consume(kvPair.rowKeySlice());
+                bh.consume(kvPair.valueSlice());
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampHostProvider;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import com.splicemachine.timestamp.impl.TimestampClient;
+import com.splicemachine.timestamp.impl.TimestampServer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the TimestampClient against a TimestampServer running in the same JVM, so the numbers reflect
+ * the cost of the protocol and the oracle rather than of the network.
+ *
+ * The number of concurrent callers is what drives request coalescing, so run with several thread counts
+ * (e.g. {@code -t 1}, {@code -t 16}, {@code -t 64}). The average number of callers served by each request to the
+ * server is reported alongside the throughput as the {@code timestampsPerRequest} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(16)
+@Fork(1)
+public class TimestampClientBenchmark{
+
+    private TimestampServer server;
+    private TimestampClient client;
+
+    @Setup
+    public void setup() throws Exception{
+        final int port = freePort();
+        server = new TimestampServer(port,new MemoryBlockManager(),8192);
+        server.startServer();
+        client = new TimestampClient(10000,new TimestampHostProvider(){
+            @Override public String getHost(){ return "localhost"; }
+            @Override public int getPort(){ return port; }
+        });
+        client.getNextTimestamp(); //warm up the connection
+    }
+
+    @TearDown
+    public void tearDown(){
+        client.shutdown();
+        server.stopServer();
+    }
+
+    @Benchmark
+    public long nextTimestamp(Coalescing coalescing) throws TimestampIOException{
+        return client.getNextTimestamp();
+    }
+
+    /**
+     * Reports how many timestamps each request to the server carried during an iteration. The client's counts
+     * are shared by every thread, so only the first thread reports them, and the sum over threads which JMH
+     * reports is the value for the client as a whole.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Coalescing{
+        private TimestampClient client;
+        private boolean reporting;
+        private long startTimestamps;
+        private long startRequests;
+
+        @Setup(Level.Iteration)
+        public void setup(TimestampClientBenchmark benchmark,ThreadParams threadParams){
+            client = benchmark.client;
+            reporting = threadParams.getThreadIndex()==0;
+            startTimestamps = client.getNumberTimestampRequests();
+            startRequests = client.getNumberTimestampBatches();
+        }
+
+        public double timestampsPerRequest(){
+            if(!reporting) return 0d;
+            long requests = client.getNumberTimestampBatches()-startRequests;
+            return requests>0?(double)(client.getNumberTimestampRequests()-startTimestamps)/requests:0d;
+        }
+    }
+
+    private static int freePort() throws IOException{
+        try(ServerSocket socket = new ServerSocket(0)){
+            return socket.getLocalPort();
+        }
+    }
+
+    private static class MemoryBlockManager implements TimestampBlockManager{
+        private volatile long maxReserved = 0l;
+
+        @Override
+        public void reserveNextBlock(long currentMaxReserved) throws TimestampIOException{
+            maxReserved = currentMaxReserved;
+        }
+
+        @Override
+        public long initialize() throws TimestampIOException{
+            return maxReserved;
+        }
+    }
+}
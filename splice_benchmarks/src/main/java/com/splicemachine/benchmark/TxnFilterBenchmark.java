@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.ClientTxnLifecycleManager;
+import com.splicemachine.si.impl.ManualKeepAliveScheduler;
+import com.splicemachine.si.impl.MemTimestampSource;
+import com.splicemachine.si.impl.MemTxnStore;
+import com.splicemachine.si.impl.SimpleTxnFilter;
+import com.splicemachine.si.impl.data.MExceptionFactory;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataFilter;
+import com.splicemachine.storage.MCell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot-isolation filtering with {@link SimpleTxnFilter} over synthetic version chains, using the in-memory
+ * transaction store.
+ *
+ * Each row has {@code versions} versions written by distinct transactions, a quarter of which were rolled back
+ * and some of which were deleted. When {@code resolved} is true the rows carry commit timestamp cells (as they do
+ * after read-resolution), otherwise every transaction has to be looked up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TxnFilterBenchmark{
+    private static final int NUM_ROWS = 256;
+    private static final byte[] TABLE = Bytes.toBytes("1184");
+
+    @Param({"1","4","16"})
+    public int versions;
+
+    @Param({"true","false"})
+    public boolean resolved;
+
+    private DataCell[][] rows;
+    private int position;
+    private SimpleTxnFilter filter;
+
+    @Setup
+    public void setup() throws IOException{
+        Random random = new Random(0l);
+        MemTimestampSource timestampSource = new MemTimestampSource();
+        MemTxnStore txnStore = new MemTxnStore(new IncrementingClock(),timestampSource,MExceptionFactory.INSTANCE,Long.MAX_VALUE);
+        ClientTxnLifecycleManager lifecycleManager = new ClientTxnLifecycleManager(timestampSource,MExceptionFactory.INSTANCE);
+        lifecycleManager.setTxnStore(txnStore);
+        lifecycleManager.setKeepAliveScheduler(new ManualKeepAliveScheduler(txnStore));
+
+        rows = new DataCell[NUM_ROWS][];
+        for(int r=0;r<NUM_ROWS;r++){
+            byte[] rowKey = Bytes.toBytes(r);
+            List<DataCell> commitCells = new ArrayList<>();
+            List<DataCell> tombstones = new ArrayList<>();
+            List<DataCell> userCells = new ArrayList<>();
+            for(int v=0;v<versions;v++){
+                Txn txn = lifecycleManager.beginTransaction(TABLE);
+                boolean rolledBack = v>0 && random.nextInt(4)==0;
+                if(rolledBack) txn.rollback();
+                else txn.commit();
+                long ts = txn.getBeginTimestamp();
+                if(resolved && !rolledBack)
+                    commitCells.add(0,new MCell(rowKey,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,
+                            ts,Bytes.toBytes(txn.getCommitTimestamp()),CellType.COMMIT_TIMESTAMP));
+                if(v>0 && random.nextInt(8)==0)
+                    tombstones.add(0,new MCell(rowKey,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,
+                            ts,SIConstants.EMPTY_BYTE_ARRAY,CellType.TOMBSTONE));
+                else
+                    userCells.add(0,new MCell(rowKey,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,
+                            ts,Bytes.toBytes(random.nextLong()),CellType.USER_DATA));
+            }
+            //cells are sorted by qualifier, then by descending version
+            List<DataCell> row = new ArrayList<>(commitCells);
+            row.addAll(tombstones);
+            row.addAll(userCells);
+            rows[r] = row.toArray(new DataCell[row.size()]);
+        }
+
+        TxnView reader = lifecycleManager.beginTransaction();
+        filter = new SimpleTxnFilter(null,reader,NoOpReadResolver.INSTANCE,txnStore);
+    }
+
+    @Benchmark
+    public void filterRow(Blackhole bh) throws IOException{
+        DataCell[] row = rows[nextPosition()];
+        filter.nextRow();
+        for(DataCell cell:row){
+            DataFilter.ReturnCode code = filter.filterCell(cell);
+            bh.consume(code);
+            //the first visible version of the packed column is all a scan needs
+            if(code==DataFilter.ReturnCode.INCLUDE || code==DataFilter.ReturnCode.NEXT_ROW) break;
+        }
+        bh.consume(filter.getExcludeRow());
+    }
+
+    private int nextPosition(){
+        int p = position;
+        position = (p+1)&(NUM_ROWS-1);
+        return p;
+    }
+}
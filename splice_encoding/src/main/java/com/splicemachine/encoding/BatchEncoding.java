@@ -0,0 +1,248 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.encoding;
+
+/**
+ * Column-at-a-time versions of the order-preserving encodings used by {@link MultiFieldEncoder}.
+ *
+ * Rather than encoding a single field into a new byte[], each method here encodes the values of a
+ * column for a whole batch of rows into one contiguous array. The bytes of row {@code i} occupy the
+ * range {@code [offsets[i],offsets[i+1])} of the destination, so {@code offsets} must hold {@code count+1}
+ * entries. The output of each method is byte-for-byte identical to the corresponding scalar encoding.
+ *
+ * The work is split into simple passes over primitive arrays (compute the lengths, accumulate the offsets,
+ * write the bytes), with no allocation and no calls inside the inner loops, so that the JIT can unroll
+ * and (where the output width is fixed) vectorize them. Once each column of a batch has been encoded,
+ * {@link #buildKeys(int, byte[][], int[][], byte[], int, int[])} assembles the multi-field keys,
+ * in the same format that {@link MultiFieldEncoder#build()} produces.
+ */
+public final class BatchEncoding{
+    private static final int LONG_SIGN_BIT=0x80;
+    private static final int SINGLE_HEADER_BIT=0x40;
+    private static final int DOUBLE_HEADER_BIT=0x20;
+
+    private BatchEncoding(){}
+
+    /**
+     * @return the number of bytes needed to encode the first {@code count} values with
+     * {@link #encode(long[], int, boolean, byte[], int, int[])}.
+     */
+    public static int encodedLength(long[] values,int count){
+        int size=0;
+        for(int i=0;i<count;i++){
+            size+=longLength(values[i]);
+        }
+        return size;
+    }
+
+    /**
+     * Encode the first {@code count} values as {@link Encoding#encode(long, boolean)} would.
+     *
+     * @param dest the array to encode into, which must have room for {@link #encodedLength(long[], int)} bytes
+     *             from {@code destOffset}
+     * @param offsets filled with the start of the encoded form of each value, plus the end of the last value
+     * @return the number of bytes written
+     */
+    public static int encode(long[] values,int count,boolean desc,byte[] dest,int destOffset,int[] offsets){
+        //pass 1: the encoded length of each value, from its bit size
+        for(int i=0;i<count;i++){
+            offsets[i+1]=longLength(values[i]);
+        }
+        //pass 2: turn the lengths into offsets
+        offsets[0]=destOffset;
+        for(int i=1;i<=count;i++){
+            offsets[i]+=offsets[i-1];
+        }
+        //pass 3: write the header and big-endian body of each value
+        int mask=desc?0xff:0;
+        for(int i=0;i<count;i++){
+            long x=values[i];
+            int pos=offsets[i];
+            int length=offsets[i+1]-pos;
+            dest[pos]=(byte)(longHeader(x,length)^mask);
+            for(int j=1;j<length;j++){
+                dest[pos+j]=(byte)((x>>>((length-1-j)<<3))^mask);
+            }
+        }
+        return offsets[count]-destOffset;
+    }
+
+    /**
+     * Encode the first {@code count} values as {@link Encoding#encode(double, boolean)} would. Every value
+     * occupies 8 bytes, so {@code dest} must have room for {@code 8*count} bytes from {@code destOffset}.
+     *
+     * @param offsets filled with the start of the encoded form of each value, plus the end of the last value
+     * @return the number of bytes written
+     */
+    public static int encode(double[] values,int count,boolean desc,byte[] dest,int destOffset,int[] offsets){
+        long mask=desc?-1l:0l;
+        for(int i=0;i<count;i++){
+            long l=Double.doubleToLongBits(values[i]);
+            l=((l^((l>>Long.SIZE-1)|Long.MIN_VALUE))+1)^mask;
+            int pos=destOffset+(i<<3);
+            dest[pos]=(byte)(l>>>56);
+            dest[pos+1]=(byte)(l>>>48);
+            dest[pos+2]=(byte)(l>>>40);
+            dest[pos+3]=(byte)(l>>>32);
+            dest[pos+4]=(byte)(l>>>24);
+            dest[pos+5]=(byte)(l>>>16);
+            dest[pos+6]=(byte)(l>>>8);
+            dest[pos+7]=(byte)l;
+        }
+        for(int i=0;i<=count;i++){
+            offsets[i]=destOffset+(i<<3);
+        }
+        return count<<3;
+    }
+
+    /**
+     * @return the number of bytes needed to encode the given strings with
+     * {@link #encode(byte[], int[], int[], int, boolean, byte[], int, int[])}.
+     */
+    public static int encodedLength(int[] valueLengths,int count){
+        int size=0;
+        for(int i=0;i<count;i++){
+            int length=valueLengths[i];
+            size+=length>0?length:length+1;
+        }
+        return size;
+    }
+
+    /**
+     * Encode the first {@code count} strings, given as UTF-8 slices of {@code utf8}, as
+     * {@link Encoding#encode(String, boolean)} would. A negative length denotes a {@code null} string,
+     * which (as in the scalar encoding) occupies no bytes.
+     *
+     * @param dest the array to encode into, which must have room for {@link #encodedLength(int[], int)} bytes
+     *             from {@code destOffset}
+     * @param offsets filled with the start of the encoded form of each value, plus the end of the last value
+     * @return the number of bytes written
+     */
+    public static int encode(byte[] utf8,int[] valueOffsets,int[] valueLengths,int count,boolean desc,
+                             byte[] dest,int destOffset,int[] offsets){
+        int mask=desc?0xff:0;
+        int pos=destOffset;
+        for(int i=0;i<count;i++){
+            offsets[i]=pos;
+            int length=valueLengths[i];
+            if(length==0){
+                dest[pos++]=(byte)(0x01^mask);
+            }else if(length>0){
+                int src=valueOffsets[i];
+                for(int j=0;j<length;j++){
+                    dest[pos+j]=(byte)((utf8[src+j]+2)^mask);
+                }
+                pos+=length;
+            }
+        }
+        offsets[count]=pos;
+        return pos-destOffset;
+    }
+
+    /**
+     * @return the size of the keys built by {@link #buildKeys(int, byte[][], int[][], byte[], int, int[])}
+     * for the given column offsets.
+     */
+    public static int keysLength(int count,int[][] columnOffsets){
+        int size=count*(columnOffsets.length-1);
+        for(int[] offsets:columnOffsets){
+            size+=offsets[count]-offsets[0];
+        }
+        return size;
+    }
+
+    /**
+     * Assemble the multi-field keys of a batch of rows from its encoded columns, each of which
+     * is laid out as by the {@code encode} methods of this class. Fields are separated by a 0x00 byte, exactly
+     * as {@link MultiFieldEncoder#build()} does.
+     *
+     * @param dest the array to write the keys into, which must have room for {@link #keysLength(int, int[][])}
+     *             bytes from {@code destOffset}
+     * @param keyOffsets filled with the start of each key, plus the end of the last key
+     * @return the number of bytes written
+     */
+    public static int buildKeys(int count,byte[][] columnData,int[][] columnOffsets,
+                                byte[] dest,int destOffset,int[] keyOffsets){
+        int numColumns=columnData.length;
+        int pos=destOffset;
+        for(int i=0;i<count;i++){
+            keyOffsets[i]=pos;
+            for(int c=0;c<numColumns;c++){
+                if(c!=0)
+                    dest[pos++]=0x00;
+                int start=columnOffsets[c][i];
+                int length=columnOffsets[c][i+1]-start;
+                System.arraycopy(columnData[c],start,dest,pos,length);
+                pos+=length;
+            }
+        }
+        keyOffsets[count]=pos;
+        return pos-destOffset;
+    }
+
+    /**
+     * Assemble the multi-field keys of a batch of rows into separate arrays, as in
+     * {@link #buildKeys(int, byte[][], int[][], byte[], int, int[])}.
+     */
+    public static byte[][] buildKeys(int count,byte[][] columnData,int[][] columnOffsets){
+        byte[] keyData=new byte[keysLength(count,columnOffsets)];
+        int[] keyOffsets=new int[count+1];
+        buildKeys(count,columnData,columnOffsets,keyData,0,keyOffsets);
+        byte[][] keys=new byte[count][];
+        for(int i=0;i<count;i++){
+            int length=keyOffsets[i+1]-keyOffsets[i];
+            keys[i]=new byte[length];
+            System.arraycopy(keyData,keyOffsets[i],keys[i],0,length);
+        }
+        return keys;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * The same as ScalarEncoding.encodedLength(x), without branching on the value for
+     * the common multi-byte case.
+     */
+    private static int longLength(long x){
+        int numBits=Long.SIZE-Long.numberOfLeadingZeros(x^(x>>Long.SIZE-1));
+        if(numBits<=0x6) return 1;
+        else if(numBits<=13) return 2;
+        else return 1+((numBits+0x5)>>>3);
+    }
+
+    /*
+     * The (ascending) header byte of x encoded into length bytes, as ScalarEncoding writes it.
+     */
+    private static int longHeader(long x,int length){
+        boolean negative=x<0;
+        int b=negative?0:LONG_SIGN_BIT;
+        int numHeaderBits;
+        if(length==1){
+            if(negative) b|=SINGLE_HEADER_BIT;
+            numHeaderBits=0x6;
+        }else if(length==2){
+            b|=negative?DOUBLE_HEADER_BIT:SINGLE_HEADER_BIT;
+            numHeaderBits=0x5;
+        }else{
+            int encodedLength=(length-0x3)^(negative?-1:0);
+            encodedLength&=(1<<0x3)-1;
+            b|=(negative?0:(SINGLE_HEADER_BIT|DOUBLE_HEADER_BIT))|(encodedLength<<0x2);
+            numHeaderBits=0x2;
+        }
+        int firstDataByte=length>8?0:(int)(x>>>((length-1)<<3));
+        return b|(firstDataByte&((1<<numHeaderBits)-1));
+    }
+}
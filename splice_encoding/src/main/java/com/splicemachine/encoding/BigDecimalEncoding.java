@@ -186,6 +186,64 @@ class BigDecimalEncoding {
     }
 
     public static BigDecimal toBigDecimal(byte[] data, int dataOffset, int dataLength, boolean desc) {
+        BigDecimal value = toCompactBigDecimal(data, dataOffset, dataLength, desc);
+        if (value != null)
+            return value;
+        return toBigDecimalCopy(data, dataOffset, dataLength, desc);
+    }
+
+    /*
+     * Decode directly from the (untransformed) source bytes, for the common case of values which have
+     * at most 18 digits, whose unscaled value fits in a long. This saves the copy of the data, and the
+     * intermediate char[], String and BigInteger of the general case.
+     *
+     * Returns null when the value can't be decoded this way (including the SQL null).
+     */
+    private static BigDecimal toCompactBigDecimal(byte[] data, int dataOffset, int dataLength, boolean desc) {
+        if (dataLength < 2) return null;
+        int descMask = desc ? ORDER_FLIP_MASK : 0;
+        byte header = (byte) (data[dataOffset] ^ descMask);
+        int h = (header & 0xff) >>> (Byte.SIZE - HEADER_SIZE_BITS);
+        if (h == HEADER_NULL) return null;
+        if (h == HEADER_ZERO) return BigDecimal.ZERO;
+
+        boolean negative = h == HEADER_NEG;
+        if (negative)
+            header ^= ORDER_FLIP_EXCLUDE_HEADER_MASK;
+        int bodyMask = descMask ^ (negative ? ORDER_FLIP_MASK : 0);
+
+        int expLength = ScalarEncoding.readLongLength(header, HEADER_SIZE_BITS);
+        if (expLength >= dataLength) return null;
+        long exp = ScalarEncoding.readLong(header, data, dataOffset, HEADER_SIZE_BITS, bodyMask != 0);
+
+        //the last byte is a terminator, so the digits end in the byte before it
+        int digitBytes = dataLength - 1 - expLength;
+        int length = digitBytes * 2;
+        byte last = (byte) (data[dataOffset + dataLength - 2] ^ bodyMask);
+        if ((last & 0xf) == 0)
+            length -= 1;
+        if (length <= 0 || length > 18) return null;
+
+        long unscaled = 0;
+        int pos = 0;
+        for (int i = 0; i < digitBytes && pos < length; i++) {
+            byte next = (byte) (data[dataOffset + expLength + i] ^ bodyMask);
+            int f = (next >>> 4) & 0xf;
+            if (f == 0) break;
+            unscaled = unscaled * 10 + (f - 1);
+            pos++;
+            f = next & 0xf;
+            if (f == 0) break;
+            unscaled = unscaled * 10 + (f - 1);
+            pos++;
+        }
+        if (pos != length) return null;
+
+        int scale = (int) (exp - length + 1);
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, -scale);
+    }
+
+    private static BigDecimal toBigDecimalCopy(byte[] data, int dataOffset, int dataLength, boolean desc) {
         byte[] dataCopy = Arrays.copyOfRange(data, dataOffset, dataOffset + dataLength);
         if (desc) {
             for (int i = 0; i < dataCopy.length; i++) {
@@ -223,6 +223,52 @@ final class ScalarEncoding{
         return new long[]{x,length};
     }
 
+    /**
+     * The number of bytes used by a long written with {@code reservedBits} reserved header bits, whose
+     * (already order-corrected) first byte is {@code headerByte}.
+     */
+    static int readLongLength(byte headerByte,int reservedBits){
+        headerByte<<=reservedBits;
+        int sign=(headerByte&LONG_SIGN_BIT)!=0?0:Byte.MIN_VALUE;
+        int negSign=~sign>>Integer.SIZE-1;
+        int h=headerByte^negSign;
+        if((h&SINGLE_HEADER_BIT)!=0) return 1;
+        else if((h&DOUBLE_HEADER_BIT)!=0) return 2;
+        int length=(headerByte^~negSign)>>>0x2;
+        length&=(1<<0x3)-1;
+        return length+0x3;
+    }
+
+    /**
+     * Equivalent to the value returned by {@link #readLong(byte[], int, int)}, but without allocating, for
+     * callers which have to transform the header byte themselves.
+     *
+     * @param headerByte the (already order-corrected) first byte of the encoded long
+     * @param flipBody true if the remaining bytes are stored with all their bits flipped
+     */
+    static long readLong(byte headerByte,byte[] data,int byteOffset,int reservedBits,boolean flipBody){
+        int length=readLongLength(headerByte,reservedBits);
+        headerByte<<=reservedBits;
+        int sign=(headerByte&LONG_SIGN_BIT)!=0?0:Byte.MIN_VALUE;
+        int numHeaderDataBits;
+        if(length==1)
+            numHeaderDataBits=0x6-reservedBits;
+        else if(length==2)
+            numHeaderDataBits=0x5-reservedBits;
+        else
+            numHeaderDataBits=0x2-reservedBits;
+
+        long x=(long)sign>>Long.SIZE-1;
+        byte d=(byte)(x<<numHeaderDataBits);
+        d|=(byte)((headerByte>>>reservedBits)&((1<<numHeaderDataBits)-1));
+        if(sign!=0)
+            x&=~(((long)~d&0xff)<<(length-1)*8);
+        else
+            x|=(((long)d&0xff)<<(length-1)*8);
+
+        return decodeBody(data,byteOffset,flipBody,sign,length,x);
+    }
+
     /**
      * Serializes a boolean into a 1-byte byte[].
      * <p/>
@@ -35,6 +35,7 @@ import java.nio.ByteBuffer;
  * Created on: 6/7/13
  */
 public class StringEncoding {
+    private static final int[] MIN_CODE_POINT = {0x00,0x80,0x800,0x10000};
 
     /**
      * Wraps the Lucene UnicodeUtil.UTF16toUTF8 bytes serializatiom...
@@ -114,6 +115,60 @@ public class StringEncoding {
         return Bytes.toString(data);
     }
 
+    /**
+     * Decodes the string directly into {@code dest} as UTF-16 chars, without modifying the source data or
+     * creating any intermediate objects. {@code dest} must hold at least {@code length} chars, which is always
+     * sufficient since no UTF-8 sequence decodes to more chars than bytes.
+     *
+     * @return the number of chars written into {@code dest}, or -1 if the encoded value is {@code null}
+     * or is not a valid UTF-8 sequence (in which case callers should fall back to {@link #getStringCopy}).
+     */
+    public static int decodeInto(byte[] data,int offset,int length,boolean desc,char[] dest){
+        if(length==0) return -1;
+        int mask=desc?0xff:0;
+        if(length==1 && ((data[offset]^mask)&0xff)==0x01) return 0;
+
+        int end=offset+length;
+        int pos=0;
+        int i=offset;
+        while(i<end){
+            int b=((data[i]^mask)-2)&0xff;
+            if(b<0x80){
+                dest[pos++]=(char)b;
+                i++;
+                continue;
+            }
+            int n;
+            int cp;
+            if((b&0xe0)==0xc0){
+                n=1;
+                cp=b&0x1f;
+            }else if((b&0xf0)==0xe0){
+                n=2;
+                cp=b&0x0f;
+            }else if((b&0xf8)==0xf0){
+                n=3;
+                cp=b&0x07;
+            }else return -1;
+            if(i+n>=end) return -1;
+            for(int j=1;j<=n;j++){
+                int c=((data[i+j]^mask)-2)&0xff;
+                if((c&0xc0)!=0x80) return -1;
+                cp=(cp<<6)|(c&0x3f);
+            }
+            i+=n+1;
+            if(cp<MIN_CODE_POINT[n] || (cp>=Character.MIN_SURROGATE && cp<=Character.MAX_SURROGATE))
+                return -1; //overlong or surrogate encodings aren't valid UTF-8
+            if(cp<0x10000)
+                dest[pos++]=(char)cp;
+            else if(cp<=Character.MAX_CODE_POINT){
+                dest[pos++]=Character.highSurrogate(cp);
+                dest[pos++]=Character.lowSurrogate(cp);
+            }else return -1;
+        }
+        return pos;
+    }
+
     public static String getStringCopy(byte[] data,int offset,int length, boolean desc){
         byte[] dataToCopy = new byte[length];
         System.arraycopy(data,offset,dataToCopy,0,length);
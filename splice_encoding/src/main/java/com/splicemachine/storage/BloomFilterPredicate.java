@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.storage;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.hash.BloomFilter;
+
+/**
+ * A Predicate which rejects a column value if it is definitely not contained in a {@link BloomFilter}.
+ *
+ * The filter must have been populated with the <em>encoded</em> bytes of each value, so that the
+ * check can be made against the raw field without decoding it. Since Bloom filters never
+ * produce false negatives, the predicate only ever removes rows which could not match
+ * the values used to build the filter.
+ *
+ * Null (missing) values are always accepted; whether they should be removed is up to the predicates
+ * which are applied after this one.
+ *
+ * This predicate is built locally (typically from the build side of a join), and cannot be serialized.
+ */
+public class BloomFilterPredicate implements Predicate{
+    private final int column;
+    private final BloomFilter filter;
+
+    public BloomFilterPredicate(int column,BloomFilter filter){
+        this.column=column;
+        this.filter=filter;
+    }
+
+    @Override
+    public boolean applies(int column){
+        return this.column==column;
+    }
+
+    @Override
+    public boolean match(int column,byte[] data,int offset,int length){
+        if(this.column!=column) return true; //not the right column, don't worry about it
+        if(data==null || length<=0) return true;
+        return filter.mightContain(data,offset,length);
+    }
+
+    @Override
+    public boolean checkAfter(){
+        return false;
+    }
+
+    @Override
+    public void setCheckedColumns(BitSet checkedColumns){
+        checkedColumns.set(column);
+    }
+
+    @Override
+    public void reset(){
+        //no-op
+    }
+
+    @Override
+    public byte[] toBytes(){
+        throw new UnsupportedOperationException("BloomFilterPredicate cannot be serialized");
+    }
+}
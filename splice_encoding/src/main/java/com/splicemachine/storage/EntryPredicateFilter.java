@@ -208,6 +208,20 @@ public class EntryPredicateFilter {
         this.valuePredicates = valuePredicates;
     }
 
+    /**
+     * Create a copy of this filter which applies {@code predicate} in addition to the predicates
+     * of this filter. This filter is left unchanged (so it is safe to use even on {@link #EMPTY_PREDICATE}).
+     *
+     * @param predicate the additional predicate to apply
+     * @return a new filter applying all the predicates of this filter, followed by {@code predicate}
+     */
+    public EntryPredicateFilter withPredicate(Predicate predicate){
+        ObjectArrayList<Predicate> predicates = new ObjectArrayList<>(valuePredicates.size()+1);
+        predicates.addAll(valuePredicates);
+        predicates.add(predicate);
+        return new EntryPredicateFilter(fieldsToReturn,predicates,returnIndex);
+    }
+
     private void skipField(MultiFieldDecoder decoder, int position, Indexed index) {
 				if(index.isScalarType(position)){
 						decoder.skipLong();
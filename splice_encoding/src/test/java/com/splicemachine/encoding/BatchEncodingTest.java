@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.encoding;
+
+import com.splicemachine.primitives.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks that the batch encoders produce exactly the bytes of the scalar encoders.
+ */
+public class BatchEncodingTest{
+    private static final int NUM_ROWS=1000;
+
+    private final Random random=new Random(0l);
+
+    @Test
+    public void testLongsMatchScalarEncoding() throws Exception{
+        long[] values=new long[NUM_ROWS+8];
+        for(int i=0;i<NUM_ROWS;i++){
+            //cover every encoded length, in both signs
+            values[i]=random.nextLong()>>random.nextInt(Long.SIZE);
+        }
+        long[] edges={0l,-1l,63l,64l,-64l,-65l,4095l,4096l,Long.MAX_VALUE,Long.MIN_VALUE};
+        System.arraycopy(edges,0,values,NUM_ROWS-edges.length,edges.length);
+
+        for(boolean desc:new boolean[]{false,true}){
+            int[] offsets=new int[NUM_ROWS+1];
+            byte[] dest=new byte[3+BatchEncoding.encodedLength(values,NUM_ROWS)];
+            int written=BatchEncoding.encode(values,NUM_ROWS,desc,dest,3,offsets);
+            Assert.assertEquals(dest.length-3,written);
+            for(int i=0;i<NUM_ROWS;i++){
+                assertEncoded("value "+values[i],Encoding.encode(values[i],desc),dest,offsets[i],offsets[i+1]);
+            }
+        }
+    }
+
+    @Test
+    public void testDoublesMatchScalarEncoding() throws Exception{
+        double[] values=new double[NUM_ROWS];
+        for(int i=0;i<NUM_ROWS;i++){
+            values[i]=Double.longBitsToDouble(random.nextLong());
+        }
+        double[] edges={0d,-0d,Double.MIN_VALUE,-Double.MAX_VALUE,Double.NEGATIVE_INFINITY,Double.POSITIVE_INFINITY,1d,-1d};
+        System.arraycopy(edges,0,values,0,edges.length);
+
+        for(boolean desc:new boolean[]{false,true}){
+            int[] offsets=new int[NUM_ROWS+1];
+            byte[] dest=new byte[8*NUM_ROWS];
+            Assert.assertEquals(dest.length,BatchEncoding.encode(values,NUM_ROWS,desc,dest,0,offsets));
+            for(int i=0;i<NUM_ROWS;i++){
+                assertEncoded("value "+values[i],Encoding.encode(values[i],desc),dest,offsets[i],offsets[i+1]);
+            }
+        }
+    }
+
+    @Test
+    public void testStringsMatchScalarEncoding() throws Exception{
+        String[] values=new String[NUM_ROWS];
+        for(int i=0;i<NUM_ROWS;i++){
+            int choice=random.nextInt(10);
+            if(choice==0) values[i]=null;
+            else if(choice==1) values[i]="";
+            else{
+                char[] chars=new char[random.nextInt(20)+1];
+                for(int j=0;j<chars.length;j++){
+                    chars[j]=(char)(random.nextInt(0xD000-1)+1);
+                }
+                values[i]=new String(chars);
+            }
+        }
+        byte[] utf8=new byte[NUM_ROWS*60];
+        int[] valueOffsets=new int[NUM_ROWS];
+        int[] valueLengths=new int[NUM_ROWS];
+        int pos=0;
+        for(int i=0;i<NUM_ROWS;i++){
+            valueOffsets[i]=pos;
+            if(values[i]==null){
+                valueLengths[i]=-1;
+                continue;
+            }
+            byte[] bytes=Bytes.toBytes(values[i]);
+            System.arraycopy(bytes,0,utf8,pos,bytes.length);
+            valueLengths[i]=bytes.length;
+            pos+=bytes.length;
+        }
+
+        for(boolean desc:new boolean[]{false,true}){
+            int[] offsets=new int[NUM_ROWS+1];
+            byte[] dest=new byte[BatchEncoding.encodedLength(valueLengths,NUM_ROWS)];
+            Assert.assertEquals(dest.length,BatchEncoding.encode(utf8,valueOffsets,valueLengths,NUM_ROWS,desc,dest,0,offsets));
+            for(int i=0;i<NUM_ROWS;i++){
+                assertEncoded("value "+values[i],Encoding.encode(values[i],desc),dest,offsets[i],offsets[i+1]);
+            }
+        }
+    }
+
+    @Test
+    public void testBuildKeysMatchesMultiFieldEncoder() throws Exception{
+        long[] longs=new long[NUM_ROWS];
+        double[] doubles=new double[NUM_ROWS];
+        for(int i=0;i<NUM_ROWS;i++){
+            longs[i]=random.nextLong()>>random.nextInt(Long.SIZE);
+            doubles[i]=random.nextGaussian();
+        }
+        int[] longOffsets=new int[NUM_ROWS+1];
+        byte[] longData=new byte[BatchEncoding.encodedLength(longs,NUM_ROWS)];
+        BatchEncoding.encode(longs,NUM_ROWS,false,longData,0,longOffsets);
+        int[] doubleOffsets=new int[NUM_ROWS+1];
+        byte[] doubleData=new byte[8*NUM_ROWS];
+        BatchEncoding.encode(doubles,NUM_ROWS,true,doubleData,0,doubleOffsets);
+
+        byte[][] keys=BatchEncoding.buildKeys(NUM_ROWS,new byte[][]{longData,doubleData},new int[][]{longOffsets,doubleOffsets});
+        MultiFieldEncoder encoder=MultiFieldEncoder.create(2);
+        for(int i=0;i<NUM_ROWS;i++){
+            encoder.reset();
+            byte[] expected=encoder.encodeNext(longs[i]).encodeNext(doubles[i],true).build();
+            Assert.assertArrayEquals("row "+i,expected,keys[i]);
+        }
+    }
+
+    private static void assertEncoded(String message,byte[] expected,byte[] actual,int start,int end){
+        Assert.assertArrayEquals(message,expected,Arrays.copyOfRange(actual,start,end));
+    }
+}
@@ -29,4 +29,27 @@ public class StringEncoding_FixedTest {
         assertEquals("[85, 91, 85]", Arrays.toString(testBytes));
     }
 
+    @Test
+    public void testDecodeIntoMatchesGetString() throws Exception {
+        String[] values = {"", "SYS", "caf\u00e9", "\u65e5\u672c\u8a9e", "a\ud83d\ude00b"};
+        for (String value : values) {
+            for (boolean desc : new boolean[]{false, true}) {
+                byte[] data = StringEncoding.toBytes(value, desc);
+                char[] dest = new char[data.length];
+                int length = StringEncoding.decodeInto(data, 0, data.length, desc, dest);
+                assertEquals(value, new String(dest, 0, length));
+                assertEquals(value, StringEncoding.getStringCopy(data, 0, data.length, desc));
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeIntoNullAndInvalid() throws Exception {
+        char[] dest = new char[4];
+        assertEquals(-1, StringEncoding.decodeInto(new byte[0], 0, 0, false, dest));
+        //a truncated multi-byte sequence can't be decoded in place
+        byte[] data = StringEncoding.toBytes("\u00e9", false);
+        assertEquals(-1, StringEncoding.decodeInto(data, 0, 1, false, dest));
+    }
+
 }
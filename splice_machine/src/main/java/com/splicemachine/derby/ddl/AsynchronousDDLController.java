@@ -127,6 +127,11 @@ public class AsynchronousDDLController implements DDLController, CommunicationLi
         communicator.deleteChangeNode(changeId);
     }
 
+    @Override
+    public Collection<String> getActiveServers(CommunicationListener listener) throws StandardException{
+        return communicator.activeListeners(listener);
+    }
+
     @Override
     public void onCommunicationEvent(String node){
         notificationLock.lock();
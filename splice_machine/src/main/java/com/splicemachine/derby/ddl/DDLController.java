@@ -18,6 +18,8 @@ package com.splicemachine.derby.ddl;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.ddl.DDLMessage;
 
+import java.util.Collection;
+
 public interface DDLController {
 
     /**
@@ -30,4 +32,10 @@ public interface DDLController {
      */
     void finishMetadataChange(String changeId) throws StandardException;
 
+    /**
+     * @param listener notified once, the next time the set of servers changes
+     * @return the servers which currently take part in DDL coordination
+     */
+    Collection<String> getActiveServers(CommunicationListener listener) throws StandardException;
+
 }
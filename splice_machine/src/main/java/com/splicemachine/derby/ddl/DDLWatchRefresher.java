@@ -45,6 +45,7 @@ import java.util.concurrent.atomic.AtomicReference;
 public class DDLWatchRefresher{
     private static final Logger LOG=Logger.getLogger(DDLWatchRefresher.class);
     private final Set<String> seenDDLChanges;
+    private final Set<String> seenNotifications;
     private final Map<String, Long> changeTimeouts;
     private final Map<String, DDLChange> currentDDLChanges;
     private final Map<String, DDLChange> tentativeDDLS;
@@ -69,6 +70,7 @@ public class DDLWatchRefresher{
         this.txController = txnController;
         this.maxDdlWaitMs=maxDdlWaitMs;
         this.seenDDLChanges=new ConcurrentHashSet<>();
+        this.seenNotifications=new ConcurrentHashSet<>();
         this.changeTimeouts=new ConcurrentHashMap<>();
         this.currentDDLChanges=new ConcurrentHashMap<>();
         this.tentativeDDLS=new ConcurrentHashMap<>();
@@ -100,9 +102,20 @@ public class DDLWatchRefresher{
         }
 
         for(String changeId : ongoingDDLChangeIds){
-            if(!seenDDLChanges.contains(changeId)){
+            if(!seenDDLChanges.contains(changeId) && !seenNotifications.contains(changeId)){
                 DDLChange change=watchChecker.getChange(changeId);
                 if(change==null)continue; //another thread took care of this for us
+                if(isNotification(change)){
+                    try{
+                        processNotification(change,callbacks);
+                        seenNotifications.add(changeId);
+                        newChanges.add(new Pair<DDLChange, String>(change,null));
+                    }catch(Exception e){
+                        LOG.error("Encountered an exception processing notification",e);
+                        newChanges.add(new Pair<>(change,e.getLocalizedMessage()));
+                    }
+                    continue;
+                }
 
                 //inform the server of the first time we see this change
                 String cId=change.getChangeId();
@@ -180,6 +193,28 @@ public class DDLWatchRefresher{
         }
     }
 
+    /**
+     * Notifications are changes which every server needs to see, but which do not change any metadata
+     * (and so neither invalidate the dictionary caches nor belong to a transaction which could be timed out).
+     */
+    private static boolean isNotification(DDLChange change){
+        switch(change.getDdlChangeType()){
+            case RESULT_CACHE_WATCH:
+            case RESULT_CACHE_WRITE:
+            case RESULT_CACHE_JOIN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void processNotification(DDLChange change,
+                                     Collection<DDLWatcher.DDLListener> ddlListeners) throws StandardException {
+        for(DDLWatcher.DDLListener listener:ddlListeners){
+            listener.startChange(change);
+        }
+    }
+
     private void clearFinishedChanges(Collection<String> children,Collection<DDLWatcher.DDLListener> ddlListeners) throws StandardException {
         /*
          * Remove DDL changes which are known to be finished.
@@ -187,6 +222,10 @@ public class DDLWatchRefresher{
          * This is to avoid processing a DDL change twice.
          *
          */
+        for(Iterator<String> iterator=seenNotifications.iterator();iterator.hasNext();){
+            if(!children.contains(iterator.next()))
+                iterator.remove();
+        }
         for(Iterator<String> iterator=seenDDLChanges.iterator();iterator.hasNext();){
             String entry=iterator.next();
             if(!children.contains(entry)){
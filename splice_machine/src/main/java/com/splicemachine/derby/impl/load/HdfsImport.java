@@ -183,6 +183,7 @@ public class HdfsImport {
                  charset,
                  true,
                  false,
+                 null,
                  results);
     }
 
@@ -263,6 +264,59 @@ public class HdfsImport {
                  charset,
                  false,
                  false,
+                 null,
+                 results);
+    }
+
+    /**
+     * The SYSCS_UTIL.BULK_IMPORT_HFILE system procedure imports data the same way as {@link #IMPORT_DATA}, but
+     * instead of sending every row through the write pipeline it sorts the encoded rows by region, writes them to
+     * HFiles under a staging directory and hands those files to the region servers in one step.
+     * <p/>
+     * Only tables without triggers or foreign keys can be bulk imported, and tables with a primary key or a unique
+     * index must be empty. Rows are not checked against existing data, so this is meant for initial loads.
+     *
+     * @param bulkImportDirectory the directory in which HFiles are staged before they are loaded. It must be on the
+     *                            same file system as the cluster's HBase root directory, and is cleaned up once the
+     *                            import finishes.
+     * @see #IMPORT_DATA for the remaining parameters.
+     * @throws SQLException
+     */
+    public static void BULK_IMPORT_HFILE(String schemaName,
+                                         String tableName,
+                                         String insertColumnList,
+                                         String fileName,
+                                         String columnDelimiter,
+                                         String characterDelimiter,
+                                         String timestampFormat,
+                                         String dateFormat,
+                                         String timeFormat,
+                                         long badRecordsAllowed,
+                                         String badRecordDirectory,
+                                         String oneLineRecords,
+                                         String charset,
+                                         String bulkImportDirectory,
+                                         ResultSet[] results
+    ) throws SQLException {
+        if (bulkImportDirectory == null)
+            throw PublicAPI.wrapStandardException(
+                ErrorState.BULK_IMPORT_NOT_SUPPORTED.newException(tableName, "no bulk import directory was given"));
+        doImport(schemaName,
+                 tableName,
+                 insertColumnList,
+                 fileName,
+                 columnDelimiter,
+                 characterDelimiter,
+                 timestampFormat,
+                 dateFormat,
+                 timeFormat,
+                 badRecordsAllowed,
+                 badRecordDirectory,
+                 oneLineRecords,
+                 charset,
+                 false,
+                 false,
+                 bulkImportDirectory,
                  results);
     }
 
@@ -282,6 +336,7 @@ public class HdfsImport {
                                  String charset,
                                  boolean isUpsert,
                                  boolean isCheckScan,
+                                 String bulkImportDirectory,
                                  ResultSet[] results) throws SQLException {
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG, "doImport {schemaName=%s, tableName=%s, insertColumnList=%s, fileName=%s, " +
@@ -370,7 +425,8 @@ public class HdfsImport {
             ColumnInfo columnInfo = new ColumnInfo(conn, schemaName, tableName, insertColumnList);
             String insertSql = "INSERT INTO " + entityName + "(" + columnInfo.getInsertColumnNames() + ") " +
                 "--splice-properties insertMode=" + (isUpsert ? "UPSERT" : "INSERT") + ", statusDirectory=" +
-                badRecordDirectory + ", badRecordsAllowed=" + badRecordsAllowed + "\n" +
+                badRecordDirectory + ", badRecordsAllowed=" + badRecordsAllowed +
+                (bulkImportDirectory == null ? "" : ", bulkImportDirectory=" + bulkImportDirectory) + "\n" +
                 " SELECT * from " +
                 importVTI + " AS importVTI (" + columnInfo.getImportAsColumns() + ")";
 
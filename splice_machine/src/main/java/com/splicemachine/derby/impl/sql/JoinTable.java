@@ -17,6 +17,7 @@ package com.splicemachine.derby.impl.sql;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.hash.BloomFilter;
 
 import java.io.IOException;
 import java.util.Iterator;
@@ -29,6 +30,23 @@ public interface JoinTable extends AutoCloseable{
 
     interface Factory{
         JoinTable newTable();
+
+        /**
+         * @return the approximate number of bytes (on or off heap) held by the tables this factory creates
+         */
+        long estimatedSizeInBytes();
+
+        /**
+         * @return a Bloom filter over the encoded join keys of the inner table. The filter
+         * is built on first request, and shared between all the tables this factory creates.
+         */
+        BloomFilter getJoinKeyFilter();
+
+        /**
+         * Release the resources held by this factory. No tables may be created after the factory is closed,
+         * and every table it created must already have been closed.
+         */
+        void close();
     }
 
     Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException;
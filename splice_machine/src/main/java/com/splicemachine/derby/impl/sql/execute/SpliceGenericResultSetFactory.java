@@ -1205,6 +1205,7 @@ public class SpliceGenericResultSetFactory implements ResultSetFactory {
                                              String insertMode,
                                              String statusDirectory,
                                              int failBadRecordCount,
+                                             String bulkImportDirectory,
                                              double optimizerEstimatedRowCount,
                                              double optimizerEstimatedCost,
                                              String tableVersion,
@@ -1213,7 +1214,8 @@ public class SpliceGenericResultSetFactory implements ResultSetFactory {
         try{
             ConvertedResultSet below = (ConvertedResultSet)source;
             SpliceOperation top = new InsertOperation(below.getOperation(), generationClauses, checkGM, insertMode,
-                    statusDirectory, failBadRecordCount,optimizerEstimatedRowCount,optimizerEstimatedCost, tableVersion);
+                    statusDirectory, failBadRecordCount, bulkImportDirectory,
+                    optimizerEstimatedRowCount,optimizerEstimatedCost, tableVersion);
             source.getActivation().getLanguageConnectionContext().getAuthorizer().authorize(source.getActivation(), 1);
             top.markAsTopResultSet();
             top.setExplainPlan(explainPlan);
@@ -38,6 +38,7 @@ import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.storage.*;
 import com.splicemachine.storage.index.BitIndex;
+import com.splicemachine.utils.ByteSlice;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.IOException;
@@ -222,7 +223,8 @@ public class IndexTransformer {
         if (table.getColumnOrderingCount()>0) {
             //we have key columns to check
             MultiFieldDecoder keyDecoder = getSrcKeyDecoder();
-            keyDecoder.set(mutation.getRowKey());
+            ByteSlice srcKey = mutation.rowKeySlice();
+            keyDecoder.set(srcKey.array(), srcKey.offset(), srcKey.length());
             for(int i=0;i<table.getColumnOrderingCount();i++){
                 int sourceKeyColumnPos = table.getColumnOrdering(i);
 
@@ -260,7 +262,8 @@ public class IndexTransformer {
          * backfilling them with existing values, which would occur elsewhere).
          */
         EntryDecoder rowDecoder = getSrcValueDecoder();
-        rowDecoder.set(mutation.getValue());
+        ByteSlice srcValue = mutation.valueSlice();
+        rowDecoder.set(srcValue.array(), srcValue.offset(), srcValue.length());
         BitIndex bitIndex = rowDecoder.getCurrentIndex();
         MultiFieldDecoder rowFieldDecoder = rowDecoder.getEntryDecoder();
         for (int i = bitIndex.nextSetBit(0); i >= 0; i = bitIndex.nextSetBit(i + 1)) {
@@ -320,7 +323,8 @@ public class IndexTransformer {
         }
 
         //add the row key to the end of the index key
-        byte[] srcRowKey = Encoding.encodeBytesUnsorted(mutation.getRowKey());
+        ByteSlice srcRowKeySlice = mutation.rowKeySlice();
+        byte[] srcRowKey = Encoding.encodeBytesUnsorted(srcRowKeySlice.array(), srcRowKeySlice.offset(), srcRowKeySlice.length());
 
         EntryEncoder rowEncoder = getRowEncoder();
         MultiFieldEncoder entryEncoder = rowEncoder.getEntryEncoder();
@@ -347,7 +351,8 @@ public class IndexTransformer {
      */
     public boolean areIndexKeysModified(KVPair mutation, BitSet indexedColumns) {
         EntryDecoder newPutDecoder = new EntryDecoder();
-        newPutDecoder.set(mutation.getValue());
+        ByteSlice value = mutation.valueSlice();
+        newPutDecoder.set(value.array(), value.offset(), value.length());
         BitIndex updateIndex = newPutDecoder.getCurrentIndex();
         for (int i = updateIndex.nextSetBit(0); i >= 0; i = updateIndex.nextSetBit(i + 1)) {
             if (indexedColumns.get(i))
@@ -17,9 +17,14 @@ package com.splicemachine.derby.impl.sql.execute.operations;
 
 import org.sparkproject.guava.cache.Cache;
 import org.sparkproject.guava.cache.CacheBuilder;
+import org.sparkproject.guava.cache.RemovalListener;
+import org.sparkproject.guava.cache.RemovalNotification;
+import org.sparkproject.guava.cache.Weigher;
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.hash.BloomFilter;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.stream.Stream;
@@ -49,18 +54,45 @@ public class BroadcastJoinCache{
     }
 
     public BroadcastJoinCache(){
-       this(ByteBufferMapTableLoader.INSTANCE);
+       this(OffHeapJoinTableLoader.INSTANCE,maxCacheBytes());
     }
 
-    public BroadcastJoinCache(JoinTableLoader tableLoader){
+    public BroadcastJoinCache(JoinTableLoader tableLoader,long maxBytes){
         this.tableLoader = tableLoader;
+        /*
+         * Bound the cache by the (estimated) size of the tables it holds rather than by the number of
+         * tables, since a single broadcast table may hold millions of rows. Guava weights are ints,
+         * so we weigh in kilobytes.
+         */
         this.cache =CacheBuilder.newBuilder()
-                .maximumSize(1000)
+                .maximumWeight(Math.max(1L,maxBytes/1024))
+                .weigher(new Weigher<Long, ReferenceCountingFactory>(){
+                    @Override
+                    public int weigh(Long key,ReferenceCountingFactory value){
+                        long kb = value.estimatedSizeInBytes()/1024;
+                        return (int)Math.min(Integer.MAX_VALUE,Math.max(1L,kb));
+                    }
+                })
+                .removalListener(new RemovalListener<Long, ReferenceCountingFactory>(){
+                    @Override
+                    public void onRemoval(RemovalNotification<Long, ReferenceCountingFactory> notification){
+                        //a collected value has already been reclaimed
+                        ReferenceCountingFactory factory=notification.getValue();
+                        if(factory!=null)
+                            factory.release();
+                    }
+                })
                 .expireAfterAccess(2,TimeUnit.SECONDS)
                 .softValues()
                 .build();
     }
 
+    private static long maxCacheBytes(){
+        EngineDriver driver = EngineDriver.driver();
+        if(driver==null) return Runtime.getRuntime().maxMemory()/4;
+        return driver.getConfiguration().getBroadcastCacheMaxBytes();
+    }
+
     public JoinTable.Factory get(Long operationId,
                          Callable<Stream<ExecRow>> loader,
                          int[] rightHashKeys,
@@ -68,9 +100,15 @@ public class BroadcastJoinCache{
                          ExecRow leftTemplateRow) throws IOException, StandardException{
         try{
             Loader callable=new Loader(operationId,tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
-            ReferenceCountingFactory joinTable=cache.get(operationId,callable);
-            joinTable.refCount.incrementAndGet();
-            return joinTable;
+            while(true){
+                ReferenceCountingFactory joinTable=cache.get(operationId,callable);
+                /*
+                 * If the last user released the table after it was removed from the cache, then
+                 * its memory is gone and we have to load it again
+                 */
+                if(joinTable.retain())
+                    return joinTable;
+            }
         }catch(ExecutionException e){
             Throwable c = e.getCause();
             if(c instanceof StandardException)
@@ -128,15 +166,19 @@ public class BroadcastJoinCache{
 
         @Override
         public void close(){
-            refFactory.markClosed();
             delegate.close();
+            refFactory.markClosed();
         }
     }
 
+    /*
+     * The cache holds one reference to the factory, and each user of the factory holds another; the
+     * underlying table is closed (releasing any off-heap memory) when the last reference is released.
+     */
     private class ReferenceCountingFactory implements JoinTable.Factory{
         private final JoinTable.Factory delegate;
         private final Long id;
-        private AtomicInteger refCount = new AtomicInteger(0);
+        private final AtomicInteger refCount = new AtomicInteger(1);
 
         public ReferenceCountingFactory(JoinTable.Factory delegate,Long id){
             this.delegate=delegate;
@@ -148,10 +190,39 @@ public class BroadcastJoinCache{
             return new ReferenceCountedJoinTable(delegate.newTable(),this);
         }
 
+        @Override
+        public long estimatedSizeInBytes(){
+            return delegate.estimatedSizeInBytes();
+        }
+
+        @Override
+        public BloomFilter getJoinKeyFilter(){
+            return delegate.getJoinKeyFilter();
+        }
+
+        @Override
+        public void close(){
+            release();
+        }
+
+        boolean retain(){
+            int refC;
+            do{
+                refC=refCount.get();
+                if(refC<=0) return false;
+            }while(!refCount.compareAndSet(refC,refC+1));
+            return true;
+        }
+
+        void release(){
+            if(refCount.decrementAndGet()==0)
+                delegate.close();
+        }
+
         public void markClosed(){
-            int refC=refCount.decrementAndGet();
-            if(refC<=0)
-                cache.invalidate(id);
+            release();
+            if(refCount.get()<=1) //only the cache is left holding the table (unless it has already been replaced)
+                cache.asMap().remove(id,this);
         }
     }
 }
@@ -157,6 +157,16 @@ public class BroadcastJoinOperation extends JoinOperation{
         return sequenceId;
     }
 
+    /**
+     * @return true if left rows whose join key does not appear on the right side can be discarded
+     * before they reach the join, so that a filter over the right side's join keys may be pushed into the left side.
+     * This is only the case for inner joins on a single key column.
+     */
+    public boolean pushesRuntimeJoinFilter() {
+        return !isOuterJoin && !notExistsRightSide && leftHashKeys!=null && leftHashKeys.length==1
+                && RuntimeJoinFilters.isEnabled();
+    }
+
     @Override
     public void writeExternal(ObjectOutput out) throws IOException{
         super.writeExternal(out);
@@ -181,6 +191,9 @@ public class BroadcastJoinOperation extends JoinOperation{
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         OperationContext operationContext = dsp.createOperationContext(this);
 
+        if (pushesRuntimeJoinFilter() && leftResultSet instanceof TableScanOperation)
+            ((TableScanOperation)leftResultSet).pushRuntimeJoinFilter(sequenceId, leftHashKeys[0]);
+
         DataSet<LocatedRow> leftDataSet = leftResultSet.getDataSet(dsp);
 
         operationContext.pushScope();
@@ -17,6 +17,7 @@ package com.splicemachine.derby.impl.sql.execute.operations;
 
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.stream.control.spill.HeapSizeEstimator;
 import com.splicemachine.derby.utils.marshall.BareKeyHash;
 import com.splicemachine.derby.utils.marshall.KeyEncoder;
 import com.splicemachine.derby.utils.marshall.NoOpPostfix;
@@ -47,6 +48,7 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
     @Override
     public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys, ExecRow outerTemplateRow) throws ExecutionException{
         Map<ByteBuffer, List<ExecRow>> table=new HashMap<>();
+        long sizeInBytes=0L;
 
         DescriptorSerializer[] innerSerializers=null;
         KeyEncoder innerKeyEncoder=null;
@@ -65,8 +67,11 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
                 if(rows==null){
                     rows=new ArrayList<>(1);
                     table.put(key,rows);
+                    sizeInBytes+=key.capacity();
                 }
-                rows.add(right.getClone());
+                ExecRow clone=right.getClone();
+                rows.add(clone);
+                sizeInBytes+=HeapSizeEstimator.estimate(clone);
             }
         }catch(StreamException e){
            throw new ExecutionException(e.getCause());
@@ -75,6 +80,6 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
             else throw new ExecutionException(e);
         }
 
-        return new ByteBufferMappedJoinTable.Factory(table,outerHashKeys,outerTemplateRow);
+        return new ByteBufferMappedJoinTable.Factory(table,outerHashKeys,outerTemplateRow,sizeInBytes);
     }
 }
@@ -24,6 +24,7 @@ import com.splicemachine.derby.utils.marshall.NoOpPostfix;
 import com.splicemachine.derby.utils.marshall.NoOpPrefix;
 import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
 import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.hash.BloomFilter;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -65,16 +66,45 @@ class ByteBufferMappedJoinTable implements JoinTable{
         private final Map<ByteBuffer,List<ExecRow>> table;
         private final int[] outerHashKeys;
         private final ExecRow outerTemplateRow;
+        private final long sizeInBytes;
+        private volatile BloomFilter keyFilter;
 
-        public Factory(Map<ByteBuffer, List<ExecRow>> table,int[] outerHashKeys,ExecRow outerTemplateRow){
+        public Factory(Map<ByteBuffer, List<ExecRow>> table,int[] outerHashKeys,ExecRow outerTemplateRow,long sizeInBytes){
             this.table=table;
             this.outerHashKeys=outerHashKeys;
             this.outerTemplateRow=outerTemplateRow;
+            this.sizeInBytes=sizeInBytes;
         }
 
         @Override
         public JoinTable newTable(){
             return new ByteBufferMappedJoinTable(table,outerHashKeys,outerTemplateRow);
         }
+
+        @Override
+        public long estimatedSizeInBytes(){
+            return sizeInBytes;
+        }
+
+        @Override
+        public BloomFilter getJoinKeyFilter(){
+            BloomFilter filter=keyFilter;
+            if(filter==null){
+                synchronized(this){
+                    filter=keyFilter;
+                    if(filter==null){
+                        filter=BloomFilter.create(table.size(),RuntimeJoinFilters.FALSE_POSITIVE_RATE);
+                        for(ByteBuffer key : table.keySet()){
+                            filter.add(key.array(),key.arrayOffset(),key.capacity());
+                        }
+                        keyFilter=filter;
+                    }
+                }
+            }
+            return filter;
+        }
+
+        //the table is on heap, so there is nothing to release
+        @Override public void close(){}
     }
 }
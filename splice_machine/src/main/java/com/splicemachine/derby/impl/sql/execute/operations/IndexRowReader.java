@@ -17,6 +17,7 @@ package com.splicemachine.derby.impl.sql.execute.operations;
 
 import org.sparkproject.guava.collect.Lists;
 import com.splicemachine.access.api.PartitionFactory;
+import com.splicemachine.access.util.ByteComparisons;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.RowLocation;
@@ -24,6 +25,7 @@ import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
 import com.splicemachine.derby.utils.marshall.KeyDecoder;
 import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.ByteComparator;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
@@ -35,24 +37,43 @@ import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility for executing "look-ahead" index lookups, where the index lookup is backgrounded,
  * while other processes occur on the caller thread.
  *
+ * Each block of index rows is sorted by base row key and split into one batched get per
+ * region server, so that a lookup task talks to a single server instead of scattering its
+ * gets over every region of the base table. The results are put back into index order before
+ * they are returned. The number of rows per block adapts to the observed lookup latency.
+ *
  * @author Scott Fines
  *         Created on: 9/4/13
  */
 public class IndexRowReader implements Iterator<LocatedRow>, Iterable<LocatedRow>{
     protected static Logger LOG=Logger.getLogger(IndexRowReader.class);
+    /*
+     * The default latency we aim for with a single batched get; blocks shrink when the slowest
+     * lookup of a block takes much longer than this, and grow when it is much faster.
+     */
+    private static final long TARGET_LOOKUP_NANOS=TimeUnit.MILLISECONDS.toNanos(100);
     private final ExecutorService lookupService;
-    private final int batchSize;
+    private final long targetLookupNanos;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private int batchSize;
     private final int numBlocks;
     private final ExecRow outputTemplate;
     private final long mainTableConglomId;
@@ -65,7 +86,8 @@ public class IndexRowReader implements Iterator<LocatedRow>, Iterable<LocatedRow
     private final PartitionFactory tableFactory;
 
     private List<Pair<LocatedRow, DataResult>> currentResults;
-    private List<Future<List<Pair<LocatedRow, DataResult>>>> resultFutures;
+    private List<LookupBlock> resultBlocks;
+    private List<Partition> baseRegions;
     private boolean populated=false;
     private EntryDecoder entryDecoder;
     protected Iterator<LocatedRow> sourceIterator;
@@ -86,11 +108,32 @@ public class IndexRowReader implements Iterator<LocatedRow>, Iterable<LocatedRow
                    int[] indexCols,
                    TxnOperationFactory operationFactory,
                    PartitionFactory tableFactory){
+        this(lookupService,sourceIterator,outputTemplate,txn,lookupBatchSize,numConcurrentLookups,mainTableConglomId,
+                predicateFilterBytes,keyDecoder,rowDecoder,indexCols,operationFactory,tableFactory,TARGET_LOOKUP_NANOS);
+    }
+
+    IndexRowReader(ExecutorService lookupService,
+                   Iterator<LocatedRow> sourceIterator,
+                   ExecRow outputTemplate,
+                   TxnView txn,
+                   int lookupBatchSize,
+                   int numConcurrentLookups,
+                   long mainTableConglomId,
+                   byte[] predicateFilterBytes,
+                   KeyHashDecoder keyDecoder,
+                   KeyHashDecoder rowDecoder,
+                   int[] indexCols,
+                   TxnOperationFactory operationFactory,
+                   PartitionFactory tableFactory,
+                   long targetLookupNanos){
         this.lookupService=lookupService;
+        this.targetLookupNanos=targetLookupNanos;
         this.sourceIterator=sourceIterator;
         this.outputTemplate=outputTemplate;
         this.txn=txn;
-        batchSize=lookupBatchSize;
+        batchSize=Math.max(lookupBatchSize,1);
+        this.minBatchSize=Math.max(batchSize/8,1);
+        this.maxBatchSize=batchSize*2;
         this.numBlocks=numConcurrentLookups;
         this.mainTableConglomId=mainTableConglomId;
         this.predicateFilterBytes=predicateFilterBytes;
@@ -98,7 +141,7 @@ public class IndexRowReader implements Iterator<LocatedRow>, Iterable<LocatedRow
         this.keyDecoder=new KeyDecoder(keyDecoder,0);
         this.rowDecoder=rowDecoder;
         this.indexCols=indexCols;
-        this.resultFutures=Lists.newArrayListWithCapacity(numConcurrentLookups);
+        this.resultBlocks=Lists.newArrayListWithCapacity(numConcurrentLookups);
         this.operationFactory = operationFactory;
     }
 
@@ -172,24 +215,104 @@ public class IndexRowReader implements Iterator<LocatedRow>, Iterable<LocatedRow
             sourceRows.add(new LocatedRow(HBaseRowLocation.deepClone(rl), outputTemplate.getClone()));
         }
         if(sourceRows.size()>0){
-            //submit to the background thread
-            Lookup task=new Lookup(sourceRows);
-            resultFutures.add(lookupService.submit(task));
+            //submit to the background threads
+            resultBlocks.add(submitBlock(sourceRows));
         }
 
-        //if there is only one submitted future, call this again to set off an additional background process
-        if(resultFutures.size()<numBlocks && sourceRows.size()==batchSize)
+        //if there is only one submitted block, call this again to set off an additional background process
+        if(resultBlocks.size()<numBlocks && sourceRows.size()==batchSize)
             getMoreData();
-        else if(resultFutures.size()>0){
+        else if(resultBlocks.size()>0){
             waitForBlockCompletion();
         }
     }
 
+    /*
+     * Sorts the rows of a block by their base row key and submits one Lookup for each
+     * region server owning some of them. The region locations are only a grouping hint: if a
+     * region has moved or split in the meantime, the batched get still routes each key correctly.
+     */
+    private LookupBlock submitBlock(final List<LocatedRow> sourceRows) throws IOException{
+        final ByteComparator comparator=ByteComparisons.comparator();
+        Integer[] order=new Integer[sourceRows.size()];
+        for(int i=0;i<order.length;i++){
+            order[i]=i;
+        }
+        Arrays.sort(order,new Comparator<Integer>(){
+            @Override
+            public int compare(Integer o1,Integer o2){
+                return comparator.compare(sourceRows.get(o1).getRowLocation().getBytes(),
+                        sourceRows.get(o2).getRowLocation().getBytes());
+            }
+        });
+
+        List<Partition> regions=getBaseRegions();
+        Map<String, List<Integer>> serverGroups=new LinkedHashMap<>();
+        int region=0;
+        for(Integer position : order){
+            byte[] rowKey=sourceRows.get(position).getRowLocation().getBytes();
+            //the keys are sorted, so the owning region only ever moves forward
+            while(region<regions.size()-1 && comparator.compare(regions.get(region+1).getStartKey(),rowKey)<=0)
+                region++;
+            String server=regions.isEmpty()?"":serverOf(regions.get(region));
+            List<Integer> group=serverGroups.get(server);
+            if(group==null){
+                group=new ArrayList<>();
+                serverGroups.put(server,group);
+            }
+            group.add(position);
+        }
+
+        LookupBlock block=new LookupBlock(sourceRows.size(),sourceRows.size()==batchSize);
+        for(List<Integer> group : serverGroups.values()){
+            int[] positions=new int[group.size()];
+            List<LocatedRow> groupRows=new ArrayList<>(group.size());
+            for(int i=0;i<positions.length;i++){
+                positions[i]=group.get(i);
+                groupRows.add(sourceRows.get(positions[i]));
+            }
+            Lookup lookup=new Lookup(groupRows);
+            block.add(positions,lookup,lookupService.submit(lookup));
+        }
+        return block;
+    }
+
+    private List<Partition> getBaseRegions() throws IOException{
+        if(baseRegions==null){
+            //we only keep the boundaries and owners of the regions, so the table can be closed right away
+            List<Partition> regions;
+            try(Partition table=tableFactory.getTable(Long.toString(mainTableConglomId))){
+                regions=new ArrayList<>(table.subPartitions());
+            }
+            final ByteComparator comparator=ByteComparisons.comparator();
+            Collections.sort(regions,new Comparator<Partition>(){
+                @Override
+                public int compare(Partition o1,Partition o2){
+                    return comparator.compare(o1.getStartKey(),o2.getStartKey());
+                }
+            });
+            baseRegions=regions;
+        }
+        return baseRegions;
+    }
+
+    private static String serverOf(Partition region){
+        try{
+            PartitionServer server=region.owningServer();
+            if(server!=null)
+                return server.getHostAndPort();
+        }catch(UnsupportedOperationException ignored){
+            //this partition does not know its server, so treat it as a server of its own
+        }
+        return region.getName();
+    }
+
     private void waitForBlockCompletion() throws StandardException, IOException{
-        //wait for the first future to return correctly or error-out
+        //wait for the first block to return correctly or error-out
         try{
-            Future<List<Pair<LocatedRow, DataResult>>> future=resultFutures.remove(0);
-            currentResults=future.get();
+            LookupBlock block=resultBlocks.remove(0);
+            currentResults=block.get();
+            adjustBatchSize(block);
         }catch(InterruptedException e){
             throw new InterruptedIOException(e.getMessage());
         }catch(ExecutionException e){
@@ -199,8 +322,65 @@ public class IndexRowReader implements Iterator<LocatedRow>, Iterable<LocatedRow
         }
     }
 
+    /*
+     * A block is as slow as its slowest lookup, so that lookup decides whether the next blocks
+     * get fewer rows (to bound the latency of each round trip) or more rows (to need fewer of them).
+     */
+    private void adjustBatchSize(LookupBlock block){
+        long slowest=block.slowestLookupNanos();
+        int newSize=batchSize;
+        if(slowest>2*targetLookupNanos)
+            newSize=Math.max(batchSize/2,minBatchSize);
+        else if(block.full && slowest<targetLookupNanos/2)
+            newSize=Math.min(batchSize+batchSize/2+1,maxBatchSize);
+        if(newSize!=batchSize && LOG.isTraceEnabled())
+            LOG.trace("Index lookup batch size "+batchSize+" -> "+newSize+" (slowest lookup "+TimeUnit.NANOSECONDS.toMillis(slowest)+" ms)");
+        batchSize=newSize;
+    }
+
+    private static class LookupBlock{
+        private final int size;
+        private final boolean full;
+        private final List<int[]> positions=new ArrayList<>();
+        private final List<Lookup> lookups=new ArrayList<>();
+        private final List<Future<List<Pair<LocatedRow, DataResult>>>> futures=new ArrayList<>();
+
+        LookupBlock(int size,boolean full){
+            this.size=size;
+            this.full=full;
+        }
+
+        void add(int[] positions,Lookup lookup,Future<List<Pair<LocatedRow, DataResult>>> future){
+            this.positions.add(positions);
+            this.lookups.add(lookup);
+            this.futures.add(future);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Pair<LocatedRow, DataResult>> get() throws InterruptedException, ExecutionException{
+            Pair<LocatedRow, DataResult>[] results=new Pair[size];
+            for(int i=0;i<futures.size();i++){
+                List<Pair<LocatedRow, DataResult>> lookupResults=futures.get(i).get();
+                int[] lookupPositions=positions.get(i);
+                for(int j=0;j<lookupPositions.length;j++){
+                    results[lookupPositions[j]]=lookupResults.get(j);
+                }
+            }
+            return new ArrayList<>(Arrays.asList(results));
+        }
+
+        long slowestLookupNanos(){
+            long slowest=0L;
+            for(Lookup lookup : lookups){
+                slowest=Math.max(slowest,lookup.getElapsedNanos());
+            }
+            return slowest;
+        }
+    }
+
     public class Lookup implements Callable<List<Pair<LocatedRow, DataResult>>>{
         private final List<LocatedRow> sourceRows;
+        private volatile long elapsedNanos;
 
         public Lookup(List<LocatedRow> sourceRows){
             this.sourceRows=sourceRows;
@@ -218,7 +398,9 @@ public class IndexRowReader implements Iterator<LocatedRow>, Iterable<LocatedRow
             operationFactory.encodeForReads(attributable,txn,false);
 
             try(Partition table = tableFactory.getTable(Long.toString(mainTableConglomId))){
+                long start=System.nanoTime();
                 Iterator<DataResult> results=table.batchGet(attributable,rowKeys);
+                elapsedNanos=System.nanoTime()-start;
                 List<Pair<LocatedRow, DataResult>> locations=Lists.newArrayListWithCapacity(sourceRows.size());
                 for(LocatedRow sourceRow : sourceRows){
                     if(!results.hasNext())
@@ -228,6 +410,10 @@ public class IndexRowReader implements Iterator<LocatedRow>, Iterable<LocatedRow
                 return locations;
             }
         }
+
+        public long getElapsedNanos(){
+            return elapsedNanos;
+        }
     }
 
     @Override
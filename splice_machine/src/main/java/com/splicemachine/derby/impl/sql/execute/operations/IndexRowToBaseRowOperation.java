@@ -369,6 +369,10 @@ public class IndexRowToBaseRowOperation extends SpliceBaseOperation{
         return this.indexName;
     }
 
+    public long getMainTableConglomerateId() {
+        return this.conglomId;
+    }
+
     public  FormatableBitSet getAccessedHeapCols() {
         return this.accessedHeapCols;
     }
@@ -43,6 +43,7 @@ import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
 import com.splicemachine.derby.stream.function.InsertPairFunction;
 import com.splicemachine.derby.stream.output.DataSetWriter;
 import com.splicemachine.derby.stream.output.WriteReadUtils;
+import com.splicemachine.derby.stream.output.bulk.BulkImportDataSetWriter;
 import com.splicemachine.derby.stream.output.insert.InsertPipelineWriter;
 import com.splicemachine.pipeline.ErrorState;
 import com.splicemachine.pipeline.Exceptions;
@@ -70,6 +71,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
     public InsertNode.InsertMode insertMode;
     public String statusDirectory;
     private int failBadRecordCount;
+    private String bulkImportDirectory;
 
 
     @Override
@@ -88,6 +90,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
                            String insertMode,
                            String statusDirectory,
                            int failBadRecordCount,
+                           String bulkImportDirectory,
                            double optimizerEstimatedRowCount,
                            double optimizerEstimatedCost,
                            String tableVersion) throws StandardException{
@@ -95,6 +98,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         this.insertMode=InsertNode.InsertMode.valueOf(insertMode);
         this.statusDirectory=statusDirectory;
         this.failBadRecordCount = (failBadRecordCount >= 0 ? failBadRecordCount : -1);
+        this.bulkImportDirectory=bulkImportDirectory;
         init();
     }
 
@@ -214,6 +218,8 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         if(in.readBoolean())
             statusDirectory=in.readUTF();
         failBadRecordCount=in.readInt();
+        if(in.readBoolean())
+            bulkImportDirectory=in.readUTF();
     }
 
     @Override
@@ -229,6 +235,9 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         if(statusDirectory!=null)
             out.writeUTF(statusDirectory);
         out.writeInt(failBadRecordCount);
+        out.writeBoolean(bulkImportDirectory!=null);
+        if(bulkImportDirectory!=null)
+            out.writeUTF(bulkImportDirectory);
     }
 
     @SuppressWarnings({ "unchecked" })
@@ -250,6 +259,12 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         try{
             if(statusDirectory!=null)
                 dsp.setSchedulerPool("import");
+            if(bulkImportDirectory!=null){
+                if(insertMode.equals(InsertNode.InsertMode.UPSERT))
+                    throw ErrorState.BULK_IMPORT_NOT_SUPPORTED.newException(""+heapConglom+"","upserts must use the write pipeline");
+                return new BulkImportDataSetWriter(set,dsp,operationContext,bulkImportDirectory,pkCols,tableVersion,
+                        execRowTypeFormatIds,heapConglom,txn).write();
+            }
             PairDataSet dataSet=set.index(new InsertPairFunction(operationContext),true);
             DataSetWriter writer=dataSet.insertData(operationContext)
                     .autoIncrementRowLocationArray(autoIncrementRowLocationArray)
@@ -25,6 +25,7 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.store.access.Qualifier;
 import com.splicemachine.db.iapi.store.access.ScanController;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.storage.DataScan;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -32,7 +33,11 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -100,7 +105,69 @@ public class MultiProbeDerbyScanInformation extends DerbyScanInformation{
             DataScan scan = getScan(txn, null, keyDecodingMap, null, null);
             scans.add(scan);
         }
-        return scans;
+        return mergeProbeRanges(scans);
+    }
+
+    /**
+     * Sort the probe scans by start key, drop the scans of duplicate probe values, and merge scans whose key ranges
+     * touch or overlap into a single scan. Scans are only merged if all their attributes (and so their predicates)
+     * are the same. Descending scans are returned as they are.
+     */
+    static List<DataScan> mergeProbeRanges(List<DataScan> scans) {
+        if (scans.size() <= 1 || scans.get(0).isDescendingScan())
+            return scans;
+        List<DataScan> sorted = new ArrayList<>(scans);
+        Collections.sort(sorted, new Comparator<DataScan>() {
+            @Override
+            public int compare(DataScan o1, DataScan o2) {
+                int c = Bytes.startComparator.compare(o1.getStartKey(), o2.getStartKey());
+                return c != 0 ? c : Bytes.endComparator.compare(o1.getStopKey(), o2.getStopKey());
+            }
+        });
+        List<DataScan> merged = new ArrayList<>(sorted.size());
+        DataScan current = sorted.get(0);
+        boolean copied = false;
+        for (int i = 1; i < sorted.size(); i++) {
+            DataScan next = sorted.get(i);
+            if (touches(current, next) && sameAttributes(current, next)) {
+                byte[] stop = Bytes.max(Bytes.endComparator, next.getStopKey(), current.getStopKey());
+                if (stop != current.getStopKey()) {
+                    if (!copied) {
+                        //never change the bounds of a scan we were given
+                        current = current.copy();
+                        copied = true;
+                    }
+                    current.stopKey(stop);
+                }
+            } else {
+                merged.add(current);
+                current = next;
+                copied = false;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    /*next starts no later than current stops (scans are sorted by start key)*/
+    private static boolean touches(DataScan current, DataScan next) {
+        byte[] stop = current.getStopKey();
+        if (stop == null || stop.length == 0)
+            return true;
+        byte[] start = next.getStartKey();
+        return start == null || start.length == 0 || Bytes.basicByteComparator().compare(start, stop) <= 0;
+    }
+
+    private static boolean sameAttributes(DataScan left, DataScan right) {
+        Map<String, byte[]> leftAttributes = left.allAttributes();
+        Map<String, byte[]> rightAttributes = right.allAttributes();
+        if (leftAttributes.size() != rightAttributes.size())
+            return false;
+        for (Map.Entry<String, byte[]> attribute : leftAttributes.entrySet()) {
+            if (!Arrays.equals(attribute.getValue(), rightAttributes.get(attribute.getKey())))
+                return false;
+        }
+        return true;
     }
 
 	@Override
@@ -27,6 +27,7 @@ import com.splicemachine.db.iapi.sql.compile.RowOrdering;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
 import com.splicemachine.derby.stream.output.WriteReadUtils;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.storage.DataScan;
@@ -54,6 +55,11 @@ import java.util.List;
  * value that equals one of values in the IN list.  In that case the IN list
  * values are represented by the probeValues array.
  *
+ * Probes are read in key order rather than in the order of probeValues: the
+ * probe scans are sorted, duplicates are dropped and touching key ranges are
+ * merged (see MultiProbeDerbyScanInformation). On the control side the ranges
+ * are then grouped by region and the groups are read in parallel.
+ *
  * Most of the work for this class is inherited from TableScanResultSet. 
  * This class overrides four public methods and two protected methods
  * from TableScanResultSet.  In all cases the methods here set probing
@@ -233,30 +239,39 @@ public class MultiProbeTableScanOperation extends TableScanOperation  {
     @Override
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         TxnView txn = getCurrentTransaction();
+        // sorted by key, without duplicate probe values, and with touching ranges merged
         List<DataScan> scans = scanInformation.getScans(getCurrentTransaction(), null, activation, getKeyDecodingMap());
-        DataSet<LocatedRow> dataSet = dsp.getEmpty();
         for (DataScan scan: scans) {
             deSiify(scan);
-            DataSet<LocatedRow> ds = dsp.<MultiProbeTableScanOperation,LocatedRow>newScanSet(this,tableName)
-                    .tableDisplayName(tableDisplayName)
-                    .activation(activation)
-                    .transaction(txn)
-                    .scan(scan)
-                    .template(currentTemplate)
-                    .tableVersion(tableVersion)
-                    .indexName(indexName)
-                    .reuseRowLocation(false)
-                    .keyColumnEncodingOrder(scanInformation.getColumnOrdering())
-                    .keyColumnSortOrder(scanInformation.getConglomerate().getAscDescInfo())
-                    .keyColumnTypes(getKeyFormatIds())
-                    .execRowTypeFormatIds(WriteReadUtils.getExecRowTypeFormatIds(currentTemplate))
-                    .accessedKeyColumns(scanInformation.getAccessedPkColumns())
-                    .keyDecodingMap(getKeyDecodingMap())
-                    .rowDecodingMap(baseColumnMap)
-                    .buildDataSet(this);
-            dataSet = dataSet.union(ds);
+        }
+        if (dsp.getType() == DataSetProcessor.Type.LOCAL) {
+            // a single scan set which reads the probe ranges region by region, in parallel
+            return scanSet(dsp, txn, scans.get(0)).probeScans(scans).buildDataSet(this);
+        }
+        DataSet<LocatedRow> dataSet = dsp.getEmpty();
+        for (DataScan scan: scans) {
+            dataSet = dataSet.union(scanSet(dsp, txn, scan).buildDataSet(this));
         }
         return dataSet;
     }
+
+    private ScanSetBuilder<LocatedRow> scanSet(DataSetProcessor dsp, TxnView txn, DataScan scan) throws StandardException {
+        return dsp.<MultiProbeTableScanOperation,LocatedRow>newScanSet(this,tableName)
+                .tableDisplayName(tableDisplayName)
+                .activation(activation)
+                .transaction(txn)
+                .scan(scan)
+                .template(currentTemplate)
+                .tableVersion(tableVersion)
+                .indexName(indexName)
+                .reuseRowLocation(false)
+                .keyColumnEncodingOrder(scanInformation.getColumnOrdering())
+                .keyColumnSortOrder(scanInformation.getConglomerate().getAscDescInfo())
+                .keyColumnTypes(getKeyFormatIds())
+                .execRowTypeFormatIds(WriteReadUtils.getExecRowTypeFormatIds(currentTemplate))
+                .accessedKeyColumns(scanInformation.getAccessedPkColumns())
+                .keyDecodingMap(getKeyDecodingMap())
+                .rowDecodingMap(baseColumnMap);
+    }
         
 }
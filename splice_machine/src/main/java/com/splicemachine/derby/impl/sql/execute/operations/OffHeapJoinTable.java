@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.hash.BloomFilter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A JoinTable which probes an {@link OffHeapRowTable}, decoding matching inner rows only
+ * as they are returned.
+ */
+class OffHeapJoinTable implements JoinTable{
+    private final OffHeapRowTable.Reader reader;
+    private final ExecRow innerTemplateRow;
+    private final KeyEncoder outerKeyEncoder;
+    private final KeyHashDecoder innerRowDecoder;
+
+    public OffHeapJoinTable(OffHeapRowTable table,ExecRow innerTemplateRow,int[] outerHashKeys,ExecRow outerTemplateRow){
+        this.reader=table.newReader();
+        this.innerTemplateRow=innerTemplateRow;
+        DescriptorSerializer[] outerSerializers=VersionedSerializers.latestVersion(false).getSerializers(outerTemplateRow);
+        this.outerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                BareKeyHash.encoder(outerHashKeys,null,outerSerializers),NoOpPostfix.INSTANCE);
+        if(innerTemplateRow==null){
+            //the inner table is empty, so we'll never need to decode anything
+            this.innerRowDecoder=null;
+        }else{
+            DescriptorSerializer[] innerSerializers=VersionedSerializers.latestVersion(false).getSerializers(innerTemplateRow);
+            this.innerRowDecoder=BareKeyHash.decoder(null,null,innerSerializers);
+        }
+    }
+
+    @Override
+    public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+        if(innerRowDecoder==null)
+            return Collections.emptyIterator();
+        byte[] outerKey=outerKeyEncoder.getKey(outer);
+        assert outerKey!=null: "Programmer error: outer row does not have row key";
+        long first=reader.find(outerKey,0,outerKey.length);
+        if(first<0)
+            return Collections.emptyIterator();
+        return new InnerRowIterator(first);
+    }
+
+    @Override
+    public void close(){
+        try{
+            outerKeyEncoder.close();
+            if(innerRowDecoder!=null)
+                innerRowDecoder.close();
+        }catch(IOException ignored){
+            //serializers don't hold any external resources, so there's nothing to do here
+        }
+    }
+
+    private class InnerRowIterator implements Iterator<ExecRow>{
+        private long next;
+
+        InnerRowIterator(long first){
+            this.next=first;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return next>=0;
+        }
+
+        @Override
+        public ExecRow next(){
+            if(next<0) throw new NoSuchElementException();
+            int length=reader.readRow(next);
+            ExecRow row=innerTemplateRow.getNewNullRow();
+            innerRowDecoder.set(reader.rowBuffer(),0,length);
+            try{
+                innerRowDecoder.decode(row);
+            }catch(StandardException se){
+                throw new RuntimeException(se);
+            }
+            next=reader.next(next);
+            return row;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException("Join tables are read-only");
+        }
+    }
+
+    static class Factory implements JoinTable.Factory{
+        private final OffHeapRowTable table;
+        private final ExecRow innerTemplateRow;
+        private final int[] outerHashKeys;
+        private final ExecRow outerTemplateRow;
+        private volatile BloomFilter keyFilter;
+
+        public Factory(OffHeapRowTable table,ExecRow innerTemplateRow,int[] outerHashKeys,ExecRow outerTemplateRow){
+            this.table=table;
+            this.innerTemplateRow=innerTemplateRow;
+            this.outerHashKeys=outerHashKeys;
+            this.outerTemplateRow=outerTemplateRow;
+        }
+
+        @Override
+        public JoinTable newTable(){
+            return new OffHeapJoinTable(table,innerTemplateRow,outerHashKeys,outerTemplateRow);
+        }
+
+        @Override
+        public long estimatedSizeInBytes(){
+            return table.sizeInBytes();
+        }
+
+        @Override
+        public BloomFilter getJoinKeyFilter(){
+            BloomFilter filter=keyFilter;
+            if(filter==null){
+                synchronized(this){
+                    filter=keyFilter;
+                    if(filter==null){
+                        filter=keyFilter=table.buildKeyFilter(RuntimeJoinFilters.FALSE_POSITIVE_RATE);
+                    }
+                }
+            }
+            return filter;
+        }
+
+        @Override
+        public void close(){
+            table.free();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.hash.BloomFilter;
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+import org.apache.log4j.Logger;
+import sun.misc.Cleaner;
+import sun.nio.ch.DirectBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A multi-map from encoded keys to encoded rows, which stores all of its data in direct (off-heap) memory.
+ *
+ * Records are appended to a sequence of direct chunks, with the layout
+ * <pre>
+ *     [keyLength (int)][key bytes][next (long)][rowLength (int)][row bytes]
+ * </pre>
+ * where {@code next} is the address of the next record with the same key (or -1). The on-heap part of the
+ * table is a primitive open-addressing index from key hash to the addresses of the first and last
+ * records for that key, so the number of on-heap objects is constant regardless of how many rows are held.
+ *
+ * The table is populated by a single thread; once populated it is immutable, and may be read concurrently
+ * through separate {@link Reader}s.
+ *
+ * The direct memory is released by {@link #free()}, which the owner calls once the last reader is done with
+ * the table. Waiting for a GC to collect the chunks instead could exhaust direct memory when several broadcast
+ * joins run at once.
+ */
+class OffHeapRowTable{
+    private static final Logger LOG=Logger.getLogger(OffHeapRowTable.class);
+    private static final int DEFAULT_CHUNK_SIZE=1<<22; //4 MB
+    private static final long EMPTY=-1L;
+    private static final int INITIAL_CAPACITY=1<<10;
+    private static final int INT_BYTES=Integer.SIZE/Byte.SIZE;
+    private static final int LONG_BYTES=Long.SIZE/Byte.SIZE;
+    private static final int RECORD_OVERHEAD=2*INT_BYTES+LONG_BYTES;
+
+    private final Hash32 hashFunction=HashFunctions.murmur3(0);
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks=new ArrayList<>();
+    private ByteBuffer currentChunk;
+
+    private int[] hashes;
+    private long[] heads;
+    private long[] tails;
+    private int mask;
+    private int numKeys;
+    private long numRows;
+    private long dataBytes;
+    private volatile boolean freed;
+
+    OffHeapRowTable(){
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    OffHeapRowTable(int chunkSize){
+        this.chunkSize=chunkSize;
+        allocateIndex(INITIAL_CAPACITY);
+    }
+
+    void put(byte[] key,byte[] row){
+        int hash=hashFunction.hash(key,0,key.length);
+        long address=append(key,row);
+        int slot=hash&mask;
+        while(heads[slot]!=EMPTY){
+            if(hashes[slot]==hash && keyEquals(chunks,heads[slot],key,0,key.length)){
+                //link onto the end of the existing chain, so rows come back in insertion order
+                setNext(tails[slot],address);
+                tails[slot]=address;
+                numRows++;
+                return;
+            }
+            slot=(slot+1)&mask;
+        }
+        hashes[slot]=hash;
+        heads[slot]=address;
+        tails[slot]=address;
+        numKeys++;
+        numRows++;
+        if(numKeys>(heads.length>>1))
+            resize();
+    }
+
+    long numRows(){
+        return numRows;
+    }
+
+    /**
+     * @return the approximate number of bytes (on and off heap) held by this table.
+     */
+    long sizeInBytes(){
+        long chunkBytes=0L;
+        for(ByteBuffer chunk : chunks){
+            chunkBytes+=chunk.capacity();
+        }
+        //hashes, heads, and tails
+        return chunkBytes+(long)heads.length*(INT_BYTES+2*LONG_BYTES);
+    }
+
+    long dataBytes(){
+        return dataBytes;
+    }
+
+    /**
+     * Build a Bloom filter over the distinct keys held in this table.
+     *
+     * @param falsePositiveRate the desired false positive rate of the filter
+     * @return a filter which contains every key in this table
+     */
+    BloomFilter buildKeyFilter(double falsePositiveRate){
+        BloomFilter filter=BloomFilter.create(numKeys,falsePositiveRate);
+        byte[] key=new byte[64];
+        for(long head : heads){
+            if(head==EMPTY) continue;
+            ByteBuffer chunk=chunks.get(chunk(head));
+            int pos=offset(head);
+            int keyLength=chunk.getInt(pos);
+            if(key.length<keyLength)
+                key=new byte[keyLength];
+            for(int i=0;i<keyLength;i++){
+                key[i]=chunk.get(pos+INT_BYTES+i);
+            }
+            filter.add(key,0,keyLength);
+        }
+        return filter;
+    }
+
+    Reader newReader(){
+        assert !freed: "Cannot read a table which has been freed";
+        return new Reader();
+    }
+
+    /**
+     * Release the direct memory held by this table. No reader may be used after this is called.
+     */
+    void free(){
+        if(freed) return;
+        freed=true;
+        for(ByteBuffer chunk : chunks){
+            release(chunk);
+        }
+        chunks.clear();
+        currentChunk=null;
+    }
+
+    boolean isFreed(){
+        return freed;
+    }
+
+    /**
+     * A single-threaded view over a populated table.
+     */
+    class Reader{
+        private final List<ByteBuffer> views;
+        private byte[] scratch=new byte[64];
+
+        private Reader(){
+            views=new ArrayList<>(chunks.size());
+            for(ByteBuffer chunk : chunks){
+                views.add(chunk.duplicate());
+            }
+        }
+
+        /**
+         * @return the address of the first record with the given key, or -1 if there are none
+         */
+        long find(byte[] key,int offset,int length){
+            int hash=hashFunction.hash(key,offset,length);
+            int slot=hash&mask;
+            while(heads[slot]!=EMPTY){
+                if(hashes[slot]==hash && keyEquals(views,heads[slot],key,offset,length))
+                    return heads[slot];
+                slot=(slot+1)&mask;
+            }
+            return EMPTY;
+        }
+
+        long next(long address){
+            ByteBuffer chunk=views.get(chunk(address));
+            int pos=offset(address);
+            int keyLength=chunk.getInt(pos);
+            return chunk.getLong(pos+INT_BYTES+keyLength);
+        }
+
+        /**
+         * Copy the row stored at {@code address} into a scratch buffer.
+         *
+         * @return the length of the row. The row bytes are available from {@link #rowBuffer()}
+         * until the next call to this method.
+         */
+        int readRow(long address){
+            ByteBuffer chunk=views.get(chunk(address));
+            int pos=offset(address);
+            int keyLength=chunk.getInt(pos);
+            int rowPos=pos+INT_BYTES+keyLength+LONG_BYTES;
+            int rowLength=chunk.getInt(rowPos);
+            if(scratch.length<rowLength)
+                scratch=new byte[Math.max(rowLength,2*scratch.length)];
+            chunk.position(rowPos+INT_BYTES);
+            chunk.get(scratch,0,rowLength);
+            return rowLength;
+        }
+
+        byte[] rowBuffer(){
+            return scratch;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private long append(byte[] key,byte[] row){
+        int recordSize=RECORD_OVERHEAD+key.length+row.length;
+        if(currentChunk==null || currentChunk.remaining()<recordSize){
+            currentChunk=ByteBuffer.allocateDirect(Math.max(chunkSize,recordSize));
+            chunks.add(currentChunk);
+        }
+        long address=((long)(chunks.size()-1)<<32)|currentChunk.position();
+        currentChunk.putInt(key.length);
+        currentChunk.put(key);
+        currentChunk.putLong(EMPTY);
+        currentChunk.putInt(row.length);
+        currentChunk.put(row);
+        dataBytes+=recordSize;
+        return address;
+    }
+
+    private static void release(ByteBuffer chunk){
+        try{
+            Cleaner cleaner=((DirectBuffer)chunk).cleaner();
+            if(cleaner!=null)
+                cleaner.clean();
+        }catch(Throwable t){
+            //the chunk will still be reclaimed when it is collected
+            LOG.warn("Unable to free off-heap chunk eagerly",t);
+        }
+    }
+
+    private void setNext(long address,long next){
+        ByteBuffer chunk=chunks.get(chunk(address));
+        int pos=offset(address);
+        int keyLength=chunk.getInt(pos);
+        chunk.putLong(pos+INT_BYTES+keyLength,next);
+    }
+
+    private static boolean keyEquals(List<ByteBuffer> buffers,long address,byte[] key,int offset,int length){
+        ByteBuffer chunk=buffers.get(chunk(address));
+        int pos=offset(address);
+        if(chunk.getInt(pos)!=length) return false;
+        pos+=INT_BYTES;
+        for(int i=0;i<length;i++){
+            if(chunk.get(pos+i)!=key[offset+i]) return false;
+        }
+        return true;
+    }
+
+    private static int chunk(long address){
+        return (int)(address>>>32);
+    }
+
+    private static int offset(long address){
+        return (int)address;
+    }
+
+    private void allocateIndex(int capacity){
+        hashes=new int[capacity];
+        heads=new long[capacity];
+        tails=new long[capacity];
+        Arrays.fill(heads,EMPTY);
+        mask=capacity-1;
+    }
+
+    private void resize(){
+        int[] oldHashes=hashes;
+        long[] oldHeads=heads;
+        long[] oldTails=tails;
+        allocateIndex(oldHeads.length<<1);
+        for(int i=0;i<oldHeads.length;i++){
+            if(oldHeads[i]==EMPTY) continue;
+            int slot=oldHashes[i]&mask;
+            while(heads[slot]!=EMPTY){
+                slot=(slot+1)&mask;
+            }
+            hashes[slot]=oldHashes[i];
+            heads[slot]=oldHeads[i];
+            tails[slot]=oldTails[i];
+        }
+    }
+}
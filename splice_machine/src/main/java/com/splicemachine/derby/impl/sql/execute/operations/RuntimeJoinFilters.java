@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import org.sparkproject.guava.cache.Cache;
+import org.sparkproject.guava.cache.CacheBuilder;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.hash.BloomFilter;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.storage.Attributable;
+import com.splicemachine.storage.BloomFilterPredicate;
+import com.splicemachine.storage.Predicate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands runtime join filters from the build side of a join to the scan on its probe side.
+ *
+ * When a join decides to push a filter, it tags the probe-side scan with its join id and the
+ * (stored) column which holds the join key. Once the build side has been loaded, the join publishes
+ * a Bloom filter over the encoded inner keys under the same id. When the scanner opens, it looks up the
+ * filter and applies it to the encoded field, so rows which cannot match are dropped before they are decoded.
+ *
+ * Filters are only held in this JVM; a scan which can't find its filter (e.g. because it runs in a different
+ * JVM from the join, or the filter has expired) simply doesn't filter, which is always correct.
+ */
+public final class RuntimeJoinFilters{
+    public static final String RUNTIME_JOIN_FILTER_ATTRIBUTE="rjf";
+    static final double FALSE_POSITIVE_RATE=0.01d;
+
+    private static final Cache<Long,BloomFilter> filters=CacheBuilder.newBuilder()
+            .expireAfterAccess(30,TimeUnit.SECONDS)
+            .softValues()
+            .build();
+
+    private RuntimeJoinFilters(){}
+
+    public static boolean isEnabled(){
+        EngineDriver driver=EngineDriver.driver();
+        return driver!=null && driver.getConfiguration().isRuntimeJoinFiltersEnabled();
+    }
+
+    /**
+     * Tag a scan so that it will apply the filter of the specified join to the specified column.
+     *
+     * @param scan the probe-side scan
+     * @param joinId the unique id of the join which builds the filter
+     * @param storedColumn the position of the join key in the stored row
+     */
+    public static void attach(Attributable scan,long joinId,int storedColumn){
+        byte[] data=new byte[12];
+        Bytes.toBytes(joinId,data,0);
+        Bytes.toBytes(storedColumn,data,8);
+        scan.addAttribute(RUNTIME_JOIN_FILTER_ATTRIBUTE,data);
+    }
+
+    public static void publish(long joinId,BloomFilter filter){
+        filters.put(joinId,filter);
+    }
+
+    /**
+     * @param scan the scan to filter
+     * @return a Predicate applying the filter which was pushed into {@code scan}, or {@code null} if there is no
+     * filter for the scan (or it is not available in this JVM).
+     */
+    public static Predicate predicateFor(Attributable scan){
+        byte[] data=scan.getAttribute(RUNTIME_JOIN_FILTER_ATTRIBUTE);
+        if(data==null || data.length!=12) return null;
+        BloomFilter filter=filters.getIfPresent(Bytes.toLong(data,0));
+        if(filter==null) return null;
+        return new BloomFilterPredicate(Bytes.toInt(data,8),filter);
+    }
+}
@@ -120,9 +120,22 @@ public class ScalarAggregateOperation extends GenericAggregateOperation {
     @Override
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         OperationContext<ScalarAggregateOperation> operationContext = dsp.createOperationContext(this);
+        markSourceScanOrderInsensitive();
         DataSet<LocatedRow> dsSource = source.getDataSet(dsp);
         DataSet<LocatedRow> ds = dsSource.mapPartitions(new ScalarAggregateFlatMapFunction(operationContext, false), false, /*pushScope=*/true, "First Aggregation");
         DataSet<LocatedRow> ds2 = ds.coalesce(1, /*shuffle=*/true, /*isLast=*/false, operationContext, /*pushScope=*/true, "Coalesce");
         return ds2.mapPartitions(new ScalarAggregateFlatMapFunction(operationContext, true), /*isLast=*/true, /*pushScope=*/true, "Final Aggregation");
     }
+
+    /**
+     * A scalar aggregate consumes its input in any order, so a table scan which feeds it (possibly through
+     * projections and restrictions) need not return rows in key order.
+     */
+    private void markSourceScanOrderInsensitive(){
+        SpliceOperation op=source;
+        while(op instanceof ProjectRestrictOperation)
+            op=((ProjectRestrictOperation)op).getSource();
+        if(op instanceof TableScanOperation)
+            ((TableScanOperation)op).markOrderInsensitive();
+    }
 }
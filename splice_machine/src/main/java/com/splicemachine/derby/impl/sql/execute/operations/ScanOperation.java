@@ -305,6 +305,10 @@ public abstract class ScanOperation extends SpliceBaseOperation{
         return tableVersion;
     }
 
+    public long getConglomerateId(){
+        return scanInformation.getConglomerateId();
+    }
+
     public String getScopeName() {
         StringBuilder sb = new StringBuilder();
         sb.append(getScopeBaseOpName());
@@ -60,6 +60,7 @@ import com.splicemachine.db.impl.sql.execute.ValueRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
 import com.splicemachine.derby.impl.sql.execute.operations.iapi.OperationInformation;
+import com.splicemachine.derby.impl.sql.execute.operations.resultcache.ResultCache;
 import com.splicemachine.derby.impl.store.access.BaseSpliceTransaction;
 import com.splicemachine.derby.impl.store.access.SpliceTransaction;
 import com.splicemachine.pipeline.Exceptions;
@@ -422,11 +423,31 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
             remoteQueryClient = EngineDriver.driver().processorFactory().getRemoteQueryClient(this);
             remoteQueryClient.submit();
             locatedRowIterator = remoteQueryClient.getIterator();
+        } else if (dsp.getType() == DataSetProcessor.Type.CONTROL && isTopResultSet) {
+            openCachedCore(dsp);
         } else {
             openCore(dsp);
         }
     }
 
+    private void openCachedCore(DataSetProcessor dsp) throws StandardException{
+        ResultCache.Request request=ResultCache.instance().request(this);
+        if(request==null){
+            openCore(dsp);
+            return;
+        }
+        registerCloseable(request);
+        Iterator<LocatedRow> cachedRows=request.cachedRows();
+        if(cachedRows!=null){
+            isOpen=true;
+            locatedRowIterator=cachedRows;
+        }else{
+            request.startRecording();
+            openCore(dsp);
+            locatedRowIterator=request.record(locatedRowIterator);
+        }
+    }
+
     @Override
     public void reopenCore() throws StandardException{
         if(LOG.isTraceEnabled())
@@ -30,6 +30,7 @@ import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.output.WriteReadUtils;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.storage.DataScan;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
@@ -55,6 +56,9 @@ public class TableScanOperation extends ScanOperation{
     protected int[] baseColumnMap;
     protected static final String NAME=TableScanOperation.class.getSimpleName().replaceAll("Operation","");
     protected byte[] tableNameBytes;
+    private long runtimeJoinFilterId;
+    private int runtimeJoinFilterColumn=-1;
+    private boolean orderInsensitive;
 
     /**
      *
@@ -317,11 +321,13 @@ public class TableScanOperation extends ScanOperation{
      */
     public DataSet<LocatedRow> getTableScannerBuilder(DataSetProcessor dsp) throws StandardException{
         TxnView txn=getCurrentTransaction();
+        DataScan scan=getNonSIScan();
+        attachRuntimeJoinFilter(scan);
         return dsp.<TableScanOperation,LocatedRow>newScanSet(this,tableName)
                 .tableDisplayName(tableDisplayName)
                 .activation(activation)
                 .transaction(txn)
-                .scan(getNonSIScan())
+                .scan(scan)
                 .template(currentTemplate)
                 .tableVersion(tableVersion)
                 .indexName(indexName)
@@ -335,4 +341,57 @@ public class TableScanOperation extends ScanOperation{
                 .rowDecodingMap(baseColumnMap)
                 .buildDataSet(this);
     }
-}
\ No newline at end of file
+
+    /**
+     *
+     * Request that the Bloom filter built by the join with id {@code joinId} be applied
+     * to the specified column of this scan.
+     *
+     * @param joinId the sequence id of the join which builds the filter
+     * @param column the position of the join key in the row returned by this operation
+     */
+    public void pushRuntimeJoinFilter(long joinId,int column){
+        this.runtimeJoinFilterId=joinId;
+        this.runtimeJoinFilterColumn=column;
+    }
+
+    /**
+     *
+     * Declare that the consumer of this scan does not depend on the order of its rows, which allows
+     * the partitions of the table to be read concurrently without preserving key order.
+     *
+     */
+    public void markOrderInsensitive(){
+        this.orderInsensitive=true;
+    }
+
+    public boolean isOrderInsensitive(){
+        return orderInsensitive;
+    }
+
+    /**
+     * Tag the scan with the pushed join filter (if any). The filter is checked against the encoded bytes of
+     * the stored column, so we only push it when the column is stored in ascending order (descending
+     * primary key columns are stored with their bytes inverted).
+     */
+    private void attachRuntimeJoinFilter(DataScan scan) throws StandardException{
+        if(runtimeJoinFilterColumn<0) return;
+        int[] keyDecodingMap=getKeyDecodingMap(); //moves the key columns out of the baseColumnMap
+        for(int i=0;i<baseColumnMap.length;i++){
+            if(baseColumnMap[i]==runtimeJoinFilterColumn){
+                RuntimeJoinFilters.attach(scan,runtimeJoinFilterId,i);
+                return;
+            }
+        }
+        int[] columnOrdering=scanInformation.getColumnOrdering();
+        if(keyDecodingMap==null || columnOrdering==null) return;
+        boolean[] ascDescInfo=scanInformation.getConglomerate().getAscDescInfo();
+        for(int i=0;i<keyDecodingMap.length;i++){
+            if(keyDecodingMap[i]==runtimeJoinFilterColumn){
+                if(ascDescInfo==null || (i<ascDescInfo.length && ascDescInfo[i]))
+                    RuntimeJoinFilters.attach(scan,runtimeJoinFilterId,columnOrdering[i]);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.resultcache;
+
+import java.io.IOException;
+
+/**
+ * How the result caches of the servers in a cluster talk to each other.
+ *
+ * Every announcement is delivered to every server (including the one making it) before the call returns.
+ */
+interface ClusterChannel{
+
+    /**
+     * Ask every server to announce its writes to {@code conglomerate} from now on.
+     */
+    void watch(String conglomerate) throws IOException;
+
+    /**
+     * Tell every server that {@code txnId} is writing to {@code conglomerate}.
+     */
+    void announceWrite(String conglomerate,long txnId) throws IOException;
+
+    /**
+     * Tell every server that this one has started observing writes, so that they may watch their
+     * conglomerates again.
+     */
+    void announceJoin() throws IOException;
+
+    /**
+     * @return the transactions which began before {@code maxTxnId} and may still write to {@code conglomerate}
+     */
+    long[] activeWriters(String conglomerate,long maxTxnId) throws IOException;
+
+    /**
+     * @return a timestamp which is later than that of any transaction which has already begun or committed
+     */
+    long nextTimestamp() throws IOException;
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.resultcache;
+
+import com.splicemachine.pipeline.api.WriteListener;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the writes to the conglomerates which some server in the cluster is <em>watching</em> (because its
+ * result cache holds results which read them).
+ *
+ * Each conglomerate has a version, which changes whenever the conglomerate is written, and a set of
+ * transactions which have written to it and whose outcome is not yet known. Once all of those
+ * transactions are known to have finished, the conglomerate is <em>stable</em>: every transaction which
+ * began after the latest of their commit timestamps sees exactly the same data, until the version changes.
+ *
+ * Writes which pass through this server's write pipeline are announced to every server (once per writer and
+ * conglomerate) before they are applied, so that each server learns about every write to the conglomerates
+ * that it watches, wherever the write happens. Writes to conglomerates which nobody watches are ignored, except
+ * until this server has {@link #joined() joined} the cluster: watches made before its listeners were registered
+ * have been missed, so until then every write is announced.
+ */
+class ConglomerateWriteTracker implements WriteListener{
+    /**
+     * Returned by {@link #stableSince(String[])} when some writer has not yet finished.
+     */
+    static final long UNSTABLE=Long.MAX_VALUE;
+
+    /*
+     * Writers which have finished are normally removed when somebody asks whether the conglomerate is stable.
+     * A conglomerate which is written far more often than it is read may accumulate a lot of them, so once
+     * the set grows past PRUNE_THRESHOLD we drop those writers we can resolve cheaply, and past MAX_WRITERS
+     * we give up on tracking the conglomerate at all.
+     */
+    private static final int PRUNE_THRESHOLD=1024;
+    private static final int MAX_WRITERS=16384;
+    /*
+     * The writers which this server has recently announced, per conglomerate. A writer which is forgotten
+     * is merely announced again.
+     */
+    private static final int MAX_ANNOUNCED=1024;
+
+    private final ConcurrentMap<String,WriteState> states=new ConcurrentHashMap<>();
+    private final TxnSupplier txnSupplier;
+    private final ClusterChannel channel;
+    private volatile boolean joined;
+
+    ConglomerateWriteTracker(TxnSupplier txnSupplier,ClusterChannel channel){
+        this.txnSupplier=txnSupplier;
+        this.channel=channel;
+    }
+
+    /**
+     * Record the write locally, and announce it to the cluster if the conglomerate is watched.
+     *
+     * @throws IOException if the write could not be announced, in which case it must not be applied
+     */
+    @Override
+    public void conglomerateWritten(String conglomerate,TxnView txn) throws IOException{
+        WriteState state=states.get(conglomerate);
+        if(state==null || !state.watched){
+            if(joined) return;
+            state=state(conglomerate);
+        }
+        long txnId=txn.getTxnId();
+        state.written(txnId);
+        if(state.announced.add(txnId)){
+            try{
+                channel.announceWrite(conglomerate,txnId);
+            }catch(IOException e){
+                state.announced.remove(txnId);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Only announce the writes to watched conglomerates from now on. This must not be called until every
+     * server has been told that this one is observing writes (and has stopped trusting its earlier watches).
+     */
+    void joined(){
+        joined=true;
+    }
+
+    /**
+     * Start announcing the writes to {@code conglomerate}. Writes made before this is called are not tracked,
+     * so whoever asked for the conglomerate to be watched has to find those writers by other means.
+     */
+    void watch(String conglomerate){
+        state(conglomerate).watched=true;
+    }
+
+    /**
+     * Record a write to {@code conglomerate} by {@code txnId} which has been announced by some server (or which
+     * has been found by looking for active writers).
+     */
+    void written(String conglomerate,long txnId){
+        state(conglomerate).written(txnId);
+    }
+
+    /**
+     * Record that every write to {@code conglomerate} which is not tracked committed before {@code timestamp}.
+     */
+    void committedBefore(String conglomerate,long timestamp){
+        state(conglomerate).advanceCommitTimestamp(timestamp);
+    }
+
+    /**
+     * @return the current versions of {@code conglomerates}, in the same order
+     */
+    long[] versions(String[] conglomerates){
+        long[] versions=new long[conglomerates.length];
+        for(int i=0;i<conglomerates.length;i++){
+            versions[i]=state(conglomerates[i]).version.get();
+        }
+        return versions;
+    }
+
+    boolean versionsMatch(String[] conglomerates,long[] versions){
+        for(int i=0;i<conglomerates.length;i++){
+            WriteState state=states.get(conglomerates[i]);
+            long current=state==null?0L:state.version.get();
+            if(current!=versions[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the latest commit timestamp of any tracked write to {@code conglomerates}, or {@link #UNSTABLE}
+     * if any tracked writer might still commit.
+     * @throws IOException if the state of a writer cannot be determined
+     */
+    long stableSince(String[] conglomerates) throws IOException{
+        long since=-1L;
+        for(String conglomerate:conglomerates){
+            long s=state(conglomerate).stableSince(txnSupplier);
+            if(s==UNSTABLE) return UNSTABLE;
+            if(s>since) since=s;
+        }
+        return since;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private WriteState state(String conglomerate){
+        WriteState state=states.get(conglomerate);
+        if(state==null){
+            state=new WriteState();
+            WriteState old=states.putIfAbsent(conglomerate,state);
+            if(old!=null)
+                state=old;
+        }
+        return state;
+    }
+
+    private final class WriteState{
+        private final AtomicLong version=new AtomicLong(0L);
+        private final AtomicLong lastCommitTimestamp=new AtomicLong(-1L);
+        private final Set<Long> writers=Collections.newSetFromMap(new ConcurrentHashMap<Long,Boolean>());
+        private final Set<Long> announced=Collections.synchronizedSet(Collections.newSetFromMap(new RecentWriters()));
+        private volatile boolean watched;
+        private volatile boolean overflowed;
+
+        void written(long txnId){
+            /*
+             * Record the writer before changing the version, so that anyone who saw the old version
+             * is guaranteed to see the writer as well.
+             */
+            if(!overflowed && writers.add(txnId) && writers.size()>PRUNE_THRESHOLD){
+                pruneCached();
+                if(writers.size()>MAX_WRITERS){
+                    overflowed=true;
+                    writers.clear();
+                }
+            }
+            version.incrementAndGet();
+        }
+
+        long stableSince(TxnSupplier supplier) throws IOException{
+            if(overflowed) return UNSTABLE;
+            Iterator<Long> iter=writers.iterator();
+            while(iter.hasNext()){
+                if(!resolve(supplier.getTransaction(iter.next()),iter))
+                    return UNSTABLE;
+            }
+            return lastCommitTimestamp.get();
+        }
+
+        private void pruneCached(){
+            Iterator<Long> iter=writers.iterator();
+            while(iter.hasNext()){
+                TxnView txn=txnSupplier.getTransactionFromCache(iter.next());
+                if(txn!=null)
+                    resolve(txn,iter);
+            }
+        }
+
+        /**
+         * @return false if the writer may still commit (or is unknown)
+         */
+        private boolean resolve(TxnView txn,Iterator<Long> iter){
+            if(txn==null) return false;
+            switch(txn.getEffectiveState()){
+                case COMMITTED:
+                    //record the commit before forgetting the writer, so that concurrent callers never miss it
+                    advanceCommitTimestamp(txn.getEffectiveCommitTimestamp());
+                    iter.remove();
+                    return true;
+                case ROLLEDBACK:
+                    iter.remove();
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void advanceCommitTimestamp(long commitTs){
+            long current;
+            while((current=lastCommitTimestamp.get())<commitTs){
+                if(lastCommitTimestamp.compareAndSet(current,commitTs)) break;
+            }
+        }
+    }
+
+    private static final class RecentWriters extends LinkedHashMap<Long,Boolean>{
+        private static final long serialVersionUID=1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long,Boolean> eldest){
+            return size()>MAX_ANNOUNCED;
+        }
+    }
+}
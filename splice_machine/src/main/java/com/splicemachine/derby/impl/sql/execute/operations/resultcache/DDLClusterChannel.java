@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.resultcache;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.ddl.DDLUtils;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.protobuf.ProtoUtil;
+import com.splicemachine.si.impl.driver.SIDriver;
+
+import java.io.IOException;
+
+/**
+ * Sends the announcements of the result cache as notifications through the DDL coordination of the cluster,
+ * which waits until every server has processed them.
+ */
+class DDLClusterChannel implements ClusterChannel{
+
+    @Override
+    public void watch(String conglomerate) throws IOException{
+        notifyAndWait(ProtoUtil.createResultCacheWatch(conglomerate));
+    }
+
+    @Override
+    public void announceWrite(String conglomerate,long txnId) throws IOException{
+        notifyAndWait(ProtoUtil.createResultCacheWrite(txnId,conglomerate));
+    }
+
+    @Override
+    public void announceJoin() throws IOException{
+        notifyAndWait(ProtoUtil.createResultCacheJoin());
+    }
+
+    @Override
+    public long[] activeWriters(String conglomerate,long maxTxnId) throws IOException{
+        return SIDriver.driver().getTxnStore().getActiveTransactionIds(0l,maxTxnId,Bytes.toBytes(conglomerate));
+    }
+
+    @Override
+    public long nextTimestamp() throws IOException{
+        return SIDriver.driver().getTimestampSource().nextTimestamp();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static void notifyAndWait(DDLMessage.DDLChange change) throws IOException{
+        try{
+            DDLUtils.notifyMetadataChangeAndWait(change);
+        }catch(StandardException se){
+            throw Exceptions.getIOException(se);
+        }
+    }
+}
@@ -0,0 +1,643 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.resultcache;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.ddl.DDLDriver;
+import com.splicemachine.derby.ddl.DDLWatcher;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.CallStatementOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.DMLWriteOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.ExplainOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.IndexRowToBaseRowOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.MiscOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.SetTransactionOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceBaseOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.TemporaryRowHolderOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.VTIOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.export.ExportOperation;
+import com.splicemachine.derby.management.ResultCacheManagement;
+import com.splicemachine.hbase.jmx.JMXUtils;
+import com.splicemachine.pipeline.PipelineDriver;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+import org.apache.log4j.Logger;
+import org.sparkproject.guava.cache.Cache;
+import org.sparkproject.guava.cache.CacheBuilder;
+import org.sparkproject.guava.cache.RemovalListener;
+import org.sparkproject.guava.cache.RemovalNotification;
+import org.sparkproject.guava.cache.Weigher;
+import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * A cache of the complete results of read-only statements, for statements which are executed over and over
+ * against tables which rarely change.
+ *
+ * Results are keyed by the statement text, the parameter values, and the conglomerates which the plan reads.
+ * A result is only cached when it was computed by a transaction which saw every write to those conglomerates
+ * that this server knows about, and is only returned to transactions which are guaranteed to see the same
+ * writes (see {@link ConglomerateWriteTracker}). Any write to a conglomerate discards the results which read it,
+ * and any DDL discards everything.
+ *
+ * Writes are applied by whichever server hosts the written region, so before results which read a conglomerate
+ * are cached, this server asks every server to announce their writes to it (through the DDL coordination of
+ * the cluster), and looks for the transactions which may have written to it before they were asked. When a
+ * server joins the cluster it has not been asked, so it announces itself and every server empties its cache
+ * and asks again. Every server takes part in this, whether or not it caches results itself.
+ *
+ * The cache is bounded by the estimated size of the rows it holds.
+ */
+public class ResultCache implements ResultCacheManagement{
+    private static final Logger LOG=Logger.getLogger(ResultCache.class);
+
+    private static final Pattern READ_ONLY_STATEMENT=Pattern.compile("^\\s*SELECT\\b",Pattern.CASE_INSENSITIVE);
+    /*
+     * Statements which mention any of these may return different results on every execution (or take locks).
+     * This errs heavily on the side of caution, since the words may just as well be part of a string literal.
+     */
+    private static final Pattern VOLATILE_STATEMENT=Pattern.compile(
+            "\\b(CURRENT|CURRENT_DATE|CURRENT_TIME|CURRENT_TIMESTAMP|CURRENT_USER|CURRENT_ROLE|SESSION_USER|USER|NOW|RAND|RANDOM|NEXT|UPDATE)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private static volatile ResultCache INSTANCE;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final ConglomerateWriteTracker writeTracker;
+    private final ClusterChannel channel;
+    /*watches and announcements wait for the whole cluster, so they are never made on the query path*/
+    private final Executor announcer;
+    private final Cache<Key,Entry> cache;
+    private final ConcurrentMap<Activation,Request> recordings=new ConcurrentHashMap<>();
+    private volatile boolean ddlInProgress;
+    /*changes whenever a server joins the cluster, since it has not seen the watches made before*/
+    private final AtomicLong generation=new AtomicLong(0L);
+    /*the generation in which each conglomerate was last watched*/
+    private final ConcurrentMap<String,Long> watched=new ConcurrentHashMap<>();
+    private final Set<String> watching=Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+
+    private final AtomicLong hits=new AtomicLong(0L);
+    private final AtomicLong misses=new AtomicLong(0L);
+    private final AtomicLong inserts=new AtomicLong(0L);
+    private final AtomicLong rejected=new AtomicLong(0L);
+    private final AtomicLong invalidations=new AtomicLong(0L);
+    private final AtomicLong evictions=new AtomicLong(0L);
+    private final AtomicLong sizeInBytes=new AtomicLong(0L);
+
+    /**
+     * @return the result cache of this server. The cache is created (and starts observing writes) the first time
+     * this is called, which should happen during startup so that no earlier writes are missed.
+     */
+    public static ResultCache instance(){
+        ResultCache rc=INSTANCE;
+        if(rc==null){
+            synchronized(ResultCache.class){
+                rc=INSTANCE;
+                if(rc==null){
+                    SConfiguration config=EngineDriver.driver().getConfiguration();
+                    ClusterChannel channel=new DDLClusterChannel();
+                    Executor announcer=Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                            .setNameFormat("ResultCacheAnnouncer").setDaemon(true).build());
+                    rc=new ResultCache(config.isResultCacheEnabled(),config.getResultCacheMaxBytes(),
+                            new ConglomerateWriteTracker(SIDriver.driver().getTxnSupplier(),channel),channel,announcer);
+                    //other servers may be caching results, so we take part even when our own cache is disabled
+                    rc.registerListeners();
+                    rc.join(config.getDdlRefreshInterval());
+                    INSTANCE=rc;
+                }
+            }
+        }
+        return rc;
+    }
+
+    ResultCache(boolean enabled,long maxBytes,ConglomerateWriteTracker writeTracker,ClusterChannel channel,Executor announcer){
+        this.enabled=enabled;
+        this.maxBytes=maxBytes;
+        this.maxEntryBytes=maxBytes/16;
+        this.writeTracker=writeTracker;
+        this.channel=channel;
+        this.announcer=announcer;
+        /*
+         * Guava weights are ints, so we weigh in kilobytes (as in BroadcastJoinCache)
+         */
+        this.cache=CacheBuilder.newBuilder()
+                .maximumWeight(Math.max(1L,maxBytes/1024))
+                .weigher(new Weigher<Key,Entry>(){
+                    @Override
+                    public int weigh(Key key,Entry value){
+                        long kb=value.sizeInBytes/1024;
+                        return (int)Math.min(Integer.MAX_VALUE,Math.max(1L,kb));
+                    }
+                })
+                .removalListener(new RemovalListener<Key,Entry>(){
+                    @Override
+                    public void onRemoval(RemovalNotification<Key,Entry> notification){
+                        sizeInBytes.addAndGet(-notification.getValue().sizeInBytes);
+                        if(notification.wasEvicted())
+                            evictions.incrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    public void registerJMX(MBeanServer mbs) throws MalformedObjectNameException,
+            NotCompliantMBeanException,
+            InstanceAlreadyExistsException,
+            MBeanRegistrationException{
+        mbs.registerMBean(this,new ObjectName(JMXUtils.RESULT_CACHE_MANAGEMENT));
+    }
+
+    /**
+     * Begin an execution of the statement of which {@code operation} is the top operation.
+     *
+     * @return a request through which the cached result can be fetched, or a new result recorded, or
+     * {@code null} if the statement cannot be cached.
+     */
+    public Request request(SpliceBaseOperation operation) throws StandardException{
+        if(!enabled || ddlInProgress) return null;
+        Activation activation=operation.getActivation();
+        if(activation==null || activation.getPreparedStatement()==null) return null;
+        String sql=activation.getPreparedStatement().getSource();
+        if(sql==null || !READ_ONLY_STATEMENT.matcher(sql).find() || VOLATILE_STATEMENT.matcher(sql).find())
+            return null;
+        if(!activation.getLanguageConnectionContext().getDataDictionary().canUseCache(null))
+            return null;
+
+        Set<String> conglomerates=new TreeSet<>();
+        if(!collectConglomerates(operation,conglomerates) || conglomerates.isEmpty())
+            return null;
+        String[] parameters=parameters(activation.getParameterValueSet());
+        if(parameters==null) return null;
+
+        TxnView txn=operation.getCurrentTransaction();
+        if(txn.getIsolationLevel()==Txn.IsolationLevel.READ_UNCOMMITTED) return null;
+
+        String[] congloms=conglomerates.toArray(new String[conglomerates.size()]);
+        long generation=this.generation.get();
+        if(!watched(congloms,generation)) return null;
+        return new Request(new Key(sql,parameters,congloms),activation,txn,writeTracker.versions(congloms),generation);
+    }
+
+    /**
+     * Inform the cache that the statement executed by {@code operation} scans {@code conglomerate}. Scans
+     * which are not visible in the plan of an operation (e.g. inside expression subqueries) prevent the result
+     * from being cached.
+     */
+    public static void scanning(SpliceOperation operation,String conglomerate){
+        ResultCache rc=INSTANCE;
+        if(rc!=null)
+            rc.recordScan(operation,conglomerate);
+    }
+
+    private void recordScan(SpliceOperation operation,String conglomerate){
+        if(recordings.isEmpty() || operation==null) return;
+        Activation activation=operation.getActivation();
+        if(activation==null) return;
+        Request request=recordings.get(activation);
+        if(request!=null && Arrays.binarySearch(request.key.conglomerates,conglomerate)<0)
+            request.abort();
+    }
+
+    @Override public long getHitCount(){ return hits.get(); }
+    @Override public long getMissCount(){ return misses.get(); }
+    @Override public long getInsertCount(){ return inserts.get(); }
+    @Override public long getRejectedCount(){ return rejected.get(); }
+    @Override public long getInvalidationCount(){ return invalidations.get(); }
+    @Override public long getEvictionCount(){ return evictions.get(); }
+    @Override public long getEntryCount(){ return cache.size(); }
+    @Override public long getSizeInBytes(){ return sizeInBytes.get(); }
+    @Override public long getMaxSizeInBytes(){ return maxBytes; }
+
+    @Override
+    public double getHitRate(){
+        long h=hits.get();
+        long total=h+misses.get();
+        return total==0?0d:((double)h)/total;
+    }
+
+    @Override
+    public void invalidateAll(){
+        invalidations.addAndGet(cache.size());
+        cache.invalidateAll();
+    }
+
+    /**
+     * Inform the cache that a server has joined the cluster. Until it has been asked to watch them, writes made
+     * through that server are not announced, so every conglomerate has to be watched again.
+     */
+    void serverJoined(){
+        generation.incrementAndGet();
+        watched.clear();
+        invalidateAll();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    /**
+     * @return true if every one of {@code conglomerates} has been watched in {@code generation}. Those which
+     * have not are watched in the background.
+     */
+    private boolean watched(String[] conglomerates,long generation){
+        boolean allWatched=true;
+        for(String conglomerate:conglomerates){
+            Long g=watched.get(conglomerate);
+            if(g==null || g!=generation){
+                allWatched=false;
+                watch(conglomerate);
+            }
+        }
+        return allWatched;
+    }
+
+    private void watch(final String conglomerate){
+        if(!watching.add(conglomerate)) return;
+        announcer.execute(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    long g=generation.get();
+                    channel.watch(conglomerate);
+                    /*
+                     * Every write which begins from now on is announced to us, but a transaction may have
+                     * written before it was asked to. Those which are still active are tracked like any other
+                     * writer, and those which are not have committed (if at all) before the next timestamp.
+                     */
+                    for(long writer:channel.activeWriters(conglomerate,channel.nextTimestamp())){
+                        writeTracker.written(conglomerate,writer);
+                    }
+                    writeTracker.committedBefore(conglomerate,channel.nextTimestamp());
+                    watched.put(conglomerate,g);
+                }catch(IOException e){
+                    LOG.warn("Unable to watch conglomerate "+conglomerate+", results which read it will not be cached",e);
+                }finally{
+                    watching.remove(conglomerate);
+                }
+            }
+        });
+    }
+
+    /**
+     * Tell every server that this one is observing writes. Until that has happened, we announce every write.
+     */
+    private void join(final long retryInterval){
+        announcer.execute(new Runnable(){
+            @Override
+            public void run(){
+                while(true){
+                    try{
+                        channel.announceJoin();
+                        writeTracker.joined();
+                        return;
+                    }catch(IOException e){
+                        LOG.warn("Unable to announce this server to the result caches of the cluster, retrying",e);
+                    }
+                    try{
+                        TimeUnit.MILLISECONDS.sleep(retryInterval);
+                    }catch(InterruptedException ie){
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    private void registerListeners(){
+        PipelineDriver.registerWriteListener(writeTracker);
+        DDLDriver.driver().ddlWatcher().registerDDLListener(new DDLWatcher.DDLListener(){
+            @Override
+            public void startGlobalChange(){
+                ddlInProgress=true;
+                invalidateAll();
+            }
+
+            @Override
+            public void finishGlobalChange(){
+                ddlInProgress=false;
+                invalidateAll();
+            }
+
+            @Override
+            public void startChange(DDLMessage.DDLChange change){
+                switch(change.getDdlChangeType()){
+                    case RESULT_CACHE_WATCH:
+                        writeTracker.watch(change.getResultCacheNotification().getConglomerate());
+                        break;
+                    case RESULT_CACHE_WRITE:
+                        writeTracker.written(change.getResultCacheNotification().getConglomerate(),change.getTxnId());
+                        break;
+                    case RESULT_CACHE_JOIN:
+                        serverJoined();
+                        break;
+                    default:
+                        invalidateAll();
+                }
+            }
+
+            @Override
+            public void changeSuccessful(String changeId,DDLMessage.DDLChange change){
+                invalidateAll();
+            }
+
+            @Override
+            public void changeFailed(String changeId){
+                invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * @return false if the plan contains an operation which may not be cached
+     */
+    private static boolean collectConglomerates(SpliceOperation op,Set<String> conglomerates) throws StandardException{
+        if(op instanceof DMLWriteOperation
+                || op instanceof CallStatementOperation
+                || op instanceof ExplainOperation
+                || op instanceof ExportOperation
+                || op instanceof MiscOperation
+                || op instanceof SetTransactionOperation
+                || op instanceof TemporaryRowHolderOperation
+                || op instanceof VTIOperation)
+            return false;
+        if(op instanceof ScanOperation)
+            conglomerates.add(Long.toString(((ScanOperation)op).getConglomerateId()));
+        else if(op instanceof IndexRowToBaseRowOperation)
+            conglomerates.add(Long.toString(((IndexRowToBaseRowOperation)op).getMainTableConglomerateId()));
+        for(SpliceOperation child:op.getSubOperations()){
+            if(!collectConglomerates(child,conglomerates)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the parameter values as strings, or {@code null} if a parameter cannot be used as part of a key
+     */
+    private static String[] parameters(ParameterValueSet pvs) throws StandardException{
+        int count=pvs==null?0:pvs.getParameterCount();
+        String[] values=new String[count];
+        for(int i=0;i<count;i++){
+            DataValueDescriptor dvd=pvs.getParameter(i);
+            if(dvd==null || dvd.isNull()) continue;
+            if(dvd.hasStream()) return null;
+            values[i]=dvd.getTypeName()+':'+dvd.getString();
+        }
+        return values;
+    }
+
+    private static long estimateSize(ExecRow row){
+        long size=16L;
+        for(DataValueDescriptor dvd:row.getRowArray()){
+            size+=dvd==null?8L:dvd.estimateMemoryUsage();
+        }
+        return size;
+    }
+
+    private static final class Key{
+        private final String sql;
+        private final String[] parameters;
+        private final String[] conglomerates;
+        private final int hashCode;
+
+        Key(String sql,String[] parameters,String[] conglomerates){
+            this.sql=sql;
+            this.parameters=parameters;
+            this.conglomerates=conglomerates;
+            int h=sql.hashCode();
+            h=31*h+Arrays.hashCode(parameters);
+            h=31*h+Arrays.hashCode(conglomerates);
+            this.hashCode=h;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this==o) return true;
+            if(!(o instanceof Key)) return false;
+            Key key=(Key)o;
+            return hashCode==key.hashCode
+                    && sql.equals(key.sql)
+                    && Arrays.equals(parameters,key.parameters)
+                    && Arrays.equals(conglomerates,key.conglomerates);
+        }
+
+        @Override
+        public int hashCode(){
+            return hashCode;
+        }
+    }
+
+    private static final class Entry{
+        private final ExecRow[] rows;
+        private final long[] versions;
+        private final long generation;
+        /*the latest commit timestamp of any write to the conglomerates which the result reflects*/
+        private final long stableSince;
+        private final long sizeInBytes;
+
+        Entry(ExecRow[] rows,long[] versions,long generation,long stableSince,long sizeInBytes){
+            this.rows=rows;
+            this.versions=versions;
+            this.generation=generation;
+            this.stableSince=stableSince;
+            this.sizeInBytes=sizeInBytes;
+        }
+    }
+
+    /**
+     * A single execution of a cacheable statement.
+     */
+    public final class Request implements AutoCloseable{
+        private final Key key;
+        private final Activation activation;
+        private final TxnView txn;
+        private final long[] versions;
+        private final long generation;
+        private List<ExecRow> rows;
+        private long sizeInBytes;
+        private volatile boolean aborted;
+
+        private Request(Key key,Activation activation,TxnView txn,long[] versions,long generation){
+            this.key=key;
+            this.activation=activation;
+            this.txn=txn;
+            this.versions=versions;
+            this.generation=generation;
+        }
+
+        /**
+         * @return the cached result, or {@code null} if there is no result which is visible to this execution.
+         */
+        public Iterator<LocatedRow> cachedRows(){
+            Entry entry=cache.getIfPresent(key);
+            if(entry!=null){
+                if(entry.generation!=ResultCache.this.generation.get()
+                        || !writeTracker.versionsMatch(key.conglomerates,entry.versions)){
+                    cache.asMap().remove(key,entry);
+                    invalidations.incrementAndGet();
+                }else if(txn.getBeginTimestamp()>entry.stableSince){
+                    hits.incrementAndGet();
+                    return new CachedRowIterator(entry.rows);
+                }
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+
+        /**
+         * Start recording the result. This must happen before the plan is opened, so that the cache can learn
+         * about every conglomerate that the plan scans.
+         */
+        public void startRecording(){
+            rows=new ArrayList<>();
+            recordings.put(activation,this);
+        }
+
+        /**
+         * Record the rows returned by {@code source}, and cache them once it has been exhausted.
+         *
+         * @return an iterator over the same rows as {@code source}
+         */
+        public Iterator<LocatedRow> record(final Iterator<LocatedRow> source){
+            return new Iterator<LocatedRow>(){
+                @Override
+                public boolean hasNext(){
+                    boolean hasNext=source.hasNext();
+                    if(!hasNext)
+                        finish();
+                    return hasNext;
+                }
+
+                @Override
+                public LocatedRow next(){
+                    LocatedRow next=source.next();
+                    if(!aborted && rows!=null)
+                        add(next.getRow());
+                    return next;
+                }
+
+                @Override
+                public void remove(){
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public void close(){
+            recordings.remove(activation,this);
+            rows=null;
+        }
+
+        void abort(){
+            aborted=true;
+        }
+
+        private void add(ExecRow row){
+            sizeInBytes+=estimateSize(row);
+            if(sizeInBytes>maxEntryBytes){
+                aborted=true;
+                rows=null;
+            }else
+                rows.add(row.getClone());
+        }
+
+        private void finish(){
+            List<ExecRow> result=rows;
+            close();
+            if(result==null) return; //already finished or closed
+            if(aborted){
+                rejected.incrementAndGet();
+                return;
+            }
+            try{
+                long stableSince=writeTracker.stableSince(key.conglomerates);
+                if(stableSince==ConglomerateWriteTracker.UNSTABLE
+                        || txn.getBeginTimestamp()<=stableSince
+                        || !writeTracker.versionsMatch(key.conglomerates,versions)
+                        || ddlInProgress
+                        || generation!=ResultCache.this.generation.get()){
+                    rejected.incrementAndGet();
+                    return;
+                }
+                Entry entry=new Entry(result.toArray(new ExecRow[result.size()]),versions,generation,stableSince,sizeInBytes);
+                ResultCache.this.sizeInBytes.addAndGet(entry.sizeInBytes);
+                cache.put(key,entry);
+                inserts.incrementAndGet();
+            }catch(IOException e){
+                LOG.warn("Unable to determine whether a result can be cached",e);
+                rejected.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class CachedRowIterator implements Iterator<LocatedRow>{
+        private final ExecRow[] rows;
+        private int position;
+
+        CachedRowIterator(ExecRow[] rows){
+            this.rows=rows;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return position<rows.length;
+        }
+
+        @Override
+        public LocatedRow next(){
+            if(position>=rows.length) throw new NoSuchElementException();
+            //callers are free to modify the rows they are handed, so never give out the cached copy
+            return new LocatedRow(rows[position++].getClone());
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.RowLocation;
+import com.splicemachine.derby.impl.sql.execute.operations.RuntimeJoinFilters;
 import com.splicemachine.derby.impl.store.ExecRowAccumulator;
 import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
 import com.splicemachine.derby.utils.StandardIterator;
@@ -331,7 +332,17 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     }
 
     private EntryPredicateFilter buildInitialPredicateFilter() throws IOException {
-        return EntryPredicateFilter.fromBytes(scan.getAttribute(SIConstants.ENTRY_PREDICATE_LABEL));
+        EntryPredicateFilter filter = EntryPredicateFilter.fromBytes(scan.getAttribute(SIConstants.ENTRY_PREDICATE_LABEL));
+        /*
+         * Runtime join filters are built over fields encoded with the latest serializers, so they
+         * can only be checked against the raw bytes of tables which are stored in that format.
+         */
+        if(VersionedSerializers.forVersion(tableVersion,true)==VersionedSerializers.latestVersion(true)){
+            Predicate joinFilter = RuntimeJoinFilters.predicateFor(scan);
+            if(joinFilter!=null)
+                filter = filter.withPredicate(joinFilter);
+        }
+        return filter;
     }
 
     protected void setRowLocation(DataCell sampleKv) throws StandardException {
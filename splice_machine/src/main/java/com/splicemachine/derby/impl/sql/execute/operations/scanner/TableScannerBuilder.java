@@ -45,6 +45,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Companion Builder class for SITableScanner
@@ -76,6 +77,8 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     protected long baseTableConglomId=-1l;
     protected long demarcationPoint=-1;
     protected boolean oneSplitPerRegion=false;
+    /*local only, never serialized*/
+    protected List<DataScan> probeScans;
     protected Activation activation;
     protected MetricFactory metricFactory =Metrics.noOpMetricFactory();
 
@@ -323,7 +326,22 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return this;
     }
 
+    @Override
+    public ScanSetBuilder<V> probeScans(List<DataScan> probeScans){
+        this.probeScans=probeScans;
+        return this;
+    }
+
     public SITableScanner build(){
+        return build(scanner,scan,template);
+    }
+
+    /**
+     * Build a table scanner which reads from {@code scanner} (opened with {@code scan}) into {@code template},
+     * instead of the scanner, scan and template configured on this builder. This allows several
+     * partitions of the same table to be read concurrently with otherwise identical settings.
+     */
+    public SITableScanner build(DataScanner scanner,DataScan scan,ExecRow template){
         if(fieldLengths!=null){
             return new StatisticsScanner(
                     baseTableConglomId,
@@ -544,6 +562,10 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return scan;
     }
 
+    public List<DataScan> getProbeScans(){
+        return probeScans;
+    }
+
     @Override
     public TxnView getTxn(){
         return txn;
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLReal;
+import com.splicemachine.db.iapi.types.SQLSmallint;
+import com.splicemachine.db.iapi.types.SQLTinyint;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-capacity column of primitive values, with a bitmap marking which positions are null.
+ * <p/>
+ * Vectors are filled one value at a time from {@link DataValueDescriptor}s, and then operated on as a whole
+ * by the kernels of the concrete subclasses, which avoid any per-value virtual dispatch. When the vector
+ * contains no nulls, kernels skip the bitmap entirely.
+ *
+ * This class is <em>not</em> thread safe.
+ */
+public abstract class ColumnVector{
+    private final long[] nulls;
+    protected final int capacity;
+    protected int size;
+    protected int nullCount;
+
+    protected ColumnVector(int capacity){
+        this.capacity=capacity;
+        this.nulls=new long[(capacity+63)>>>6];
+    }
+
+    /**
+     * @param template a value of the type to hold
+     * @param capacity the maximum number of values to hold
+     * @return a vector which can hold values of the same type as {@code template}, or {@code null} if that type
+     * cannot be held in a primitive vector.
+     */
+    public static ColumnVector forType(DataValueDescriptor template,int capacity){
+        if(template instanceof SQLLongint
+                || template instanceof SQLInteger
+                || template instanceof SQLSmallint
+                || template instanceof SQLTinyint)
+            return new LongColumnVector(capacity);
+        else if(template instanceof SQLDouble
+                || template instanceof SQLReal)
+            return new DoubleColumnVector(capacity);
+        return null;
+    }
+
+    /**
+     * Append the value held in {@code dvd} to the end of this vector.
+     *
+     * @param dvd the value to append
+     * @throws StandardException if the value cannot be read as this vector's type
+     */
+    public abstract void append(DataValueDescriptor dvd) throws StandardException;
+
+    public final int size(){
+        return size;
+    }
+
+    public final int nullCount(){
+        return nullCount;
+    }
+
+    public final int nonNullCount(){
+        return size-nullCount;
+    }
+
+    public final boolean isFull(){
+        return size>=capacity;
+    }
+
+    public final boolean isNull(int position){
+        return (nulls[position>>>6]&(1l<<position))!=0;
+    }
+
+    public void reset(){
+        if(nullCount>0)
+            Arrays.fill(nulls,0,(size+63)>>>6,0l);
+        size=0;
+        nullCount=0;
+    }
+
+    protected final void appendNull(){
+        nulls[size>>>6]|=(1l<<size);
+        size++;
+        nullCount++;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+/**
+ * ColumnVector of floating point values (REAL and DOUBLE), all widened to {@code double}.
+ */
+public class DoubleColumnVector extends ColumnVector{
+    private final double[] values;
+
+    public DoubleColumnVector(int capacity){
+        super(capacity);
+        this.values=new double[capacity];
+    }
+
+    @Override
+    public void append(DataValueDescriptor dvd) throws StandardException{
+        if(dvd==null || dvd.isNull())
+            appendNull();
+        else
+            values[size++]=dvd.getDouble();
+    }
+
+    public void append(double value){
+        values[size++]=value;
+    }
+
+    public double get(int position){
+        return values[position];
+    }
+
+    /**
+     * @return the sum of all non-null values in this vector
+     */
+    public double sum(){
+        double sum=0d;
+        if(nullCount==0){
+            for(int i=0;i<size;i++){
+                sum+=values[i];
+            }
+        }else{
+            for(int i=0;i<size;i++){
+                if(!isNull(i))
+                    sum+=values[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return the smallest non-null value in this vector. Only meaningful if there is at least one non-null value.
+     */
+    public double min(){
+        double min=Double.POSITIVE_INFINITY;
+        for(int i=0;i<size;i++){
+            if(nullCount>0 && isNull(i)) continue;
+            double v=values[i];
+            if(v<min) min=v;
+        }
+        return min;
+    }
+
+    /**
+     * @return the largest non-null value in this vector. Only meaningful if there is at least one non-null value.
+     */
+    public double max(){
+        double max=Double.NEGATIVE_INFINITY;
+        for(int i=0;i<size;i++){
+            if(nullCount>0 && isNull(i)) continue;
+            double v=values[i];
+            if(v>max) max=v;
+        }
+        return max;
+    }
+}
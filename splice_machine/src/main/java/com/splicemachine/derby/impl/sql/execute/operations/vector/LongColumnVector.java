@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+/**
+ * ColumnVector of integral values (TINYINT, SMALLINT, INTEGER and BIGINT), all widened to {@code long}.
+ */
+public class LongColumnVector extends ColumnVector{
+    private final long[] values;
+
+    public LongColumnVector(int capacity){
+        super(capacity);
+        this.values=new long[capacity];
+    }
+
+    @Override
+    public void append(DataValueDescriptor dvd) throws StandardException{
+        if(dvd==null || dvd.isNull())
+            appendNull();
+        else
+            values[size++]=dvd.getLong();
+    }
+
+    public void append(long value){
+        values[size++]=value;
+    }
+
+    public long get(int position){
+        return values[position];
+    }
+
+    /**
+     * @return the sum of all non-null values in this vector
+     * @throws ArithmeticException if the sum does not fit in a {@code long}
+     */
+    public long sum(){
+        long sum=0l;
+        if(nullCount==0){
+            for(int i=0;i<size;i++){
+                long v=values[i];
+                long r=sum+v;
+                if(((sum^r)&(v^r))<0)
+                    throw new ArithmeticException("long overflow");
+                sum=r;
+            }
+        }else{
+            for(int i=0;i<size;i++){
+                if(isNull(i)) continue;
+                long v=values[i];
+                long r=sum+v;
+                if(((sum^r)&(v^r))<0)
+                    throw new ArithmeticException("long overflow");
+                sum=r;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return the smallest non-null value in this vector. Only meaningful if there is at least one non-null value.
+     */
+    public long min(){
+        long min=Long.MAX_VALUE;
+        if(nullCount==0){
+            for(int i=0;i<size;i++){
+                long v=values[i];
+                if(v<min) min=v;
+            }
+        }else{
+            for(int i=0;i<size;i++){
+                if(isNull(i)) continue;
+                long v=values[i];
+                if(v<min) min=v;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return the largest non-null value in this vector. Only meaningful if there is at least one non-null value.
+     */
+    public long max(){
+        long max=Long.MIN_VALUE;
+        if(nullCount==0){
+            for(int i=0;i<size;i++){
+                long v=values[i];
+                if(v>max) max=v;
+            }
+        }else{
+            for(int i=0;i<size;i++){
+                if(isNull(i)) continue;
+                long v=values[i];
+                if(v>max) max=v;
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.AggregatorInfo;
+import com.splicemachine.db.impl.sql.execute.CountAggregator;
+import com.splicemachine.db.impl.sql.execute.DoubleBufferedSumAggregator;
+import com.splicemachine.db.impl.sql.execute.LongBufferedSumAggregator;
+import com.splicemachine.db.impl.sql.execute.MaxMinAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
+
+/**
+ * Evaluates the accumulation phase of a scalar aggregate over batches of rows instead of one row at a time.
+ * <p/>
+ * The input column of each aggregate is copied into a primitive {@link ColumnVector} as rows arrive. Once
+ * a batch is full (or when the caller asks), each vector is reduced in a single loop, and the partial result
+ * for the whole batch is handed to the row-based aggregator held in the accumulator row--so the row-based
+ * aggregators see one value per batch instead of one per row, and the rest of the aggregation (merging,
+ * finishing, serialization) is unchanged.
+ * <p/>
+ * Only non-distinct SUM, COUNT, COUNT(*), MIN and MAX over integral and floating point columns are supported
+ * (COUNT over any type); {@link #create(SpliceGenericAggregator[], ExecRow, int)} returns {@code null}
+ * for anything else, in which case the caller must aggregate row by row.
+ *
+ * This class is <em>not</em> thread safe.
+ */
+public class VectorizedScalarAggregator{
+    public static final int DEFAULT_BATCH_SIZE=1024;
+
+    private enum Kind{ SUM, COUNT, COUNT_STAR, MIN, MAX }
+
+    private final SpliceGenericAggregator[] aggregates;
+    private final Kind[] kinds;
+    private final ColumnVector[] vectors;
+    private final long[] nonNullCounts;
+    private final boolean[] sawNulls;
+    private final DataValueDescriptor[] partials;
+    private final int batchSize;
+    private int size;
+
+    private VectorizedScalarAggregator(SpliceGenericAggregator[] aggregates,
+                                       Kind[] kinds,
+                                       ColumnVector[] vectors,
+                                       DataValueDescriptor[] partials,
+                                       int batchSize){
+        this.aggregates=aggregates;
+        this.kinds=kinds;
+        this.vectors=vectors;
+        this.partials=partials;
+        this.batchSize=batchSize;
+        this.nonNullCounts=new long[aggregates.length];
+        this.sawNulls=new boolean[aggregates.length];
+    }
+
+    /**
+     * @param aggregates the aggregates to evaluate
+     * @param template a row with the same shape as the rows which will be accumulated
+     * @param batchSize the number of rows to buffer before reducing
+     * @return an aggregator which can evaluate all of {@code aggregates} in batches, or {@code null} if any of
+     * them cannot be vectorized.
+     * @throws StandardException if the aggregate functions cannot be loaded
+     */
+    public static VectorizedScalarAggregator create(SpliceGenericAggregator[] aggregates,
+                                                    ExecRow template,
+                                                    int batchSize) throws StandardException{
+        if(aggregates==null || aggregates.length==0) return null;
+        Kind[] kinds=new Kind[aggregates.length];
+        ColumnVector[] vectors=new ColumnVector[aggregates.length];
+        DataValueDescriptor[] partials=new DataValueDescriptor[aggregates.length];
+        for(int i=0;i<aggregates.length;i++){
+            SpliceGenericAggregator aggregate=aggregates[i];
+            AggregatorInfo info=aggregate.getAggregatorInfo();
+            if(info==null || info.isDistinct()) return null;
+            ExecAggregator function=aggregate.getAggregatorInstance();
+            String name=info.getAggregateName();
+            if(function instanceof CountAggregator){
+                kinds[i]="COUNT(*)".equals(name)?Kind.COUNT_STAR:Kind.COUNT;
+                partials[i]=new SQLLongint();
+                continue;
+            }
+
+            DataValueDescriptor input=aggregate.getInputColumnValue(template);
+            ColumnVector vector=ColumnVector.forType(input,batchSize);
+            if(vector==null) return null;
+            if(function instanceof MaxMinAggregator){
+                kinds[i]="MAX".equals(name)?Kind.MAX:Kind.MIN;
+                partials[i]=input.cloneValue(false);
+            }else if(function instanceof LongBufferedSumAggregator && vector instanceof LongColumnVector){
+                kinds[i]=Kind.SUM;
+                partials[i]=new SQLLongint();
+            }else if(function instanceof DoubleBufferedSumAggregator && vector instanceof DoubleColumnVector){
+                kinds[i]=Kind.SUM;
+                partials[i]=new SQLDouble();
+            }else
+                return null;
+            vectors[i]=vector;
+        }
+        return new VectorizedScalarAggregator(aggregates,kinds,vectors,partials,batchSize);
+    }
+
+    /**
+     * Buffer the inputs of {@code row}, reducing the current batch into {@code accumulator} if it fills up.
+     *
+     * @param row the next input row
+     * @param accumulator an initialized aggregate row
+     * @throws StandardException if something goes wrong
+     */
+    public void accumulate(ExecRow row,ExecRow accumulator) throws StandardException{
+        for(int i=0;i<aggregates.length;i++){
+            switch(kinds[i]){
+                case COUNT_STAR:
+                    break;
+                case COUNT:
+                    DataValueDescriptor dvd=aggregates[i].getInputColumnValue(row);
+                    if(dvd==null || dvd.isNull())
+                        sawNulls[i]=true;
+                    else
+                        nonNullCounts[i]++;
+                    break;
+                default:
+                    vectors[i].append(aggregates[i].getInputColumnValue(row));
+            }
+        }
+        size++;
+        if(size>=batchSize)
+            flush(accumulator);
+    }
+
+    /**
+     * Reduce whatever is buffered into {@code accumulator}. Must be called before the accumulator row is
+     * merged with anything else or finished.
+     *
+     * @param accumulator an initialized aggregate row
+     * @throws StandardException if something goes wrong
+     */
+    public void flush(ExecRow accumulator) throws StandardException{
+        if(size==0) return;
+        for(int i=0;i<aggregates.length;i++){
+            SpliceGenericAggregator aggregate=aggregates[i];
+            ExecAggregator function=(ExecAggregator)accumulator.getColumn(aggregate.getAggregatorColumnId()).getObject();
+            DataValueDescriptor partial=partials[i];
+            switch(kinds[i]){
+                case COUNT_STAR:
+                    partial.setValue((long)size);
+                    ((CountAggregator)function).add(partial);
+                    break;
+                case COUNT:
+                    if(nonNullCounts[i]>0){
+                        partial.setValue(nonNullCounts[i]);
+                        ((CountAggregator)function).add(partial);
+                    }
+                    if(sawNulls[i])
+                        function.accumulate(null,aggregate);
+                    nonNullCounts[i]=0;
+                    sawNulls[i]=false;
+                    break;
+                case SUM:
+                    reduceSum(vectors[i],partial,function,aggregate);
+                    break;
+                case MIN:
+                case MAX:
+                    reduceMinMax(kinds[i]==Kind.MAX,vectors[i],partial,function,aggregate);
+                    break;
+            }
+        }
+        size=0;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void reduceSum(ColumnVector vector,
+                           DataValueDescriptor partial,
+                           ExecAggregator function,
+                           SpliceGenericAggregator aggregate) throws StandardException{
+        if(vector.nonNullCount()>0){
+            if(vector instanceof LongColumnVector){
+                LongColumnVector lcv=(LongColumnVector)vector;
+                try{
+                    partial.setValue(lcv.sum());
+                    function.accumulate(partial,aggregate);
+                }catch(ArithmeticException ae){
+                    /*
+                     * The batch overflowed on its own, so hand the values over one at a time and let the
+                     * aggregator report the overflow exactly as it would have without batching.
+                     */
+                    for(int j=0;j<lcv.size();j++){
+                        if(lcv.isNull(j)) continue;
+                        partial.setValue(lcv.get(j));
+                        function.accumulate(partial,aggregate);
+                    }
+                }
+            }else{
+                partial.setValue(((DoubleColumnVector)vector).sum());
+                function.accumulate(partial,aggregate);
+            }
+        }
+        if(vector.nullCount()>0)
+            function.accumulate(null,aggregate);
+        vector.reset();
+    }
+
+    private void reduceMinMax(boolean isMax,
+                              ColumnVector vector,
+                              DataValueDescriptor partial,
+                              ExecAggregator function,
+                              SpliceGenericAggregator aggregate) throws StandardException{
+        if(vector.nonNullCount()>0){
+            if(vector instanceof LongColumnVector){
+                LongColumnVector lcv=(LongColumnVector)vector;
+                partial.setValue(isMax?lcv.max():lcv.min());
+            }else{
+                DoubleColumnVector dcv=(DoubleColumnVector)vector;
+                partial.setValue(isMax?dcv.max():dcv.min());
+            }
+            function.accumulate(partial,aggregate);
+        }
+        if(vector.nullCount()>0)
+            function.accumulate(null,aggregate);
+        vector.reset();
+    }
+}
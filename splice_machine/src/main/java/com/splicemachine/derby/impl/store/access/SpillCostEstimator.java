@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.store.access;
+
+import com.splicemachine.EngineDriver;
+
+/**
+ * Estimates the extra cost incurred when a control-side operation holds more data than its
+ * memory budget allows, and so must spill rows to local disk and read them back.
+ */
+public class SpillCostEstimator{
+    /*
+     * Relative cost of writing a row to a local spill file and reading it back, as a multiple of
+     * the cost of reading that row from storage in the first place.
+     */
+    private static final double SPILL_COST_FACTOR = 2d;
+
+    private SpillCostEstimator(){}
+
+    public static double spillCost(double heapSize,double heapPerRow,double localCostPerRow){
+        return spillCost(heapSize,heapPerRow,localCostPerRow,spillThreshold());
+    }
+
+    static double spillCost(double heapSize,double heapPerRow,double localCostPerRow,long threshold){
+        if(heapPerRow<=0d) return 0d;
+        if(heapSize<=threshold) return 0d;
+        double spilledRows = (heapSize-threshold)/heapPerRow;
+        return spilledRows*localCostPerRow*SPILL_COST_FACTOR;
+    }
+
+    private static long spillThreshold(){
+        EngineDriver driver = EngineDriver.driver();
+        if(driver==null) return Long.MAX_VALUE;
+        return driver.getConfiguration().getControlSideSpillThreshold();
+    }
+}
@@ -116,6 +116,11 @@ public class TempGroupedAggregateCostController implements AggregateCostControll
         double seqLocalCost = parallelCost+outputRows*localCostPerRow;
         double seqRemoteCost = outputRows*remoteCostPerRow;
         double finalHeap = outputRows*heapPerRow; //TODO -sf- include the cost of the aggregate columns in the row size
+        /*
+         * On the control side, grouped rows which don't fit within the spill threshold are written
+         * to local disk and read back before they are returned, so account for that extra pass.
+         */
+        seqLocalCost += SpillCostEstimator.spillCost(finalHeap,heapPerRow,localCostPerRow);
 
         int numPartitions = 16; //since we write to TEMP's buckets
 
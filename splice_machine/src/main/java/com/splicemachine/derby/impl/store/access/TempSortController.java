@@ -65,6 +65,16 @@ public class TempSortController implements SortCostController{
     public void estimateSortCost(CostEstimate baseCost) throws StandardException{
         if(baseCost.isUninitialized()) return; //don't do anything, we aren't real yet
         double parallelCost = (baseCost.localCost()+baseCost.remoteCost())/baseCost.partitionCount();
+        /*
+         * A sort which doesn't fit within the control-side spill threshold writes sorted runs
+         * to local disk and reads them back during the merge
+         */
+        double rowCount = baseCost.rowCount();
+        if(rowCount>0d){
+            double heapPerRow = baseCost.getEstimatedHeapSize()/rowCount;
+            double localCostPerRow = baseCost.localCost()/rowCount;
+            parallelCost += SpillCostEstimator.spillCost(baseCost.getEstimatedHeapSize(),heapPerRow,localCostPerRow);
+        }
 //        baseCost.setBase(baseCost.cloneMe());
         baseCost.setLocalCost(baseCost.localCost()+parallelCost);
     }
@@ -30,9 +30,11 @@ import com.splicemachine.access.api.DatabaseVersion;
 import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.reference.Property;
 import com.splicemachine.db.impl.jdbc.EmbedConnection;
+import com.splicemachine.db.impl.sql.PersistentPlanCache;
 import com.splicemachine.derby.ddl.DDLDriver;
 import com.splicemachine.derby.ddl.DDLEnvironmentLoader;
 import com.splicemachine.derby.impl.db.SpliceDatabase;
+import com.splicemachine.derby.impl.sql.execute.operations.resultcache.ResultCache;
 import com.splicemachine.derby.impl.store.access.SpliceAccessManager;
 import com.splicemachine.lifecycle.DatabaseLifecycleService;
 import com.splicemachine.pipeline.ContextFactoryDriverService;
@@ -66,6 +68,7 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
     private DatabaseVersion spliceVersion;
     private ManifestReader manifestReader;
     private Logging logging;
+    private ResultCache resultCache;
 
     public EngineLifecycleService(DistributedDerbyStartup startup,SConfiguration configuration){
         this.startup=startup;
@@ -120,7 +123,33 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
         DDLDriver.loadDriver(DDLEnvironmentLoader.loadEnvironment(configuration,EngineDriver.driver().getExceptionFactory()));
         SpliceDatabase db = (SpliceDatabase)((EmbedConnection)internalConnection).getLanguageConnection().getDatabase();
         db.registerDDL();
+        //create the result cache now, so that it sees every write from here on
+        resultCache = ResultCache.instance();
         logging = new LogManager();
+
+        PersistentPlanCache planCache=PersistentPlanCache.get(((EmbedConnection)internalConnection).getLanguageConnection());
+        if(planCache!=null)
+            warmPlanCache(planCache,maker);
+    }
+
+    /*
+     * Load the plans persisted by the cluster into the statement cache, off the startup path, so the
+     * first executions after a restart do not all have to compile.
+     */
+    private void warmPlanCache(final PersistentPlanCache planCache,final EmbedConnectionMaker maker){
+        Thread warmer=new Thread(new Runnable(){
+            @Override
+            public void run(){
+                try(Connection conn=maker.createNew(dbProperties)){
+                    int loaded=planCache.warm(conn);
+                    LOG.info("Loaded "+loaded+" persisted plans into the statement cache");
+                }catch(Exception e){
+                    LOG.warn("Unable to load persisted plans into the statement cache",e);
+                }
+            }
+        },"persisted-plan-warmer");
+        warmer.setDaemon(true);
+        warmer.start();
     }
 
     @Override
@@ -130,6 +159,10 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
         try{
             ObjectName on=new ObjectName("com.splicemachine.utils.logging:type=LogManager");
             mbs.registerMBean(logging,on);
+            resultCache.registerJMX(mbs);
+            SIDriver driver=SIDriver.driver();
+            if(driver!=null)
+                mbs.registerMBean(driver.getRollForwardStatus(),new ObjectName("com.splicemachine.si.impl.rollforward:type=RollForwardManagement"));
         }catch(InstanceAlreadyExistsException ignored){
             /*
              * For most purposes, this should never happen. However, it's possible to happen
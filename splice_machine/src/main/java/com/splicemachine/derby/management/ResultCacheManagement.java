@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.management;
+
+import javax.management.MXBean;
+
+/**
+ * JMX view of the query result cache.
+ */
+@MXBean
+public interface ResultCacheManagement{
+
+    /**
+     * @return the number of executions which were answered from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of executions of cacheable statements which had to be evaluated
+     */
+    long getMissCount();
+
+    /**
+     * @return the fraction of executions of cacheable statements answered from the cache
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of results added to the cache
+     */
+    long getInsertCount();
+
+    /**
+     * @return the number of results which were evaluated but could not be cached, either because they were
+     * too large or because their tables were written while they were being evaluated
+     */
+    long getRejectedCount();
+
+    /**
+     * @return the number of cached results discarded because their tables were written, or by DDL
+     */
+    long getInvalidationCount();
+
+    /**
+     * @return the number of cached results discarded to make room for others
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the number of results currently cached
+     */
+    long getEntryCount();
+
+    /**
+     * @return the estimated number of bytes held by the cache
+     */
+    long getSizeInBytes();
+
+    /**
+     * @return the maximum number of bytes the cache may hold
+     */
+    long getMaxSizeInBytes();
+
+    /**
+     * Discard all cached results.
+     */
+    void invalidateAll();
+}
@@ -18,7 +18,6 @@ package com.splicemachine.derby.stream.control;
 import com.google.common.base.Function;
 import org.sparkproject.guava.collect.FluentIterable;
 import org.sparkproject.guava.collect.Iterables;
-import org.sparkproject.guava.collect.Multimaps;
 import org.sparkproject.guava.collect.Sets;
 import org.sparkproject.guava.util.concurrent.Futures;
 import com.splicemachine.access.api.DistributedFileSystem;
@@ -44,7 +43,6 @@ import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.Future;
 
-import static com.splicemachine.derby.stream.control.ControlUtils.entryToTuple;
 
 /**
  *
@@ -149,7 +147,17 @@ public class ControlDataSet<V> implements DataSet<V> {
 
     @Override
     public <Op extends SpliceOperation, K> PairDataSet<K, V> keyBy(final SpliceFunction<Op, V, K> function) {
-        return new ControlPairDataSet<>(entryToTuple(Multimaps.index(iterable,function).entries()));
+        /*
+         * Key lazily, rather than indexing the whole input up front, so that a sort or aggregation
+         * downstream can spill instead of requiring everything to be on heap at once.
+         */
+        return new ControlPairDataSet<>(FluentIterable.from(iterable).transform(new Function<V, Tuple2<K, V>>() {
+            @Nullable
+            @Override
+            public Tuple2<K, V> apply(@Nullable V v) {
+                return new Tuple2<>(function.apply(v),v);
+            }
+        }),function.operationContext);
     }
 
     @Override
@@ -16,28 +16,37 @@
 package com.splicemachine.derby.stream.control;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.SequenceInputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.Scanner;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.zip.GZIPInputStream;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.log4j.Logger;
 import org.sparkproject.guava.base.Charsets;
 import scala.Tuple2;
+import com.splicemachine.EngineDriver;
 import com.splicemachine.access.api.DistributedFileSystem;
+import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.TableScanOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.resultcache.ResultCache;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
 import com.splicemachine.derby.stream.function.Partitioner;
 import com.splicemachine.derby.stream.iapi.DataSet;
@@ -45,8 +54,11 @@ import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.PairDataSet;
 import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
+import com.splicemachine.derby.stream.iterator.ParallelTableScannerIterator;
 import com.splicemachine.derby.stream.iterator.TableScannerIterator;
+import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.server.Transactor;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -54,6 +66,7 @@ import com.splicemachine.si.impl.TxnRegion;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.storage.DataScan;
 import com.splicemachine.storage.Partition;
 
 /**
@@ -109,13 +122,29 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return new TableScannerBuilder<V>(){
             @Override
             public DataSet<V> buildDataSet() throws StandardException{
+                ResultCache.scanning(spliceOperation,tableName);
+                if(probeScans!=null)
+                    return probeDataSet(this,spliceOperation,tableName,template,metricFactory,!reuseRowLocation && fieldLengths==null);
                 Partition p;
                 try{
                     p =SIDriver.driver().getTableFactory().getTable(tableName);
                     TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
                             txnSupplier,transactory,txnOperationFactory);
 
-                    this.region(localRegion).scanner(p.openScanner(getScan(),metricFactory)); //set the scanner
+                    this.region(localRegion);
+                    List<Partition> partitions=new ArrayList<>();
+                    int parallelism=scanParallelism(p,partitions);
+                    if(parallelism>1){
+                        ParallelTableScannerIterator parallelIterator=new ParallelTableScannerIterator(this,spliceOperation,p,
+                                partitions,template,metricFactory,parallelism,
+                                EngineDriver.driver().getConfiguration().getControlScanQueueSize(),!isOrderInsensitive());
+                        if(spliceOperation!=null){
+                            spliceOperation.registerCloseable(parallelIterator);
+                            spliceOperation.registerCloseable(p);
+                        }
+                        return new ControlDataSet(parallelIterator);
+                    }
+                    this.scanner(p.openScanner(getScan(),metricFactory)); //set the scanner
                     TableScannerIterator tableScannerIterator=new TableScannerIterator(this,spliceOperation);
                     if(spliceOperation!=null){
                         spliceOperation.registerCloseable(tableScannerIterator);
@@ -126,9 +155,124 @@ public class ControlDataSetProcessor implements DataSetProcessor{
                     throw Exceptions.parseException(e);
                 }
             }
+
+            /**
+             * Determine how many partitions of the table to read concurrently. The degree of parallelism is limited by
+             * configuration, by the optimizer's estimate of how many rows the scan will return, and by the number of
+             * partitions which the scan covers.
+             *
+             * @param partitions filled with the partitions overlapping the scan, in key order
+             * @return the number of partitions to read concurrently, or 1 if the scan should be performed serially.
+             */
+            private int scanParallelism(Partition table,List<Partition> partitions){
+                EngineDriver driver=EngineDriver.driver();
+                if(driver==null || spliceOperation==null) return 1;
+                if(reuseRowLocation || fieldLengths!=null || getScan().isDescendingScan()) return 1;
+                SConfiguration config=driver.getConfiguration();
+                int maxParallelism=config.getControlScanParallelism();
+                if(maxParallelism<=1) return 1;
+                long rowsPerThread=Math.max(1L,config.getControlScanParallelRowsPerThread());
+                double estimatedRows=spliceOperation.getEstimatedRowCount();
+                if(estimatedRows<2*rowsPerThread) return 1;
+
+                partitions.addAll(table.subPartitions(getScan().getStartKey(),getScan().getStopKey()));
+                if(partitions.size()<=1) return 1;
+                Collections.sort(partitions,new Comparator<Partition>(){
+                    @Override
+                    public int compare(Partition o1,Partition o2){
+                        return Bytes.startComparator.compare(o1.getStartKey(),o2.getStartKey());
+                    }
+                });
+                return (int)Math.min(Math.min(maxParallelism,partitions.size()),estimatedRows/rowsPerThread);
+            }
+
+            private boolean isOrderInsensitive(){
+                return ControlDataSetProcessor.isOrderInsensitive(spliceOperation);
+            }
         };
     }
 
+    /**
+     * Read the probe ranges of a multi-probe scan. The ranges are grouped by the partition they start in, and the
+     * groups are read concurrently, so a long IN list costs a few rounds of batched scans per region server
+     * instead of one scan after the other.
+     *
+     * @param parallel whether the scanners of {@code builder} may read several ranges concurrently
+     */
+    @SuppressWarnings("unchecked")
+    protected <V> DataSet<V> probeDataSet(TableScannerBuilder<V> builder,
+                                          SpliceOperation spliceOperation,
+                                          String tableName,
+                                          ExecRow template,
+                                          MetricFactory metricFactory,
+                                          boolean parallel) throws StandardException{
+        try{
+            Partition p=SIDriver.driver().getTableFactory().getTable(tableName);
+            builder.region(new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
+                    txnSupplier,transactory,txnOperationFactory));
+            List<DataScan> ranges=builder.getProbeScans();
+            List<List<DataScan>> groups=groupByPartition(p,ranges);
+            int parallelism=1;
+            int queueSize=0;
+            EngineDriver driver=EngineDriver.driver();
+            if(driver!=null){
+                SConfiguration config=driver.getConfiguration();
+                queueSize=config.getControlScanQueueSize();
+                if(parallel)
+                    parallelism=Math.max(1,Math.min(config.getControlScanParallelism(),groups.size()));
+            }
+            ParallelTableScannerIterator probeIterator=ParallelTableScannerIterator.forRanges(builder,spliceOperation,p,
+                    groups,template,metricFactory,parallelism,queueSize,!isOrderInsensitive(spliceOperation));
+            if(spliceOperation!=null){
+                spliceOperation.registerCloseable(probeIterator);
+                spliceOperation.registerCloseable(p);
+            }
+            return new ControlDataSet(probeIterator);
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }
+    }
+
+    /*
+     * Ascending ranges which start in the same partition form one group; descending ranges are read as given.
+     */
+    static List<List<DataScan>> groupByPartition(Partition table,List<DataScan> ranges){
+        List<List<DataScan>> groups=new ArrayList<>();
+        if(ranges.isEmpty()) return groups;
+        DataScan first=ranges.get(0);
+        if(first.isDescendingScan()){
+            groups.add(ranges);
+            return groups;
+        }
+        List<Partition> partitions=new ArrayList<>(table.subPartitions(first.getStartKey(),ranges.get(ranges.size()-1).getStopKey()));
+        Collections.sort(partitions,new Comparator<Partition>(){
+            @Override
+            public int compare(Partition o1,Partition o2){
+                return Bytes.startComparator.compare(o1.getStartKey(),o2.getStartKey());
+            }
+        });
+        int partition=0;
+        int groupPartition=-1;
+        List<DataScan> group=null;
+        for(DataScan range:ranges){
+            while(partition<partitions.size()-1
+                    && Bytes.startComparator.compare(partitions.get(partition+1).getStartKey(),range.getStartKey())<=0)
+                partition++;
+            if(group==null || partition!=groupPartition){
+                group=new ArrayList<>();
+                groups.add(group);
+                groupPartition=partition;
+            }
+            group.add(range);
+        }
+        return groups;
+    }
+
+    private static boolean isOrderInsensitive(SpliceOperation spliceOperation){
+        return spliceOperation instanceof TableScanOperation
+                && ((TableScanOperation)spliceOperation).isOrderInsensitive();
+    }
+
     @Override
     public <V> DataSet<V> getEmpty(){
         return new ControlDataSet<>(Collections.<V>emptyList());
@@ -233,11 +377,12 @@ public class ControlDataSetProcessor implements DataSetProcessor{
 
     private static class TextFileIterator implements Iterator<String>{
 
-        Scanner scanner;
+        BufferedReader reader;
+        String nextLine;
 
         public TextFileIterator(InputStream inputStream){
             //-sf- adding UTF-8 charset here to avoid findbugs warning. If we stop using UTF-8, we might be in trouble
-            this.scanner=new Scanner(inputStream,Charsets.UTF_8.name());
+            this.reader=new BufferedReader(new InputStreamReader(inputStream,Charsets.UTF_8));
         }
 
         @Override
@@ -246,12 +391,23 @@ public class ControlDataSetProcessor implements DataSetProcessor{
 
         @Override
         public String next(){
-            return scanner.nextLine();
+            if(!hasNext())
+                throw new NoSuchElementException();
+            String line=nextLine;
+            nextLine=null;
+            return line;
         }
 
         @Override
         public boolean hasNext(){
-            return scanner.hasNextLine();
+            if(nextLine!=null)
+                return true;
+            try{
+                nextLine=reader.readLine();
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+            return nextLine!=null;
         }
 
     }
@@ -279,6 +435,11 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return NOOP_PARTITIONER;
     }
 
+    @Override
+    public Partitioner getBulkImportPartitioner(List<byte[]> splitKeys) {
+        return NOOP_PARTITIONER;
+    }
+
     /* ****************************************************************************************************************/
     /*private helper methods*/
     private InputStream newInputStream(DistributedFileSystem dfs,@Nonnull Path p,OpenOption... options) throws IOException{
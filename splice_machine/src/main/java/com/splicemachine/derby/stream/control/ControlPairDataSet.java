@@ -20,6 +20,13 @@ import com.google.common.base.Optional;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.control.spill.Combiner;
+import com.splicemachine.derby.stream.control.spill.ExternalHashAggregator;
+import com.splicemachine.derby.stream.control.spill.ExternalSorter;
+import com.splicemachine.derby.stream.control.spill.GroupingCombiner;
+import com.splicemachine.derby.stream.control.spill.ReducingCombiner;
+import com.splicemachine.derby.stream.control.spill.SpillContext;
+import com.splicemachine.derby.stream.control.spill.Spillable;
 import com.splicemachine.derby.stream.function.*;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.OperationContext;
@@ -44,7 +51,6 @@ import org.sparkproject.guava.collect.*;
 import scala.Tuple2;
 import javax.annotation.Nullable;
 import java.util.*;
-import static com.splicemachine.derby.stream.control.ControlUtils.entryToTuple;
 import static com.splicemachine.derby.stream.control.ControlUtils.multimapFromIterable;
 
 /**
@@ -57,8 +63,16 @@ import static com.splicemachine.derby.stream.control.ControlUtils.multimapFromIt
  */
 public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     public Iterable<Tuple2<K,V>> source;
+    /*the context of the operation which produced this data set, if known. Used to clean up spill files*/
+    private final OperationContext<?> operationContext;
+
     public ControlPairDataSet(Iterable<Tuple2<K,V>> source) {
+        this(source,null);
+    }
+
+    public ControlPairDataSet(Iterable<Tuple2<K,V>> source, OperationContext<?> operationContext) {
         this.source = source;
+        this.operationContext = operationContext;
     }
 
 
@@ -98,21 +112,9 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <Op extends SpliceOperation> PairDataSet<K, V> reduceByKey(final SpliceFunction2<Op,V, V, V> function2) {
-        Multimap<K,V> newMap = multimapFromIterable(source);
-        return new ControlPairDataSet<>(entryToTuple(Multimaps.forMap(Maps.transformValues(newMap.asMap(), new Function<Collection<V>, V>() {
-            @Override
-            public V apply(@Nullable Collection<V> vs) {
-                try {
-                    V returnValue = null;
-                    for (V v : vs) {
-                        returnValue = function2.call(returnValue, v);
-                    }
-                    return returnValue;
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        })).entries()));
+        ExternalHashAggregator<K,V,V> aggregator = aggregate(new ReducingCombiner<>(function2));
+        registerSpill(aggregator,function2.operationContext!=null?function2.operationContext:operationContext);
+        return new ControlPairDataSet<>(aggregator);
     }
 
     @Override
@@ -128,17 +130,21 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     @Override
     public PairDataSet<K, V> sortByKey(final Comparator<K> comparator) {
         /*
-         * -sf- this is done a bit goofily, so that we can support multiple versions of guava.
-         *
-         * This is essentially copying out FluentIterable.from(source).toSortedList(comparator) logic
-         * directly into the method, so that we can support the same code line from 12.0.1 on.
+         * Sort runs which exceed the control-side memory budget are written to local disk
+         * and merged back together as the result is read.
          */
-        return new ControlPairDataSet<>(Ordering.from(new Comparator<Tuple2<K, V>>() {
-            @Override
-            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
-                return comparator.compare(o1._1(), o2._1());
+        ExternalSorter<K,V> sorter = new ExternalSorter<>(SpillContext.fromConfiguration(),comparator);
+        try {
+            for (Tuple2<K,V> t : source) {
+                sorter.add(t);
             }
-        }).immutableSortedCopy(source));
+            sorter.finish();
+        } catch (Exception e) {
+            sorter.close();
+            throw new RuntimeException(e);
+        }
+        registerSpill(sorter,operationContext);
+        return new ControlPairDataSet<>(sorter);
     }
 
     @Override
@@ -154,16 +160,11 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public PairDataSet<K, Iterable<V>> groupByKey() {
-        Multimap<K,V> newMap = multimapFromIterable(source);
-        return new ControlPairDataSet<>(FluentIterable.from(newMap.asMap().entrySet()).transform(new Function<Map.Entry<K, Collection<V>>, Tuple2<K, Iterable<V>>>() {
-            @Nullable
-            @Override
-            public Tuple2<K, Iterable<V>> apply(@Nullable Map.Entry<K, Collection<V>> e) {
-                assert e!=null: "E cannot be null";
-                return new Tuple2<K, Iterable<V>>(e.getKey(), e.getValue());
-            }
-        }));
+        ExternalHashAggregator<K,V,List<V>> aggregator = aggregate(new GroupingCombiner<V>());
+        registerSpill(aggregator,operationContext);
+        return new ControlPairDataSet<K,Iterable<V>>((Iterable)aggregator);
     }
 
     @Override
@@ -265,6 +266,44 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
         return subtractByKey(rightDataSet);
     }
 
+    /**
+     * Aggregates the source by key, spilling to local disk if the aggregation grows beyond the
+     * control-side memory budget.
+     */
+    private <A> ExternalHashAggregator<K,V,A> aggregate(Combiner<V,A> combiner) {
+        ExternalHashAggregator<K,V,A> aggregator = new ExternalHashAggregator<>(SpillContext.fromConfiguration(),combiner);
+        try {
+            for (Tuple2<K,V> t : source) {
+                aggregator.add(t._1(), t._2());
+            }
+            aggregator.finish();
+            return aggregator;
+        } catch (Exception e) {
+            aggregator.close();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Ties the lifetime of any spill files to the operation which owns them. If there is
+     * no such operation, the files are removed once the result has been read through once.
+     */
+    private void registerSpill(Spillable spillable, OperationContext<?> operationContext) {
+        if (!spillable.hasSpilled())
+            return;
+        SpliceOperation op = operationContext == null ? null : operationContext.getOperation();
+        if (op == null) {
+            spillable.closeWhenExhausted();
+            return;
+        }
+        try {
+            op.registerCloseable(spillable);
+        } catch (StandardException se) {
+            spillable.close();
+            throw new RuntimeException(se);
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("ControlPairDataSet [");
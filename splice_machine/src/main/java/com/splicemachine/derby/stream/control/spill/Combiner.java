@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+/**
+ * Describes how values are folded into a per-key accumulator by an {@link ExternalHashAggregator}.
+ *
+ * Because the aggregator may spill partially-built accumulators to disk and read them back later,
+ * {@link #merge(Object,Object)} must be able to combine two accumulators which were built
+ * from disjoint sets of values for the same key.
+ *
+ * @param <V> the type of value being accumulated
+ * @param <A> the type of the accumulator
+ */
+public interface Combiner<V,A>{
+
+    A createAccumulator(V value) throws Exception;
+
+    /**
+     * @return the accumulator which results from adding {@code value}. This may be
+     * the same instance as {@code accumulator}
+     */
+    A add(A accumulator,V value) throws Exception;
+
+    A merge(A left,A right) throws Exception;
+
+    /**
+     * @return the estimated number of bytes by which an accumulator grows when {@code value} is added to it.
+     */
+    long estimateGrowth(V value);
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A memory-budgeted hash aggregation for control-side (local) datasets.
+ *
+ * Values are combined into an in-memory hash table until its estimated heap size exceeds
+ * the budget of the {@link SpillContext}. At that point, the table is hash-partitioned into local spill
+ * files and cleared. Once all the input has been seen, each partition is read back and merged
+ * independently. A partition which still does not fit within the budget is re-partitioned
+ * (using a different hash) up to {@link #MAX_DEPTH} times, after which it is merged entirely in memory.
+ *
+ * If nothing is ever spilled, this behaves exactly like an in-memory hash aggregation.
+ *
+ * @param <K> the type of the grouping key
+ * @param <V> the type of the incoming values
+ * @param <A> the type of the per-key accumulator
+ */
+public class ExternalHashAggregator<K,V,A> implements Iterable<Tuple2<K,A>>, Spillable{
+    private static final Logger LOG=Logger.getLogger(ExternalHashAggregator.class);
+    static final int MAX_DEPTH=3;
+    /*rough cost of a HashMap entry, excluding the key and value themselves*/
+    private static final int ENTRY_OVERHEAD=48;
+
+    private final SpillContext spillContext;
+    private final Combiner<V,A> combiner;
+    private final int depth;
+
+    private Map<K,A> table=new HashMap<>();
+    private long heapSize;
+    private SpillFile[] partitions;
+    private long spilledBytes;
+    private boolean finished;
+    private boolean closeWhenExhausted;
+
+    public ExternalHashAggregator(SpillContext spillContext,Combiner<V,A> combiner){
+        this(spillContext,combiner,0);
+    }
+
+    private ExternalHashAggregator(SpillContext spillContext,Combiner<V,A> combiner,int depth){
+        this.spillContext=spillContext;
+        this.combiner=combiner;
+        this.depth=depth;
+    }
+
+    public void add(K key,V value) throws Exception{
+        assert !finished: "Cannot add to a finished aggregation";
+        A acc=table.get(key);
+        if(acc==null){
+            acc=combiner.createAccumulator(value);
+            table.put(key,acc);
+            heapSize+=ENTRY_OVERHEAD+HeapSizeEstimator.estimate(key)+HeapSizeEstimator.estimate(acc);
+        }else{
+            A newAcc=combiner.add(acc,value);
+            if(newAcc!=acc)
+                table.put(key,newAcc);
+            heapSize+=combiner.estimateGrowth(value);
+        }
+        spillIfNecessary();
+    }
+
+    /**
+     * Indicate that all the input has been added. After this, the aggregation may be iterated.
+     */
+    public void finish() throws IOException{
+        if(finished) return;
+        finished=true;
+        if(partitions!=null){
+            spill();
+            for(SpillFile partition : partitions){
+                partition.finishWriting();
+                spilledBytes+=partition.sizeOnDisk();
+            }
+            if(LOG.isDebugEnabled())
+                LOG.debug("Aggregation at depth "+depth+" spilled "+spilledBytes+" bytes into "+partitions.length+" partitions");
+        }
+    }
+
+    @Override
+    public boolean hasSpilled(){
+        return partitions!=null;
+    }
+
+    /**
+     * @return the number of bytes written to disk by this aggregation (not counting any re-partitioning
+     * which happens while it is being read).
+     */
+    public long getSpilledBytes(){
+        return spilledBytes;
+    }
+
+    @Override
+    public void closeWhenExhausted(){
+        this.closeWhenExhausted=true;
+    }
+
+    @Override
+    public Iterator<Tuple2<K,A>> iterator(){
+        assert finished: "Cannot iterate an unfinished aggregation";
+        if(partitions==null)
+            return new TableIterator<>(table.entrySet().iterator());
+        return new PartitionIterator();
+    }
+
+    @Override
+    public void close(){
+        table=Collections.emptyMap();
+        if(partitions!=null){
+            for(SpillFile partition : partitions){
+                partition.close();
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void spillIfNecessary() throws IOException{
+        if(depth>=MAX_DEPTH) return; //we've re-partitioned as much as we're willing to, so this partition must fit
+        if(!spillContext.exceedsBudget(heapSize)) return;
+        spill();
+    }
+
+    private void spill() throws IOException{
+        int numPartitions=spillContext.getNumPartitions();
+        if(partitions==null){
+            partitions=new SpillFile[numPartitions];
+            try{
+                for(int i=0;i<numPartitions;i++){
+                    partitions[i]=spillContext.newSpillFile("agg");
+                }
+            }catch(IOException ioe){
+                close();
+                throw ioe;
+            }
+        }
+        for(Map.Entry<K,A> entry : table.entrySet()){
+            SpillFile partition=partitions[partition(entry.getKey(),numPartitions)];
+            partition.write(entry.getKey());
+            partition.write(entry.getValue());
+        }
+        table.clear();
+        heapSize=0L;
+    }
+
+    private int partition(K key,int numPartitions){
+        /*
+         * We mix the hash with the depth so that a partition which is re-partitioned
+         * doesn't land everything in the same child partition again
+         */
+        int h=key.hashCode()^(depth*0x9E3779B9);
+        h^=h>>>16;
+        h*=0x85ebca6b;
+        h^=h>>>13;
+        h*=0xc2b2ae35;
+        h^=h>>>16;
+        return (h&Integer.MAX_VALUE)%numPartitions;
+    }
+
+    private ExternalHashAggregator<K,V,A> mergePartition(SpillFile partition) throws Exception{
+        ExternalHashAggregator<K,V,A> child=new ExternalHashAggregator<>(spillContext,combiner,depth+1);
+        Iterator<Object> data=partition.read();
+        while(data.hasNext()){
+            @SuppressWarnings("unchecked") K key=(K)data.next();
+            @SuppressWarnings("unchecked") A acc=(A)data.next();
+            child.merge(key,acc);
+        }
+        child.finish();
+        return child;
+    }
+
+    private void merge(K key,A acc) throws Exception{
+        A existing=table.get(key);
+        long accSize=HeapSizeEstimator.estimate(acc);
+        if(existing==null){
+            table.put(key,acc);
+            heapSize+=ENTRY_OVERHEAD+HeapSizeEstimator.estimate(key)+accSize;
+        }else{
+            table.put(key,combiner.merge(existing,acc));
+            heapSize+=accSize;
+        }
+        spillIfNecessary();
+    }
+
+    private static class TableIterator<K,A> implements Iterator<Tuple2<K,A>>{
+        private final Iterator<Map.Entry<K,A>> delegate;
+
+        TableIterator(Iterator<Map.Entry<K,A>> delegate){
+            this.delegate=delegate;
+        }
+
+        @Override public boolean hasNext(){ return delegate.hasNext(); }
+
+        @Override
+        public Tuple2<K,A> next(){
+            Map.Entry<K,A> n=delegate.next();
+            return new Tuple2<>(n.getKey(),n.getValue());
+        }
+
+        @Override public void remove(){ throw new UnsupportedOperationException(); }
+    }
+
+    /*
+     * Merges one partition at a time, so that at most one partition's worth of data
+     * is held in memory at once.
+     */
+    private class PartitionIterator implements Iterator<Tuple2<K,A>>{
+        private int nextPartition=0;
+        private ExternalHashAggregator<K,V,A> current;
+        private Iterator<Tuple2<K,A>> currentIterator;
+
+        @Override
+        public boolean hasNext(){
+            while(currentIterator==null || !currentIterator.hasNext()){
+                if(current!=null){
+                    current.close();
+                    current=null;
+                    currentIterator=null;
+                }
+                if(nextPartition>=partitions.length){
+                    if(closeWhenExhausted)
+                        ExternalHashAggregator.this.close();
+                    return false;
+                }
+                try{
+                    current=mergePartition(partitions[nextPartition++]);
+                }catch(RuntimeException re){
+                    throw re;
+                }catch(Exception e){
+                    throw new RuntimeException(e);
+                }
+                currentIterator=current.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Tuple2<K,A> next(){
+            if(!hasNext()) throw new NoSuchElementException();
+            return currentIterator.next();
+        }
+
+        @Override public void remove(){ throw new UnsupportedOperationException(); }
+    }
+}
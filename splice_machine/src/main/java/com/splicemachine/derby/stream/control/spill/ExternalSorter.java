@@ -0,0 +1,268 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * A memory-budgeted external merge sort for control-side (local) datasets.
+ *
+ * Incoming pairs are buffered until their estimated heap size exceeds the budget of the {@link SpillContext};
+ * the buffer is then sorted and written out as a run to a local spill file. Once all the input
+ * has been seen, the final buffer is sorted in memory and merged with the on-disk runs
+ * using a k-way merge. If there are more runs than can be merged at once, runs are first merged
+ * together in passes of {@link #MAX_FAN_IN}.
+ *
+ * The sort is stable: pairs with equal keys are returned in the order they were added.
+ *
+ * @param <K> the type of the sort key
+ * @param <V> the type of the value
+ */
+public class ExternalSorter<K,V> implements Iterable<Tuple2<K,V>>, Spillable{
+    private static final Logger LOG=Logger.getLogger(ExternalSorter.class);
+    static final int MAX_FAN_IN=64;
+
+    private final SpillContext spillContext;
+    private final Comparator<Tuple2<K,V>> tupleComparator;
+
+    private List<Tuple2<K,V>> buffer=new ArrayList<>();
+    private long heapSize;
+    private List<SpillFile> runs=new ArrayList<>();
+    private long spilledBytes;
+    private boolean finished;
+    private boolean closeWhenExhausted;
+
+    public ExternalSorter(SpillContext spillContext,final Comparator<K> keyComparator){
+        this.spillContext=spillContext;
+        this.tupleComparator=new Comparator<Tuple2<K,V>>(){
+            @Override
+            public int compare(Tuple2<K,V> o1,Tuple2<K,V> o2){
+                return keyComparator.compare(o1._1(),o2._1());
+            }
+        };
+    }
+
+    public void add(Tuple2<K,V> pair) throws IOException{
+        assert !finished: "Cannot add to a finished sort";
+        buffer.add(pair);
+        heapSize+=HeapSizeEstimator.estimate(pair);
+        if(spillContext.exceedsBudget(heapSize))
+            spillRun();
+    }
+
+    /**
+     * Indicate that all the input has been added. After this, the sort may be iterated.
+     */
+    public void finish() throws IOException{
+        if(finished) return;
+        finished=true;
+        Collections.sort(buffer,tupleComparator);
+        /*
+         * Leave one slot free for the in-memory buffer, which takes part in the final merge
+         * without ever being written out.
+         */
+        while(runs.size()>=MAX_FAN_IN)
+            mergeRuns();
+        for(SpillFile run : runs){
+            spilledBytes+=run.sizeOnDisk();
+        }
+        if(LOG.isDebugEnabled() && !runs.isEmpty())
+            LOG.debug("Sort spilled "+spilledBytes+" bytes into "+runs.size()+" runs");
+    }
+
+    @Override
+    public boolean hasSpilled(){
+        return !runs.isEmpty();
+    }
+
+    public long getSpilledBytes(){
+        return spilledBytes;
+    }
+
+    @Override
+    public void closeWhenExhausted(){
+        this.closeWhenExhausted=true;
+    }
+
+    @Override
+    public Iterator<Tuple2<K,V>> iterator(){
+        assert finished: "Cannot iterate an unfinished sort";
+        if(runs.isEmpty())
+            return Collections.unmodifiableList(buffer).iterator();
+        List<Iterator<Tuple2<K,V>>> sources=new ArrayList<>(runs.size()+1);
+        try{
+            for(SpillFile run : runs){
+                sources.add(new RunIterator<K,V>(run.read()));
+            }
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+        sources.add(buffer.iterator());
+        return new MergingIterator(sources,closeWhenExhausted);
+    }
+
+    @Override
+    public void close(){
+        buffer=Collections.emptyList();
+        for(SpillFile run : runs){
+            run.close();
+        }
+        runs=Collections.emptyList();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void spillRun() throws IOException{
+        Collections.sort(buffer,tupleComparator);
+        SpillFile run=spillContext.newSpillFile("sort");
+        try{
+            for(Tuple2<K,V> t : buffer){
+                run.write(t._1());
+                run.write(t._2());
+            }
+            run.finishWriting();
+        }catch(IOException ioe){
+            run.close();
+            throw ioe;
+        }
+        runs.add(run);
+        buffer.clear();
+        heapSize=0L;
+    }
+
+    /*
+     * Merge the oldest MAX_FAN_IN runs into a single new run. The merged run replaces them at the
+     * front of the list, which keeps the order in which equal keys were added.
+     */
+    private void mergeRuns() throws IOException{
+        List<SpillFile> toMerge=new ArrayList<>(runs.subList(0,MAX_FAN_IN));
+        List<Iterator<Tuple2<K,V>>> sources=new ArrayList<>(toMerge.size());
+        for(SpillFile run : toMerge){
+            sources.add(new RunIterator<K,V>(run.read()));
+        }
+        SpillFile merged=spillContext.newSpillFile("sort");
+        try{
+            Iterator<Tuple2<K,V>> mergeIter=new MergingIterator(sources,false);
+            while(mergeIter.hasNext()){
+                Tuple2<K,V> t=mergeIter.next();
+                merged.write(t._1());
+                merged.write(t._2());
+            }
+            merged.finishWriting();
+        }catch(IOException ioe){
+            merged.close();
+            throw ioe;
+        }
+        for(SpillFile run : toMerge){
+            run.close();
+        }
+        runs.subList(0,MAX_FAN_IN).clear();
+        runs.add(0,merged);
+    }
+
+    private static class RunIterator<K,V> implements Iterator<Tuple2<K,V>>{
+        private final Iterator<Object> data;
+
+        RunIterator(Iterator<Object> data){
+            this.data=data;
+        }
+
+        @Override public boolean hasNext(){ return data.hasNext(); }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Tuple2<K,V> next(){
+            K key=(K)data.next();
+            V value=(V)data.next();
+            return new Tuple2<>(key,value);
+        }
+
+        @Override public void remove(){ throw new UnsupportedOperationException(); }
+    }
+
+    private static class Head<K,V>{
+        private final Iterator<Tuple2<K,V>> source;
+        private final int sourceIndex;
+        private Tuple2<K,V> current;
+
+        Head(Iterator<Tuple2<K,V>> source,int sourceIndex){
+            this.source=source;
+            this.sourceIndex=sourceIndex;
+        }
+
+        boolean advance(){
+            if(!source.hasNext()) return false;
+            current=source.next();
+            return true;
+        }
+    }
+
+    /*
+     * K-way merge of sorted sources. Ties are broken by source index, and sources are always supplied
+     * in the order their contents were added, which keeps the merge stable.
+     */
+    private class MergingIterator implements Iterator<Tuple2<K,V>>{
+        private final PriorityQueue<Head<K,V>> heads;
+        private final boolean closeOnEnd;
+
+        MergingIterator(List<Iterator<Tuple2<K,V>>> sources,boolean closeOnEnd){
+            this.closeOnEnd=closeOnEnd;
+            this.heads=new PriorityQueue<>(Math.max(1,sources.size()),new Comparator<Head<K,V>>(){
+                @Override
+                public int compare(Head<K,V> o1,Head<K,V> o2){
+                    int c=tupleComparator.compare(o1.current,o2.current);
+                    if(c!=0) return c;
+                    return Integer.compare(o1.sourceIndex,o2.sourceIndex);
+                }
+            });
+            for(int i=0;i<sources.size();i++){
+                Head<K,V> head=new Head<>(sources.get(i),i);
+                if(head.advance())
+                    heads.add(head);
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            if(!heads.isEmpty()) return true;
+            if(closeOnEnd)
+                ExternalSorter.this.close();
+            return false;
+        }
+
+        @Override
+        public Tuple2<K,V> next(){
+            Head<K,V> head=heads.poll();
+            if(head==null) throw new NoSuchElementException();
+            Tuple2<K,V> next=head.current;
+            if(head.advance())
+                heads.add(head);
+            return next;
+        }
+
+        @Override public void remove(){ throw new UnsupportedOperationException(); }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects every value for a key into a list (i.e. {@code groupByKey}).
+ */
+public class GroupingCombiner<V> implements Combiner<V,List<V>>{
+
+    @Override
+    public List<V> createAccumulator(V value){
+        List<V> values=new ArrayList<>();
+        values.add(value);
+        return values;
+    }
+
+    @Override
+    public List<V> add(List<V> accumulator,V value){
+        accumulator.add(value);
+        return accumulator;
+    }
+
+    @Override
+    public List<V> merge(List<V> left,List<V> right){
+        left.addAll(right);
+        return left;
+    }
+
+    @Override
+    public long estimateGrowth(V value){
+        return HeapSizeEstimator.estimate(value);
+    }
+}
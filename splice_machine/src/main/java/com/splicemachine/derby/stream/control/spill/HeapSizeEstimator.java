@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import scala.Tuple2;
+
+import java.util.Collection;
+
+/**
+ * Rough estimates of the on-heap footprint of the objects which flow through
+ * control-side datasets. These are only intended to be good enough to decide when to spill,
+ * not to be an accurate accounting of the heap.
+ */
+public class HeapSizeEstimator{
+    private static final int OBJECT_OVERHEAD=16;
+    private static final int REFERENCE_SIZE=8;
+    /*the size we assume for any object which we don't know how to measure*/
+    private static final int DEFAULT_SIZE=64;
+
+    private HeapSizeEstimator(){}
+
+    public static long estimate(Object o){
+        if(o==null) return REFERENCE_SIZE;
+        if(o instanceof LocatedRow){
+            LocatedRow lr=(LocatedRow)o;
+            long size=OBJECT_OVERHEAD+2*REFERENCE_SIZE+estimate(lr.getRow());
+            if(lr.getRowLocation()!=null)
+                size+=lr.getRowLocation().estimateMemoryUsage();
+            return size;
+        }else if(o instanceof ExecRow){
+            DataValueDescriptor[] dvds=((ExecRow)o).getRowArray();
+            long size=OBJECT_OVERHEAD+REFERENCE_SIZE*(dvds==null?0:dvds.length);
+            if(dvds!=null){
+                for(DataValueDescriptor dvd : dvds){
+                    if(dvd!=null)
+                        size+=dvd.estimateMemoryUsage();
+                }
+            }
+            return size;
+        }else if(o instanceof Tuple2){
+            Tuple2 t=(Tuple2)o;
+            return OBJECT_OVERHEAD+estimate(t._1())+estimate(t._2());
+        }else if(o instanceof Collection){
+            long size=OBJECT_OVERHEAD;
+            for(Object e : (Collection)o){
+                size+=estimate(e);
+            }
+            return size;
+        }
+        return DEFAULT_SIZE;
+    }
+}
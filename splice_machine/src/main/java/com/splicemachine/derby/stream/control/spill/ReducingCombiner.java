@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.function.SpliceFunction2;
+
+/**
+ * Folds values for a key into a single value using a reduce function (i.e. {@code reduceByKey}).
+ *
+ * As with the distributed (Spark) implementation, the reduce function is expected to be
+ * associative, so that partial reductions may be merged with one another.
+ */
+public class ReducingCombiner<Op extends SpliceOperation,V> implements Combiner<V,V>{
+    private final SpliceFunction2<Op,V,V,V> function;
+
+    public ReducingCombiner(SpliceFunction2<Op,V,V,V> function){
+        this.function=function;
+    }
+
+    @Override
+    public V createAccumulator(V value) throws Exception{
+        return function.call(null,value);
+    }
+
+    @Override
+    public V add(V accumulator,V value) throws Exception{
+        return function.call(accumulator,value);
+    }
+
+    @Override
+    public V merge(V left,V right) throws Exception{
+        return function.call(left,right);
+    }
+
+    @Override
+    public long estimateGrowth(V value){
+        return 0L; //the reduced value replaces the old one
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.utils.kryo.KryoPool;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Holds the memory budget and on-disk location used by control-side operations
+ * which are allowed to spill their working set to local disk.
+ */
+public class SpillContext{
+    private final long memoryBudget;
+    private final int numPartitions;
+    private final File spillDirectory;
+    private final KryoPool kryoPool;
+
+    public SpillContext(long memoryBudget,int numPartitions,File spillDirectory,KryoPool kryoPool){
+        assert numPartitions>0: "Cannot spill into fewer than one partition";
+        this.memoryBudget=memoryBudget;
+        this.numPartitions=numPartitions;
+        this.spillDirectory=spillDirectory;
+        this.kryoPool=kryoPool;
+    }
+
+    /**
+     * @return a SpillContext configured from the running engine. If no engine is running (as in
+     * unit tests), then the returned context has an unbounded memory budget and will never spill.
+     */
+    public static SpillContext fromConfiguration(){
+        EngineDriver driver=EngineDriver.driver();
+        if(driver==null)
+            return new SpillContext(Long.MAX_VALUE,1,new File(System.getProperty("java.io.tmpdir")),SpliceKryoRegistry.getInstance());
+        SConfiguration config=driver.getConfiguration();
+        return new SpillContext(config.getControlSideSpillThreshold(),
+                config.getControlSideSpillPartitions(),
+                new File(config.getControlSideSpillDirectory()),
+                SpliceKryoRegistry.getInstance());
+    }
+
+    public long getMemoryBudget(){
+        return memoryBudget;
+    }
+
+    public int getNumPartitions(){
+        return numPartitions;
+    }
+
+    public boolean exceedsBudget(long heapSize){
+        return heapSize>memoryBudget;
+    }
+
+    public SpillFile newSpillFile(String prefix) throws IOException{
+        if(!spillDirectory.exists() && !spillDirectory.mkdirs() && !spillDirectory.exists())
+            throw new IOException("Unable to create spill directory "+spillDirectory);
+        return new SpillFile(File.createTempFile(prefix,".spill",spillDirectory),kryoPool);
+    }
+}
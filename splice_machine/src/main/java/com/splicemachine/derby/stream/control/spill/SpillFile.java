@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An append-only local file of Kryo-serialized objects.
+ *
+ * Objects are appended until {@link #finishWriting()} is called, after which the file
+ * may be read back (as many times as necessary) until it is closed. Closing the file deletes
+ * it from disk, and releases any readers which were abandoned before reaching the end of the file.
+ */
+public class SpillFile implements AutoCloseable{
+    private static final Logger LOG=Logger.getLogger(SpillFile.class);
+    private static final int BUFFER_SIZE=1<<16;
+
+    private final File file;
+    private final KryoPool kryoPool;
+    private final List<SpillIterator<?>> openReaders=new ArrayList<>();
+
+    private Output output;
+    private Kryo writeKryo;
+    private long numEntries;
+    private boolean closed;
+
+    SpillFile(File file,KryoPool kryoPool){
+        this.file=file;
+        this.kryoPool=kryoPool;
+    }
+
+    public void write(Object value) throws IOException{
+        assert !closed: "Cannot write to a closed spill file";
+        if(output==null){
+            output=new Output(new FileOutputStream(file),BUFFER_SIZE);
+            writeKryo=kryoPool.get();
+        }
+        writeKryo.writeClassAndObject(output,value);
+        numEntries++;
+    }
+
+    public void finishWriting(){
+        if(output==null) return;
+        output.close();
+        kryoPool.returnInstance(writeKryo);
+        output=null;
+        writeKryo=null;
+    }
+
+    public long size(){
+        return numEntries;
+    }
+
+    /**
+     * @return the number of bytes currently on disk for this file.
+     */
+    public long sizeOnDisk(){
+        return file.length();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Iterator<T> read() throws IOException{
+        assert output==null: "Cannot read a spill file which is still being written";
+        if(numEntries==0) return Collections.emptyIterator();
+        SpillIterator<T> reader=new SpillIterator<>(new Input(new FileInputStream(file),BUFFER_SIZE),numEntries);
+        synchronized(openReaders){
+            openReaders.add(reader);
+        }
+        return reader;
+    }
+
+    @Override
+    public void close(){
+        if(closed) return;
+        closed=true;
+        finishWriting();
+        synchronized(openReaders){
+            //consumers which stop early (a LIMIT, or a cancelled query) never read to the end of the file
+            for(SpillIterator<?> reader : openReaders){
+                reader.release();
+            }
+            openReaders.clear();
+        }
+        if(file.exists() && !file.delete())
+            LOG.warn("Unable to delete spill file "+file);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private class SpillIterator<T> implements Iterator<T>{
+        private final Input input;
+        private final Kryo kryo;
+        private long remaining;
+        private boolean released;
+
+        SpillIterator(Input input,long numEntries){
+            this.input=input;
+            this.remaining=numEntries;
+            this.kryo=kryoPool.get();
+        }
+
+        @Override
+        public boolean hasNext(){
+            return remaining>0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next(){
+            if(remaining<=0) throw new NoSuchElementException();
+            T next=(T)kryo.readClassAndObject(input);
+            remaining--;
+            if(remaining==0){
+                release();
+                synchronized(openReaders){
+                    openReaders.remove(this);
+                }
+            }
+            return next;
+        }
+
+        void release(){
+            if(released) return;
+            released=true;
+            remaining=0;
+            input.close();
+            kryoPool.returnInstance(kryo);
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException("Spill files are append-only");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+/**
+ * A control-side structure which may have written part of its contents to local spill files.
+ */
+public interface Spillable extends AutoCloseable{
+
+    boolean hasSpilled();
+
+    /**
+     * Release the spill files as soon as they've been completely read once. Use this when there
+     * is no owner to {@link #close()} the structure; its contents are then only iterable once if
+     * it spilled.
+     */
+    void closeWhenExhausted();
+
+    @Override
+    void close();
+}
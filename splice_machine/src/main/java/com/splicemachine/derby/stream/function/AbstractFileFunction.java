@@ -33,6 +33,7 @@ import com.splicemachine.db.iapi.services.io.ArrayUtil;
 import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
 import com.splicemachine.db.shared.common.reference.SQLState;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
@@ -127,37 +128,13 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
             ExecRow returnRow = execRow.getClone();
             for (int i = 1; i <= returnRow.nColumns(); i++) {
                 DataValueDescriptor dvd = returnRow.getColumn(i);
-                int type = dvd.getTypeFormatId();
                 if (values.size() <= i-1) {
                     throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(), values.size());
                 }
                 String value = values.get(i - 1);
                 if (value != null && (value.equals("null") || value.equals("NULL") || value.isEmpty()))
                     value = null;
-                if (type == StoredFormatIds.SQL_TIME_ID) {
-                    if(calendar==null)
-                        calendar = new GregorianCalendar();
-                    if (timeFormat == null || value==null){
-                        ((DateTimeDataValue)dvd).setValue(value,calendar);
-                    }else
-                        dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
-                } else if (type == StoredFormatIds.SQL_TIMESTAMP_ID) {
-                    if(calendar==null)
-                        calendar = new GregorianCalendar();
-                    if (timestampFormat == null || value==null)
-                        ((DateTimeDataValue)dvd).setValue(value,calendar);
-                    else
-                        dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
-                } else if (type == StoredFormatIds.SQL_DATE_ID) {
-                    if(calendar==null)
-                        calendar = new GregorianCalendar();
-                    if (dateTimeFormat == null || value == null)
-                        ((DateTimeDataValue)dvd).setValue(value,calendar);
-                    else
-                        dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
-                } else {
-                    dvd.setValue(value);
-                }
+                setValue(dvd, value);
             }
             return new LocatedRow(returnRow);
         } catch (Exception e) {
@@ -169,6 +146,158 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
         }
     }
 
+    /**
+     *
+     * Same as {@link #call(List)}, but reads the columns straight out of the tokenizer's buffer. Character
+     * and integer columns are set without creating a String for the column; everything else goes through
+     * the String form as before.
+     *
+     * @param tokens the tokenized line
+     * @return the row, or null if the line was a bad record and the import is permissive
+     * @throws Exception
+     */
+    @SuppressFBWarnings(value = "REC_CATCH_EXCEPTION",justification = "Intentional")
+    public LocatedRow call(CSVLineTokenizer tokens) throws Exception {
+        operationContext.recordRead();
+        try {
+            ExecRow returnRow = execRow.getClone();
+            char[] buffer = tokens.getBuffer();
+            for (int i = 1; i <= returnRow.nColumns(); i++) {
+                DataValueDescriptor dvd = returnRow.getColumn(i);
+                if (tokens.getColumnCount() <= i-1) {
+                    throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(), tokens.getColumnCount());
+                }
+                int start = tokens.getStart(i - 1);
+                int length = tokens.getLength(i - 1);
+                if (isNullValue(buffer, start, length)) {
+                    setValue(dvd, null);
+                    continue;
+                }
+                switch (dvd.getTypeFormatId()) {
+                    case StoredFormatIds.SQL_CHAR_ID:
+                    case StoredFormatIds.SQL_VARCHAR_ID:
+                    case StoredFormatIds.SQL_LONGVARCHAR_ID:
+                        if (dvd instanceof SQLChar) {
+                            SQLChar sqlChar = (SQLChar) dvd;
+                            System.arraycopy(buffer, start, sqlChar.getRawBuffer(length), 0, length);
+                            sqlChar.setRawLength(length);
+                            continue;
+                        }
+                        break;
+                    case StoredFormatIds.SQL_INTEGER_ID:
+                        if (isSimpleInteger(buffer, start, length)) {
+                            long value = parseLong(buffer, start, length);
+                            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                                dvd.setValue((int) value);
+                                continue;
+                            }
+                        }
+                        break;
+                    case StoredFormatIds.SQL_LONGINT_ID:
+                        if (isSimpleInteger(buffer, start, length)) {
+                            dvd.setValue(parseLong(buffer, start, length));
+                            continue;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                // anything we can't set directly (including malformed numbers) gets the usual parsing and errors
+                setValue(dvd, new String(buffer, start, length));
+            }
+            return new LocatedRow(returnRow);
+        } catch (Exception e) {
+            if (operationContext.isPermissive()) {
+               operationContext.recordBadRecord(e.getLocalizedMessage() + tokens.getColumns(), e);
+                return null;
+            }
+            throw e; // Not Permissive of errors
+        }
+    }
+
+    private void setValue(DataValueDescriptor dvd, String value) throws StandardException {
+        int type = dvd.getTypeFormatId();
+        if (type == StoredFormatIds.SQL_TIME_ID) {
+            if(calendar==null)
+                calendar = new GregorianCalendar();
+            if (timeFormat == null || value==null){
+                ((DateTimeDataValue)dvd).setValue(value,calendar);
+            }else
+                dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
+        } else if (type == StoredFormatIds.SQL_TIMESTAMP_ID) {
+            if(calendar==null)
+                calendar = new GregorianCalendar();
+            if (timestampFormat == null || value==null)
+                ((DateTimeDataValue)dvd).setValue(value,calendar);
+            else
+                dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
+        } else if (type == StoredFormatIds.SQL_DATE_ID) {
+            if(calendar==null)
+                calendar = new GregorianCalendar();
+            if (dateTimeFormat == null || value == null)
+                ((DateTimeDataValue)dvd).setValue(value,calendar);
+            else
+                dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
+        } else {
+            dvd.setValue(value);
+        }
+    }
+
+    /*
+     * Null columns are empty, or the literal null/NULL, matching the String form in call(List).
+     */
+    private static boolean isNullValue(char[] buffer, int start, int length) {
+        if (length <= 0)
+            return true;
+        if (length != 4)
+            return false;
+        char n = buffer[start];
+        if (n == 'n')
+            return buffer[start + 1] == 'u' && buffer[start + 2] == 'l' && buffer[start + 3] == 'l';
+        if (n == 'N')
+            return buffer[start + 1] == 'U' && buffer[start + 2] == 'L' && buffer[start + 3] == 'L';
+        return false;
+    }
+
+    /*
+     * An optional sign followed by at most 18 digits, so the value can't overflow a long. Anything
+     * else (whitespace, longer values, garbage) is left to the DataValueDescriptor to parse.
+     */
+    private static boolean isSimpleInteger(char[] buffer, int start, int length) {
+        int pos = start;
+        int end = start + length;
+        char first = buffer[pos];
+        if (first == '-' || first == '+')
+            pos++;
+        int digits = end - pos;
+        if (digits <= 0 || digits > 18)
+            return false;
+        for (; pos < end; pos++) {
+            char c = buffer[pos];
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
+    private static long parseLong(char[] buffer, int start, int length) {
+        int pos = start;
+        int end = start + length;
+        boolean negative = buffer[pos] == '-';
+        if (negative || buffer[pos] == '+')
+            pos++;
+        long value = 0;
+        for (; pos < end; pos++)
+            value = value * 10 + (buffer[pos] - '0');
+        return negative ? -value : value;
+    }
+
+    CSVLineTokenizer newLineTokenizer() {
+        return new CSVLineTokenizer(
+                characterDelimiter!=null && characterDelimiter.length()>0?characterDelimiter.charAt(0):DEFAULT_STRIP_STRING,
+                columnDelimiter!=null && columnDelimiter.length()>0?columnDelimiter.charAt(0):DEFAULT_COLUMN_DELIMITTER);
+    }
+
     void checkPreference() {
         if (preference==null){
             SConfiguration config =EngineDriver.driver().getConfiguration();
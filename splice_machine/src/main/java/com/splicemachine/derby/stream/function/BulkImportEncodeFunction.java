@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.db.iapi.services.io.ArrayUtil;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.execute.index.IndexTransformer;
+import com.splicemachine.derby.impl.sql.execute.operations.InsertOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.output.WriteReadUtils;
+import com.splicemachine.derby.stream.output.bulk.BulkImportTarget;
+import com.splicemachine.derby.stream.output.insert.InsertPipelineWriter;
+import com.splicemachine.derby.utils.marshall.PairEncoder;
+import com.splicemachine.kvpair.KVPair;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodes a row of a bulk import into the KVPairs of the base table and of each of its indexes, exactly
+ * as the write pipeline would, with each row key prefixed by the ordinal of its {@link BulkImportTarget}.
+ */
+public class BulkImportEncodeFunction extends SpliceFlatMapFunction<InsertOperation,LocatedRow,KVPair>{
+    private int[] pkCols;
+    private String tableVersion;
+    private int[] execRowTypeFormatIds;
+    private BulkImportTarget[] targets;
+
+    private transient PairEncoder encoder;
+    private transient IndexTransformer[] transformers;
+
+    public BulkImportEncodeFunction(){
+    }
+
+    @SuppressFBWarnings(value="EI_EXPOSE_REP2", justification="Intentional")
+    public BulkImportEncodeFunction(OperationContext<InsertOperation> operationContext,
+                                    int[] pkCols,
+                                    String tableVersion,
+                                    int[] execRowTypeFormatIds,
+                                    BulkImportTarget[] targets){
+        super(operationContext);
+        this.pkCols=pkCols;
+        this.tableVersion=tableVersion;
+        this.execRowTypeFormatIds=execRowTypeFormatIds;
+        this.targets=targets;
+    }
+
+    @Override
+    public Iterable<KVPair> call(LocatedRow locatedRow) throws Exception{
+        if(encoder==null)
+            init();
+        ExecRow row=locatedRow.getRow();
+        try{
+            if(operationContext.isFailed())
+                return Collections.emptyList();
+            getOperation().evaluateGenerationClauses(row);
+            KVPair base=encoder.encode(row);
+            List<KVPair> pairs=new ArrayList<>(targets.length);
+            for(int i=1;i<targets.length;i++){
+                pairs.add(BulkImportTarget.prefix(i,transformers[i].translate(base)));
+            }
+            //prefix the base row last, since the index translations read its key
+            pairs.add(BulkImportTarget.prefix(0,base));
+            operationContext.recordWrite();
+            return pairs;
+        }catch(Exception e){
+            if(operationContext.isPermissive()){
+                operationContext.recordBadRecord(e.getLocalizedMessage()+row.toString(),e);
+                return Collections.emptyList();
+            }
+            throw e;
+        }
+    }
+
+    private void init() throws Exception{
+        ExecRow execRowDefinition=WriteReadUtils.getExecRowFromTypeFormatIds(execRowTypeFormatIds);
+        encoder=new PairEncoder(InsertPipelineWriter.newKeyEncoder(pkCols,tableVersion,execRowDefinition),
+                InsertPipelineWriter.newRowHash(pkCols,tableVersion,execRowDefinition),KVPair.Type.INSERT);
+        transformers=new IndexTransformer[targets.length];
+        for(int i=1;i<targets.length;i++){
+            transformers[i]=targets[i].newIndexTransformer();
+        }
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        super.writeExternal(out);
+        out.writeBoolean(pkCols!=null);
+        if(pkCols!=null)
+            ArrayUtil.writeIntArray(out,pkCols);
+        out.writeUTF(tableVersion);
+        ArrayUtil.writeIntArray(out,execRowTypeFormatIds);
+        out.writeInt(targets.length);
+        for(BulkImportTarget target:targets){
+            target.writeExternal(out);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        super.readExternal(in);
+        if(in.readBoolean())
+            pkCols=ArrayUtil.readIntArray(in);
+        tableVersion=in.readUTF();
+        execRowTypeFormatIds=ArrayUtil.readIntArray(in);
+        targets=new BulkImportTarget[in.readInt()];
+        for(int i=0;i<targets.length;i++){
+            targets[i]=new BulkImportTarget();
+            targets[i].readExternal(in);
+        }
+    }
+}
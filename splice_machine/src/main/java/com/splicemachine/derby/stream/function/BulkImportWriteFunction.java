@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.access.api.BulkLoadWriter;
+import com.splicemachine.access.api.PartitionAdmin;
+import com.splicemachine.derby.impl.sql.execute.operations.InsertOperation;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.output.bulk.BulkImportTarget;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.ErrorState;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.impl.driver.SIDriver;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes the sorted, target-prefixed KVPairs of one partition of a bulk import into bulk load files.
+ *
+ * Every file goes into its own directory, and the (conglomerate, directory) of each file is returned
+ * so that only the files of successful task attempts are ever loaded. Because the input is sorted, a
+ * duplicate row key is always adjacent to its first occurrence, which is where unique keys are enforced.
+ */
+public class BulkImportWriteFunction extends SpliceFlatMapFunction<InsertOperation,Iterator<Tuple2<byte[],KVPair>>,Tuple2<Long,String>>{
+    private String directory;
+    private long version;
+    private String tableName;
+    private BulkImportTarget[] targets;
+
+    public BulkImportWriteFunction(){
+    }
+
+    @SuppressFBWarnings(value="EI_EXPOSE_REP2", justification="Intentional")
+    public BulkImportWriteFunction(OperationContext<InsertOperation> operationContext,
+                                   String directory,
+                                   long version,
+                                   String tableName,
+                                   BulkImportTarget[] targets){
+        super(operationContext);
+        this.directory=directory;
+        this.version=version;
+        this.tableName=tableName;
+        this.targets=targets;
+    }
+
+    @Override
+    public Iterable<Tuple2<Long,String>> call(Iterator<Tuple2<byte[],KVPair>> pairs) throws Exception{
+        List<Tuple2<Long,String>> files=new ArrayList<>();
+        BulkLoadWriter writer=null;
+        int currentTarget=-1;
+        byte[] lastKey=null;
+        try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
+            while(pairs.hasNext()){
+                KVPair pair=pairs.next()._2();
+                byte[] key=pair.getRowKey();
+                int target=BulkImportTarget.ordinal(key);
+                if(target!=currentTarget){
+                    if(writer!=null){
+                        BulkLoadWriter toClose=writer;
+                        writer=null;
+                        toClose.close();
+                    }
+                    long conglomerate=targets[target].getConglomerate();
+                    String fileDirectory=directory+"/"+conglomerate+"/"+UUID.randomUUID().toString();
+                    writer=admin.newBulkLoadWriter(Long.toString(conglomerate),fileDirectory);
+                    files.add(new Tuple2<>(conglomerate,fileDirectory));
+                    currentTarget=target;
+                }else if(Bytes.equals(lastKey,key)){
+                    BulkImportTarget t=targets[target];
+                    String constraint=t.isUnique()?t.getConstraintName():Long.toString(t.getConglomerate());
+                    throw ErrorState.LANG_DUPLICATE_KEY_CONSTRAINT.newException(constraint,tableName);
+                }
+                writer.append(BulkImportTarget.rowKey(key),version,pair.getValue());
+                lastKey=key;
+            }
+        }finally{
+            if(writer!=null)
+                writer.close();
+        }
+        return files;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        super.writeExternal(out);
+        out.writeUTF(directory);
+        out.writeLong(version);
+        out.writeUTF(tableName);
+        out.writeInt(targets.length);
+        for(BulkImportTarget target:targets){
+            target.writeExternal(out);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        super.readExternal(in);
+        directory=in.readUTF();
+        version=in.readLong();
+        tableName=in.readUTF();
+        targets=new BulkImportTarget[in.readInt()];
+        for(int i=0;i<targets.length;i++){
+            targets[i]=new BulkImportTarget();
+            targets[i].readExternal(in);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.primitives.Bytes;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * Serializable unsigned lexicographic ordering of byte arrays (the storage ordering of row keys), for
+ * sorting encoded keys inside a shuffle.
+ */
+public class ByteArrayComparator implements Comparator<byte[]>, Serializable{
+    private static final long serialVersionUID=1l;
+
+    @Override
+    public int compare(byte[] o1,byte[] o2){
+        return Bytes.basicByteComparator().compare(o1,o2);
+    }
+}
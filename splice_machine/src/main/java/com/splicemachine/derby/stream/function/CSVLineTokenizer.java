@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * Tokenizer for a single line of a CSV import which does not create a String per column.
+ *
+ * The line is copied once into a reusable char[], quoted columns are unescaped in place, and
+ * each column is then exposed as a (start, length) range over that buffer. The quoting rules
+ * follow the SuperCSV tokenizer the import used before: the quote character toggles quote mode
+ * wherever it appears, a doubled quote inside a quoted section is a literal quote, and an empty
+ * column is null.
+ *
+ * Because the line has already been split by the input format, a quoted section which is still
+ * open at the end of the line is reported as an error.
+ *
+ */
+@NotThreadSafe
+public class CSVLineTokenizer {
+    private final char quoteChar;
+    private final char delimiter;
+
+    private char[] buffer = new char[128];
+    private int[] starts = new int[16];
+    private int[] lengths = new int[16];
+    private int columnCount;
+
+    public CSVLineTokenizer(char quoteChar, char delimiter) {
+        this.quoteChar = quoteChar;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     *
+     * Tokenize the line, replacing whatever was tokenized before.
+     *
+     * @param line the line to tokenize
+     * @return false if the line is empty and holds no columns
+     * @throws IOException if the line ends inside a quoted column
+     */
+    public boolean tokenize(String line) throws IOException {
+        columnCount = 0;
+        int lineLength = line.length();
+        if (lineLength == 0)
+            return false;
+        if (buffer.length < lineLength)
+            buffer = new char[Math.max(lineLength, buffer.length * 2)];
+        line.getChars(0, lineLength, buffer, 0);
+
+        char[] buf = buffer;
+        int write = 0;
+        int columnStart = 0;
+        boolean quoted = false;
+        for (int read = 0; read < lineLength; read++) {
+            char c = buf[read];
+            if (quoted) {
+                if (c == quoteChar) {
+                    if (read + 1 < lineLength && buf[read + 1] == quoteChar) {
+                        buf[write++] = quoteChar;
+                        read++;
+                    } else
+                        quoted = false;
+                } else
+                    buf[write++] = c;
+            } else if (c == delimiter) {
+                addColumn(columnStart, write - columnStart);
+                columnStart = write;
+            } else if (c == quoteChar) {
+                quoted = true;
+            } else
+                buf[write++] = c;
+        }
+        if (quoted)
+            throw new IOException("unexpected end of line while reading quoted column on line: " + line);
+        addColumn(columnStart, write - columnStart);
+        return true;
+    }
+
+    /**
+     * @return the number of columns in the last tokenized line
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return the buffer the column ranges refer to. Only valid until the next call to {@link #tokenize(String)}.
+     */
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    public int getStart(int column) {
+        return starts[column];
+    }
+
+    /**
+     * @return the length of the column, or -1 if the column is null
+     */
+    public int getLength(int column) {
+        return lengths[column];
+    }
+
+    public boolean isNull(int column) {
+        return lengths[column] < 0;
+    }
+
+    /**
+     * @return the column as a String, or null if the column is null
+     */
+    public String getString(int column) {
+        int length = lengths[column];
+        return length < 0 ? null : new String(buffer, starts[column], length);
+    }
+
+    /**
+     *
+     * Materialize all the columns. Only meant for error reporting, where the row is printed.
+     *
+     * @return the columns of the last tokenized line
+     */
+    public List<String> getColumns() {
+        List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++)
+            columns.add(getString(i));
+        return columns;
+    }
+
+    private void addColumn(int start, int length) {
+        if (columnCount == starts.length) {
+            starts = Arrays.copyOf(starts, columnCount * 2);
+            lengths = Arrays.copyOf(lengths, columnCount * 2);
+        }
+        starts[columnCount] = start;
+        lengths[columnCount] = length == 0 ? -1 : length;
+        columnCount++;
+    }
+}
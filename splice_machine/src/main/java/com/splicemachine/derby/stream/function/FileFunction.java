@@ -21,13 +21,12 @@ import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 
 import javax.annotation.concurrent.NotThreadSafe;
-import java.io.*;
 import java.util.Collections;
 
 /**
  *
- * Function for parsing CSV files that are splittable by Hadoop.  The tokenizer swaps in and out
- * the line to be tokenized.
+ * Function for parsing CSV files that are splittable by Hadoop.  The tokenizer is reused for
+ * every line, and the columns are set on the row straight from its buffer.
  *
  * Special attention should be paid to permissive execution of the OperationContext.  This occurs
  * during imports so that failures are <i>handled</i>.
@@ -36,8 +35,7 @@ import java.util.Collections;
  */
 @NotThreadSafe
 public class FileFunction extends AbstractFileFunction<String> {
-    boolean initialized = false;
-    MutableCSVTokenizer tokenizer;
+    CSVLineTokenizer tokenizer;
     public FileFunction() {
         super();
     }
@@ -50,7 +48,7 @@ public class FileFunction extends AbstractFileFunction<String> {
     /**
      *
      * Call Method for parsing the string into either a singleton List with a LocatedRow or
-     * an empty list.
+     * an empty list. Empty lines are skipped.
      *
      * @param s
      * @return
@@ -60,15 +58,12 @@ public class FileFunction extends AbstractFileFunction<String> {
     public Iterable<LocatedRow> call(final String s) throws Exception {
         if (operationContext.isFailed())
             return Collections.EMPTY_LIST;
-        if (!initialized) {
-            Reader reader = new StringReader(s);
-            checkPreference();
-            tokenizer= new MutableCSVTokenizer(reader,preference);
-            initialized = true;
-        }
+        if (tokenizer==null)
+            tokenizer = newLineTokenizer();
         try {
-            tokenizer.setLine(s);
-            LocatedRow lr =  call(tokenizer.read());
+            if (!tokenizer.tokenize(s))
+                return Collections.EMPTY_LIST; // empty line
+            LocatedRow lr =  call(tokenizer);
             return lr==null?Collections.EMPTY_LIST:Collections.singletonList(lr);
         } catch (Exception e) {
             if (operationContext.isPermissive()) {
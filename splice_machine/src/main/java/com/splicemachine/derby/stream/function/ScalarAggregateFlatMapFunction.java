@@ -15,11 +15,13 @@
 
 package com.splicemachine.derby.stream.function;
 
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.impl.sql.execute.operations.ScalarAggregateOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.VectorizedScalarAggregator;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 
 import java.io.IOException;
@@ -36,6 +38,8 @@ public class ScalarAggregateFlatMapFunction
     protected boolean initialized;
     protected boolean returnDefault;
     protected ScalarAggregateOperation op;
+    private transient VectorizedScalarAggregator batchAggregator;
+    private transient boolean batchUnsupported;
     
     public ScalarAggregateFlatMapFunction() {
     }
@@ -76,6 +80,22 @@ public class ScalarAggregateFlatMapFunction
             aggregate.merge(next, agg);
     }
 
+    /*
+     * Only the first (accumulating) phase sees raw input rows, so that is the only one worth vectorizing. Whether
+     * the aggregates can be vectorized at all is decided once, and remembered for later partitions.
+     */
+    private VectorizedScalarAggregator getBatchAggregator(ExecRow template) throws StandardException {
+        if (returnDefault || batchUnsupported)
+            return null;
+        if (batchAggregator == null) {
+            EngineDriver driver = EngineDriver.driver();
+            if (driver != null && driver.getConfiguration().isVectorizedAggregationEnabled())
+                batchAggregator = VectorizedScalarAggregator.create(op.aggregates, template, VectorizedScalarAggregator.DEFAULT_BATCH_SIZE);
+            batchUnsupported = batchAggregator == null;
+        }
+        return batchAggregator;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Iterable<LocatedRow> call(Iterator<LocatedRow> locatedRows) throws Exception {
@@ -89,20 +109,29 @@ public class ScalarAggregateFlatMapFunction
             initialized = true;
         }
         ExecRow r1 = locatedRows.next().getRow();
+        VectorizedScalarAggregator batchAggregator = null;
         if (!op.isInitialized(r1)) {
 //            if (RDDUtils.LOG.isTraceEnabled()) {
 //                RDDUtils.LOG.trace(String.format("Initializing and accumulating %s", r1));
 //            }
             op.initializeVectorAggregation(r1);
+            batchAggregator = getBatchAggregator(r1);
         }
         while (locatedRows.hasNext()) {
             ExecRow r2 = locatedRows.next().getRow();                                                                                                            
             if (!op.isInitialized(r2)) {
-                accumulate(r2, r1);                                                                                                                                                      
+                if (batchAggregator != null)
+                    batchAggregator.accumulate(r2, r1);
+                else
+                    accumulate(r2, r1);
             } else {
+                if (batchAggregator != null)
+                    batchAggregator.flush(r1);
                 merge(r2, r1);                                                                                                                                                  
             }
         }
+        if (batchAggregator != null)
+            batchAggregator.flush(r1);
         op.finishAggregation(r1); // calls setCurrentRow
         return Collections.singletonList(new LocatedRow(r1));
     }
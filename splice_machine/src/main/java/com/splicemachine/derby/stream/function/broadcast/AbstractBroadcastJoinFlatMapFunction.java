@@ -25,6 +25,7 @@ import com.splicemachine.derby.impl.sql.JoinTable;
 import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCache;
 import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.RuntimeJoinFilters;
 import com.splicemachine.derby.stream.function.SpliceFlatMapFunction;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
@@ -78,7 +79,15 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
             }
         };
         ExecRow leftTemplate = operation.getLeftOperation().getExecRowDefinition();
-        joinTable = broadcastJoinCache.get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate).newTable();
+        JoinTable.Factory tableFactory = broadcastJoinCache.get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate);
+        if (operation.pushesRuntimeJoinFilter()) {
+            /*
+             * The left side hasn't been read yet, so publishing the filter here lets a scan
+             * on the left side discard rows which can't match before it decodes them.
+             */
+            RuntimeJoinFilters.publish(operation.getSequenceId(), tableFactory.getJoinKeyFilter());
+        }
+        joinTable = tableFactory.newTable();
 
         return call(locatedRows, joinTable);
     }
@@ -23,6 +23,7 @@ import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.function.Partitioner;
 
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Higher level constructs for getting datasets and manipulating the processing mechanisms.
@@ -116,4 +117,12 @@ public interface DataSetProcessor {
     void stopJobGroup(String jobName);
 
     Partitioner getPartitioner(DataSet<LocatedRow> dataSet, ExecRow template, int[] keyDecodingMap, boolean[] keyOrder, int[] rightHashKeys);
+
+    /**
+     * Partitioner for the (byte[]) keys of a bulk import, which assigns each key to the partition starting
+     * at the greatest split key which is not after it.
+     *
+     * @param splitKeys the sorted start keys of each partition. The first must sort before every key.
+     */
+    Partitioner getBulkImportPartitioner(List<byte[]> splitKeys);
 }
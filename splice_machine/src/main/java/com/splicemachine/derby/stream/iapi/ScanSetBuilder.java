@@ -28,6 +28,7 @@ import com.splicemachine.storage.DataScan;
 import com.splicemachine.storage.DataScanner;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * @author Scott Fines
@@ -80,6 +81,13 @@ public interface ScanSetBuilder<V>{
 
     ScanSetBuilder<V> oneSplitPerRegion(boolean oneSplitPerRegion);
 
+    /**
+     * Read these key ranges instead of the single scan, e.g. the probes of a multi-probe scan. The ranges must be
+     * disjoint and sorted in key order; the scan set with {@link #scan(DataScan)} should be the first of them.
+     * Only local processors read probe ranges, so distributed scans still need one scan set per range.
+     */
+    ScanSetBuilder<V> probeScans(List<DataScan> probeScans);
+
     DataSet<V> buildDataSet() throws StandardException;
 
     DataSet<V> buildDataSet(Object caller) throws StandardException;
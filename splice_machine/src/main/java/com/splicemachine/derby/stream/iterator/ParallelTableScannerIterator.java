@@ -0,0 +1,518 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.stream.iterator;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.stream.utils.StreamLogUtils;
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads segments of a table concurrently, and merges the rows into a single iterator. A segment is a list
+ * of key ranges which are read one after the other: either the part of a scan which falls into one partition,
+ * or the probe ranges of a multi-probe scan which start in the same partition.
+ *
+ * Each segment is read by its own {@link SITableScanner}s (with its own copy of the template), and the rows
+ * are handed to the consuming thread in batches through bounded queues. When {@code ordered} is set, every
+ * segment has its own queue and the queues are drained in segment order, so rows are returned in exactly
+ * the order of a serial scan; otherwise all segments share a single queue and rows are returned as they arrive.
+ *
+ * Segments are claimed in order from a shared cursor, both by the workers running on the shared executor and
+ * by the consuming thread itself. Whenever the consumer would otherwise wait on a segment that no worker has
+ * claimed yet, it reads that segment directly, so a saturated executor slows a scan down instead of stalling it.
+ *
+ * A worker never waits for the consumer while holding an executor thread: when its queue is full, it parks
+ * (keeping its segment and its pending rows) and gives the thread back, and the consumer resubmits it once it
+ * has taken rows out of that queue. A slow or abandoned consumer therefore holds on to memory, but not to
+ * threads which other scans (such as the inner side of a nested loop join) need to make progress.
+ *
+ * The consuming side is not thread safe.
+ */
+@NotThreadSafe
+public class ParallelTableScannerIterator implements Iterable<LocatedRow>, Iterator<LocatedRow>, Closeable{
+    private static final int BATCH_SIZE=128;
+    private static final long POLL_MILLIS=10L;
+    /*identity marker that a worker has finished reading a segment*/
+    private static final List<LocatedRow> END=new ArrayList<>(0);
+    /*states of a worker*/
+    private static final int RUNNING=0;
+    private static final int PARKED=1;
+    private static final int DONE=2;
+
+    private final TableScannerBuilder siTableBuilder;
+    private final SpliceOperation operation;
+    private final Partition table;
+    private final List<List<DataScan>> segments;
+    private final ExecRow template;
+    private final MetricFactory metricFactory;
+    private final int parallelism;
+    private final int queueSize;
+    private final boolean ordered;
+
+    private final List<BlockingQueue<List<LocatedRow>>> queues=new ArrayList<>();
+    private final List<SegmentWorker> workers=new ArrayList<>();
+    private final AtomicInteger cursor=new AtomicInteger(0);
+    private final AtomicReference<Throwable> failure=new AtomicReference<>();
+    private volatile boolean closed;
+
+    private boolean started;
+    /*in ordered mode, the segment being returned. Otherwise, the number of segments fully returned*/
+    private int current;
+    private SegmentReader inline;
+    private List<LocatedRow> batch;
+    private int batchPosition;
+    private LocatedRow nextRow;
+
+    /**
+     * @param siTableBuilder the builder holding the scan and decoding settings
+     * @param operation the operation to report rows to, or {@code null}
+     * @param table the table being scanned
+     * @param partitions the partitions of {@code table} which overlap the scan, in ascending key order
+     * @param template the row template; each partition decodes into its own copy
+     * @param metricFactory the metric factory to open the partition scanners with
+     * @param parallelism the number of partitions to read concurrently
+     * @param queueSize the number of rows which may be buffered for each partition being read
+     * @param ordered whether rows must be returned in the order of a serial scan
+     */
+    public ParallelTableScannerIterator(TableScannerBuilder siTableBuilder,
+                                        SpliceOperation operation,
+                                        Partition table,
+                                        List<Partition> partitions,
+                                        ExecRow template,
+                                        MetricFactory metricFactory,
+                                        int parallelism,
+                                        int queueSize,
+                                        boolean ordered){
+        this(siTableBuilder,operation,table,template,metricFactory,rangedScans(siTableBuilder,partitions),parallelism,queueSize,ordered);
+    }
+
+    private ParallelTableScannerIterator(TableScannerBuilder siTableBuilder,
+                                         SpliceOperation operation,
+                                         Partition table,
+                                         ExecRow template,
+                                         MetricFactory metricFactory,
+                                         List<List<DataScan>> segments,
+                                         int parallelism,
+                                         int queueSize,
+                                         boolean ordered){
+        this.siTableBuilder=siTableBuilder;
+        this.operation=operation;
+        this.table=table;
+        this.segments=segments;
+        this.template=template;
+        this.metricFactory=metricFactory;
+        this.parallelism=Math.max(1,Math.min(parallelism,segments.size()));
+        this.queueSize=queueSize;
+        this.ordered=ordered;
+    }
+
+    /**
+     * Read groups of key ranges instead of the partitions of a single scan. Every range is a complete scan
+     * (bounds, attributes and all); the ranges of a group are read in list order by the same reader.
+     *
+     * @param siTableBuilder the builder holding the decoding settings
+     * @param operation the operation to report rows to, or {@code null}
+     * @param table the table being scanned
+     * @param rangeGroups the groups of ranges to read, in the order their rows should be returned
+     * @param template the row template; each group decodes into its own copy
+     * @param metricFactory the metric factory to open the range scanners with
+     * @param parallelism the number of groups to read concurrently
+     * @param queueSize the number of rows which may be buffered for each group being read
+     * @param ordered whether rows must be returned in group order
+     */
+    public static ParallelTableScannerIterator forRanges(TableScannerBuilder siTableBuilder,
+                                                         SpliceOperation operation,
+                                                         Partition table,
+                                                         List<List<DataScan>> rangeGroups,
+                                                         ExecRow template,
+                                                         MetricFactory metricFactory,
+                                                         int parallelism,
+                                                         int queueSize,
+                                                         boolean ordered){
+        return new ParallelTableScannerIterator(siTableBuilder,operation,table,template,metricFactory,rangeGroups,parallelism,queueSize,ordered);
+    }
+
+    @Override
+    public Iterator<LocatedRow> iterator(){
+        return this;
+    }
+
+    @Override
+    public boolean hasNext(){
+        if(nextRow!=null) return true;
+        try{
+            if(!started)
+                start();
+            nextRow=advance();
+            return nextRow!=null;
+        }catch(Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public LocatedRow next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        LocatedRow locatedRow=nextRow;
+        nextRow=null;
+        if(operation!=null){
+            StreamLogUtils.logOperationRecord(locatedRow,operation);
+            operation.setCurrentLocatedRow(locatedRow);
+        }
+        return locatedRow;
+    }
+
+    @Override
+    public void remove(){
+        throw new RuntimeException("Not Implemented");
+    }
+
+    @Override
+    public void close() throws IOException{
+        if(closed) return;
+        closed=true;
+        IOException error=null;
+        for(SegmentWorker worker:workers){
+            //running workers notice the close flag and clean up on their own
+            if(worker.state.compareAndSet(PARKED,DONE)){
+                try{
+                    worker.release();
+                }catch(IOException e){
+                    if(error==null) error=e;
+                }
+            }
+        }
+        for(BlockingQueue<List<LocatedRow>> queue:queues){
+            queue.clear();
+        }
+        if(inline!=null){
+            SegmentReader reader=inline;
+            inline=null;
+            reader.close();
+        }
+        if(error!=null) throw error;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void start(){
+        started=true;
+        int batchesPerSegment=Math.max(2,queueSize/BATCH_SIZE);
+        if(ordered){
+            for(int i=0;i<segments.size();i++){
+                queues.add(new LinkedBlockingQueue<List<LocatedRow>>(batchesPerSegment));
+            }
+        }else
+            queues.add(new LinkedBlockingQueue<List<LocatedRow>>(batchesPerSegment*parallelism));
+        /*
+         * The consuming thread reads segments as well, so we only need parallelism-1 background workers
+         */
+        ExecutorService executor=ExecutorHolder.EXECUTOR;
+        for(int i=1;i<parallelism;i++){
+            SegmentWorker worker=new SegmentWorker();
+            workers.add(worker);
+            executor.execute(worker);
+        }
+    }
+
+    private LocatedRow advance() throws StandardException, IOException, InterruptedException{
+        int numSegments=segments.size();
+        while(true){
+            if(batch!=null){
+                if(batchPosition<batch.size())
+                    return batch.get(batchPosition++);
+                batch=null;
+            }
+            if(inline!=null){
+                LocatedRow row=inline.read();
+                if(row!=null) return row;
+                inline.close();
+                inline=null;
+                current++;
+                continue;
+            }
+            if(current>=numSegments) return null;
+            checkFailure();
+
+            List<LocatedRow> rows;
+            if(ordered){
+                if(cursor.get()==current && cursor.compareAndSet(current,current+1)){
+                    //nobody is reading the next segment yet, so read it ourselves
+                    inline=new SegmentReader(current);
+                    continue;
+                }
+                rows=queues.get(current).poll(POLL_MILLIS,TimeUnit.MILLISECONDS);
+            }else{
+                rows=queues.get(0).poll(POLL_MILLIS,TimeUnit.MILLISECONDS);
+                if(rows==null){
+                    int next=cursor.get();
+                    if(next<numSegments && cursor.compareAndSet(next,next+1)){
+                        inline=new SegmentReader(next);
+                        continue;
+                    }
+                }
+            }
+            resumeWorkers();
+            if(rows==END)
+                current++;
+            else if(rows!=null){
+                batch=rows;
+                batchPosition=0;
+            }
+        }
+    }
+
+    private void checkFailure() throws StandardException, IOException{
+        Throwable t=failure.get();
+        if(t==null) return;
+        if(t instanceof StandardException) throw (StandardException)t;
+        if(t instanceof IOException) throw (IOException)t;
+        throw new IOException(t);
+    }
+
+    /*
+     * Resubmit the parked workers whose queue has room again
+     */
+    private void resumeWorkers(){
+        for(SegmentWorker worker:workers){
+            if(worker.state.get()==PARKED && worker.canResume() && worker.state.compareAndSet(PARKED,RUNNING))
+                ExecutorHolder.EXECUTOR.execute(worker);
+        }
+    }
+
+    private static List<List<DataScan>> rangedScans(TableScannerBuilder siTableBuilder,List<Partition> partitions){
+        assert !siTableBuilder.getScan().isDescendingScan():"Cannot read partitions of a descending scan in parallel";
+        List<List<DataScan>> segments=new ArrayList<>(partitions.size());
+        for(Partition partition:partitions){
+            segments.add(Collections.singletonList(rangedScan(siTableBuilder.getScan(),partition)));
+        }
+        return segments;
+    }
+
+    /**
+     * Restrict a copy of the scan to the key range of the partition.
+     */
+    private static DataScan rangedScan(DataScan baseScan,Partition partition){
+        DataScan scan=baseScan.copy();
+        byte[] scanStart=scan.getStartKey();
+        byte[] scanStop=scan.getStopKey();
+        byte[] start=Bytes.max(Bytes.startComparator,partition.getStartKey(),scanStart);
+        byte[] stop=Bytes.min(Bytes.endComparator,partition.getEndKey(),scanStop);
+        if(start!=scanStart)
+            scan.startKey(start);
+        if(stop!=scanStop)
+            scan.stopKey(stop);
+        return scan;
+    }
+
+    private final class SegmentReader implements Closeable{
+        private final List<DataScan> ranges;
+        private final ExecRow rowTemplate=template.getNewNullRow();
+        private int nextRange;
+        private SITableScanner tableScanner;
+
+        SegmentReader(int segment){
+            this.ranges=segments.get(segment);
+        }
+
+        LocatedRow read() throws StandardException, IOException{
+            while(true){
+                if(tableScanner==null){
+                    if(nextRange>=ranges.size()) return null;
+                    DataScan scan=ranges.get(nextRange++);
+                    DataScanner scanner=table.openScanner(scan,metricFactory);
+                    tableScanner=siTableBuilder.build(scanner,scan,rowTemplate);
+                    tableScanner.open();
+                }
+                ExecRow row=tableScanner.next();
+                if(row!=null)
+                    return new LocatedRow(tableScanner.getCurrentRowLocation(),handOver(row));
+                SITableScanner finished=tableScanner;
+                tableScanner=null;
+                finished.close();
+            }
+        }
+
+        /*
+         * The scanner decodes every row into the same template, so move the decoded columns into a new row
+         * and leave fresh nulls behind for the scanner to decode the next row into.
+         */
+        private ExecRow handOver(ExecRow row){
+            ExecRow handed=row.getNewNullRow();
+            DataValueDescriptor[] decoded=row.getRowArray();
+            DataValueDescriptor[] fresh=handed.getRowArray();
+            for(int i=0;i<decoded.length;i++){
+                DataValueDescriptor dvd=decoded[i];
+                decoded[i]=fresh[i];
+                fresh[i]=dvd;
+            }
+            return handed;
+        }
+
+        @Override
+        public void close() throws IOException{
+            if(tableScanner==null) return;
+            try{
+                tableScanner.close();
+            }catch(StandardException se){
+                throw new IOException(se);
+            }finally{
+                tableScanner=null;
+            }
+        }
+    }
+
+    /**
+     * Reads segments claimed from the cursor, one batch of rows at a time. Only one thread runs a worker at any
+     * time: either an executor thread while it is RUNNING, or the consumer when it releases a PARKED worker on close.
+     */
+    private final class SegmentWorker implements Runnable{
+        private final AtomicInteger state=new AtomicInteger(RUNNING);
+        /*the batches which have not been queued yet*/
+        private final ArrayDeque<List<LocatedRow>> pending=new ArrayDeque<>(2);
+        private BlockingQueue<List<LocatedRow>> queue;
+        private SegmentReader reader;
+
+        @Override
+        public void run(){
+            try{
+                while(true){
+                    if(closed || failure.get()!=null){
+                        finish();
+                        return;
+                    }
+                    if(!flush()){
+                        state.set(PARKED);
+                        //the consumer may have emptied the queue before it could see that we parked
+                        if((closed || canResume()) && state.compareAndSet(PARKED,RUNNING))
+                            continue;
+                        return;
+                    }
+                    if(reader==null){
+                        int segment=cursor.getAndIncrement();
+                        if(segment>=segments.size()){
+                            finish();
+                            return;
+                        }
+                        queue=ordered?queues.get(segment):queues.get(0);
+                        reader=new SegmentReader(segment);
+                    }
+                    readBatch();
+                }
+            }catch(Throwable t){
+                failure.compareAndSet(null,t);
+                try{
+                    finish();
+                }catch(IOException ignored){
+                    //we are already failing the scan
+                }
+            }
+        }
+
+        boolean canResume(){
+            return queue.remainingCapacity()>0;
+        }
+
+        void release() throws IOException{
+            pending.clear();
+            if(reader!=null){
+                SegmentReader r=reader;
+                reader=null;
+                r.close();
+            }
+        }
+
+        private void finish() throws IOException{
+            try{
+                release();
+            }finally{
+                state.set(DONE);
+            }
+        }
+
+        private boolean flush(){
+            List<LocatedRow> rows;
+            while((rows=pending.peek())!=null){
+                if(!queue.offer(rows)) return false;
+                pending.poll();
+            }
+            return true;
+        }
+
+        private void readBatch() throws StandardException, IOException{
+            List<LocatedRow> rows=new ArrayList<>(BATCH_SIZE);
+            LocatedRow row=null;
+            while(rows.size()<BATCH_SIZE && (row=reader.read())!=null){
+                rows.add(row);
+            }
+            if(!rows.isEmpty())
+                pending.add(rows);
+            if(row==null){
+                SegmentReader finished=reader;
+                reader=null;
+                finished.close();
+                pending.add(END);
+            }
+        }
+    }
+
+    private static class ExecutorHolder{
+        /*
+         * Shared by every parallel scan in the JVM, so that the number of scanning threads stays
+         * bounded no matter how many queries are running. Workers only hold a thread while they read
+         * a batch, never while they wait for room in their queue.
+         */
+        private static final ExecutorService EXECUTOR;
+
+        static{
+            int threads=Math.max(2,Runtime.getRuntime().availableProcessors());
+            ThreadFactory factory=new ThreadFactoryBuilder()
+                    .setNameFormat("control-scan-%d")
+                    .setDaemon(true)
+                    .build();
+            ThreadPoolExecutor tpe=new ThreadPoolExecutor(threads,threads,
+                    60,TimeUnit.SECONDS,new LinkedBlockingQueue<Runnable>(),factory);
+            tpe.allowCoreThreadTimeOut(true);
+            EXECUTOR=tpe;
+        }
+    }
+}
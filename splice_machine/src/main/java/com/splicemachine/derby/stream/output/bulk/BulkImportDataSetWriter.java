@@ -0,0 +1,312 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.output.bulk;
+
+import com.splicemachine.access.api.PartitionAdmin;
+import com.splicemachine.db.catalog.IndexDescriptor;
+import com.splicemachine.db.catalog.UUID;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.ConstraintDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
+import com.splicemachine.db.iapi.store.access.RowUtil;
+import com.splicemachine.db.iapi.store.access.ScanController;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.InsertOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.function.BulkImportEncodeFunction;
+import com.splicemachine.derby.stream.function.BulkImportWriteFunction;
+import com.splicemachine.derby.stream.function.ByteArrayComparator;
+import com.splicemachine.derby.stream.function.KVPairFunction;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.iapi.TableWriter;
+import com.splicemachine.derby.stream.output.DataSetWriter;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.ErrorState;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.pipeline.PipelineDriver;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.protobuf.ProtoUtil;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an import directly into storage files instead of through the write pipeline.
+ *
+ * The rows are encoded into the KVPairs of the base table and of every index, shuffled so that each
+ * partition holds the rows of a single region of a single conglomerate, sorted, and written into
+ * region-aligned bulk load files at the version of a child transaction. Once all the files are
+ * written they are loaded region by region, and the child transaction is committed. Until that commit
+ * the loaded cells are invisible to everyone else, so a failure part way through the load is rolled back
+ * like any other failed write.
+ *
+ * Because the pipeline is bypassed, none of its write-time checks run. A bulk import is therefore only
+ * allowed into tables without triggers or foreign keys, and, when the table has a primary key or a unique
+ * index, only while the table is empty; uniqueness within the imported data is checked as the sorted
+ * files are written. The pipeline's write listeners are told about every conglomerate loaded, before the
+ * child transaction commits.
+ */
+public class BulkImportDataSetWriter implements DataSetWriter{
+    private static final Logger LOG=Logger.getLogger(BulkImportDataSetWriter.class);
+
+    private final DataSet<LocatedRow> dataSet;
+    private final DataSetProcessor dsp;
+    private final OperationContext<InsertOperation> operationContext;
+    private final String bulkImportDirectory;
+    private final int[] pkCols;
+    private final String tableVersion;
+    private final int[] execRowTypeFormatIds;
+    private final long heapConglom;
+    private TxnView txn;
+
+    public BulkImportDataSetWriter(DataSet<LocatedRow> dataSet,
+                                   DataSetProcessor dsp,
+                                   OperationContext<InsertOperation> operationContext,
+                                   String bulkImportDirectory,
+                                   int[] pkCols,
+                                   String tableVersion,
+                                   int[] execRowTypeFormatIds,
+                                   long heapConglom,
+                                   TxnView txn){
+        this.dataSet=dataSet;
+        this.dsp=dsp;
+        this.operationContext=operationContext;
+        this.bulkImportDirectory=bulkImportDirectory;
+        this.pkCols=pkCols;
+        this.tableVersion=tableVersion;
+        this.execRowTypeFormatIds=execRowTypeFormatIds;
+        this.heapConglom=heapConglom;
+        this.txn=txn;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataSet<LocatedRow> write() throws StandardException{
+        InsertOperation insertOperation=operationContext.getOperation();
+        LanguageConnectionContext lcc=operationContext.getActivation().getLanguageConnectionContext();
+        DataDictionary dd=lcc.getDataDictionary();
+        ConglomerateDescriptor heapDescriptor=dd.getConglomerateDescriptor(heapConglom);
+        TableDescriptor td=dd.getTableDescriptor(heapDescriptor.getTableID());
+        BulkImportTarget[] targets=getTargets(lcc,dd,td);
+
+        Txn child=null;
+        String importDirectory=null;
+        try{
+            List<byte[]> splitKeys=getSplitKeys(targets);
+            child=SIDriver.driver().lifecycleManager().beginChildTransaction(txn,getDestinationTable());
+            importDirectory=bulkImportDirectory+"/"+child.getTxnId();
+
+            DataSet<KVPair> encoded=dataSet.flatMap(new BulkImportEncodeFunction(operationContext,pkCols,tableVersion,execRowTypeFormatIds,targets));
+            List<Tuple2<Long,String>> files=encoded.index(new KVPairFunction((OperationContext)operationContext))
+                    .partitionBy(dsp.getBulkImportPartitioner(splitKeys),new ByteArrayComparator())
+                    .mapPartitions(new BulkImportWriteFunction(operationContext,importDirectory,child.getTxnId(),td.getName(),targets))
+                    .collect();
+
+            ValueRow valueRow=new ValueRow(3);
+            valueRow.setColumn(1,new SQLLongint(operationContext.getRecordsWritten()));
+            valueRow.setColumn(2,new SQLLongint());
+            valueRow.setColumn(3,new SQLVarchar());
+            if(operationContext.isPermissive()){
+                long numBadRecords=operationContext.getBadRecords();
+                valueRow.setColumn(2,new SQLLongint(numBadRecords));
+                if(numBadRecords>0){
+                    String fileName=operationContext.getBadRecordFileName();
+                    valueRow.setColumn(3,new SQLVarchar(fileName));
+                    if(insertOperation.isAboveFailThreshold(numBadRecords)){
+                        throw ErrorState.LANG_IMPORT_TOO_MANY_BAD_RECORDS.newException(fileName);
+                    }
+                }
+            }
+
+            try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
+                for(Tuple2<Long,String> file:files){
+                    admin.bulkLoad(Long.toString(file._1()),file._2());
+                }
+            }
+            // the load bypasses the pipeline, so tell its write listeners (e.g. the result cache) ourselves
+            for(BulkImportTarget target:targets){
+                PipelineDriver.conglomerateWritten(Long.toString(target.getConglomerate()),child);
+            }
+            child.commit();
+            return dsp.singleRowDataSet(new LocatedRow(valueRow));
+        }catch(Exception e){
+            if(child!=null){
+                try{
+                    child.rollback();
+                }catch(IOException e1){
+                    e.addSuppressed(e1);
+                }
+            }
+            throw Exceptions.parseException(e);
+        }finally{
+            if(importDirectory!=null){
+                try{
+                    SIDriver.driver().fileSystem().delete(importDirectory,true);
+                }catch(IOException e){
+                    SpliceLogUtils.warn(LOG,"Unable to remove bulk import directory %s: %s",importDirectory,e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Validate that the table can be bulk imported into, and resolve the conglomerates to write: the base
+     * table first, followed by one entry per index conglomerate.
+     */
+    private BulkImportTarget[] getTargets(LanguageConnectionContext lcc,DataDictionary dd,TableDescriptor td) throws StandardException{
+        if(!dd.getTriggerDescriptors(td).isEmpty())
+            throw ErrorState.BULK_IMPORT_NOT_SUPPORTED.newException(td.getName(),"the table has triggers");
+
+        Map<Long,String> constraintNames=new HashMap<>();
+        for(ConstraintDescriptor cd:dd.getConstraintDescriptors(td)){
+            switch(cd.getConstraintType()){
+                case DataDictionary.FOREIGNKEY_CONSTRAINT:
+                    throw ErrorState.BULK_IMPORT_NOT_SUPPORTED.newException(td.getName(),"the table has foreign keys");
+                case DataDictionary.PRIMARYKEY_CONSTRAINT:
+                case DataDictionary.UNIQUE_CONSTRAINT:
+                    UUID conglomerateId=cd.getConglomerateId();
+                    long number=conglomerateId==null?heapConglom:td.getConglomerateDescriptor(conglomerateId).getConglomerateNumber();
+                    constraintNames.put(number,cd.getConstraintName());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        List<BulkImportTarget> targets=new ArrayList<>();
+        targets.add(new BulkImportTarget(heapConglom,pkCols==null?null:constraintNames.get(heapConglom),null));
+        // group by conglomerate number, preferring a unique descriptor, as the index write handlers are set up
+        Map<Long,ConglomerateDescriptor> indexes=new HashMap<>();
+        for(ConglomerateDescriptor cd:td.getConglomerateDescriptorList()){
+            long number=cd.getConglomerateNumber();
+            if(number==heapConglom || !cd.isIndex()) continue;
+            ConglomerateDescriptor current=indexes.get(number);
+            if(current==null || (!isUnique(current) && isUnique(cd)))
+                indexes.put(number,cd);
+        }
+        boolean keyed=pkCols!=null;
+        for(ConglomerateDescriptor cd:indexes.values()){
+            IndexDescriptor indexDescriptor=cd.getIndexDescriptor().getIndexDescriptor();
+            String constraintName=null;
+            if(isUnique(cd)){
+                keyed=true;
+                constraintName=constraintNames.get(cd.getConglomerateNumber());
+                if(constraintName==null)
+                    constraintName=cd.getConglomerateName();
+            }
+            targets.add(new BulkImportTarget(cd.getConglomerateNumber(),constraintName,
+                    ProtoUtil.createTentativeIndex(lcc,heapConglom,cd.getConglomerateNumber(),td,indexDescriptor)));
+        }
+
+        if(keyed && !isEmpty(lcc.getTransactionExecute()))
+            throw ErrorState.BULK_IMPORT_NOT_SUPPORTED.newException(td.getName(),
+                    "the table has a primary key or unique index and is not empty");
+        return targets.toArray(new BulkImportTarget[targets.size()]);
+    }
+
+    private static boolean isUnique(ConglomerateDescriptor cd){
+        IndexDescriptor indexDescriptor=cd.getIndexDescriptor().getIndexDescriptor();
+        return indexDescriptor!=null && (indexDescriptor.isUnique() || indexDescriptor.isUniqueWithDuplicateNulls());
+    }
+
+    private boolean isEmpty(TransactionController tc) throws StandardException{
+        ScanController sc=tc.openScan(heapConglom,
+                false,    // hold
+                0,        // open read only
+                TransactionController.MODE_TABLE,
+                TransactionController.ISOLATION_SERIALIZABLE,
+                RowUtil.EMPTY_ROW_BITSET, // scanColumnList
+                null,    // start position
+                ScanController.GE,      // startSearchOperation
+                null, // scanQualifier
+                null, //stop position - through last row
+                ScanController.GT);     // stopSearchOperation
+        try{
+            return !sc.next();
+        }finally{
+            sc.close();
+        }
+    }
+
+    /**
+     * @return the start key of every region of every target, prefixed with the target's ordinal
+     */
+    private static List<byte[]> getSplitKeys(BulkImportTarget[] targets) throws IOException{
+        List<byte[]> splitKeys=new ArrayList<>();
+        try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
+            for(int i=0;i<targets.length;i++){
+                List<byte[]> startKeys=new ArrayList<>();
+                for(Partition partition:admin.allPartitions(Long.toString(targets[i].getConglomerate()))){
+                    byte[] startKey=partition.getStartKey();
+                    if(startKey!=null && startKey.length>0)
+                        startKeys.add(startKey);
+                }
+                Collections.sort(startKeys,Bytes.basicByteComparator());
+                splitKeys.add(prefixed(i,Bytes.EMPTY_BYTE_ARRAY));
+                for(byte[] startKey:startKeys){
+                    splitKeys.add(prefixed(i,startKey));
+                }
+            }
+        }
+        return splitKeys;
+    }
+
+    private static byte[] prefixed(int ordinal,byte[] key){
+        byte[] prefixed=new byte[BulkImportTarget.PREFIX_LENGTH+key.length];
+        Bytes.intToBytes(ordinal,prefixed,0);
+        System.arraycopy(key,0,prefixed,BulkImportTarget.PREFIX_LENGTH,key.length);
+        return prefixed;
+    }
+
+    @Override
+    public void setTxn(TxnView childTxn){
+        this.txn=childTxn;
+    }
+
+    @Override
+    public TableWriter getTableWriter() throws StandardException{
+        throw new UnsupportedOperationException("A bulk import does not write through the pipeline");
+    }
+
+    @Override
+    public TxnView getTxn(){
+        return txn;
+    }
+
+    @Override
+    public byte[] getDestinationTable(){
+        return Bytes.toBytes(Long.toString(heapConglom));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.output.bulk;
+
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.impl.sql.execute.index.IndexTransformer;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.utils.ByteSlice;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+/**
+ * One of the conglomerates a bulk import writes files for: the base table, or one of its indexes.
+ *
+ * While the rows of a bulk import are shuffled and sorted, each encoded row key is prefixed with
+ * the (big-endian) ordinal of its target, so that the rows of every target sort together and
+ * the rows of the base table come first.
+ */
+public class BulkImportTarget implements Externalizable{
+    private static final long serialVersionUID=1l;
+    public static final int PREFIX_LENGTH=Bytes.SIZEOF_INT;
+
+    private long conglomerate;
+    private String constraintName;
+    private DDLMessage.TentativeIndex tentativeIndex;
+
+    public BulkImportTarget(){
+    }
+
+    /**
+     * @param conglomerate the conglomerate to write to
+     * @param constraintName the name of the constraint (or unique index) enforcing uniqueness of the
+     *                       row keys of this target, or {@code null} if the row keys are not user keys
+     * @param tentativeIndex the index definition, or {@code null} for the base table
+     */
+    public BulkImportTarget(long conglomerate,String constraintName,DDLMessage.TentativeIndex tentativeIndex){
+        this.conglomerate=conglomerate;
+        this.constraintName=constraintName;
+        this.tentativeIndex=tentativeIndex;
+    }
+
+    public long getConglomerate(){
+        return conglomerate;
+    }
+
+    public String getConstraintName(){
+        return constraintName;
+    }
+
+    public boolean isUnique(){
+        return constraintName!=null;
+    }
+
+    public boolean isIndex(){
+        return tentativeIndex!=null;
+    }
+
+    public IndexTransformer newIndexTransformer(){
+        assert tentativeIndex!=null: "Programmer error: the base table has no index transformer";
+        return new IndexTransformer(tentativeIndex);
+    }
+
+    public static KVPair prefix(int ordinal,KVPair pair){
+        ByteSlice key=pair.rowKeySlice();
+        byte[] prefixed=new byte[PREFIX_LENGTH+key.length()];
+        Bytes.intToBytes(ordinal,prefixed,0);
+        System.arraycopy(key.array(),key.offset(),prefixed,PREFIX_LENGTH,key.length());
+        pair.setKey(prefixed);
+        return pair;
+    }
+
+    public static int ordinal(byte[] prefixedKey){
+        return Bytes.bytesToInt(prefixedKey,0);
+    }
+
+    public static byte[] rowKey(byte[] prefixedKey){
+        return Arrays.copyOfRange(prefixedKey,PREFIX_LENGTH,prefixedKey.length);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        out.writeLong(conglomerate);
+        out.writeBoolean(constraintName!=null);
+        if(constraintName!=null)
+            out.writeUTF(constraintName);
+        out.writeBoolean(tentativeIndex!=null);
+        if(tentativeIndex!=null){
+            byte[] message=tentativeIndex.toByteArray();
+            out.writeInt(message.length);
+            out.write(message);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        conglomerate=in.readLong();
+        if(in.readBoolean())
+            constraintName=in.readUTF();
+        if(in.readBoolean()){
+            byte[] message=new byte[in.readInt()];
+            in.readFully(message);
+            tentativeIndex=DDLMessage.TentativeIndex.parseFrom(message);
+        }
+    }
+
+    @Override
+    public String toString(){
+        return "BulkImportTarget{conglomerate="+conglomerate+",index="+isIndex()+",unique="+isUnique()+"}";
+    }
+}
@@ -142,6 +142,18 @@ public class InsertPipelineWriter extends AbstractPipelineWriter<ExecRow>{
 
 
     public KeyEncoder getKeyEncoder() throws StandardException {
+        return newKeyEncoder(pkCols,tableVersion,execRowDefinition);
+    }
+
+    public DataHash getRowHash() throws StandardException {
+        return newRowHash(pkCols,tableVersion,execRowDefinition);
+    }
+
+    /**
+     * The row key encoding for inserts into a table: the primary key columns if there is one,
+     * otherwise a salted UUID.
+     */
+    public static KeyEncoder newKeyEncoder(int[] pkCols,String tableVersion,ExecRow execRowDefinition) throws StandardException {
         HashPrefix prefix;
         DataHash dataHash;
         KeyPostfix postfix = NoOpPostfix.INSTANCE;
@@ -160,7 +172,7 @@ public class InsertPipelineWriter extends AbstractPipelineWriter<ExecRow>{
         return new KeyEncoder(prefix,dataHash,postfix);
     }
 
-    public DataHash getRowHash() throws StandardException {
+    public static DataHash newRowHash(int[] pkCols,String tableVersion,ExecRow execRowDefinition) throws StandardException {
         //get all columns that are being set
         int[] columns = getEncodingColumns(execRowDefinition.nColumns(),pkCols);
         DescriptorSerializer[] serializers = VersionedSerializers.forVersion(tableVersion,true).getSerializers(execRowDefinition);
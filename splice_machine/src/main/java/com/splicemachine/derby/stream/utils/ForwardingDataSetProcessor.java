@@ -23,6 +23,7 @@ import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.function.Partitioner;
 import com.splicemachine.derby.stream.iapi.*;
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * @author Scott Fines
@@ -144,5 +145,10 @@ public abstract class ForwardingDataSetProcessor implements DataSetProcessor{
     public Partitioner getPartitioner(DataSet<LocatedRow> dataSet, ExecRow template, int[] keyDecodingMap, boolean[] keyOrder, int[] rightHashKeys) {
         return delegate.getPartitioner(dataSet, template, keyDecodingMap, keyOrder,rightHashKeys);
     }
+
+    @Override
+    public Partitioner getBulkImportPartitioner(List<byte[]> splitKeys) {
+        return delegate.getBulkImportPartitioner(splitKeys);
+    }
 }
 
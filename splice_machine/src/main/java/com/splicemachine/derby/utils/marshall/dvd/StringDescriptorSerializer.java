@@ -19,9 +19,11 @@ package com.splicemachine.derby.utils.marshall.dvd;
 import com.splicemachine.encoding.Encoding;
 import com.splicemachine.encoding.MultiFieldDecoder;
 import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.encoding.StringEncoding;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
 
 import java.io.IOException;
 
@@ -69,14 +71,49 @@ public class StringDescriptorSerializer implements DescriptorSerializer{
 
 		@Override
 		public void decode(MultiFieldDecoder fieldDecoder, DataValueDescriptor destDvd, boolean desc) throws StandardException {
-				destDvd.setValue(fieldDecoder.decodeNextString(desc));
+				if(!isRawDecodable(destDvd)){
+						destDvd.setValue(fieldDecoder.decodeNextString(desc));
+						return;
+				}
+				if(fieldDecoder.nextIsNull()){
+						fieldDecoder.skip();
+						destDvd.setToNull();
+						return;
+				}
+				int offset = Math.max(fieldDecoder.offset(),0);
+				fieldDecoder.skip();
+				decodeDirect(destDvd,fieldDecoder.array(),offset,fieldDecoder.offset()-offset-1,desc);
 		}
 
 		@Override
 		public void decodeDirect(DataValueDescriptor dvd, byte[] data, int offset, int length, boolean desc) throws StandardException {
+				if(isRawDecodable(dvd) && length>0){
+						/*
+						 * Decode straight into the reusable char[] of the SQLChar, so that scanning a string
+						 * column doesn't create a byte[] and a String for every row. The String is only
+						 * created if something asks for it.
+						 */
+						SQLChar sqlChar = (SQLChar)dvd;
+						int chars = StringEncoding.decodeInto(data,offset,length,desc,sqlChar.getRawBuffer(length));
+						if(chars>=0){
+								sqlChar.setRawLength(chars);
+								return;
+						}
+				}
 				dvd.setValue(Encoding.decodeString(data,offset,length,desc));
 		}
 
+		private static boolean isRawDecodable(DataValueDescriptor dvd){
+				switch(dvd.getTypeFormatId()){
+						case StoredFormatIds.SQL_CHAR_ID:
+						case StoredFormatIds.SQL_VARCHAR_ID:
+						case StoredFormatIds.SQL_LONGVARCHAR_ID:
+								return dvd instanceof SQLChar;
+						default:
+								return false;
+				}
+		}
+
 		@Override public boolean isScalarType() { return false; }
 		@Override public boolean isFloatType() { return false; }
 		@Override public boolean isDoubleType() { return false; }
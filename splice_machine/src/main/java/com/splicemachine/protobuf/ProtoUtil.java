@@ -75,6 +75,26 @@ public class ProtoUtil {
                 .build();
     }
 
+    public static DDLChange createResultCacheWatch(String conglomerate) {
+        return DDLChange.newBuilder().setTxnId(-1l).setResultCacheNotification(ResultCacheNotification.newBuilder()
+                .setConglomerate(conglomerate).build())
+                .setDdlChangeType(DDLChangeType.RESULT_CACHE_WATCH)
+                .build();
+    }
+
+    public static DDLChange createResultCacheWrite(long txnId, String conglomerate) {
+        return DDLChange.newBuilder().setTxnId(txnId).setResultCacheNotification(ResultCacheNotification.newBuilder()
+                .setConglomerate(conglomerate).build())
+                .setDdlChangeType(DDLChangeType.RESULT_CACHE_WRITE)
+                .build();
+    }
+
+    public static DDLChange createResultCacheJoin() {
+        return DDLChange.newBuilder().setTxnId(-1l).setResultCacheNotification(ResultCacheNotification.newBuilder().build())
+                .setDdlChangeType(DDLChangeType.RESULT_CACHE_JOIN)
+                .build();
+    }
+
 
     public static DDLChange createNotifyModifyClasspath(long txnId, String classpath) {
         return DDLChange.newBuilder().setTxnId(txnId).setNotifyModifyClasspath(NotifyModifyClasspath.newBuilder()
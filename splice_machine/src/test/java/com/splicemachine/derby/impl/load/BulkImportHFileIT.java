@@ -0,0 +1,166 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceUnitTest;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for SYSCS_UTIL.BULK_IMPORT_HFILE, which writes the imported rows straight into storage files
+ * instead of through the write pipeline.
+ */
+public class BulkImportHFileIT extends SpliceUnitTest {
+    private static final String SCHEMA = BulkImportHFileIT.class.getSimpleName().toUpperCase();
+    private static final SpliceWatcher spliceClassWatcher = new SpliceWatcher(SCHEMA);
+    private static final SpliceSchemaWatcher spliceSchemaWatcher = new SpliceSchemaWatcher(SCHEMA);
+
+    @ClassRule
+    public static TestRule chain = RuleChain.outerRule(spliceClassWatcher).around(spliceSchemaWatcher);
+
+    @Rule
+    public SpliceWatcher methodWatcher = new SpliceWatcher(SCHEMA);
+
+    private static File BADDIR;
+    private static File IMPORTDIR;
+    private static File STAGINGDIR;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        BADDIR = SpliceUnitTest.createBadLogDirectory(SCHEMA);
+        IMPORTDIR = SpliceUnitTest.createImportFileDirectory(SCHEMA);
+        STAGINGDIR = new File(SpliceUnitTest.getBaseDirectory()+"/target/bulk_import/"+SCHEMA);
+        if (STAGINGDIR.exists())
+            SpliceUnitTest.recursiveDelete(STAGINGDIR);
+        assertTrue("Couldn't create "+STAGINGDIR, STAGINGDIR.mkdirs());
+    }
+
+    @Test
+    public void importsIntoTableAndIndexes() throws Exception {
+        methodWatcher.executeUpdate("create table INDEXED (a int primary key, b varchar(10), c int)");
+        methodWatcher.executeUpdate("create index INDEXED_B on INDEXED (b)");
+        methodWatcher.executeUpdate("create unique index INDEXED_C on INDEXED (c)");
+
+        assertEquals(4L, bulkImport("INDEXED", "1,x,10", "2,y,20", "3,y,30", "4,z,40"));
+
+        assertEquals(4L, count("select count(*) from INDEXED"));
+        assertEquals(2L, count("select count(*) from INDEXED --splice-properties index=INDEXED_B\n where b = 'y'"));
+        assertEquals(1L, count("select count(*) from INDEXED --splice-properties index=INDEXED_C\n where c = 30"));
+        assertEquals(3L, count("select a from INDEXED --splice-properties index=INDEXED_C\n where c = 30"));
+    }
+
+    @Test
+    public void appendsToTableWithoutKeys() throws Exception {
+        methodWatcher.executeUpdate("create table UNKEYED (a int, b varchar(10))");
+        methodWatcher.executeUpdate("insert into UNKEYED values (1, 'x')");
+
+        assertEquals(2L, bulkImport("UNKEYED", "1,x", "2,y"));
+        assertEquals(3L, count("select count(*) from UNKEYED"));
+    }
+
+    @Test
+    public void duplicatePrimaryKeyFailsTheImport() throws Exception {
+        methodWatcher.executeUpdate("create table DUPLICATES (a int primary key, b varchar(10))");
+
+        assertImportFails("DUPLICATES", "23505", "1,x", "2,y", "1,z");
+        assertEquals("nothing of a failed import is visible", 0L, count("select count(*) from DUPLICATES"));
+    }
+
+    @Test
+    public void rejectsNonEmptyKeyedTable() throws Exception {
+        methodWatcher.executeUpdate("create table NOT_EMPTY (a int primary key, b varchar(10))");
+        methodWatcher.executeUpdate("insert into NOT_EMPTY values (1, 'x')");
+
+        assertImportFails("NOT_EMPTY", "SE023", "2,y");
+        assertEquals(1L, count("select count(*) from NOT_EMPTY"));
+    }
+
+    @Test
+    public void rejectsTableWithTriggers() throws Exception {
+        methodWatcher.executeUpdate("create table TRIGGERED (a int, b varchar(10))");
+        methodWatcher.executeUpdate("create table TRIGGERED_AUDIT (a int)");
+        methodWatcher.executeUpdate("create trigger TRIGGERED_INSERT after insert on TRIGGERED " +
+                "referencing new as n for each row insert into TRIGGERED_AUDIT values (n.a)");
+
+        assertImportFails("TRIGGERED", "SE023", "1,x");
+        assertEquals(0L, count("select count(*) from TRIGGERED_AUDIT"));
+    }
+
+    @Test
+    public void rejectsTableWithForeignKeys() throws Exception {
+        methodWatcher.executeUpdate("create table PARENT (a int primary key)");
+        methodWatcher.executeUpdate("create table CHILD (a int, p int references PARENT (a))");
+
+        assertImportFails("CHILD", "SE023", "1,1");
+        assertEquals(0L, count("select count(*) from CHILD"));
+    }
+
+    /**
+     * @return the number of rows the import reports
+     */
+    private long bulkImport(String table, String... rows) throws Exception {
+        try (ResultSet rs = methodWatcher.executeQuery(format("call SYSCS_UTIL.BULK_IMPORT_HFILE(" +
+                        "'%s','%s',null,'%s',',',null,null,null,null,0,'%s',null,null,'%s')",
+                SCHEMA, table, writeFile(table, rows), BADDIR.getCanonicalPath(), STAGINGDIR.getCanonicalPath()))) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    private void assertImportFails(String table, String sqlState, String... rows) throws Exception {
+        try {
+            bulkImport(table, rows);
+            fail("expected the import into "+table+" to fail");
+        } catch (SQLException se) {
+            assertEquals(se.getMessage(), sqlState, se.getSQLState());
+        }
+    }
+
+    private static String writeFile(String table, String... rows) throws Exception {
+        File file = new File(IMPORTDIR, table+".csv");
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            for (String row : rows)
+                writer.println(row);
+        }
+        return file.getCanonicalPath();
+    }
+
+    private long count(String query) throws Exception {
+        try (ResultSet rs = methodWatcher.executeQuery(query)) {
+            assertTrue(rs.next());
+            long count = rs.getLong(1);
+            assertFalse(rs.next());
+            return count;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.access.api.PartitionFactory;
+import com.splicemachine.access.util.ByteComparisons;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Attributable;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataResult;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.storage.PartitionServer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class IndexRowReaderTest{
+    private static final long CONGLOMERATE=1184L;
+
+    /*
+     * For each source row i, the base row key, and the base row which is looked up for it (holding i)
+     */
+    private final Map<ByteBuffer, DataResult> baseRows=new HashMap<>();
+    /*
+     * The row keys of each batched get, in the order they were issued
+     */
+    private final List<List<byte[]>> batchGets=Collections.synchronizedList(new ArrayList<List<byte[]>>());
+    private volatile int slowFrom=Integer.MAX_VALUE;
+    private volatile int slowUntil=Integer.MAX_VALUE;
+
+    @Test
+    public void keepsIndexOrderWhenLookupsAreGroupedByServer() throws Exception{
+        int numRows=500;
+        //four regions, alternating between two servers
+        PartitionFactory tables=tables(region(new byte[0],"a"),region(new byte[]{0x40},"b"),
+                region(new byte[]{(byte)0x80},"a"),region(new byte[]{(byte)0xC0},"b"));
+        IndexRowReader reader=reader(source(numRows),64,4,tables,TimeUnit.MILLISECONDS.toNanos(100));
+        try{
+            int expected=0;
+            while(reader.hasNext()){
+                ExecRow row=reader.next().getRow();
+                Assert.assertEquals("rows should come back in index order",expected,row.getColumn(1).getInt());
+                Assert.assertEquals("row "+expected+" was joined to the wrong base row",expected,row.getColumn(2).getInt());
+                expected++;
+            }
+            Assert.assertEquals(numRows,expected);
+        }finally{
+            reader.close();
+        }
+
+        Set<Character> servers=new HashSet<>();
+        for(List<byte[]> keys : batchGets){
+            char server=serverOf(keys.get(0));
+            servers.add(server);
+            for(int i=0;i<keys.size();i++){
+                Assert.assertEquals("a batched get should only go to one server",server,serverOf(keys.get(i)));
+                if(i>0)
+                    Assert.assertTrue("keys should be sorted",ByteComparisons.comparator().compare(keys.get(i-1),keys.get(i))<0);
+            }
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList('a','b')),servers);
+    }
+
+    @Test
+    public void batchSizeAdaptsWithinItsBounds() throws Exception{
+        int numRows=400;
+        int batchSize=16;
+        //with a single region and a single outstanding block, every block is exactly one batched get
+        PartitionFactory tables=tables(region(new byte[0],"a"));
+        slowFrom=6;
+        slowUntil=13;
+        IndexRowReader reader=reader(source(numRows),batchSize,1,tables,TimeUnit.MILLISECONDS.toNanos(20));
+        try{
+            int expected=0;
+            while(reader.hasNext()){
+                Assert.assertEquals(expected++,reader.next().getRow().getColumn(1).getInt());
+            }
+            Assert.assertEquals(numRows,expected);
+        }finally{
+            reader.close();
+        }
+
+        List<Integer> sizes=new ArrayList<>();
+        for(List<byte[]> keys : batchGets){
+            sizes.add(keys.size());
+        }
+        //the last block holds whatever was left over
+        for(int size : sizes.subList(0,sizes.size()-1)){
+            Assert.assertTrue("batch size "+size+" is outside of ["+batchSize/8+","+batchSize*2+"]: "+sizes,
+                    size>=batchSize/8 && size<=batchSize*2);
+        }
+        Assert.assertTrue("fast lookups should grow the batch to its maximum: "+sizes,sizes.contains(batchSize*2));
+        Assert.assertTrue("slow lookups should shrink the batch to its minimum: "+sizes,sizes.contains(batchSize/8));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private IndexRowReader reader(Iterator<LocatedRow> source,
+                                  int batchSize,
+                                  int numConcurrentLookups,
+                                  PartitionFactory tables,
+                                  long targetLookupNanos){
+        ExecRow template=new ValueRow(2);
+        template.setColumn(1,new SQLInteger());
+        template.setColumn(2,new SQLInteger());
+        return new IndexRowReader(Executors.newFixedThreadPool(numConcurrentLookups),source,template,mock(TxnView.class),
+                batchSize,numConcurrentLookups,CONGLOMERATE,new byte[0],mock(KeyHashDecoder.class),new BaseRowDecoder(),
+                new int[]{0,-1},mock(TxnOperationFactory.class),tables,targetLookupNanos);
+    }
+
+    /*
+     * Index rows in index order, whose base row keys are scattered over the key space
+     */
+    private Iterator<LocatedRow> source(int numRows){
+        List<LocatedRow> rows=new ArrayList<>(numRows);
+        for(int i=0;i<numRows;i++){
+            int scrambled=(i*40503)&0xFFFF;
+            byte[] rowKey=new byte[]{(byte)(scrambled>>>8),(byte)scrambled};
+            ExecRow row=new ValueRow(2);
+            row.setColumn(1,new SQLInteger(i));
+            row.setColumn(2,new HBaseRowLocation(rowKey));
+            rows.add(new LocatedRow(row));
+
+            DataCell cell=mock(DataCell.class);
+            byte[] value=Bytes.toBytes(i);
+            when(cell.keyArray()).thenReturn(rowKey);
+            when(cell.keyLength()).thenReturn(rowKey.length);
+            when(cell.valueArray()).thenReturn(value);
+            when(cell.valueLength()).thenReturn(value.length);
+            DataResult result=mock(DataResult.class);
+            when(result.getClone()).thenReturn(result);
+            when(result.iterator()).thenReturn(Collections.singletonList(cell).iterator());
+            baseRows.put(ByteBuffer.wrap(rowKey),result);
+        }
+        return rows.iterator();
+    }
+
+    private PartitionFactory tables(final Partition... regions) throws Exception{
+        Partition table=mock(Partition.class);
+        //out of order, to make sure the reader sorts them
+        List<Partition> subPartitions=new ArrayList<>(Arrays.asList(regions));
+        Collections.reverse(subPartitions);
+        when(table.subPartitions()).thenReturn(subPartitions);
+        when(table.batchGet(any(Attributable.class),anyListOf(byte[].class))).thenAnswer(new Answer<Iterator<DataResult>>(){
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<DataResult> answer(InvocationOnMock invocation) throws Throwable{
+                List<byte[]> rowKeys=new ArrayList<>((List<byte[]>)invocation.getArguments()[1]);
+                int call;
+                synchronized(batchGets){
+                    call=batchGets.size();
+                    batchGets.add(rowKeys);
+                }
+                if(call>=slowFrom && call<slowUntil)
+                    Thread.sleep(50);
+                List<DataResult> results=new ArrayList<>(rowKeys.size());
+                for(byte[] rowKey : rowKeys){
+                    results.add(baseRows.get(ByteBuffer.wrap(rowKey)));
+                }
+                return results.iterator();
+            }
+        });
+        PartitionFactory tables=mock(PartitionFactory.class);
+        when(tables.getTable(anyString())).thenReturn(table);
+        return tables;
+    }
+
+    private static Partition region(byte[] startKey,String server){
+        PartitionServer owner=mock(PartitionServer.class);
+        when(owner.getHostAndPort()).thenReturn(server);
+        Partition region=mock(Partition.class);
+        when(region.getStartKey()).thenReturn(startKey);
+        when(region.owningServer()).thenReturn(owner);
+        return region;
+    }
+
+    /*
+     * Matches the regions of keepsIndexOrderWhenLookupsAreGroupedByServer
+     */
+    private static char serverOf(byte[] rowKey){
+        return ((rowKey[0]&0xFF)>>>6)%2==0?'a':'b';
+    }
+
+    /*
+     * Decodes the base row written by source() into the second column
+     */
+    private static class BaseRowDecoder implements KeyHashDecoder{
+        private byte[] value;
+        private int offset;
+
+        @Override
+        public void set(byte[] bytes,int hashOffset,int length){
+            this.value=bytes;
+            this.offset=hashOffset;
+        }
+
+        @Override
+        public void decode(ExecRow destination) throws StandardException{
+            destination.getColumn(2).setValue(Bytes.toInt(value,offset));
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.DataFilter;
+import com.splicemachine.storage.DataScan;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Category(ArchitectureIndependent.class)
+public class MultiProbeDerbyScanInformationTest{
+
+    @Test
+    public void duplicateProbesAreScannedOnce() throws Exception{
+        DataScan five=scan(5,6);
+        List<DataScan> merged=MultiProbeDerbyScanInformation.mergeProbeRanges(Arrays.asList(five,scan(1,2),scan(5,6),scan(5,6)));
+        assertRanges(merged,1,2,5,6);
+        Assert.assertSame("an unchanged scan should not be copied",five,merged.get(1));
+    }
+
+    @Test
+    public void touchingRangesAreMerged() throws Exception{
+        DataScan first=scan(1,2);
+        List<DataScan> merged=MultiProbeDerbyScanInformation.mergeProbeRanges(Arrays.asList(scan(3,4),first,scan(2,3)));
+        assertRanges(merged,1,4);
+        Assert.assertArrayEquals("the scans we were given must not be modified",key(2),first.getStopKey());
+    }
+
+    @Test
+    public void overlappingRangesAreMerged() throws Exception{
+        List<DataScan> merged=MultiProbeDerbyScanInformation.mergeProbeRanges(Arrays.asList(scan(1,5),scan(2,3),scan(4,7)));
+        assertRanges(merged,1,7);
+    }
+
+    @Test
+    public void disjointRangesAreNotMerged() throws Exception{
+        List<DataScan> merged=MultiProbeDerbyScanInformation.mergeProbeRanges(Arrays.asList(scan(3,4),scan(1,2)));
+        assertRanges(merged,1,2,3,4);
+    }
+
+    @Test
+    public void rangesWithDifferentAttributesAreNotMerged() throws Exception{
+        DataScan first=scan(1,2);
+        first.addAttribute("predicate",new byte[]{1});
+        DataScan touching=scan(2,3);
+        touching.addAttribute("predicate",new byte[]{2});
+        DataScan duplicate=scan(2,3);
+        List<DataScan> merged=MultiProbeDerbyScanInformation.mergeProbeRanges(Arrays.asList(first,touching,duplicate));
+        Assert.assertEquals(3,merged.size());
+        assertRanges(merged,1,2,2,3,2,3);
+
+        //the same ranges merge once their attributes agree
+        DataScan same=scan(2,3);
+        same.addAttribute("predicate",new byte[]{1});
+        assertRanges(MultiProbeDerbyScanInformation.mergeProbeRanges(Arrays.asList(first,same)),1,3);
+    }
+
+    @Test
+    public void unboundedRangeSwallowsLaterScans() throws Exception{
+        DataScan open=new TestScan().startKey(key(1)).stopKey(new byte[0]);
+        List<DataScan> merged=MultiProbeDerbyScanInformation.mergeProbeRanges(Arrays.asList(scan(5,6),open));
+        Assert.assertEquals(1,merged.size());
+        Assert.assertSame(open,merged.get(0));
+    }
+
+    @Test
+    public void descendingScansAreLeftAlone() throws Exception{
+        List<DataScan> scans=Arrays.asList(scan(3,4).reverseOrder(),scan(1,2).reverseOrder());
+        Assert.assertSame(scans,MultiProbeDerbyScanInformation.mergeProbeRanges(scans));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static DataScan scan(int start,int stop){
+        return new TestScan().startKey(key(start)).stopKey(key(stop));
+    }
+
+    private static byte[] key(int value){
+        return new byte[]{(byte)value};
+    }
+
+    /*
+     * bounds holds the expected start and stop of each scan, in order
+     */
+    private static void assertRanges(List<DataScan> scans,int... bounds){
+        Assert.assertEquals("wrong number of scans",bounds.length/2,scans.size());
+        for(int i=0;i<scans.size();i++){
+            Assert.assertArrayEquals("wrong start of scan "+i,key(bounds[2*i]),scans.get(i).getStartKey());
+            Assert.assertArrayEquals("wrong stop of scan "+i,key(bounds[2*i+1]),scans.get(i).getStopKey());
+        }
+    }
+
+    private static class TestScan implements DataScan{
+        private byte[] startKey;
+        private byte[] stopKey;
+        private boolean descending;
+        private final Map<String, byte[]> attributes=new HashMap<>();
+
+        @Override public DataScan startKey(byte[] startKey){ this.startKey=startKey; return this; }
+        @Override public DataScan stopKey(byte[] stopKey){ this.stopKey=stopKey; return this; }
+        @Override public DataScan filter(DataFilter df){ return this; }
+        @Override public DataScan reverseOrder(){ descending=!descending; return this; }
+        @Override public boolean isDescendingScan(){ return descending; }
+        @Override public DataScan cacheRows(int rowsToCache){ return this; }
+        @Override public DataScan batchCells(int cellsToBatch){ return this; }
+        @Override public byte[] getStartKey(){ return startKey; }
+        @Override public byte[] getStopKey(){ return stopKey; }
+        @Override public long highVersion(){ return Long.MAX_VALUE; }
+        @Override public long lowVersion(){ return 0L; }
+        @Override public DataFilter getFilter(){ return null; }
+        @Override public void setTimeRange(long lowVersion,long highVersion){ }
+        @Override public void returnAllVersions(){ }
+        @Override public void addAttribute(String key,byte[] value){ attributes.put(key,value); }
+        @Override public byte[] getAttribute(String key){ return attributes.get(key); }
+        @Override public Map<String, byte[]> allAttributes(){ return attributes; }
+        @Override public void setAllAttributes(Map<String, byte[]> attrMap){ attributes.putAll(attrMap); }
+
+        @Override
+        public DataScan copy(){
+            TestScan copy=new TestScan();
+            copy.startKey=startKey;
+            copy.stopKey=stopKey;
+            copy.descending=descending;
+            copy.attributes.putAll(attributes);
+            return copy;
+        }
+    }
+}
@@ -38,9 +38,11 @@ public class MultiProbeTableScanOperatonIT extends SpliceUnitTest {
 	protected static SpliceTableWatcher t4Watcher = new SpliceTableWatcher("b",schemaWatcher.schemaName,"(d decimal(10))");
     protected static SpliceTableWatcher t5Watcher = new SpliceTableWatcher("a",schemaWatcher.schemaName,"(d decimal(10,0))");
     protected static SpliceIndexWatcher i5Watcher = new SpliceIndexWatcher("a",schemaWatcher.schemaName,"i",schemaWatcher.schemaName,"(d)");
+	protected static SpliceTableWatcher t6Watcher = new SpliceTableWatcher("probe_split",schemaWatcher.schemaName,"(k int not null,v varchar(10),primary key(k))");
 
 
 	private static int size = 10;
+	private static int splitSize = 1000;
 
 	@ClassRule
 	public static TestRule chain = RuleChain.outerRule(spliceClassWatcher)
@@ -51,6 +53,7 @@ public class MultiProbeTableScanOperatonIT extends SpliceUnitTest {
 			.around(t4Watcher)
             .around(t5Watcher)
             .around(i5Watcher)
+			.around(t6Watcher)
 			.around(new SpliceDataWatcher() {
 				@Override
 				protected void starting(Description description) {
@@ -114,6 +117,16 @@ public class MultiProbeTableScanOperatonIT extends SpliceUnitTest {
 							ps.addBatch();
 						}
 						ps.executeBatch();
+
+						ps = spliceClassWatcher.prepareStatement("insert into " + t6Watcher.toString() + " values (?,?)");
+						for (int i = 0; i < splitSize; i++) {
+							ps.setInt(1, i);
+							ps.setString(2, "v" + i);
+							ps.addBatch();
+						}
+						ps.executeBatch();
+						//spread the probe values over several regions
+						spliceClassWatcher.execute("call SYSCS_UTIL.SYSCS_SPLIT_TABLE_AT_POINTS('" + schemaWatcher.schemaName + "','PROBE_SPLIT','250,500,750')");
 					} catch (Exception e) {
 						throw new RuntimeException(e);
 					} finally {
@@ -219,4 +232,49 @@ public class MultiProbeTableScanOperatonIT extends SpliceUnitTest {
         this.thirdRowContainsQuery("explain select * from a --splice-properties index=i\n" +
                 " where d in (10.0+10, 11.0+10)","preds=[(D[0:1] IN ((10.0 + 10),(11.0 + 10)))]",methodWatcher);
     }
+
+	@Test
+	public void testMultiProbeDuplicateAndAdjacentValues() throws Exception {
+		ResultSet rs = methodWatcher.executeQuery("select count(*) from "+t1Watcher+" where segment_id in (9,0,1,1,2,3,4,4,4,5,6,6,7,8,9)");
+		Assert.assertTrue(rs.next());
+		Assert.assertEquals("Incorrect count returned!",12,rs.getInt(1));
+	}
+
+	@Test
+	public void testMultiProbeLargeInList() throws Exception {
+		StringBuilder inList = new StringBuilder();
+		for (int i = 2000; i >= 0; i--) {
+			if (inList.length() > 0)
+				inList.append(',');
+			inList.append(i % 1000);
+		}
+		ResultSet rs = methodWatcher.executeQuery("select count(*) from "+t1Watcher+" where segment_id in ("+inList+")");
+		Assert.assertTrue(rs.next());
+		Assert.assertEquals("Incorrect count returned!",12,rs.getInt(1));
+	}
+
+	@Test
+	public void testMultiProbeOrderAcrossRegions() throws Exception {
+		//unsorted, with duplicates, and touching every region
+		StringBuilder inList = new StringBuilder();
+		int expected = 0;
+		for (int i = splitSize - 1; i >= 0; i -= 3) {
+			inList.append(i).append(',').append(i).append(',');
+			expected++;
+		}
+		inList.append(splitSize + 5);
+		ResultSet rs = methodWatcher.executeQuery("select k, v from " + t6Watcher + " --splice-properties useSpark=false\n" +
+				" where k in (" + inList + ") order by k");
+		int previous = -1;
+		int count = 0;
+		while (rs.next()) {
+			int k = rs.getInt(1);
+			Assert.assertTrue("row " + k + " returned after row " + previous, k > previous);
+			Assert.assertEquals("row " + k + " was decoded with the wrong value", "v" + k, rs.getString(2));
+			Assert.assertEquals("unexpected row", (splitSize - 1) % 3, k % 3);
+			previous = k;
+			count++;
+		}
+		Assert.assertEquals("Incorrect count returned!", expected, count);
+	}
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+@Category(ArchitectureIndependent.class)
+public class OffHeapJoinTableTest{
+    private static final int[] HASH_KEYS=new int[]{0};
+
+    @Test
+    public void innerRowsAreDecodedForMatchingOuterRows() throws Exception{
+        List<ExecRow> inner=new ArrayList<>();
+        for(int i=0;i<30;i++){
+            inner.add(row(i%3,"row"+i));
+        }
+        JoinTable.Factory factory=OffHeapJoinTableLoader.INSTANCE.load(loader(inner),HASH_KEYS,HASH_KEYS,row(0,null));
+        try(JoinTable table=factory.newTable()){
+            List<String> matches=values(table.fetchInner(row(1,"outer")));
+            Assert.assertEquals("rows should come back in insertion order",10,matches.size());
+            for(int i=0;i<matches.size();i++){
+                Assert.assertEquals("row"+(3*i+1),matches.get(i));
+            }
+            Assert.assertFalse("no inner row has this key",table.fetchInner(row(7,"outer")).hasNext());
+        }finally{
+            factory.close();
+        }
+    }
+
+    @Test
+    public void nullColumnsSurviveTheRoundTrip() throws Exception{
+        List<ExecRow> inner=Collections.singletonList(row(5,null));
+        JoinTable.Factory factory=OffHeapJoinTableLoader.INSTANCE.load(loader(inner),HASH_KEYS,HASH_KEYS,row(0,null));
+        try(JoinTable table=factory.newTable()){
+            Iterator<ExecRow> matches=table.fetchInner(row(5,"outer"));
+            Assert.assertTrue(matches.hasNext());
+            ExecRow match=matches.next();
+            Assert.assertEquals(5,match.getColumn(1).getInt());
+            Assert.assertTrue(match.getColumn(2).isNull());
+            Assert.assertFalse(matches.hasNext());
+        }finally{
+            factory.close();
+        }
+    }
+
+    @Test
+    public void emptyInnerTableMatchesNothing() throws Exception{
+        JoinTable.Factory factory=OffHeapJoinTableLoader.INSTANCE.load(loader(Collections.<ExecRow>emptyList()),HASH_KEYS,HASH_KEYS,row(0,null));
+        try(JoinTable table=factory.newTable()){
+            Assert.assertFalse(table.fetchInner(row(1,"outer")).hasNext());
+        }finally{
+            factory.close();
+        }
+    }
+
+    @Test
+    public void cacheFreesTheTableWhenItsLastUserIsDone() throws Exception{
+        final List<OffHeapRowTable> loaded=new ArrayList<>();
+        BroadcastJoinCache cache=new BroadcastJoinCache(new BroadcastJoinCache.JoinTableLoader(){
+            @Override
+            public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys,ExecRow outerTemplateRow) throws ExecutionException{
+                OffHeapRowTable rowTable=new OffHeapRowTable();
+                rowTable.put(new byte[]{1},new byte[]{2});
+                loaded.add(rowTable);
+                return new OffHeapJoinTable.Factory(rowTable,row(0,null),outerHashKeys,outerTemplateRow);
+            }
+        },Long.MAX_VALUE);
+
+        Callable<Stream<ExecRow>> rows=loader(Collections.<ExecRow>emptyList());
+        JoinTable first=cache.get(1L,rows,HASH_KEYS,HASH_KEYS,row(0,null)).newTable();
+        JoinTable second=cache.get(1L,rows,HASH_KEYS,HASH_KEYS,row(0,null)).newTable();
+        Assert.assertEquals("both users should share one table",1,loaded.size());
+        OffHeapRowTable rowTable=loaded.get(0);
+
+        first.close();
+        Assert.assertFalse("the table is still in use",rowTable.isFreed());
+        second.close();
+        Assert.assertTrue("the table should be freed once nobody is using it",rowTable.isFreed());
+
+        //the next user loads it again
+        cache.get(1L,rows,HASH_KEYS,HASH_KEYS,row(0,null)).newTable().close();
+        Assert.assertEquals(2,loaded.size());
+        Assert.assertTrue(loaded.get(1).isFreed());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ExecRow row(int key,String value){
+        ExecRow row=new ValueRow(2);
+        row.setColumn(1,new SQLInteger(key));
+        row.setColumn(2,value==null?new SQLVarchar():new SQLVarchar(value));
+        return row;
+    }
+
+    private static Callable<Stream<ExecRow>> loader(final List<ExecRow> rows){
+        return new Callable<Stream<ExecRow>>(){
+            @Override
+            public Stream<ExecRow> call() throws Exception{
+                return Streams.wrap(rows);
+            }
+        };
+    }
+
+    private static List<String> values(Iterator<ExecRow> rows) throws Exception{
+        List<String> values=new ArrayList<>();
+        while(rows.hasNext()){
+            values.add(rows.next().getColumn(2).getString());
+        }
+        return values;
+    }
+}
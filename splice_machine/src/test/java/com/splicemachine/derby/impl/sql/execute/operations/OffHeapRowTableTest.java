@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class OffHeapRowTableTest{
+
+    @Test
+    public void returnsAllRowsForAKeyInInsertionOrder() throws Exception{
+        OffHeapRowTable table = new OffHeapRowTable();
+        for(int i=0;i<10;i++){
+            table.put(Bytes.toBytes("key"+(i%3)),Bytes.toBytes(i));
+        }
+        Assert.assertEquals(10,table.numRows());
+        OffHeapRowTable.Reader reader = table.newReader();
+        List<Integer> rows = rows(reader,Bytes.toBytes("key1"));
+        Assert.assertEquals("[1, 4, 7]",rows.toString());
+    }
+
+    @Test
+    public void missingKeyReturnsNothing() throws Exception{
+        OffHeapRowTable table = new OffHeapRowTable();
+        table.put(Bytes.toBytes("a"),Bytes.toBytes(1));
+        byte[] missing = Bytes.toBytes("b");
+        Assert.assertTrue(table.newReader().find(missing,0,missing.length)<0);
+    }
+
+    @Test
+    public void survivesResizingAndChunkBoundaries() throws Exception{
+        //use a tiny chunk size, so that nearly every record starts a new chunk
+        OffHeapRowTable table = new OffHeapRowTable(64);
+        int numKeys = 5000;
+        for(int i=0;i<numKeys;i++){
+            table.put(Bytes.toBytes(i),Bytes.toBytes(i*2));
+            table.put(Bytes.toBytes(i),Bytes.toBytes(i*2+1));
+        }
+        OffHeapRowTable.Reader reader = table.newReader();
+        for(int i=0;i<numKeys;i++){
+            List<Integer> rows = rows(reader,Bytes.toBytes(i));
+            Assert.assertEquals("Incorrect rows for key "+i,2,rows.size());
+            Assert.assertEquals(i*2,rows.get(0).intValue());
+            Assert.assertEquals(i*2+1,rows.get(1).intValue());
+        }
+        Assert.assertTrue(table.sizeInBytes()>=table.dataBytes());
+    }
+
+    @Test
+    public void readsRowsLargerThanTheChunkSize() throws Exception{
+        OffHeapRowTable table = new OffHeapRowTable(16);
+        byte[] big = new byte[1000];
+        for(int i=0;i<big.length;i++){
+            big[i] = (byte)i;
+        }
+        table.put(Bytes.toBytes("k"),big);
+        OffHeapRowTable.Reader reader = table.newReader();
+        byte[] key = Bytes.toBytes("k");
+        long address = reader.find(key,0,key.length);
+        int length = reader.readRow(address);
+        Assert.assertEquals(big.length,length);
+        Assert.assertArrayEquals(big,Bytes.slice(reader.rowBuffer(),0,length));
+    }
+
+    private static List<Integer> rows(OffHeapRowTable.Reader reader,byte[] key){
+        List<Integer> rows = new ArrayList<>();
+        for(long address = reader.find(key,0,key.length);address>=0;address = reader.next(address)){
+            int length = reader.readRow(address);
+            Assert.assertEquals("Incorrect row length",4,length);
+            rows.add(Bytes.toInt(reader.rowBuffer(),0));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.resultcache;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Category(ArchitectureIndependent.class)
+public class ConglomerateWriteTrackerTest{
+    private static final String[] CONGLOMS={"1184","1200"};
+
+    @Test
+    public void unwrittenConglomeratesAreStable() throws Exception{
+        ConglomerateWriteTracker tracker=watchingTracker(new MapTxnSupplier());
+        Assert.assertEquals(-1L,tracker.stableSince(CONGLOMS));
+        Assert.assertTrue(tracker.versionsMatch(CONGLOMS,tracker.versions(CONGLOMS)));
+    }
+
+    @Test
+    public void writeChangesVersion() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        ConglomerateWriteTracker tracker=watchingTracker(supplier);
+        long[] versions=tracker.versions(CONGLOMS);
+        tracker.conglomerateWritten("1200",supplier.put(txn(1L,Txn.State.ACTIVE,-1L)));
+        Assert.assertFalse(tracker.versionsMatch(CONGLOMS,versions));
+        Assert.assertTrue(tracker.versionsMatch(CONGLOMS,tracker.versions(CONGLOMS)));
+    }
+
+    @Test
+    public void activeWriterIsUnstable() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        ConglomerateWriteTracker tracker=watchingTracker(supplier);
+        tracker.conglomerateWritten("1184",supplier.put(txn(1L,Txn.State.ACTIVE,-1L)));
+        Assert.assertEquals(ConglomerateWriteTracker.UNSTABLE,tracker.stableSince(CONGLOMS));
+    }
+
+    @Test
+    public void committedWriterIsStableSinceCommit() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        ConglomerateWriteTracker tracker=watchingTracker(supplier);
+        tracker.conglomerateWritten("1184",supplier.put(txn(1L,Txn.State.ACTIVE,-1L)));
+        tracker.conglomerateWritten("1200",supplier.put(txn(3L,Txn.State.ACTIVE,-1L)));
+        supplier.put(txn(1L,Txn.State.COMMITTED,2L));
+        Assert.assertEquals(ConglomerateWriteTracker.UNSTABLE,tracker.stableSince(CONGLOMS));
+        supplier.put(txn(3L,Txn.State.COMMITTED,4L));
+        Assert.assertEquals(4L,tracker.stableSince(CONGLOMS));
+        //once resolved, the commit is remembered even if the transaction is no longer available
+        supplier.txns.clear();
+        Assert.assertEquals(4L,tracker.stableSince(CONGLOMS));
+    }
+
+    @Test
+    public void rolledBackWriterDoesNotAdvanceStability() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        ConglomerateWriteTracker tracker=watchingTracker(supplier);
+        tracker.conglomerateWritten("1184",supplier.put(txn(5L,Txn.State.ROLLEDBACK,-1L)));
+        Assert.assertEquals(-1L,tracker.stableSince(CONGLOMS));
+    }
+
+    @Test
+    public void unknownWriterIsUnstable() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        ConglomerateWriteTracker tracker=watchingTracker(supplier);
+        tracker.conglomerateWritten("1184",txn(7L,Txn.State.ACTIVE,-1L));
+        Assert.assertEquals(ConglomerateWriteTracker.UNSTABLE,tracker.stableSince(CONGLOMS));
+    }
+
+    @Test
+    public void writersAreAnnouncedOncePerConglomerate() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        RecordingChannel channel=new RecordingChannel();
+        ConglomerateWriteTracker tracker=watchingTracker(supplier,channel);
+        TxnView txn=supplier.put(txn(1L,Txn.State.ACTIVE,-1L));
+        tracker.conglomerateWritten("1184",txn);
+        tracker.conglomerateWritten("1184",txn);
+        tracker.conglomerateWritten("1200",txn);
+        tracker.conglomerateWritten("1184",supplier.put(txn(3L,Txn.State.ACTIVE,-1L)));
+        Assert.assertEquals(Arrays.asList("write 1184 1","write 1200 1","write 1184 3"),channel.announcements);
+    }
+
+    @Test
+    public void writesToUnwatchedConglomeratesAreIgnored() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        RecordingChannel channel=new RecordingChannel();
+        ConglomerateWriteTracker tracker=new ConglomerateWriteTracker(supplier,channel);
+        tracker.joined();
+        long[] versions=tracker.versions(CONGLOMS);
+        tracker.conglomerateWritten("1184",supplier.put(txn(1L,Txn.State.ACTIVE,-1L)));
+        Assert.assertTrue(channel.announcements.isEmpty());
+        Assert.assertTrue(tracker.versionsMatch(CONGLOMS,versions));
+        Assert.assertEquals(-1L,tracker.stableSince(CONGLOMS));
+    }
+
+    @Test
+    public void everyWriteIsAnnouncedUntilJoined() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        RecordingChannel channel=new RecordingChannel();
+        ConglomerateWriteTracker tracker=new ConglomerateWriteTracker(supplier,channel);
+        //a watch may have been made before this server was listening
+        tracker.conglomerateWritten("1184",supplier.put(txn(1L,Txn.State.ACTIVE,-1L)));
+        Assert.assertEquals(Collections.singletonList("write 1184 1"),channel.announcements);
+        Assert.assertEquals(ConglomerateWriteTracker.UNSTABLE,tracker.stableSince(CONGLOMS));
+    }
+
+    @Test
+    public void failedAnnouncementFailsTheWriteAndIsRetried() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        RecordingChannel channel=new RecordingChannel();
+        ConglomerateWriteTracker tracker=watchingTracker(supplier,channel);
+        TxnView txn=supplier.put(txn(1L,Txn.State.ACTIVE,-1L));
+        channel.failure=new IOException("timed out");
+        try{
+            tracker.conglomerateWritten("1184",txn);
+            Assert.fail("the write should not go ahead unannounced");
+        }catch(IOException expected){
+            Assert.assertEquals("timed out",expected.getMessage());
+        }
+        channel.failure=null;
+        tracker.conglomerateWritten("1184",txn);
+        Assert.assertEquals(Collections.singletonList("write 1184 1"),channel.announcements);
+    }
+
+    @Test
+    public void writersFoundWhenWatchingAreTracked() throws Exception{
+        MapTxnSupplier supplier=new MapTxnSupplier();
+        ConglomerateWriteTracker tracker=watchingTracker(supplier);
+        supplier.put(txn(5L,Txn.State.ACTIVE,-1L));
+        tracker.written("1184",5L);
+        tracker.committedBefore("1200",9L);
+        Assert.assertEquals(ConglomerateWriteTracker.UNSTABLE,tracker.stableSince(CONGLOMS));
+        supplier.put(txn(5L,Txn.State.COMMITTED,6L));
+        Assert.assertEquals(9L,tracker.stableSince(CONGLOMS));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ConglomerateWriteTracker watchingTracker(MapTxnSupplier supplier){
+        return watchingTracker(supplier,new RecordingChannel());
+    }
+
+    private static ConglomerateWriteTracker watchingTracker(MapTxnSupplier supplier,RecordingChannel channel){
+        ConglomerateWriteTracker tracker=new ConglomerateWriteTracker(supplier,channel);
+        tracker.joined();
+        for(String conglomerate:CONGLOMS){
+            tracker.watch(conglomerate);
+        }
+        return tracker;
+    }
+
+    static TxnView txn(long txnId,Txn.State state,long commitTs){
+        return new InheritingTxnView(Txn.ROOT_TRANSACTION,txnId,txnId,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                false,false,true,true,commitTs,-1L,state);
+    }
+
+    /*
+     * Records what is announced, and (like the DDL coordination) delivers announcements back to this server
+     */
+    static class RecordingChannel implements ClusterChannel{
+        final List<String> announcements=new ArrayList<>();
+        ConglomerateWriteTracker tracker;
+        ResultCache cache;
+        IOException failure;
+        long[] activeWriters=new long[0];
+        long timestamp=1L;
+
+        @Override
+        public void watch(String conglomerate) throws IOException{
+            announce("watch "+conglomerate);
+            if(tracker!=null)
+                tracker.watch(conglomerate);
+        }
+
+        @Override
+        public void announceWrite(String conglomerate,long txnId) throws IOException{
+            announce("write "+conglomerate+" "+txnId);
+            if(tracker!=null)
+                tracker.written(conglomerate,txnId);
+        }
+
+        @Override
+        public void announceJoin() throws IOException{
+            announce("join");
+            if(cache!=null)
+                cache.serverJoined();
+        }
+
+        @Override
+        public long[] activeWriters(String conglomerate,long maxTxnId) throws IOException{
+            if(failure!=null) throw failure;
+            return activeWriters;
+        }
+
+        @Override
+        public long nextTimestamp() throws IOException{
+            return timestamp;
+        }
+
+        private void announce(String announcement) throws IOException{
+            if(failure!=null) throw failure;
+            announcements.add(announcement);
+        }
+    }
+
+    static class MapTxnSupplier implements TxnSupplier{
+        private final Map<Long,TxnView> txns=new HashMap<>();
+
+        TxnView put(TxnView txn){
+            txns.put(txn.getTxnId(),txn);
+            return txn;
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId) throws IOException{
+            return txns.get(txnId);
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+            return txns.get(txnId);
+        }
+
+        @Override
+        public boolean transactionCached(long txnId){
+            return txns.containsKey(txnId);
+        }
+
+        @Override
+        public void cache(TxnView toCache){
+            put(toCache);
+        }
+
+        @Override
+        public TxnView getTransactionFromCache(long txnId){
+            return txns.get(txnId);
+        }
+    }
+}
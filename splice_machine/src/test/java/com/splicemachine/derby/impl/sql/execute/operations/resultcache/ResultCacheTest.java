@@ -0,0 +1,229 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.resultcache;
+
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.TableScanOperation;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class ResultCacheTest{
+    private static final String CONGLOMERATE="1184";
+    private static final Executor SAME_THREAD=new Executor(){
+        @Override
+        public void execute(Runnable command){
+            command.run();
+        }
+    };
+
+    private ConglomerateWriteTrackerTest.MapTxnSupplier supplier;
+    private ConglomerateWriteTrackerTest.RecordingChannel channel;
+    private ConglomerateWriteTracker tracker;
+    private ResultCache cache;
+
+    @Before
+    public void setUp() throws Exception{
+        supplier=new ConglomerateWriteTrackerTest.MapTxnSupplier();
+        channel=new ConglomerateWriteTrackerTest.RecordingChannel();
+        channel.timestamp=5L;
+        tracker=new ConglomerateWriteTracker(supplier,channel);
+        tracker.joined();
+        cache=newCache();
+        //the first request watches the conglomerate
+        Assert.assertNull(cache.request(scan(9L)));
+    }
+
+    @Test
+    public void missesThenHitsOnceTheResultIsRecorded() throws Exception{
+        ResultCache.Request request=cache.request(scan(10L));
+        Assert.assertNotNull(request);
+        Assert.assertNull(request.cachedRows());
+        Assert.assertEquals(1L,cache.getMissCount());
+        Assert.assertEquals(Arrays.asList(1,2,3),record(request,1,2,3));
+        Assert.assertEquals(1L,cache.getInsertCount());
+
+        request=cache.request(scan(11L));
+        Assert.assertEquals(Arrays.asList(1,2,3),values(request.cachedRows()));
+        Assert.assertEquals(1L,cache.getHitCount());
+    }
+
+    @Test
+    public void writeInvalidatesUntilTheWriterCommits() throws Exception{
+        record(cache.request(scan(10L)),1);
+
+        tracker.conglomerateWritten(CONGLOMERATE,supplier.put(ConglomerateWriteTrackerTest.txn(11L,Txn.State.ACTIVE,-1L)));
+        ResultCache.Request request=cache.request(scan(12L));
+        Assert.assertNull("a written conglomerate must not be served from the cache",request.cachedRows());
+        Assert.assertEquals(1L,cache.getInvalidationCount());
+        //the writer may still commit, so nothing read now can be cached
+        record(request,1);
+        Assert.assertEquals(0L,cache.getEntryCount());
+
+        supplier.put(ConglomerateWriteTrackerTest.txn(11L,Txn.State.COMMITTED,13L));
+        //a transaction which began before the commit cannot see the write, so its result is not cached either
+        record(cache.request(scan(12L)),1);
+        Assert.assertEquals(0L,cache.getEntryCount());
+
+        record(cache.request(scan(14L)),1,2);
+        request=cache.request(scan(15L));
+        Assert.assertEquals(Arrays.asList(1,2),values(request.cachedRows()));
+        Assert.assertNull("the cached result is not visible to older transactions",cache.request(scan(12L)).cachedRows());
+    }
+
+    @Test
+    public void doesNotCacheUntilTheConglomerateIsWatched() throws Exception{
+        channel.announcements.clear();
+        ResultCache rc=newCache();
+        channel.failure=new IOException("timed out");
+        Assert.assertNull(rc.request(scan(10L)));
+        channel.failure=null;
+        Assert.assertTrue(channel.announcements.isEmpty());
+        Assert.assertNull("the failed watch should be retried",rc.request(scan(10L)));
+        Assert.assertEquals(Collections.singletonList("watch "+CONGLOMERATE),channel.announcements);
+        Assert.assertNotNull(rc.request(scan(10L)));
+    }
+
+    @Test
+    public void writersFoundWhenWatchingPreventCaching() throws Exception{
+        ResultCache rc=newCache();
+        supplier.put(ConglomerateWriteTrackerTest.txn(7L,Txn.State.ACTIVE,-1L));
+        channel.activeWriters=new long[]{7L};
+        Assert.assertNull(rc.request(scan(10L)));
+        record(rc.request(scan(10L)),1);
+        Assert.assertEquals("a transaction which wrote before the watch may still commit",0L,rc.getEntryCount());
+
+        supplier.put(ConglomerateWriteTrackerTest.txn(7L,Txn.State.COMMITTED,11L));
+        record(rc.request(scan(12L)),1);
+        Assert.assertEquals(1L,rc.getEntryCount());
+    }
+
+    @Test
+    public void transactionsOlderThanTheWatchAreNotCached() throws Exception{
+        channel.timestamp=20L;
+        ResultCache rc=newCache();
+        Assert.assertNull(rc.request(scan(10L)));
+        //writes which committed before the watch are not tracked, so only later transactions are known to see them
+        record(rc.request(scan(15L)),1);
+        Assert.assertEquals(0L,rc.getEntryCount());
+        record(rc.request(scan(21L)),1);
+        Assert.assertEquals(1L,rc.getEntryCount());
+    }
+
+    @Test
+    public void writesAnnouncedByOtherServersInvalidate() throws Exception{
+        record(cache.request(scan(10L)),1);
+        Assert.assertEquals(1L,cache.getEntryCount());
+
+        //as delivered by the DDL coordination on behalf of the server hosting the written region
+        supplier.put(ConglomerateWriteTrackerTest.txn(11L,Txn.State.ACTIVE,-1L));
+        tracker.written(CONGLOMERATE,11L);
+        Assert.assertNull(cache.request(scan(12L)).cachedRows());
+        Assert.assertEquals(1L,cache.getInvalidationCount());
+    }
+
+    @Test
+    public void watchesAgainOnceAnotherServerJoins() throws Exception{
+        ResultCache.Request inFlight=cache.request(scan(10L));
+        record(cache.request(scan(10L)),1);
+        Assert.assertEquals(1L,cache.getEntryCount());
+
+        channel.announcements.clear();
+        cache.serverJoined();
+        Assert.assertEquals(0L,cache.getEntryCount());
+        Assert.assertNull("the new server has to be asked to watch first",cache.request(scan(11L)));
+        Assert.assertEquals(Collections.singletonList("watch "+CONGLOMERATE),channel.announcements);
+        Assert.assertNull(inFlight.cachedRows());
+        record(inFlight,1);
+        Assert.assertEquals("results computed before the join may miss its writes",0L,cache.getEntryCount());
+
+        //caching carries on once the conglomerate is watched by every server
+        record(cache.request(scan(12L)),1);
+        Assert.assertEquals(1L,cache.getEntryCount());
+        Assert.assertEquals(Collections.singletonList(1),values(cache.request(scan(13L)).cachedRows()));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private ResultCache newCache(){
+        ResultCache rc=new ResultCache(true,1L<<20,tracker,channel,SAME_THREAD);
+        channel.tracker=tracker;
+        channel.cache=rc;
+        return rc;
+    }
+
+    private static TableScanOperation scan(long beginTimestamp) throws Exception{
+        Activation activation=mock(Activation.class,RETURNS_DEEP_STUBS);
+        when(activation.getPreparedStatement().getSource()).thenReturn("select * from t");
+        DataDictionary dd=activation.getLanguageConnectionContext().getDataDictionary();
+        when(dd.canUseCache(any(TransactionController.class))).thenReturn(true);
+        when(activation.getParameterValueSet()).thenReturn(null);
+
+        TableScanOperation op=mock(TableScanOperation.class);
+        when(op.getActivation()).thenReturn(activation);
+        when(op.getSubOperations()).thenReturn(Collections.<SpliceOperation>emptyList());
+        when(op.getConglomerateId()).thenReturn(Long.parseLong(CONGLOMERATE));
+        when(op.getCurrentTransaction()).thenReturn(ConglomerateWriteTrackerTest.txn(beginTimestamp,Txn.State.ACTIVE,-1L));
+        return op;
+    }
+
+    private static List<Integer> record(ResultCache.Request request,int... values) throws Exception{
+        List<LocatedRow> rows=new ArrayList<>(values.length);
+        for(int value:values){
+            ExecRow row=new ValueRow(1);
+            row.setColumn(1,new SQLInteger(value));
+            rows.add(new LocatedRow(row));
+        }
+        request.startRecording();
+        try{
+            return values(request.record(rows.iterator()));
+        }finally{
+            request.close();
+        }
+    }
+
+    private static List<Integer> values(Iterator<LocatedRow> rows) throws Exception{
+        Assert.assertNotNull(rows);
+        List<Integer> values=new ArrayList<>();
+        while(rows.hasNext()){
+            values.add(rows.next().getRow().getColumn(1).getInt());
+        }
+        return values;
+    }
+}
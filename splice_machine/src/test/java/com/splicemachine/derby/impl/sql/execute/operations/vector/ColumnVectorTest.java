@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class ColumnVectorTest{
+
+    @Test
+    public void choosesVectorByType() throws Exception{
+        Assert.assertTrue(ColumnVector.forType(new SQLInteger(),16) instanceof LongColumnVector);
+        Assert.assertTrue(ColumnVector.forType(new SQLLongint(),16) instanceof LongColumnVector);
+        Assert.assertTrue(ColumnVector.forType(new SQLDouble(),16) instanceof DoubleColumnVector);
+        Assert.assertNull(ColumnVector.forType(new SQLVarchar(),16));
+    }
+
+    @Test
+    public void longKernelsSkipNulls() throws Exception{
+        LongColumnVector vector=new LongColumnVector(128);
+        long sum=0;
+        for(int i=0;i<100;i++){
+            if(i%7==0)
+                vector.append(new SQLInteger());
+            else{
+                vector.append(new SQLInteger(i-50));
+                sum+=i-50;
+            }
+        }
+        Assert.assertEquals(100,vector.size());
+        Assert.assertEquals(15,vector.nullCount());
+        Assert.assertTrue(vector.isNull(70));
+        Assert.assertFalse(vector.isNull(71));
+        Assert.assertEquals(sum,vector.sum());
+        Assert.assertEquals(-49,vector.min());
+        Assert.assertEquals(49,vector.max());
+
+        vector.reset();
+        Assert.assertEquals(0,vector.size());
+        vector.append(new SQLLongint(3));
+        Assert.assertFalse("Null bits were not cleared",vector.isNull(0));
+        Assert.assertEquals(3,vector.sum());
+    }
+
+    @Test(expected=ArithmeticException.class)
+    public void longSumDetectsOverflow() throws Exception{
+        LongColumnVector vector=new LongColumnVector(4);
+        vector.append(Long.MAX_VALUE);
+        vector.append(1l);
+        vector.sum();
+    }
+
+    @Test
+    public void doubleKernels() throws Exception{
+        DoubleColumnVector vector=new DoubleColumnVector(8);
+        vector.append(new SQLDouble(1.5d));
+        vector.append(new SQLDouble());
+        vector.append(new SQLDouble(-2.5d));
+        vector.append(new SQLDouble(4d));
+        Assert.assertEquals(1,vector.nullCount());
+        Assert.assertEquals(3d,vector.sum(),0d);
+        Assert.assertEquals(-2.5d,vector.min(),0d);
+        Assert.assertEquals(4d,vector.max(),0d);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.store.access;
+
+import com.splicemachine.db.iapi.sql.compile.CostEstimate;
+import com.splicemachine.db.impl.sql.compile.GroupByList;
+import com.splicemachine.db.impl.sql.compile.OrderedColumn;
+import com.splicemachine.derby.impl.sql.compile.SimpleCostEstimate;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class TempGroupedAggregateCostControllerTest{
+
+    @Test
+    public void estimateAggregateCost() throws Exception{
+        OrderedColumn column=mock(OrderedColumn.class);
+        when(column.nonZeroCardinality(anyLong())).thenReturn(10L);
+        GroupByList groupingList=mock(GroupByList.class);
+        when(groupingList.iterator()).thenReturn(Collections.singletonList(column).iterator());
+
+        SimpleCostEstimate baseCost=new SimpleCostEstimate(1000d,100d,1000d,1000d,4);
+        baseCost.setEstimatedHeapSize(100000L);
+
+        CostEstimate estimate=new TempGroupedAggregateCostController(groupingList).estimateAggregateCost(baseCost);
+
+        assertEquals(10d,estimate.rowCount(),0d);
+        assertEquals(1000L,estimate.getEstimatedHeapSize());
+        //(1000+100/10)/4 for the parallel phase, plus 10 rows at 1 per row; 1000 bytes never spill
+        assertEquals(262.5d,estimate.localCost(),1e-9);
+        assertEquals(1d,estimate.remoteCost(),1e-9);
+    }
+
+    @Test
+    public void noSpillCostBelowThreshold() throws Exception{
+        assertEquals(0d,SpillCostEstimator.spillCost(1000d,100d,1d,2000L),0d);
+        assertEquals(0d,SpillCostEstimator.spillCost(2000d,100d,1d,2000L),0d);
+    }
+
+    @Test
+    public void spillCostCountsRowsAboveThreshold() throws Exception{
+        //30 rows above the threshold, each written and read back at twice the cost of reading it
+        assertEquals(60d,SpillCostEstimator.spillCost(5000d,100d,1d,2000L),1e-9);
+    }
+
+    @Test
+    public void noSpillCostWithoutRowSize() throws Exception{
+        assertEquals(0d,SpillCostEstimator.spillCost(5000d,0d,1d,2000L),0d);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.Partition;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class ControlDataSetProcessorTest{
+
+    @Test
+    public void rangesAreGroupedByTheirStartPartition() throws Exception{
+        //the table returns its partitions in no particular order
+        Partition table=table(partition(20,-1),partition(-1,10),partition(10,20));
+        DataScan a=scan(1,2), b=scan(5,6), c=scan(12,13), d=scan(25,26), e=scan(27,28);
+        List<List<DataScan>> groups=ControlDataSetProcessor.groupByPartition(table,Arrays.asList(a,b,c,d,e));
+        Assert.assertEquals(Arrays.asList(Arrays.asList(a,b),Arrays.asList(c),Arrays.asList(d,e)),groups);
+    }
+
+    @Test
+    public void rangeCrossingABoundaryBelongsToItsStartPartition() throws Exception{
+        Partition table=table(partition(-1,10),partition(10,20),partition(20,-1));
+        DataScan crossing=scan(8,12), next=scan(15,16), atBoundary=scan(20,21);
+        List<List<DataScan>> groups=ControlDataSetProcessor.groupByPartition(table,Arrays.asList(crossing,next,atBoundary));
+        Assert.assertEquals(Arrays.asList(Arrays.asList(crossing),Arrays.asList(next),Arrays.asList(atBoundary)),groups);
+    }
+
+    @Test
+    public void rangesInOnePartitionFormOneGroup() throws Exception{
+        Partition table=table(partition(-1,-1));
+        List<DataScan> ranges=Arrays.asList(scan(1,2),scan(3,4),scan(30,40));
+        Assert.assertEquals(Collections.singletonList(ranges),ControlDataSetProcessor.groupByPartition(table,ranges));
+    }
+
+    @Test
+    public void descendingRangesAreReadAsGiven() throws Exception{
+        Partition table=table(partition(-1,10),partition(10,-1));
+        DataScan high=scan(12,13), low=scan(1,2);
+        when(high.isDescendingScan()).thenReturn(true);
+        when(low.isDescendingScan()).thenReturn(true);
+        List<DataScan> ranges=Arrays.asList(high,low);
+        Assert.assertEquals(Collections.singletonList(ranges),ControlDataSetProcessor.groupByPartition(table,ranges));
+    }
+
+    @Test
+    public void noRangesMeansNoGroups() throws Exception{
+        Partition table=table(partition(-1,-1));
+        Assert.assertTrue(ControlDataSetProcessor.groupByPartition(table,Collections.<DataScan>emptyList()).isEmpty());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Partition table(Partition... partitions){
+        Partition table=mock(Partition.class);
+        when(table.subPartitions(any(byte[].class),any(byte[].class))).thenReturn(Arrays.asList(partitions));
+        return table;
+    }
+
+    /*
+     * -1 stands for the open end of the first or the last partition
+     */
+    private static Partition partition(int start,int end){
+        Partition partition=mock(Partition.class);
+        when(partition.getStartKey()).thenReturn(key(start));
+        when(partition.getEndKey()).thenReturn(key(end));
+        return partition;
+    }
+
+    private static DataScan scan(int start,int stop){
+        DataScan scan=mock(DataScan.class);
+        when(scan.getStartKey()).thenReturn(key(start));
+        when(scan.getStopKey()).thenReturn(key(stop));
+        return scan;
+    }
+
+    private static byte[] key(int value){
+        return value<0?new byte[0]:new byte[]{(byte)value};
+    }
+}
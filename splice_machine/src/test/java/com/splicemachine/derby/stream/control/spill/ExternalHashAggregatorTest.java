@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Category(ArchitectureIndependent.class)
+public class ExternalHashAggregatorTest{
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final Combiner<Integer,Integer> SUM = new Combiner<Integer, Integer>(){
+        @Override public Integer createAccumulator(Integer value){ return value; }
+        @Override public Integer add(Integer accumulator,Integer value){ return accumulator+value; }
+        @Override public Integer merge(Integer left,Integer right){ return left+right; }
+        @Override public long estimateGrowth(Integer value){ return 0L; }
+    };
+
+    @Test
+    public void reducesInMemoryWhenWithinBudget() throws Exception{
+        SpillContext ctx = new SpillContext(Long.MAX_VALUE,4,tempFolder.getRoot(),SpliceKryoRegistry.getInstance());
+        ExternalHashAggregator<Integer,Integer,Integer> agg = new ExternalHashAggregator<>(ctx,SUM);
+        for(int i=0;i<1000;i++){
+            agg.add(i%10,i);
+        }
+        agg.finish();
+        Assert.assertFalse("Should not have spilled",agg.hasSpilled());
+        assertSums(agg,10,1000);
+        agg.close();
+    }
+
+    @Test
+    public void reducesCorrectlyAfterSpilling() throws Exception{
+        File dir = tempFolder.newFolder();
+        SpillContext ctx = new SpillContext(1024,4,dir,SpliceKryoRegistry.getInstance());
+        ExternalHashAggregator<Integer,Integer,Integer> agg = new ExternalHashAggregator<>(ctx,SUM);
+        for(int i=0;i<10000;i++){
+            agg.add(i%500,i);
+        }
+        agg.finish();
+        Assert.assertTrue("Should have spilled",agg.hasSpilled());
+        Assert.assertTrue("Should have written bytes",agg.getSpilledBytes()>0);
+        //the result must be re-iterable until it is closed
+        assertSums(agg,500,10000);
+        assertSums(agg,500,10000);
+        agg.close();
+        String[] remaining = dir.list();
+        Assert.assertNotNull(remaining);
+        Assert.assertEquals("Spill files were not removed",0,remaining.length);
+    }
+
+    @Test
+    public void groupsCorrectlyAfterSpilling() throws Exception{
+        SpillContext ctx = new SpillContext(2048,3,tempFolder.getRoot(),SpliceKryoRegistry.getInstance());
+        ExternalHashAggregator<Integer,Integer,List<Integer>> agg = new ExternalHashAggregator<>(ctx,new GroupingCombiner<Integer>());
+        for(int i=0;i<5000;i++){
+            agg.add(i%7,i);
+        }
+        agg.finish();
+        Assert.assertTrue("Should have spilled",agg.hasSpilled());
+        int groups = 0;
+        int values = 0;
+        for(Tuple2<Integer,List<Integer>> group:agg){
+            groups++;
+            for(Integer v:group._2()){
+                Assert.assertEquals("Value in the wrong group",group._1().intValue(),v%7);
+                values++;
+            }
+        }
+        Assert.assertEquals("Incorrect number of groups",7,groups);
+        Assert.assertEquals("Missing values",5000,values);
+        agg.close();
+    }
+
+    private static void assertSums(ExternalHashAggregator<Integer,Integer,Integer> agg,int numKeys,int numValues){
+        Map<Integer,Integer> expected = new HashMap<>();
+        for(int i=0;i<numValues;i++){
+            Integer old = expected.get(i%numKeys);
+            expected.put(i%numKeys,old==null?i:old+i);
+        }
+        Map<Integer,Integer> actual = new HashMap<>();
+        for(Tuple2<Integer,Integer> t:agg){
+            Assert.assertNull("Key <"+t._1()+"> returned twice",actual.put(t._1(),t._2()));
+        }
+        Assert.assertEquals("Incorrect sums",expected,actual);
+    }
+}
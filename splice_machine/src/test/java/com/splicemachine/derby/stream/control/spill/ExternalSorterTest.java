@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.Random;
+
+@Category(ArchitectureIndependent.class)
+public class ExternalSorterTest{
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final Comparator<Integer> ASCENDING = new Comparator<Integer>(){
+        @Override
+        public int compare(Integer o1,Integer o2){
+            return o1.compareTo(o2);
+        }
+    };
+
+    @Test
+    public void sortsInMemoryWhenWithinBudget() throws Exception{
+        SpillContext ctx = new SpillContext(Long.MAX_VALUE,1,tempFolder.getRoot(),SpliceKryoRegistry.getInstance());
+        ExternalSorter<Integer,Integer> sorter = new ExternalSorter<>(ctx,ASCENDING);
+        addRandom(sorter,1000,100);
+        sorter.finish();
+        Assert.assertFalse("Should not have spilled",sorter.hasSpilled());
+        assertSortedAndStable(sorter,1000);
+        sorter.close();
+    }
+
+    @Test
+    public void sortsAndStaysStableAfterSpilling() throws Exception{
+        File dir = tempFolder.newFolder();
+        SpillContext ctx = new SpillContext(4096,1,dir,SpliceKryoRegistry.getInstance());
+        ExternalSorter<Integer,Integer> sorter = new ExternalSorter<>(ctx,ASCENDING);
+        addRandom(sorter,10000,50);
+        sorter.finish();
+        Assert.assertTrue("Should have spilled",sorter.hasSpilled());
+        //the result must be re-iterable until it is closed
+        assertSortedAndStable(sorter,10000);
+        assertSortedAndStable(sorter,10000);
+        sorter.close();
+        String[] remaining = dir.list();
+        Assert.assertNotNull(remaining);
+        Assert.assertEquals("Spill files were not removed",0,remaining.length);
+    }
+
+    @Test
+    public void mergesMoreRunsThanTheFanIn() throws Exception{
+        //a budget this small writes a run for every couple of rows
+        SpillContext ctx = new SpillContext(200,1,tempFolder.getRoot(),SpliceKryoRegistry.getInstance());
+        ExternalSorter<Integer,Integer> sorter = new ExternalSorter<>(ctx,ASCENDING);
+        int numRows = ExternalSorter.MAX_FAN_IN*5;
+        addRandom(sorter,numRows,20);
+        sorter.finish();
+        Assert.assertTrue("Should have spilled",sorter.hasSpilled());
+        assertSortedAndStable(sorter,numRows);
+        sorter.close();
+    }
+
+    /*the value of each pair is its insertion position, so that stability can be checked*/
+    private static void addRandom(ExternalSorter<Integer,Integer> sorter,int numRows,int numKeys) throws Exception{
+        Random random = new Random(0L);
+        for(int i=0;i<numRows;i++){
+            sorter.add(new Tuple2<>(random.nextInt(numKeys),i));
+        }
+    }
+
+    private static void assertSortedAndStable(ExternalSorter<Integer,Integer> sorter,int numRows){
+        Tuple2<Integer,Integer> previous = null;
+        int count = 0;
+        for(Tuple2<Integer,Integer> t:sorter){
+            if(previous!=null){
+                int c = previous._1().compareTo(t._1());
+                Assert.assertTrue("Out of order: "+previous+" before "+t,c<=0);
+                if(c==0)
+                    Assert.assertTrue("Not stable: "+previous+" before "+t,previous._2()<t._2());
+            }
+            previous = t;
+            count++;
+        }
+        Assert.assertEquals("Missing rows",numRows,count);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control.spill;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Iterator;
+
+@Category(ArchitectureIndependent.class)
+public class SpillFileTest{
+
+    @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void readingToTheEndReleasesTheReader() throws Exception{
+        CountingKryoPool pool = new CountingKryoPool();
+        SpillFile file = spillFile(pool,10);
+        Iterator<Integer> reader = file.read();
+        int expected = 0;
+        while(reader.hasNext()){
+            Assert.assertEquals(expected++,reader.next().intValue());
+        }
+        Assert.assertEquals(10,expected);
+        Assert.assertEquals("the reader should return its kryo instance",0,pool.outstanding);
+        file.close();
+        Assert.assertEquals(0,pool.outstanding);
+    }
+
+    @Test
+    public void closeReleasesAbandonedReaders() throws Exception{
+        CountingKryoPool pool = new CountingKryoPool();
+        SpillFile file = spillFile(pool,10);
+        //a LIMIT stops after the first row, a cancelled query before reading any
+        Iterator<Integer> partlyRead = file.read();
+        Assert.assertEquals(0,partlyRead.next().intValue());
+        file.read();
+        Assert.assertEquals(2,pool.outstanding);
+
+        file.close();
+        Assert.assertEquals("abandoned readers should be released when the file is closed",0,pool.outstanding);
+        Assert.assertFalse(partlyRead.hasNext());
+        String[] remaining = tempFolder.getRoot().list();
+        Assert.assertNotNull(remaining);
+        Assert.assertEquals("Spill file was not removed",0,remaining.length);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private SpillFile spillFile(KryoPool pool,int numEntries) throws Exception{
+        SpillFile file = new SpillFile(File.createTempFile("test",".spill",tempFolder.getRoot()),pool);
+        for(int i=0;i<numEntries;i++){
+            file.write(i);
+        }
+        file.finishWriting();
+        Assert.assertEquals("the writer should return its kryo instance",0,((CountingKryoPool)pool).outstanding);
+        return file;
+    }
+
+    private static class CountingKryoPool extends KryoPool{
+        private int outstanding;
+
+        CountingKryoPool(){
+            super(1);
+        }
+
+        @Override
+        public Kryo get(){
+            outstanding++;
+            return super.get();
+        }
+
+        @Override
+        public void returnInstance(Kryo kryo){
+            outstanding--;
+            super.returnInstance(kryo);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+@Category(ArchitectureIndependent.class)
+public class CSVLineTokenizerTest {
+
+    private final CSVLineTokenizer tokenizer = new CSVLineTokenizer('"', ',');
+
+    @Test
+    public void splitsPlainColumns() throws Exception {
+        Assert.assertTrue(tokenizer.tokenize("1,abc, x ,"));
+        Assert.assertEquals(Arrays.asList("1", "abc", " x ", null), tokenizer.getColumns());
+    }
+
+    @Test
+    public void emptyColumnsAreNull() throws Exception {
+        Assert.assertTrue(tokenizer.tokenize(",,\"\""));
+        Assert.assertEquals(3, tokenizer.getColumnCount());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(tokenizer.isNull(i));
+            Assert.assertEquals(-1, tokenizer.getLength(i));
+        }
+    }
+
+    @Test
+    public void unescapesQuotedColumns() throws Exception {
+        Assert.assertTrue(tokenizer.tokenize("\"a,b\",\"say \"\"hi\"\"\",c\"d,e\"f"));
+        Assert.assertEquals(Arrays.asList("a,b", "say \"hi\"", "cd,ef"), tokenizer.getColumns());
+    }
+
+    @Test
+    public void columnsReferToTheBuffer() throws Exception {
+        Assert.assertTrue(tokenizer.tokenize("\"x\"\"y\",zz"));
+        Assert.assertEquals("x\"y", new String(tokenizer.getBuffer(), tokenizer.getStart(0), tokenizer.getLength(0)));
+        Assert.assertEquals("zz", new String(tokenizer.getBuffer(), tokenizer.getStart(1), tokenizer.getLength(1)));
+    }
+
+    @Test
+    public void reusesStateAcrossLines() throws Exception {
+        StringBuilder wide = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            wide.append(i).append(',');
+        Assert.assertTrue(tokenizer.tokenize(wide.toString()));
+        Assert.assertEquals(101, tokenizer.getColumnCount());
+        Assert.assertEquals("99", tokenizer.getString(99));
+
+        Assert.assertTrue(tokenizer.tokenize("a|b"));
+        Assert.assertEquals(Arrays.asList("a|b"), tokenizer.getColumns());
+    }
+
+    @Test
+    public void emptyLineHasNoColumns() throws Exception {
+        Assert.assertFalse(tokenizer.tokenize(""));
+        Assert.assertEquals(0, tokenizer.getColumnCount());
+    }
+
+    @Test
+    public void customDelimiters() throws Exception {
+        CSVLineTokenizer pipes = new CSVLineTokenizer('\'', '|');
+        Assert.assertTrue(pipes.tokenize("'a|b'|'it''s'|\"q\""));
+        Assert.assertEquals(Arrays.asList("a|b", "it's", "\"q\""), pipes.getColumns());
+    }
+
+    @Test(expected = IOException.class)
+    public void unterminatedQuoteFails() throws Exception {
+        tokenizer.tokenize("1,\"abc");
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.iterator;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class ParallelTableScannerIteratorTest{
+    /*every segment is read as two ranges of this many rows*/
+    private static final int ROWS_PER_RANGE=500;
+    private static final int QUEUE_SIZE=256;
+
+    private final AtomicInteger openedScanners=new AtomicInteger();
+    private final AtomicInteger closedScanners=new AtomicInteger();
+
+    @Test
+    public void orderedScanReturnsRowsInSegmentOrder() throws Exception{
+        Scan scan=new Scan(8,4,true,-1);
+        List<Integer> values=readAll(scan.iterator);
+        Assert.assertEquals(scan.numRows,values.size());
+        for(int i=0;i<values.size();i++){
+            Assert.assertEquals("wrong row at position "+i,i,values.get(i).intValue());
+        }
+        scan.iterator.close();
+        assertAllScannersClosed();
+    }
+
+    @Test
+    public void unorderedScanReturnsEveryRowOnce() throws Exception{
+        Scan scan=new Scan(8,4,false,-1);
+        List<Integer> values=readAll(scan.iterator);
+        Collections.sort(values);
+        Assert.assertEquals(scan.numRows,values.size());
+        for(int i=0;i<values.size();i++){
+            Assert.assertEquals("missing or duplicated row",i,values.get(i).intValue());
+        }
+        scan.iterator.close();
+        assertAllScannersClosed();
+    }
+
+    @Test
+    public void producerFailureFailsTheScan() throws Exception{
+        //fail in the middle of the last range, which is read by whoever gets to it
+        Scan scan=new Scan(8,4,true,8*2*ROWS_PER_RANGE-ROWS_PER_RANGE/2);
+        try{
+            readAll(scan.iterator);
+            Assert.fail("the scan should have failed");
+        }catch(RuntimeException re){
+            Throwable cause=re.getCause();
+            Assert.assertTrue("unexpected failure "+cause,cause instanceof IOException);
+            Assert.assertEquals("region went away",cause.getMessage());
+        }finally{
+            scan.iterator.close();
+        }
+        assertAllScannersClosed();
+    }
+
+    @Test
+    public void earlyCloseReleasesEveryScanner() throws Exception{
+        Scan scan=new Scan(16,4,true,-1);
+        for(int i=0;i<10;i++){
+            Assert.assertEquals(i,scan.iterator.next().getRow().getColumn(1).getInt());
+        }
+        //give the workers time to fill their queues and park
+        Thread.sleep(100);
+        scan.iterator.close();
+        assertAllScannersClosed();
+    }
+
+    @Test(timeout=60000)
+    public void nestedScansDoNotStarveEachOther() throws Exception{
+        //more outer workers than there are threads to run them
+        int outerSegments=2*Runtime.getRuntime().availableProcessors()+2;
+        Scan outer=new Scan(outerSegments,outerSegments,true,-1);
+        int expected=0;
+        while(outer.iterator.hasNext()){
+            int value=outer.iterator.next().getRow().getColumn(1).getInt();
+            Assert.assertEquals(expected++,value);
+            if(value%ROWS_PER_RANGE==0){
+                //a nested loop join reads the inner table while the outer side is suspended
+                Scan inner=new Scan(4,4,true,-1);
+                List<Integer> innerValues=readAll(inner.iterator);
+                Assert.assertEquals(inner.numRows,innerValues.size());
+                for(int i=0;i<innerValues.size();i++){
+                    Assert.assertEquals(i,innerValues.get(i).intValue());
+                }
+                inner.iterator.close();
+            }
+        }
+        Assert.assertEquals(outer.numRows,expected);
+        outer.iterator.close();
+        assertAllScannersClosed();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static List<Integer> readAll(ParallelTableScannerIterator iterator) throws Exception{
+        List<Integer> values=new ArrayList<>();
+        while(iterator.hasNext()){
+            values.add(iterator.next().getRow().getColumn(1).getInt());
+        }
+        return values;
+    }
+
+    private void assertAllScannersClosed() throws InterruptedException{
+        //workers which were running when the scan was closed clean up on their own
+        long deadline=System.currentTimeMillis()+10000;
+        while(closedScanners.get()<openedScanners.get() && System.currentTimeMillis()<deadline){
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("every scanner which was opened should be closed",openedScanners.get(),closedScanners.get());
+    }
+
+    /*
+     * A scan over segments of two ranges each. The ranges hold consecutive integers, so a serial scan returns
+     * 0,1,2,... and the row at failAt (if any) fails to decode.
+     */
+    private class Scan{
+        final int numRows;
+        final ParallelTableScannerIterator iterator;
+
+        @SuppressWarnings("unchecked")
+        Scan(int numSegments,int parallelism,boolean ordered,int failAt) throws Exception{
+            numRows=numSegments*2*ROWS_PER_RANGE;
+            final Map<DataScan, SITableScanner> scanners=new HashMap<>();
+            final Map<DataScan, ExecRow[]> templates=new HashMap<>();
+            List<List<DataScan>> segments=new ArrayList<>(numSegments);
+            for(int i=0;i<numSegments;i++){
+                List<DataScan> ranges=new ArrayList<>(2);
+                for(int r=0;r<2;r++){
+                    DataScan range=mock(DataScan.class);
+                    ExecRow[] template=new ExecRow[1];
+                    scanners.put(range,scanner((2*i+r)*ROWS_PER_RANGE,failAt,template));
+                    templates.put(range,template);
+                    ranges.add(range);
+                }
+                segments.add(ranges);
+            }
+
+            Partition table=mock(Partition.class);
+            when(table.openScanner(any(DataScan.class),any(MetricFactory.class))).thenReturn(mock(DataScanner.class));
+            TableScannerBuilder builder=mock(TableScannerBuilder.class);
+            when(builder.build(any(DataScanner.class),any(DataScan.class),any(ExecRow.class))).thenAnswer(new Answer<SITableScanner>(){
+                @Override
+                public SITableScanner answer(InvocationOnMock invocation) throws Throwable{
+                    Object[] args=invocation.getArguments();
+                    templates.get(args[1])[0]=(ExecRow)args[2];
+                    openedScanners.incrementAndGet();
+                    return scanners.get(args[1]);
+                }
+            });
+
+            ExecRow template=new ValueRow(1);
+            template.setColumn(1,new SQLInteger());
+            iterator=ParallelTableScannerIterator.forRanges(builder,null,table,segments,template,null,parallelism,QUEUE_SIZE,ordered);
+        }
+
+        /*
+         * Like the real scanner, decodes every row into the same template
+         */
+        private SITableScanner scanner(final int firstValue,final int failAt,final ExecRow[] template) throws Exception{
+            SITableScanner scanner=mock(SITableScanner.class);
+            when(scanner.next()).thenAnswer(new Answer<ExecRow>(){
+                private int next=firstValue;
+
+                @Override
+                public ExecRow answer(InvocationOnMock invocation) throws Throwable{
+                    ExecRow row=template[0];
+                    row.resetRowArray();
+                    if(next>=firstValue+ROWS_PER_RANGE) return null;
+                    if(next==failAt) throw new IOException("region went away");
+                    row.getColumn(1).setValue(next++);
+                    return row;
+                }
+            });
+            doAnswer(new Answer<Void>(){
+                @Override
+                public Void answer(InvocationOnMock invocation) throws Throwable{
+                    closedScanners.incrementAndGet();
+                    return null;
+                }
+            }).when(scanner).close();
+            return scanner;
+        }
+    }
+}
@@ -26,6 +26,11 @@ import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -36,6 +41,8 @@ import java.util.concurrent.TimeUnit;
  * <p/>
  * This implementation uses an LMAX disruptor to asynchronously pass Read-resolve events
  * to a background thread, which in turn uses a SynchronousReadResolver to actually perform the resolution.
+ * The background thread coalesces the events of each batch by region and transaction, and resolves
+ * each group with a single batched write.
  *
  * @author Scott Fines
  *         Date: 7/1/14
@@ -73,7 +80,7 @@ public class AsyncReadResolver{
         disruptor=new Disruptor<>(new ResolveEventFactory(),bSize,consumerThreads,
                 ProducerType.MULTI,
                 new BlockingWaitStrategy()); //we want low latency here, but it might cost too much in CPU
-        disruptor.handleEventsWith(new ResolveEventHandler());
+        disruptor.handleEventsWith(new ResolveEventHandler(bSize));
         ringBuffer=disruptor.getRingBuffer();
     }
 
@@ -107,23 +114,126 @@ public class AsyncReadResolver{
         }
     }
 
+    /*
+     * Identifies the rows written by a single transaction in a single region.
+     */
+    private static final class GroupKey{
+        String regionName;
+        long txnId;
+
+        GroupKey(){ }
+
+        GroupKey(String regionName,long txnId){
+            this.regionName=regionName;
+            this.txnId=txnId;
+        }
+
+        GroupKey set(String regionName,long txnId){
+            this.regionName=regionName;
+            this.txnId=txnId;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this==o) return true;
+            if(!(o instanceof GroupKey)) return false;
+            GroupKey other=(GroupKey)o;
+            return txnId==other.txnId && regionName.equals(other.regionName);
+        }
+
+        @Override
+        public int hashCode(){
+            return 31*regionName.hashCode()+(int)(txnId^(txnId>>>32));
+        }
+    }
+
+    private static final class ResolveGroup{
+        final Partition region;
+        final long txnId;
+        final RollForward rollForward;
+        final Set<ByteSlice> rowKeys=new LinkedHashSet<>();
+
+        ResolveGroup(Partition region,long txnId,RollForward rollForward){
+            this.region=region;
+            this.txnId=txnId;
+            this.rollForward=rollForward;
+        }
+    }
+
+    /*
+     * Coalesces the events of each batch taken off the ring by region and transaction, so that a row which
+     * many readers saw is only resolved once, and each transaction is looked up and written once per region.
+     * Groups are resolved at the end of each batch, except for those whose region is under pressure, which
+     * are held back (and keep coalescing) until a later batch finds the region in a better state. The number of
+     * rows held back is bounded by the size of the ring, beyond which new events are dropped.
+     */
     private class ResolveEventHandler implements EventHandler<ResolveEvent>{
+        private final Map<GroupKey,ResolveGroup> pending=new HashMap<>();
+        private final GroupKey probe=new GroupKey();
+        private final int maxPendingRows;
+        private int pendingRows;
+
+        ResolveEventHandler(int maxPendingRows){
+            this.maxPendingRows=maxPendingRows;
+        }
 
         @Override
         public void onEvent(ResolveEvent event,long sequence,boolean endOfBatch) throws Exception{
             try{
-                if(synchronousResolver.resolve(event.region,
-                        event.rowKey,
-                        event.txnId,
-                        txnSupplier,
-                        status,
-                        false,
-                        trafficControl)){
-                    event.rollForward.recordResolved(event.rowKey,event.txnId);
-                }
+                add(event);
+                if(endOfBatch)
+                    resolvePending();
             }catch(Exception e){
                 LOG.info("Error during read resolution",e);
                 throw e;
+            }finally{
+                event.region=null;
+                event.rollForward=null;
+            }
+        }
+
+        private void add(ResolveEvent event){
+            String regionName=event.region.getName();
+            ResolveGroup group=pending.get(probe.set(regionName,event.txnId));
+            if(pendingRows>=maxPendingRows && (group==null || !group.rowKeys.contains(event.rowKey))){
+                status.rowsDropped(1);
+                return;
+            }
+            if(group==null){
+                group=new ResolveGroup(event.region,event.txnId,event.rollForward);
+                pending.put(new GroupKey(regionName,event.txnId),group);
+            }
+            /*
+             * The event's slice is reused by the ring, but the array it wraps was copied on submission,
+             * so we can hold on to the array itself.
+             */
+            ByteSlice rowKey=event.rowKey;
+            if(group.rowKeys.add(ByteSlice.wrap(rowKey.array(),rowKey.offset(),rowKey.length())))
+                pendingRows++;
+            else
+                status.rowCoalesced();
+        }
+
+        private void resolvePending(){
+            Iterator<ResolveGroup> groups=pending.values().iterator();
+            while(groups.hasNext()){
+                ResolveGroup group=groups.next();
+                Partition region=group.region;
+                int numRows=group.rowKeys.size();
+                if(region.isClosed() || region.isClosing()){
+                    status.rowsDropped(numRows);
+                }else if(synchronousResolver.isUnderPressure(region)){
+                    status.batchDeferred();
+                    continue;
+                }else if(synchronousResolver.resolve(region,group.rowKeys,group.txnId,
+                        txnSupplier,status,false,trafficControl)>0){
+                    for(ByteSlice rowKey:group.rowKeys){
+                        group.rollForward.recordResolved(rowKey,group.txnId);
+                    }
+                }
+                pendingRows-=numRows;
+                groups.remove();
             }
         }
     }
@@ -146,6 +256,7 @@ public class AsyncReadResolver{
             }catch(InsufficientCapacityException e){
                 if(LOG.isTraceEnabled())
                     LOG.trace("Unable to submit for read resolution");
+                status.rowsDropped(1);
                 return;
             }
 
@@ -21,6 +21,8 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 
+import java.util.Collection;
+
 /**
  * @author Scott Fines
  *         Date: 12/21/15
@@ -33,4 +35,24 @@ public interface KeyedReadResolver{
                     RollForwardStatus status,
                     boolean failOnError,
                     TrafficControl trafficControl);
+
+    /**
+     * Resolve a group of rows which were all written by the same transaction, looking the transaction up once
+     * and writing the resolution for all the rows in a single batch.
+     *
+     * @return the number of rows which were rolled forward
+     */
+    int resolve(Partition region,
+                Collection<ByteSlice> rowKeys,
+                long txnId,
+                TxnSupplier txnSupplier,
+                RollForwardStatus status,
+                boolean failOnError,
+                TrafficControl trafficControl);
+
+    /**
+     * @return true if resolution writes against the region should be postponed, because it is compacting
+     * or its memstore is under pressure.
+     */
+    boolean isUnderPressure(Partition region);
 }
@@ -39,6 +39,7 @@ import com.splicemachine.si.impl.TxnRegion;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
 import com.splicemachine.si.impl.rollforward.RollForwardStatus;
+import com.splicemachine.si.impl.server.PurgeWatermark;
 import com.splicemachine.si.impl.server.SITransactor;
 import com.splicemachine.si.impl.txn.SITransactionReadController;
 import com.splicemachine.storage.DataFilterFactory;
@@ -73,10 +74,12 @@ public class SIDriver {
     private final DataFilterFactory filterFactory;
     private final Clock clock;
     private final AsyncReadResolver readResolver;
+    private final RollForwardStatus rollForwardStatus = new RollForwardStatus();
     private final DistributedFileSystem fileSystem;
     private final OperationFactory baseOpFactory;
     private final PartitionInfoCache partitionInfoCache;
     private final SnowflakeFactory snowflakeFactory;
+    private final PurgeWatermark purgeWatermark;
 
     public SIDriver(SIEnvironment env){
         this.tableFactory = env.tableFactory();
@@ -108,6 +111,7 @@ public class SIDriver {
         readResolver = initializedReadResolver(config,env.keyedReadResolver());
         this.fileSystem = env.fileSystem();
         this.baseOpFactory = env.baseOperationFactory();
+        this.purgeWatermark = new PurgeWatermark(txnStore,timestampSource,clock,config.getCompactionPurgeRetention());
     }
 
 
@@ -164,6 +168,13 @@ public class SIDriver {
         return rollForward;
     }
 
+    /**
+     * @return the read-resolution counters of this server, for JMX
+     */
+    public RollForwardStatus getRollForwardStatus(){
+        return rollForwardStatus;
+    }
+
     public ReadResolver getReadResolver(Partition basePartition){
         if(readResolver==null) return NoOpReadResolver.INSTANCE;
         else
@@ -196,6 +207,10 @@ public class SIDriver {
         }
     }
 
+    public PurgeWatermark getPurgeWatermark(){
+        return purgeWatermark;
+    }
+
     public Clock getClock(){
         return clock;
     }
@@ -218,7 +233,7 @@ public class SIDriver {
         final AsyncReadResolver asyncReadResolver=new AsyncReadResolver(maxThreads,
                 bufferSize,
                 txnSupplier,
-                new RollForwardStatus(),
+                rollForwardStatus,
                 GreenLight.INSTANCE,keyedResolver);
         asyncReadResolver.start();
         return asyncReadResolver;
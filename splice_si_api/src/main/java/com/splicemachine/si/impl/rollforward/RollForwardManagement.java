@@ -28,4 +28,28 @@ public interface RollForwardManagement {
     long getTotalUpdates();
 
     long getTotalRowsToResolve();
+
+    /**
+     * @return the number of rows which were actually rolled forward (i.e. had their commit timestamp written,
+     * or were removed as rolled back) by read resolution
+     */
+    long getTotalResolved();
+
+    /**
+     * @return the number of rows which were submitted for read resolution, but were discarded because the
+     * resolution queue was full, or the region went away before they could be resolved
+     */
+    long getTotalDropped();
+
+    /**
+     * @return the number of resolution requests which were merged into an already pending request for the
+     * same row and transaction
+     */
+    long getTotalCoalesced();
+
+    /**
+     * @return the number of times resolution of a batch of rows was postponed because its region was
+     * compacting or under memstore pressure
+     */
+    long getTotalDeferred();
 }
@@ -24,9 +24,17 @@ import java.util.concurrent.atomic.AtomicLong;
 public class RollForwardStatus implements RollForwardManagement{
     private final AtomicLong numUpdates = new AtomicLong(0l);
     private final AtomicLong rowsToResolve = new AtomicLong(0l);
+    private final AtomicLong resolved = new AtomicLong(0l);
+    private final AtomicLong dropped = new AtomicLong(0l);
+    private final AtomicLong coalesced = new AtomicLong(0l);
+    private final AtomicLong deferred = new AtomicLong(0l);
 
     @Override public long getTotalUpdates() { return numUpdates.get(); }
     @Override public long getTotalRowsToResolve() { return  rowsToResolve.get(); }
+    @Override public long getTotalResolved() { return resolved.get(); }
+    @Override public long getTotalDropped() { return dropped.get(); }
+    @Override public long getTotalCoalesced() { return coalesced.get(); }
+    @Override public long getTotalDeferred() { return deferred.get(); }
 
     public void rowResolved(){
         boolean shouldContinue;
@@ -37,6 +45,28 @@ public class RollForwardStatus implements RollForwardManagement{
         }while(shouldContinue);
     }
 
+    public void rowsResolved(int numRows){
+        for(int i=0;i<numRows;i++){
+            rowResolved();
+        }
+    }
+
+    public void rowsRolledForward(int numRows){
+        resolved.addAndGet(numRows);
+    }
+
+    public void rowsDropped(int numRows){
+        dropped.addAndGet(numRows);
+    }
+
+    public void rowCoalesced(){
+        coalesced.incrementAndGet();
+    }
+
+    public void batchDeferred(){
+        deferred.incrementAndGet();
+    }
+
     public void rowWritten(){
         rowsToResolve.incrementAndGet();
         numUpdates.incrementAndGet();
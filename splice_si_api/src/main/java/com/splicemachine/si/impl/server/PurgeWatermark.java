@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.si.api.txn.TxnStore;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.timestamp.api.TimestampSource;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Determines the low watermark below which compactions may purge dead versions of rows.
+ * <p/>
+ * The watermark is a timestamp such that every transaction which is active now, or which will begin in the future,
+ * began after it. A write which committed before the watermark is therefore visible to every transaction which
+ * can still read.
+ * <p/>
+ * Write transactions are found in the transaction table, but read-only transactions are never recorded there. To
+ * protect those, the watermark is never allowed to be newer than a timestamp which was issued at least
+ * {@code retentionMillis} ago. This instance remembers timestamps that it has seen in order to know that, so
+ * the first watermark computed by a new instance is always {@link #NONE}.
+ */
+public class PurgeWatermark{
+    /**
+     * Returned when nothing may be purged.
+     */
+    public static final long NONE=-1L;
+
+    private final TxnStore txnStore;
+    private final TimestampSource timestampSource;
+    private final Clock clock;
+    private final long retentionMillis;
+    /*pairs of {wall clock time, timestamp}, oldest first*/
+    private final Deque<long[]> samples=new ArrayDeque<>();
+
+    public PurgeWatermark(TxnStore txnStore,TimestampSource timestampSource,Clock clock,long retentionMillis){
+        this.txnStore=txnStore;
+        this.timestampSource=timestampSource;
+        this.clock=clock;
+        this.retentionMillis=retentionMillis;
+    }
+
+    /**
+     * @return the current low watermark, or {@link #NONE} if it cannot yet be determined.
+     * @throws IOException if the active transactions cannot be read
+     */
+    public long current() throws IOException{
+        long now=clock.currentTimeMillis();
+        long timestamp=timestampSource.nextTimestamp();
+        long watermark=retainedTimestamp(now,timestamp);
+        if(watermark==NONE) return NONE;
+
+        for(TxnView txn : txnStore.getActiveTransactions(0L,timestamp,null)){
+            long beginTs=txn.getEffectiveBeginTimestamp();
+            if(beginTs<watermark)
+                watermark=beginTs;
+        }
+        return watermark;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * @return the newest known timestamp which was issued at least {@code retentionMillis} before {@code now}
+     */
+    private synchronized long retainedTimestamp(long now,long timestamp){
+        samples.addLast(new long[]{now,timestamp});
+        long cutoff=now-retentionMillis;
+        /*
+         * Forget the oldest sample once the next one is old enough to take its place
+         */
+        long[] oldest=samples.pollFirst();
+        while(!samples.isEmpty() && samples.peekFirst()[0]<=cutoff)
+            oldest=samples.pollFirst();
+        samples.addFirst(oldest);
+        return oldest[0]<=cutoff?oldest[1]:NONE;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.AbstractTxnView;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.io.IOException;
+
+/**
+ * Lightweight view of a completed transaction, as held in the slots of the
+ * {@link CompletedTxnCacheSupplier}.
+ * <p/>
+ * Only the state, the commit timestamps and the parent id are held directly. The parent
+ * view is looked up lazily (and, once it has completed, remembered) through the owning supplier, so that
+ * the common case of a top-level transaction never has to touch anything but this object.
+ */
+final class CachedTxnView extends AbstractTxnView{
+    private final TxnSupplier parentSupplier;
+    private final long parentTxnId;
+    private final long commitTimestamp;
+    private final long globalCommitTimestamp;
+    private final Txn.State state;
+    private final boolean additive;
+    private final boolean allowsWrites;
+    private volatile TxnView parentTxn;
+
+    @SuppressFBWarnings("SE_NO_SUITABLE_CONSTRUCTOR_FOR_EXTERNALIZATION")
+    CachedTxnView(TxnSupplier parentSupplier,
+                  long txnId,
+                  long parentTxnId,
+                  long commitTimestamp,
+                  long globalCommitTimestamp,
+                  Txn.State state,
+                  Txn.IsolationLevel isolationLevel,
+                  boolean additive,
+                  boolean allowsWrites){
+        super(txnId,txnId,isolationLevel);
+        this.parentSupplier=parentSupplier;
+        this.parentTxnId=parentTxnId;
+        this.commitTimestamp=commitTimestamp;
+        this.globalCommitTimestamp=globalCommitTimestamp;
+        this.state=state;
+        this.additive=additive;
+        this.allowsWrites=allowsWrites;
+    }
+
+    @Override public long getCommitTimestamp(){ return commitTimestamp; }
+    @Override public Txn.State getState(){ return state; }
+    @Override public boolean isAdditive(){ return additive; }
+    @Override public boolean allowsWrites(){ return allowsWrites; }
+    @Override public long getParentTxnId(){ return parentTxnId; }
+
+    @Override
+    public long getGlobalCommitTimestamp(){
+        if(state==Txn.State.ROLLEDBACK) return -1l;
+        if(globalCommitTimestamp==-1l) return getParentTxnView().getGlobalCommitTimestamp();
+        return globalCommitTimestamp;
+    }
+
+    @Override
+    public Txn.State getEffectiveState(){
+        if(state==Txn.State.ROLLEDBACK || parentTxnId==-1l) return state;
+        return getParentTxnView().getEffectiveState();
+    }
+
+    @Override
+    public long getEffectiveBeginTimestamp(){
+        if(parentTxnId==-1l) return txnId;
+        return getParentTxnView().getEffectiveBeginTimestamp();
+    }
+
+    @Override
+    public TxnView getParentTxnView(){
+        if(parentTxnId==-1l) return Txn.ROOT_TRANSACTION;
+        TxnView p=parentTxn;
+        if(p==null){
+            try{
+                p=parentSupplier.getTransaction(parentTxnId);
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+            /*
+             * This view is shared by every reader of the cache, so only remember a parent whose outcome
+             * can no longer change
+             */
+            if(p.getEffectiveState()!=Txn.State.ACTIVE)
+                parentTxn=p;
+        }
+        return p;
+    }
+}
@@ -12,43 +12,90 @@
  * CONDITIONS OF ANY KIND, either express or implied. See the License for the
  * specific language governing permissions and limitations under the License.
  */
-
 package com.splicemachine.si.impl.store;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * TxnSupplier which caches transaction which have "Completed"--i.e. which have entered the COMMITTED or ROLLEDBACK
  * state.
  * <p/>
+ * The cache is a set-associative table of slots, keyed by the raw transaction id. Each slot holds a compact,
+ * immutable {@link CachedTxnView} which carries only what is needed to answer visibility questions: the state,
+ * the commit and global commit timestamps, the parent id and a few flags. The view is built once, when the
+ * transaction is cached, and every hit hands out that same instance, so reads allocate nothing. Within a set,
+ * entries are evicted using the CLOCK (second-chance) algorithm.
+ * <p/>
+ * Sets are grouped into stripes, and writers to a stripe are serialized on that stripe's lock. Readers never lock:
+ * a writer publishes the view before the id which points at it, and a reader confirms that the view it finds
+ * is for the transaction it asked for, so a slot which is being replaced is simply a miss.
+ * <p/>
  * This class is thread-safe, and safe to be shared between many threads.
  *
  * @author Scott Fines
  *         Date: 6/18/14
  */
 public class CompletedTxnCacheSupplier implements TxnSupplier{
-    private ConcurrentLinkedHashMap<Long, TxnView> cache; // autobox for now
+    private static final int WAYS=8;
+    private static final long EMPTY=0l;
+
     private final TxnSupplier delegate;
+    private final int setMask;
+    private final int stripeMask;
+
+    private final AtomicLongArray txnIds;
+    private final AtomicReferenceArray<CachedTxnView> views;
+    private final AtomicIntegerArray referenced;
+    private final int[] clockHands;
+
+    private final Object[] stripeLocks;
+
     private final AtomicLong hits=new AtomicLong();
     private final AtomicLong requests=new AtomicLong();
+    private final AtomicLong evictions=new AtomicLong();
 
     public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel){
-        cache=new ConcurrentLinkedHashMap.Builder<Long, TxnView>()
-                .maximumWeightedCapacity(maxSize)
-                .concurrencyLevel(concurrencyLevel)
-                .build();
         this.delegate=delegate;
+        int numSets=powerOfTwo(Math.max(1,(maxSize+WAYS-1)/WAYS));
+        int numStripes=Math.min(numSets,powerOfTwo(Math.max(1,concurrencyLevel)));
+        this.setMask=numSets-1;
+        this.stripeMask=numStripes-1;
+
+        int numSlots=numSets*WAYS;
+        this.txnIds=new AtomicLongArray(numSlots);
+        this.views=new AtomicReferenceArray<>(numSlots);
+        this.referenced=new AtomicIntegerArray(numSlots);
+        this.clockHands=new int[numSets];
+
+        this.stripeLocks=new Object[numStripes];
+        for(int i=0;i<numStripes;i++){
+            stripeLocks[i]=new Object();
+        }
     }
 
     public int getMaxSize(){
-        return cache.size();
+        return txnIds.length();
+    }
+
+    public long getHitCount(){
+        return hits.get();
+    }
+
+    public long getRequestCount(){
+        return requests.get();
+    }
+
+    public long getEvictionCount(){
+        return evictions.get();
     }
 
     @Override
@@ -64,10 +111,16 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
         if(txnId==-1)
             return Txn.ROOT_TRANSACTION;
         requests.incrementAndGet();
-        TxnView txn=cache.get(txnId); // autobox until Cliff C merge
-        if(txn!=null){
-            hits.incrementAndGet();
-            return txn;
+        if(!getDestinationTables){
+            /*
+             * The cached view does not carry destination tables, so a caller which wants them
+             * has to go to the delegate.
+             */
+            TxnView txn=lookup(txnId);
+            if(txn!=null){
+                hits.incrementAndGet();
+                return txn;
+            }
         }
         //bummer, we aren't in the cache, need to check the delegate
         TxnView transaction=delegate.getTransaction(txnId,getDestinationTables);
@@ -77,28 +130,122 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
         switch(transaction.getEffectiveState()){
             case COMMITTED:
             case ROLLEDBACK:
-                cache.put(transaction.getTxnId(),transaction); // Cache for Future Use
+                store(transaction); // Cache for Future Use
         }
         return transaction;
     }
 
     @Override
     public boolean transactionCached(long txnId){
-        return cache.get(txnId)!=null;
+        if(txnId==EMPTY) return false;
+        return findSlot(setFor(txnId)*WAYS,txnId)>=0;
     }
 
     @Override
     public void cache(TxnView toCache){
         if(toCache.getState()==Txn.State.ACTIVE) return; //cannot cache incomplete transactions
-        cache.put(toCache.getTxnId(),toCache);
+        store(toCache);
     }
 
     @Override
     public TxnView getTransactionFromCache(long txnId){
         requests.incrementAndGet();
-        TxnView txn=cache.get(txnId);
+        TxnView txn=lookup(txnId);
         if(txn!=null)
             hits.incrementAndGet();
         return txn;
     }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private TxnView lookup(long txnId){
+        if(txnId==EMPTY) return null;
+        int start=setFor(txnId)*WAYS;
+        for(int slot=start;slot<start+WAYS;slot++){
+            if(txnIds.get(slot)!=txnId) continue;
+            /*
+             * If a writer is replacing this slot, then the view may already be for the new transaction;
+             * in that case, the one we want is being evicted, so it's a miss.
+             */
+            CachedTxnView view=views.get(slot);
+            if(view==null || view.getTxnId()!=txnId) return null;
+            if(referenced.get(slot)==0)
+                referenced.lazySet(slot,1);
+            return view;
+        }
+        return null;
+    }
+
+    private void store(TxnView txn){
+        long txnId=txn.getTxnId();
+        /*
+         * The cached view reconstructs the begin timestamp from the transaction id, so anything which
+         * doesn't fit that shape (or which would collide with our empty marker) is simply not cached.
+         */
+        if(txnId<=EMPTY || txn.getBeginTimestamp()!=txnId) return;
+        int set=setFor(txnId);
+        int start=set*WAYS;
+        if(findSlot(start,txnId)>=0) return; //completed transactions never change, so there's nothing to update
+
+        Txn.State state=txn.getState();
+        long globalCommitTs=state==Txn.State.ROLLEDBACK?-1l:txn.getGlobalCommitTimestamp();
+        CachedTxnView view=new CachedTxnView(this,txnId,txn.getParentTxnId(),txn.getCommitTimestamp(),globalCommitTs,
+                state,txn.getIsolationLevel(),txn.isAdditive(),txn.allowsWrites());
+        synchronized(stripeLocks[set&stripeMask]){
+            if(findSlot(start,txnId)>=0) return;
+            int slot=findVictim(set,start);
+            //publish the view before the id, so that a reader which finds the id also finds its view
+            referenced.set(slot,0);
+            views.set(slot,view);
+            txnIds.set(slot,txnId);
+        }
+    }
+
+    private int findSlot(int start,long txnId){
+        for(int i=start;i<start+WAYS;i++){
+            if(txnIds.get(i)==txnId) return i;
+        }
+        return -1;
+    }
+
+    /*
+     * Must be called while holding the stripe lock for the set.
+     */
+    private int findVictim(int set,int start){
+        for(int i=start;i<start+WAYS;i++){
+            if(txnIds.get(i)==EMPTY) return i;
+        }
+        int hand=clockHands[set];
+        for(;;){
+            int slot=start+hand;
+            hand=(hand+1)&(WAYS-1);
+            if(referenced.get(slot)!=0){
+                referenced.set(slot,0); //give it a second chance
+            }else{
+                clockHands[set]=hand;
+                evictions.incrementAndGet();
+                return slot;
+            }
+        }
+    }
+
+    private int setFor(long txnId){
+        /*
+         * Transaction ids are handed out in regular steps, so mix the bits before masking
+         * (the finalizer of MurmurHash3) to keep them from piling into a few sets.
+         */
+        long h=txnId;
+        h^=h>>>33;
+        h*=0xff51afd7ed558ccdL;
+        h^=h>>>33;
+        h*=0xc4ceb9fe1a85ec53L;
+        h^=h>>>33;
+        return (int)h&setMask;
+    }
+
+    private static int powerOfTwo(int n){
+        int p=1;
+        while(p<n && p<(1<<30)) p<<=1;
+        return p;
+    }
 }
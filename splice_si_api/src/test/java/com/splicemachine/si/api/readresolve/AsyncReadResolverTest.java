@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.api.readresolve;
+
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.si.impl.rollforward.RollForwardStatus;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.ByteSlice;
+import com.splicemachine.utils.GreenLight;
+import com.splicemachine.utils.TrafficControl;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class AsyncReadResolverTest{
+
+    @Test
+    public void duplicateRowsAreCoalescedIntoOneBatch() throws Exception{
+        RecordingResolver keyed=new RecordingResolver(2);
+        RollForwardStatus status=new RollForwardStatus();
+        AsyncReadResolver resolver=new AsyncReadResolver(1,64,mock(TxnSupplier.class),status,GreenLight.INSTANCE,keyed);
+        resolver.start();
+        try{
+            ReadResolver regionResolver=resolver.getResolver(region("r1"),NoopRollForward.INSTANCE);
+            //hold up the first batch, so that everything else queues up behind it
+            regionResolver.resolve(ByteSlice.wrap(new byte[]{1}),1L);
+            Assert.assertTrue(keyed.blocked.await(10,TimeUnit.SECONDS));
+            for(int i=0;i<3;i++){
+                regionResolver.resolve(ByteSlice.wrap(new byte[]{1}),1L);
+            }
+            regionResolver.resolve(ByteSlice.wrap(new byte[]{2}),1L);
+            regionResolver.resolve(ByteSlice.wrap(new byte[]{2}),1L);
+            keyed.release.countDown();
+            Assert.assertTrue(keyed.done.await(10,TimeUnit.SECONDS));
+
+            Assert.assertEquals(2,keyed.batchSizes.size());
+            Assert.assertEquals(1,(int)keyed.batchSizes.get(0));
+            Assert.assertEquals(2,(int)keyed.batchSizes.get(1));
+            Assert.assertEquals(3L,status.getTotalCoalesced());
+            Assert.assertEquals(3L,status.getTotalResolved());
+            Assert.assertEquals(0L,status.getTotalDropped());
+        }finally{
+            resolver.shutdown();
+        }
+    }
+
+    @Test
+    public void resolutionIsDeferredWhileRegionIsUnderPressure() throws Exception{
+        RecordingResolver keyed=new RecordingResolver(1);
+        keyed.release.countDown();
+        keyed.underPressure=true;
+        RollForwardStatus status=new RollForwardStatus();
+        AsyncReadResolver resolver=new AsyncReadResolver(1,64,mock(TxnSupplier.class),status,GreenLight.INSTANCE,keyed);
+        resolver.start();
+        try{
+            ReadResolver regionResolver=resolver.getResolver(region("r1"),NoopRollForward.INSTANCE);
+            regionResolver.resolve(ByteSlice.wrap(new byte[]{1}),1L);
+            while(status.getTotalDeferred()<1){
+                Thread.sleep(10);
+            }
+            Assert.assertTrue("Should not resolve under pressure",keyed.batchSizes.isEmpty());
+
+            //the deferred row is picked up along with the next batch
+            keyed.underPressure=false;
+            regionResolver.resolve(ByteSlice.wrap(new byte[]{2}),1L);
+            Assert.assertTrue(keyed.done.await(10,TimeUnit.SECONDS));
+            Assert.assertEquals(1,keyed.batchSizes.size());
+            Assert.assertEquals(2,(int)keyed.batchSizes.get(0));
+        }finally{
+            resolver.shutdown();
+        }
+    }
+
+    private static Partition region(String name){
+        Partition region=mock(Partition.class);
+        when(region.getName()).thenReturn(name);
+        return region;
+    }
+
+    private static class RecordingResolver implements KeyedReadResolver{
+        final List<Integer> batchSizes=new CopyOnWriteArrayList<>();
+        final CountDownLatch blocked=new CountDownLatch(1);
+        final CountDownLatch release=new CountDownLatch(1);
+        final CountDownLatch done;
+        volatile boolean underPressure;
+
+        RecordingResolver(int expectedBatches){
+            this.done=new CountDownLatch(expectedBatches);
+        }
+
+        @Override
+        public boolean resolve(Partition region,ByteSlice rowKey,long txnId,TxnSupplier txnSupplier,
+                               RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+            throw new UnsupportedOperationException("Rows should be resolved in batches");
+        }
+
+        @Override
+        public int resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier txnSupplier,
+                           RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+            blocked.countDown();
+            try{
+                release.await();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            batchSizes.add(rowKeys.size());
+            status.rowsRolledForward(rowKeys.size());
+            done.countDown();
+            return rowKeys.size();
+        }
+
+        @Override
+        public boolean isUnderPressure(Partition region){
+            return underPressure;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnLifecycleManager;
+import com.splicemachine.si.impl.store.TestingTimestampSource;
+import com.splicemachine.si.impl.store.TestingTxnStore;
+import com.splicemachine.si.impl.txn.WritableTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+@Category(ArchitectureIndependent.class)
+public class PurgeWatermarkTest{
+
+    @Test
+    public void noWatermarkUntilRetentionHasPassed() throws Exception{
+        IncrementingClock clock=new IncrementingClock();
+        TestingTimestampSource timestamps=new TestingTimestampSource();
+        PurgeWatermark watermark=new PurgeWatermark(newStore(clock,timestamps),timestamps,clock,1000L);
+
+        Assert.assertEquals(PurgeWatermark.NONE,watermark.current()); //timestamp 1
+        clock.sleep(500L,TimeUnit.MILLISECONDS);
+        Assert.assertEquals(PurgeWatermark.NONE,watermark.current()); //timestamp 2
+        clock.sleep(500L,TimeUnit.MILLISECONDS);
+        Assert.assertEquals(1L,watermark.current()); //timestamp 3
+        clock.sleep(600L,TimeUnit.MILLISECONDS);
+        Assert.assertEquals("Should use the newest timestamp older than the retention period",
+                2L,watermark.current()); //timestamp 4
+    }
+
+    @Test
+    public void activeTransactionHoldsBackWatermark() throws Exception{
+        IncrementingClock clock=new IncrementingClock();
+        TestingTimestampSource timestamps=new TestingTimestampSource();
+        TestingTxnStore store=newStore(clock,timestamps);
+        PurgeWatermark watermark=new PurgeWatermark(store,timestamps,clock,1000L);
+
+        long beginTs=timestamps.nextTimestamp();
+        store.recordNewTransaction(new WritableTxn(beginTs,beginTs,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                Txn.ROOT_TRANSACTION,mock(TxnLifecycleManager.class),false,null));
+
+        watermark.current();
+        clock.sleep(2000L,TimeUnit.MILLISECONDS);
+        watermark.current();
+        clock.sleep(2000L,TimeUnit.MILLISECONDS);
+        Assert.assertEquals(beginTs,watermark.current());
+
+        store.rollback(beginTs);
+        clock.sleep(2000L,TimeUnit.MILLISECONDS);
+        Assert.assertTrue("Finished transaction should no longer hold back the watermark",
+                watermark.current()>beginTs);
+    }
+
+    private static TestingTxnStore newStore(IncrementingClock clock,TestingTimestampSource timestamps){
+        return new TestingTxnStore(clock,timestamps,null,Long.MAX_VALUE);
+    }
+}
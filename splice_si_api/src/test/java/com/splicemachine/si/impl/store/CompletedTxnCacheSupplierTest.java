@@ -17,6 +17,8 @@ package com.splicemachine.si.impl.store;
 
 import com.splicemachine.concurrent.IncrementingClock;
 import com.splicemachine.si.api.txn.*;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
 import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Assert;
@@ -26,11 +28,19 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.splicemachine.si.impl.TxnTestUtils.assertTxnsMatch;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -160,4 +170,118 @@ public class CompletedTxnCacheSupplierTest{
         TxnView fromCache=store.getTransaction(txn.getTxnId());
         assertTxnsMatch("Transaction from store is not correct!",txn,fromCache);
     }
+
+    @Test
+    public void testEvictsUnreferencedTransactionsFirst() throws Exception{
+        TxnStore backStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),null,Long.MAX_VALUE);
+        CompletedTxnCacheSupplier store=new CompletedTxnCacheSupplier(backStore,8,1);
+        Assert.assertEquals("Incorrect capacity!",8,store.getMaxSize());
+
+        for(long i=1;i<=8;i++){
+            store.cache(new CommittedTxn(i,i+100));
+        }
+        //touch the first transaction, so that it gets a second chance
+        TxnView first=store.getTransactionFromCache(1);
+        Assert.assertNotNull("Transaction was not cached!",first);
+
+        store.cache(new CommittedTxn(9,109));
+        Assert.assertTrue("Referenced transaction was evicted!",store.transactionCached(1));
+        Assert.assertTrue("New transaction was not cached!",store.transactionCached(9));
+        Assert.assertEquals("Incorrect eviction count!",1,store.getEvictionCount());
+
+        int cached=0;
+        for(long i=1;i<=9;i++){
+            if(store.transactionCached(i)) cached++;
+        }
+        Assert.assertEquals("Cache holds more than its capacity!",8,cached);
+    }
+
+    @Test
+    public void testCachedViewMatchesOriginal() throws Exception{
+        TxnStore backStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),null,Long.MAX_VALUE);
+        CompletedTxnCacheSupplier store=new CompletedTxnCacheSupplier(backStore,16,4);
+
+        TxnView committed=new CommittedTxn(256,512);
+        TxnView rolledBack=new RolledBackTxn(768);
+        store.cache(committed);
+        store.cache(rolledBack);
+
+        assertTxnsMatch("Committed transaction does not match!",committed,store.getTransactionFromCache(256));
+        assertTxnsMatch("Rolled back transaction does not match!",rolledBack,store.getTransactionFromCache(768));
+        Assert.assertEquals("Incorrect effective commit timestamp!",512,store.getTransactionFromCache(256).getEffectiveCommitTimestamp());
+        Assert.assertEquals("Incorrect effective state!",Txn.State.ROLLEDBACK,store.getTransactionFromCache(768).getEffectiveState());
+        Assert.assertNull("Found a transaction which was never cached!",store.getTransactionFromCache(1024));
+    }
+
+    @Test
+    public void testHitsShareTheCachedView() throws Exception{
+        TxnStore backStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),null,Long.MAX_VALUE);
+        CompletedTxnCacheSupplier store=new CompletedTxnCacheSupplier(backStore,16,4);
+        store.cache(new CommittedTxn(256,512));
+
+        TxnView first=store.getTransactionFromCache(256);
+        Assert.assertNotNull("Transaction was not cached!",first);
+        Assert.assertSame("A hit should not create a new view!",first,store.getTransactionFromCache(256));
+        Assert.assertSame("A hit should not create a new view!",first,store.getTransaction(256));
+    }
+
+    @Test
+    public void testActiveParentIsNotRemembered() throws Exception{
+        TxnView activeParent=mock(TxnView.class);
+        when(activeParent.getEffectiveState()).thenReturn(Txn.State.ACTIVE);
+        TxnView committedParent=mock(TxnView.class);
+        when(committedParent.getEffectiveState()).thenReturn(Txn.State.COMMITTED);
+        TxnSupplier backStore=mock(TxnSupplier.class);
+        when(backStore.getTransaction(5l,false)).thenReturn(activeParent,committedParent);
+
+        TxnView child=mock(TxnView.class);
+        when(child.getTxnId()).thenReturn(10l);
+        when(child.getBeginTimestamp()).thenReturn(10l);
+        when(child.getParentTxnId()).thenReturn(5l);
+        when(child.getState()).thenReturn(Txn.State.COMMITTED);
+        when(child.getCommitTimestamp()).thenReturn(12l);
+        when(child.getGlobalCommitTimestamp()).thenReturn(-1l);
+        when(child.getIsolationLevel()).thenReturn(Txn.IsolationLevel.SNAPSHOT_ISOLATION);
+        CompletedTxnCacheSupplier store=new CompletedTxnCacheSupplier(backStore,16,4);
+        store.cache(child);
+
+        //the cached view is shared, so it must not hold on to the parent while that can still change
+        TxnView cached=store.getTransactionFromCache(10);
+        Assert.assertEquals("Incorrect effective state!",Txn.State.ACTIVE,cached.getEffectiveState());
+        Assert.assertEquals("Parent outcome was not picked up!",Txn.State.COMMITTED,store.getTransactionFromCache(10).getEffectiveState());
+        Assert.assertEquals(Txn.State.COMMITTED,cached.getEffectiveState());
+        verify(backStore,times(2)).getTransaction(5l,false); //the completed parent was remembered
+    }
+
+    @Test
+    public void testConcurrentReadersNeverSeeTornEntries() throws Exception{
+        TxnStore backStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),null,Long.MAX_VALUE);
+        final CompletedTxnCacheSupplier store=new CompletedTxnCacheSupplier(backStore,64,2);
+        int numThreads=4;
+        ExecutorService executor=Executors.newFixedThreadPool(numThreads);
+        try{
+            List<Future<Void>> futures=new ArrayList<>(numThreads);
+            for(int t=0;t<numThreads;t++){
+                final int offset=t;
+                futures.add(executor.submit(new Callable<Void>(){
+                    @Override
+                    public Void call() throws Exception{
+                        for(long i=1;i<=20000;i++){
+                            long txnId=(i*4+offset)%1000+1;
+                            store.cache(new CommittedTxn(txnId,2*txnId));
+                            TxnView txn=store.getTransactionFromCache((i*7+offset)%1000+1);
+                            if(txn!=null)
+                                Assert.assertEquals("Torn entry!",2*txn.getTxnId(),txn.getCommitTimestamp());
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Void> f:futures){
+                f.get();
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+    }
 }
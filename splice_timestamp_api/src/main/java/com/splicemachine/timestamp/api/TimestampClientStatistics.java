@@ -28,6 +28,12 @@ import javax.management.MXBean;
 public interface TimestampClientStatistics{
 
 	long getNumberTimestampRequests();
+
+	/**
+	 * @return the number of requests sent to the server. Concurrent timestamp requests are coalesced,
+	 * so this is less than {@link #getNumberTimestampRequests()} under load.
+	 */
+	long getNumberTimestampBatches();
 	
  	double getAvgTimestampRequestDuration();
 	
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.Callback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of concurrent timestamp requests which are served by a single round trip to
+ * the {@link TimestampServer}. The server allocates a contiguous range of timestamps for the
+ * whole batch, which are handed out to the waiting callers in the order in which they joined it.
+ *
+ * Callers are only ever added to a batch before its request is sent, so every timestamp in the
+ * range is allocated after each caller asked for it; this is what keeps batching safe for
+ * snapshot isolation.
+ */
+class TimestampBatch implements Callback{
+    private final short callerId;
+    private final List<ClientCallback> callbacks;
+    private final long createdTime;
+
+    TimestampBatch(short callerId,int expectedSize){
+        this.callerId=callerId;
+        this.callbacks=new ArrayList<>(expectedSize);
+        this.createdTime=System.currentTimeMillis();
+    }
+
+    void add(ClientCallback callback){
+        callbacks.add(callback);
+    }
+
+    short getCallerId(){
+        return callerId;
+    }
+
+    int size(){
+        return callbacks.size();
+    }
+
+    long getCreatedTime(){
+        return createdTime;
+    }
+
+    @Override
+    public void error(Exception e){
+        for(ClientCallback callback : callbacks){
+            callback.error(e);
+        }
+    }
+
+    @Override
+    public void complete(long firstTimestamp){
+        long timestamp=firstTimestamp;
+        for(ClientCallback callback : callbacks){
+            callback.complete(timestamp++);
+        }
+    }
+
+    @Override
+    public String toString(){
+        return "TimestampBatch (callerId = "+callerId+", size = "+callbacks.size()+")";
+    }
+}
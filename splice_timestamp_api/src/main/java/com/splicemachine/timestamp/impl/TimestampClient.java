@@ -17,6 +17,7 @@ package com.splicemachine.timestamp.impl;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.util.Queue;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -33,7 +34,6 @@ import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.concurrent.CountDownLatches;
-import com.splicemachine.timestamp.api.Callback;
 import com.splicemachine.timestamp.api.TimestampClientStatistics;
 import com.splicemachine.timestamp.api.TimestampHostProvider;
 import com.splicemachine.timestamp.api.TimestampIOException;
@@ -49,6 +49,8 @@ import org.sparkproject.jboss.netty.handler.codec.frame.FixedLengthFrameDecoder;
 /**
  * Accepts concurrent requests for new transactional timestamps and
  * sends them over a shared connection to the remote {@link TimestampServer}.
+ * Requests which arrive while another request is outstanding are coalesced
+ * into a single request for a range of timestamps.
  * For the caller, the invocation of {@link #getNextTimestamp()}
  * is synchronous.
  * <p>
@@ -66,17 +68,17 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     /**
      * Fixed number of bytes in the message we expect to receive back from the server.
      */
-    private static final int FIXED_MSG_RECEIVED_LENGTH = 10; // 2 byte client id + 8 byte timestamp
+    private static final int FIXED_MSG_RECEIVED_LENGTH = 10; // 2 byte client id + 8 byte first timestamp of the range
 
     private enum State {
         DISCONNECTED, CONNECTING, CONNECTED, SHUTDOWN
     }
 
     /**
-     * A map representing all currently active callers to this TimestampClient
-     * waiting for their response.
+     * A map representing all currently outstanding requests (batches of callers) of this
+     * TimestampClient waiting for their response.
      */
-    private ConcurrentMap<Short, Callback> clientCallbacks = null;
+    private ConcurrentMap<Short, TimestampBatch> clientCallbacks = null;
 
     private final AtomicReference<State> state = new AtomicReference<>(State.DISCONNECTED);
 
@@ -95,12 +97,28 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     // but use a short just in case.
     private AtomicInteger clientCallCounter = new AtomicInteger(CLIENT_COUNTER_INIT);
 
+    /**
+     * The largest number of callers which are served by a single request to the server.
+     */
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    /**
+     * Callers which are waiting to be sent to the server.
+     */
+    private final Queue<ClientCallback> pendingCallbacks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The batch of callers whose request is outstanding, or {@code null} if there is none.
+     */
+    private final AtomicReference<TimestampBatch> inFlightBatch = new AtomicReference<>();
+
     int timeoutMillis;
 
     // Metrics to expose via JMX. See TimestampClientStatistics
     // for solid definitions of each metric.
     private AtomicLong numRequests = new AtomicLong(0);
     private AtomicLong totalRequestDuration = new AtomicLong(0);
+    private AtomicLong numBatches = new AtomicLong(0);
     private TimestampHostProvider timestampHostProvider;
 
 
@@ -218,47 +236,27 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         final ClientCallback callback = new ClientCallback(clientCallId);
         SpliceLogUtils.debug(LOG, "Starting new client call with id %s", clientCallId);
 
-        // Add this caller (id and callback) to the map of current clients.
-        // If an entry was already present for this caller id, that is a bug,
-        // so throw an exception.
-        if (clientCallbacks.putIfAbsent(clientCallId, callback) != null) {
-            doClientErrorThrow(LOG, "Found existing client callback with caller id %s, so unable to handle new call.", null, clientCallId);
-        }
-
-        try {
-            ChannelBuffer buffer = ChannelBuffers.buffer(2);
-            buffer.writeShort(clientCallId);
-            SpliceLogUtils.trace(LOG, "Writing request message to server for client: %s", callback);
-            ChannelFuture futureWrite = channel.write(buffer);
-            futureWrite.addListener(new ChannelFutureListener() {
-                @Override
-                public void operationComplete(ChannelFuture future) throws Exception {
-                    if (!future.isSuccess()) {
-                        doClientErrorThrow(LOG, "Error writing message from timestamp client to server", future.getCause());
-                    } else {
-                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for client: %s", callback);
-                    }
-                }
-            });
-        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
-            clientCallbacks.remove(clientCallId);
-            callback.error(e);
-            doClientErrorThrow(LOG, "Exception writing message to timestamp server for client: %s", e, callback);
-        }
-
-        // If we get here, request was successfully sent without exception.
-        // However, we might not have received response yet, so we need to
-        // wait for that now.
+        // Queue this caller, and send it to the server along with any other queued callers,
+        // unless there is already a request outstanding (in which case we will be sent as soon as it completes).
+        pendingCallbacks.add(callback);
+        sendNextBatch();
 
         try {
             boolean success = callback.await(timeoutMillis);
             if (!success) {
+                pendingCallbacks.remove(callback);
+                abandonExpiredBatch();
                 doClientErrorThrow(LOG, "Client timed out after %s ms waiting for new timestamp: %s", null, timeoutMillis, callback);
             }
         } catch (InterruptedException e) {
+            pendingCallbacks.remove(callback);
             doClientErrorThrow(LOG, "Interrupted waiting for timestamp client: %s", e, callback);
         }
 
+        if (callback.getException() != null) {
+            doClientErrorThrow(LOG, "Unable to fetch timestamp for client: %s", callback.getException(), callback);
+        }
+
         // If we get here, it should mean the client received the response with the timestamp,
         // which we can fetch now from the callback and send it back to the caller.
 
@@ -276,6 +274,80 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         return timestamp;
     }
 
+    /**
+     * Send all queued callers to the server in a single request, if there isn't a request outstanding already.
+     *
+     * Only one request is outstanding at a time: callers which arrive while it is in flight are queued up, and
+     * sent together once it completes. Under load this coalesces many callers into each round trip, while an
+     * idle client still sends each request immediately.
+     */
+    private void sendNextBatch() {
+        while (!pendingCallbacks.isEmpty()) {
+            TimestampBatch batch = new TimestampBatch((short) clientCallCounter.getAndIncrement(), Math.min(pendingCallbacks.size(), MAX_BATCH_SIZE));
+            if (!inFlightBatch.compareAndSet(null, batch))
+                return; // the outstanding request will send the queued callers when it completes
+
+            ClientCallback next;
+            while (batch.size() < MAX_BATCH_SIZE && (next = pendingCallbacks.poll()) != null) {
+                batch.add(next);
+            }
+            if (batch.size() <= 0) {
+                // another thread drained the queue before us
+                inFlightBatch.compareAndSet(batch, null);
+                continue;
+            }
+
+            if (clientCallbacks.putIfAbsent(batch.getCallerId(), batch) != null) {
+                failBatch(batch, new TimestampIOException("Found existing client callback with caller id " + batch.getCallerId() + ", so unable to handle new call."));
+                return;
+            }
+            numBatches.incrementAndGet();
+            writeBatch(batch);
+            return;
+        }
+    }
+
+    private void writeBatch(final TimestampBatch batch) {
+        try {
+            ChannelBuffer buffer = ChannelBuffers.buffer(TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+            buffer.writeShort(batch.getCallerId());
+            buffer.writeShort(batch.size());
+            SpliceLogUtils.trace(LOG, "Writing request message to server for batch: %s", batch);
+            ChannelFuture futureWrite = channel.write(buffer);
+            futureWrite.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (!future.isSuccess()) {
+                        failBatch(batch, new TimestampIOException("Error writing message from timestamp client to server", future.getCause()));
+                    } else {
+                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for batch: %s", batch);
+                    }
+                }
+            });
+        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can fail the waiting callers
+            doError("Exception writing message to timestamp server for batch: %s", e, batch);
+            failBatch(batch, e);
+        }
+    }
+
+    private void failBatch(TimestampBatch batch, Exception e) {
+        clientCallbacks.remove(batch.getCallerId(), batch);
+        batch.error(e);
+        if (inFlightBatch.compareAndSet(batch, null))
+            sendNextBatch();
+    }
+
+    /**
+     * Fail the outstanding request if it has been waiting for longer than the timeout, so that
+     * a lost response does not prevent all subsequent callers from being sent.
+     */
+    private void abandonExpiredBatch() {
+        TimestampBatch batch = inFlightBatch.get();
+        if (batch != null && System.currentTimeMillis() - batch.getCreatedTime() >= timeoutMillis) {
+            failBatch(batch, new TimestampIOException("Timed out after " + timeoutMillis + " ms waiting for response to " + batch));
+        }
+    }
+
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
@@ -290,15 +362,17 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         ensureReadableBytes(buf, 0);
 
         SpliceLogUtils.debug(LOG, "Response from server: clientCallerId = %s, timestamp = %s", clientCallerId, timestamp);
-        Callback cb = clientCallbacks.remove(clientCallerId);
+        TimestampBatch cb = clientCallbacks.remove(clientCallerId);
         if (cb == null) {
             doClientErrorThrow(LOG, "Client callback with id %s not found, so unable to deliver timestamp %s", null, clientCallerId, timestamp);
         }
 
-        // This releases the latch the original client thread is waiting for
-        // (to provide the synchronous behavior for that caller) and also
-        // provides the timestamp.
+        // This releases the latches the original client threads are waiting for
+        // (to provide the synchronous behavior for those callers) and also
+        // provides the timestamps.
         cb.complete(timestamp);
+        if (inFlightBatch.compareAndSet(cb, null))
+            sendNextBatch();
 
         super.messageReceived(ctx, e);
     }
@@ -321,6 +395,11 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             channel=null;
             shouldContinue = !state.compareAndSet(s,State.DISCONNECTED);
         }while(shouldContinue);
+        TimestampBatch batch = inFlightBatch.get();
+        if (batch != null) {
+            // the response to the outstanding request will never arrive
+            failBatch(batch, new TimestampIOException("TimestampClient was disconnected while waiting for " + batch));
+        }
         connectIfNeeded();
     }
 
@@ -345,6 +424,11 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         return numRequests.get();
     }
 
+    @Override
+    public long getNumberTimestampBatches() {
+        return numBatches.get();
+    }
+
     @Override
     public double getAvgTimestampRequestDuration() {
         double a = (double) totalRequestDuration.get();
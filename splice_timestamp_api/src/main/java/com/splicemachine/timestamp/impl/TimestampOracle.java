@@ -64,7 +64,7 @@ public class TimestampOracle implements TimestampOracleStatistics{
 		return to;
 	}
 	
-	private TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
+	TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
         this.timestampBlockManager=timestampBlockManager;
         this.blockSize = blockSize;
 		initialize();
@@ -88,13 +88,31 @@ public class TimestampOracle implements TimestampOracleStatistics{
     }
 
 	public long getNextTimestamp() throws TimestampIOException {
-		long nextTS = _timestampCounter.getAndIncrement();
+		return getNextTimestamps(1);
+	}
+
+	/**
+	 * Allocate a contiguous range of {@code count} timestamps.
+	 *
+	 * The range is claimed with a single atomic add, so concurrent callers never block one another
+	 * unless the range crosses the end of the reserved block (in which case a new block must be
+	 * durably reserved before any timestamp in the range can be handed out).
+	 *
+	 * @param count the number of timestamps to allocate. Must be positive.
+	 * @return the first timestamp in the range; the caller owns {@code [first, first+count)}
+	 * @throws TimestampIOException if a new block could not be reserved
+	 */
+	public long getNextTimestamps(int count) throws TimestampIOException {
+		assert count > 0 : "Cannot allocate "+count+" timestamps";
+		long firstTS = _timestampCounter.getAndAdd(count);
+		long lastTS = firstTS + count - 1;
 		long maxTS = _maxReservedTimestamp; // avoid the double volatile read
-		if (nextTS > maxTS) {
+		while (lastTS > maxTS) {
 			reserveNextBlock(maxTS);
+			maxTS = _maxReservedTimestamp;
 		}
-		_numTimestampsCreated.incrementAndGet(); // JMX metric
-		return nextTS;
+		_numTimestampsCreated.addAndGet(count); // JMX metric
+		return firstTS;
 	}
 
     private void reserveNextBlock(long priorMaxReservedTimestamp) throws TimestampIOException {
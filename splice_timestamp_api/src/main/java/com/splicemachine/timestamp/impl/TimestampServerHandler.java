@@ -60,10 +60,16 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
 
         final short callerId = buf.readShort();
+        ensureReadableBytes(buf, 2);
+
+        final short numTimestamps = buf.readShort();
         ensureReadableBytes(buf, 0);
+        if (numTimestamps <= 0) {
+            throw new TimestampIOException("Invalid number of timestamps " + numTimestamps + " requested by caller id " + callerId);
+        }
 
-        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
-        long nextTimestamp = oracle.getNextTimestamp();
+        SpliceLogUtils.trace(LOG, "Received request for %s timestamps from client. Caller id = %s", numTimestamps, callerId);
+        long nextTimestamp = oracle.getNextTimestamps(numTimestamps);
         assert nextTimestamp > 0;
 
 
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampHostProvider;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sparkproject.jboss.netty.buffer.ChannelBuffer;
+import org.sparkproject.jboss.netty.buffer.ChannelBuffers;
+import org.sparkproject.jboss.netty.channel.Channel;
+import org.sparkproject.jboss.netty.channel.ChannelFuture;
+import org.sparkproject.jboss.netty.channel.ChannelHandlerContext;
+import org.sparkproject.jboss.netty.channel.ChannelStateEvent;
+import org.sparkproject.jboss.netty.channel.Channels;
+import org.sparkproject.jboss.netty.channel.MessageEvent;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the TimestampClient over a mock channel, acting as the server by hand, so that the order in which
+ * callers arrive and responses are delivered is under the control of the test.
+ */
+public class TimestampClientTest{
+    private TimestampClient client;
+    private final BlockingQueue<ChannelBuffer> requests=new LinkedBlockingQueue<>();
+    private volatile boolean failWrites;
+
+    @Before
+    public void setUp() throws Exception{
+        client=new TimestampClient(10000,mock(TimestampHostProvider.class));
+        final Channel channel=mock(Channel.class);
+        when(channel.write(any())).thenAnswer(new Answer<ChannelFuture>(){
+            @Override
+            public ChannelFuture answer(InvocationOnMock invocation) throws Throwable{
+                requests.add((ChannelBuffer)invocation.getArguments()[0]);
+                return failWrites?Channels.failedFuture(channel,new IOException("Connection reset"))
+                        :Channels.succeededFuture(channel);
+            }
+        });
+        ChannelStateEvent connected=mock(ChannelStateEvent.class);
+        when(connected.getChannel()).thenReturn(channel);
+        client.channelConnected(mock(ChannelHandlerContext.class),connected);
+    }
+
+    @After
+    public void tearDown() throws Exception{
+        client.shutdown();
+    }
+
+    @Test
+    public void callersWhichArriveDuringARequestShareTheNextOne() throws Exception{
+        Caller first=start();
+        ChannelBuffer firstRequest=nextRequest();
+        Assert.assertEquals(1,count(firstRequest));
+
+        Caller[] waiting=new Caller[]{start(),start(),start()};
+        awaitQueued(waiting);
+        Assert.assertTrue("only one request may be outstanding at a time",requests.isEmpty());
+
+        respond(firstRequest,100L);
+        Assert.assertEquals(100L,first.timestamp());
+
+        ChannelBuffer ranged=nextRequest();
+        Assert.assertEquals("the queued callers should be sent as one ranged request",3,count(ranged));
+        respond(ranged,200L);
+        Set<Long> timestamps=new HashSet<>();
+        for(Caller caller : waiting){
+            timestamps.add(caller.timestamp());
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList(200L,201L,202L)),timestamps);
+        Assert.assertEquals(2L,client.getNumberTimestampBatches());
+        Assert.assertEquals(4L,client.getNumberTimestampRequests());
+    }
+
+    @Test
+    public void rangeIsNeverHandedOutTwice() throws Exception{
+        Thread server=new Thread(new Runnable(){
+            @Override
+            public void run(){
+                long next=1L;
+                try{
+                    while(!Thread.currentThread().isInterrupted()){
+                        ChannelBuffer request=requests.take();
+                        respond(request,next);
+                        next+=count(request);
+                    }
+                }catch(InterruptedException ignored){
+                    //test is over
+                }catch(Exception e){
+                    throw new RuntimeException(e);
+                }
+            }
+        },"timestamp-test-server");
+        server.setDaemon(true);
+        server.start();
+        try{
+            final int callsPerThread=500;
+            final Set<Long> handedOut=new HashSet<>();
+            Thread[] threads=new Thread[8];
+            final Throwable[] error=new Throwable[1];
+            for(int i=0;i<threads.length;i++){
+                threads[i]=new Thread(new Runnable(){
+                    @Override
+                    public void run(){
+                        try{
+                            for(int n=0;n<callsPerThread;n++){
+                                long ts=client.getNextTimestamp();
+                                synchronized(handedOut){
+                                    Assert.assertTrue("timestamp "+ts+" was handed out twice",handedOut.add(ts));
+                                }
+                            }
+                        }catch(Throwable t){
+                            synchronized(error){
+                                error[0]=t;
+                            }
+                        }
+                    }
+                });
+                threads[i].start();
+            }
+            for(Thread thread : threads){
+                thread.join();
+            }
+            synchronized(error){
+                if(error[0]!=null)
+                    throw new AssertionError(error[0]);
+            }
+            Assert.assertEquals(threads.length*callsPerThread,handedOut.size());
+            Assert.assertEquals(threads.length*callsPerThread,client.getNumberTimestampRequests());
+        }finally{
+            server.interrupt();
+        }
+    }
+
+    @Test
+    public void failedRequestFailsEveryCallerInIt() throws Exception{
+        Caller first=start();
+        ChannelBuffer firstRequest=nextRequest();
+        Caller[] waiting=new Caller[]{start(),start(),start()};
+        awaitQueued(waiting);
+
+        failWrites=true;
+        respond(firstRequest,100L);
+        Assert.assertEquals(100L,first.timestamp());
+        Assert.assertEquals(3,count(nextRequest()));
+        for(Caller caller : waiting){
+            caller.join(TimeUnit.SECONDS.toMillis(10));
+            Assert.assertTrue("every caller in the failed request should see the error",caller.error instanceof TimestampIOException);
+        }
+
+        //the failed request must not block the callers which come after it
+        failWrites=false;
+        Caller next=start();
+        respond(nextRequest(),300L);
+        Assert.assertEquals(300L,next.timestamp());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private Caller start(){
+        Caller caller=new Caller();
+        caller.setDaemon(true);
+        caller.start();
+        return caller;
+    }
+
+    private ChannelBuffer nextRequest() throws InterruptedException{
+        ChannelBuffer request=requests.poll(10,TimeUnit.SECONDS);
+        Assert.assertNotNull("no request was sent",request);
+        return request;
+    }
+
+    private static int count(ChannelBuffer request){
+        return request.getShort(2);
+    }
+
+    private void respond(ChannelBuffer request,long firstTimestamp) throws Exception{
+        ChannelBuffer response=ChannelBuffers.buffer(10);
+        response.writeShort(request.getShort(0));
+        response.writeLong(firstTimestamp);
+        MessageEvent event=mock(MessageEvent.class);
+        when(event.getMessage()).thenReturn(response);
+        client.messageReceived(mock(ChannelHandlerContext.class),event);
+    }
+
+    /*
+     * Queued callers park in a timed wait for their response
+     */
+    private static void awaitQueued(Caller... callers) throws InterruptedException{
+        long deadline=System.currentTimeMillis()+TimeUnit.SECONDS.toMillis(10);
+        for(Caller caller : callers){
+            while(caller.getState()!=Thread.State.TIMED_WAITING){
+                Assert.assertTrue("caller never started waiting",System.currentTimeMillis()<deadline);
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private class Caller extends Thread{
+        private volatile long timestamp=-1L;
+        private volatile Exception error;
+
+        @Override
+        public void run(){
+            try{
+                timestamp=client.getNextTimestamp();
+            }catch(Exception e){
+                error=e;
+            }
+        }
+
+        long timestamp() throws InterruptedException{
+            join(TimeUnit.SECONDS.toMillis(10));
+            if(error!=null)
+                throw new AssertionError(error);
+            return timestamp;
+        }
+    }
+}
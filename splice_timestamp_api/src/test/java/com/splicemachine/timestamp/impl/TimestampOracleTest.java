@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimestampOracleTest{
+
+    @Test
+    public void rangeSpanningSeveralBlocksIsReservedBeforeItIsHandedOut() throws Exception{
+        MemoryBlockManager blocks=new MemoryBlockManager();
+        TimestampOracle oracle=new TimestampOracle(blocks,10);
+        Assert.assertEquals(1L,oracle.getNextTimestamps(35));
+        Assert.assertTrue("timestamps were handed out before they were reserved",blocks.maxReserved>=35L);
+        Assert.assertEquals(36L,oracle.getNextTimestamp());
+        Assert.assertEquals(36L,oracle.getNumberTimestampsCreated());
+    }
+
+    @Test
+    public void concurrentRangesNeverOverlap() throws Exception{
+        final MemoryBlockManager blocks=new MemoryBlockManager();
+        final TimestampOracle oracle=new TimestampOracle(blocks,10);
+        final Set<Long> handedOut=Collections.newSetFromMap(new ConcurrentHashMap<Long,Boolean>());
+        int numThreads=8;
+        ExecutorService executor=Executors.newFixedThreadPool(numThreads);
+        try{
+            List<Future<Long>> futures=new ArrayList<>(numThreads);
+            for(int i=0;i<numThreads;i++){
+                final Random random=new Random(i);
+                futures.add(executor.submit(new Callable<Long>(){
+                    @Override
+                    public Long call() throws Exception{
+                        long total=0L;
+                        for(int n=0;n<2000;n++){
+                            //some ranges are larger than a block, so they have to reserve more than once
+                            int count=1+random.nextInt(25);
+                            long first=oracle.getNextTimestamps(count);
+                            Assert.assertTrue("range was handed out before it was reserved",first+count-1<=blocks.maxReserved);
+                            for(long ts=first;ts<first+count;ts++){
+                                Assert.assertTrue("timestamp "+ts+" was handed out twice",handedOut.add(ts));
+                            }
+                            total+=count;
+                        }
+                        return total;
+                    }
+                }));
+            }
+            long total=0L;
+            for(Future<Long> future : futures){
+                total+=future.get();
+            }
+            Assert.assertEquals(total,handedOut.size());
+            for(long ts=1;ts<=total;ts++){
+                Assert.assertTrue("timestamp "+ts+" was skipped",handedOut.contains(ts));
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void rangeWhoseReservationFailedIsNeverHandedOut() throws Exception{
+        MemoryBlockManager blocks=new MemoryBlockManager();
+        TimestampOracle oracle=new TimestampOracle(blocks,10);
+        Assert.assertEquals(1L,oracle.getNextTimestamps(10));
+
+        blocks.failures.set(1);
+        try{
+            oracle.getNextTimestamps(5);
+            Assert.fail("the block could not be reserved");
+        }catch(TimestampIOException expected){ }
+
+        //the failed call claimed [11,16), so those timestamps are skipped rather than handed to someone else
+        long first=oracle.getNextTimestamps(5);
+        Assert.assertTrue("failed range was handed out again: "+first,first>=16L);
+        Assert.assertTrue(first+4<=blocks.maxReserved);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper classes*/
+    private static class MemoryBlockManager implements TimestampBlockManager{
+        private volatile long maxReserved=0L;
+        private final AtomicInteger failures=new AtomicInteger(0);
+
+        @Override
+        public void reserveNextBlock(long currentMaxReserved) throws TimestampIOException{
+            if(failures.getAndDecrement()>0)
+                throw new TimestampIOException("Unable to reserve block");
+            Assert.assertTrue("blocks must be reserved in increasing order",currentMaxReserved>maxReserved);
+            maxReserved=currentMaxReserved;
+        }
+
+        @Override
+        public long initialize() throws TimestampIOException{
+            return maxReserved;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.hash;
+
+/**
+ * A simple Bloom filter over byte sequences.
+ *
+ * The bit positions are derived from a single 64-bit Murmur2 hash using the double-hashing
+ * scheme of Kirsch and Mitzenmacher, so adding or probing an element costs one pass over its bytes
+ * regardless of the number of hash functions in use.
+ *
+ * This class is not thread safe for writes, but once it has been fully populated it may
+ * be probed from any number of threads.
+ */
+public final class BloomFilter{
+    private static final Hash64 HASH=HashFunctions.murmur2_64(0);
+
+    private final long[] bits;
+    private final long numBits;
+    private final int numHashes;
+
+    private BloomFilter(long numBits,int numHashes){
+        this.bits=new long[(int)((numBits+63)>>>6)];
+        this.numBits=bits.length*64L;
+        this.numHashes=numHashes;
+    }
+
+    /**
+     * Create a filter sized to hold {@code expectedElements} with (approximately) the specified
+     * false positive rate.
+     *
+     * @param expectedElements the number of elements which will be added
+     * @param falsePositiveRate the desired false positive rate, in the range (0,1)
+     * @return an empty filter
+     */
+    public static BloomFilter create(long expectedElements,double falsePositiveRate){
+        assert falsePositiveRate>0d && falsePositiveRate<1d: "False positive rate must be in (0,1)";
+        long n=Math.max(1L,expectedElements);
+        long m=(long)Math.ceil(-n*Math.log(falsePositiveRate)/(Math.log(2)*Math.log(2)));
+        m=Math.max(64L,Math.min(m,Integer.MAX_VALUE*64L));
+        int k=(int)Math.max(1L,Math.round((double)m/n*Math.log(2)));
+        return new BloomFilter(m,k);
+    }
+
+    /**
+     * @return the hash which this filter uses for the specified bytes. Elements may be added
+     * (and probed) by their hash using {@link #addHash(long)} and {@link #mightContainHash(long)}.
+     */
+    public static long hash(byte[] data,int offset,int length){
+        return HASH.hash(data,offset,length);
+    }
+
+    public void add(byte[] data,int offset,int length){
+        addHash(hash(data,offset,length));
+    }
+
+    public void addHash(long hash){
+        int h1=(int)hash;
+        int h2=(int)(hash>>>32);
+        for(int i=1;i<=numHashes;i++){
+            long combined=(h1+(long)i*h2)&Long.MAX_VALUE;
+            long bit=combined%numBits;
+            bits[(int)(bit>>>6)]|=(1L<<bit);
+        }
+    }
+
+    public boolean mightContain(byte[] data,int offset,int length){
+        return mightContainHash(hash(data,offset,length));
+    }
+
+    public boolean mightContainHash(long hash){
+        int h1=(int)hash;
+        int h2=(int)(hash>>>32);
+        for(int i=1;i<=numHashes;i++){
+            long combined=(h1+(long)i*h2)&Long.MAX_VALUE;
+            long bit=combined%numBits;
+            if((bits[(int)(bit>>>6)]&(1L<<bit))==0)
+                return false;
+        }
+        return true;
+    }
+
+    public int numHashes(){
+        return numHashes;
+    }
+
+    public long sizeInBytes(){
+        return bits.length*8L;
+    }
+}
@@ -54,12 +54,13 @@ final class Murmur64 implements Hash64 {
         long h = initialize(seed, length);
 
         int pos = offset;
-        while((length-pos)>=8){
+        int end = offset+length;
+        while((end-pos)>=8){
             h = updateFull(data, h, pos);
             pos+=8;
         }
 
-        h = updatePartial(data, length-pos, h, pos);
+        h = updatePartial(data, end-pos, h, pos);
         h = finalize(h);
 
         return h;
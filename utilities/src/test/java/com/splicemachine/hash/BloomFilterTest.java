@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.hash;
+
+import com.splicemachine.primitives.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class BloomFilterTest{
+
+    @Test
+    public void containsEverythingAdded() throws Exception{
+        BloomFilter filter=BloomFilter.create(10000,0.01d);
+        Random random=new Random(0L);
+        byte[][] added=new byte[10000][];
+        for(int i=0;i<added.length;i++){
+            added[i]=new byte[1+random.nextInt(20)];
+            random.nextBytes(added[i]);
+            filter.add(added[i],0,added[i].length);
+        }
+        for(byte[] data : added){
+            Assert.assertTrue("Bloom filter produced a false negative!",filter.mightContain(data,0,data.length));
+        }
+    }
+
+    @Test
+    public void probeIsIndependentOfOffset() throws Exception{
+        BloomFilter filter=BloomFilter.create(100,0.01d);
+        byte[] data=Bytes.toBytes("a join key which spans more than one block");
+        filter.add(data,0,data.length);
+
+        byte[] embedded=new byte[data.length+7];
+        System.arraycopy(data,0,embedded,5,data.length);
+        Assert.assertTrue(filter.mightContain(embedded,5,data.length));
+    }
+
+    @Test
+    public void falsePositiveRateIsBounded() throws Exception{
+        int n=10000;
+        BloomFilter filter=BloomFilter.create(n,0.01d);
+        for(int i=0;i<n;i++){
+            byte[] data=Bytes.toBytes(i);
+            filter.add(data,0,data.length);
+        }
+        int falsePositives=0;
+        for(int i=n;i<2*n;i++){
+            byte[] data=Bytes.toBytes(i);
+            if(filter.mightContain(data,0,data.length))
+                falsePositives++;
+        }
+        Assert.assertTrue("Too many false positives: "+falsePositives,falsePositives<3*n/100);
+    }
+
+    @Test
+    public void emptyFilterContainsNothing() throws Exception{
+        BloomFilter filter=BloomFilter.create(0,0.01d);
+        byte[] data=Bytes.toBytes(12L);
+        Assert.assertFalse(filter.mightContain(data,0,data.length));
+    }
+}
@@ -69,6 +69,16 @@ public class Murmur64Test{
         Assert.assertEquals(correct,actual);
     }
 
+    @Test
+    public void testOffsetSameAsByteArray() throws Exception {
+        long correct = hasher.hash(sampleData,0,sampleData.length);
+        byte[] padded = new byte[sampleData.length+5];
+        System.arraycopy(sampleData,0,padded,3,sampleData.length);
+        long actual = hasher.hash(padded,3,sampleData.length);
+
+        Assert.assertEquals("Hash should not depend on the offset!",correct,actual);
+    }
+
     @Test
     public void testIntSameAsByteArray() throws Exception {
         byte[] bytes = Bytes.toBytes(sampleValue);